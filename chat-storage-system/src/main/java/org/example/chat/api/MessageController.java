@@ -3,12 +3,14 @@ package org.example.chat.api;
 import jakarta.validation.Valid;
 import org.example.chat.api.dto.CreateMessageRequest;
 import org.example.chat.api.dto.MessageResponse;
+import org.example.chat.ingest.AsyncMessageIngest;
 import org.example.chat.service.MessageService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -17,14 +19,27 @@ import java.util.UUID;
 public class MessageController {
 
     private final MessageService messageService;
+    private final Optional<AsyncMessageIngest> asyncIngest;
 
-    public MessageController(MessageService messageService) {
+    public MessageController(MessageService messageService, Optional<AsyncMessageIngest> asyncIngest) {
         this.messageService = messageService;
+        this.asyncIngest = asyncIngest;
     }
 
+    /**
+     * Sync mode stores the message and returns 201 with it. Async mode (X-Write-Mode: async or
+     * ?mode=async, when chat.ingest.enabled) queues it and returns 202 with its id; it falls back
+     * to sync when the async path is disabled.
+     */
     @PostMapping("/sessions/{sessionId}/messages")
-    public ResponseEntity<MessageResponse> postMessage(@PathVariable UUID sessionId,
-                                                       @Valid @RequestBody CreateMessageRequest req) {
+    public ResponseEntity<?> postMessage(@PathVariable UUID sessionId,
+                                         @RequestHeader(value = "X-Write-Mode", required = false) String writeMode,
+                                         @RequestParam(value = "mode", required = false) String mode,
+                                         @Valid @RequestBody CreateMessageRequest req) {
+        String requested = writeMode != null ? writeMode : mode;
+        if (asyncIngest.isPresent() && asyncIngest.get().useAsync(requested)) {
+            return ResponseEntity.status(202).body(asyncIngest.get().accept(sessionId, req));
+        }
         MessageResponse msg = messageService.addMessage(sessionId, req);
         return ResponseEntity.status(201).body(msg);
     }
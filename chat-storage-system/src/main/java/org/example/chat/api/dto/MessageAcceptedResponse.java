@@ -0,0 +1,18 @@
+package org.example.chat.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageAcceptedResponse {
+    private UUID messageId;
+    private UUID sessionId;
+    private String status; // queued
+}
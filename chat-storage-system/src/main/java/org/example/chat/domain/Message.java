@@ -50,6 +50,6 @@ public class Message {
     @PrePersist
     public void prePersist() {
         if (id == null) id = UUID.randomUUID();
-        createdAt = Instant.now();
+        if (createdAt == null) createdAt = Instant.now(); // async writes keep the time they were accepted
     }
 }
@@ -0,0 +1,7 @@
+package org.example.chat.exception;
+
+public class QueueFullException extends RuntimeException {
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.chat.ingest;
+
+import org.example.chat.api.dto.CreateMessageRequest;
+import org.example.chat.api.dto.MessageAcceptedResponse;
+import org.example.chat.exception.ResourceNotFoundException;
+import org.example.chat.repository.ChatSessionRepository;
+import org.example.chat.service.SessionService;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts messages on the async write path: checks the session exists, appends the message to
+ * the {@link DurableMessageQueue} and returns its id without a database write.
+ * <p>
+ * Sessions found to exist are remembered, so a busy session costs one database read rather
+ * than one per message. {@link SessionService#deleteSession} forgets a deleted session; a
+ * message accepted in the window before that is skipped by {@link MessageBatchWriter}, like any
+ * message whose session is deleted while it waits in the queue.
+ */
+public class AsyncMessageIngest {
+
+    /**
+     * Sessions remembered before the set is cleared and refilled from the database.
+     */
+    private static final int MAX_KNOWN_SESSIONS = 100_000;
+
+    private final DurableMessageQueue queue;
+    private final ChatSessionRepository sessionRepository;
+    private final boolean asyncByDefault;
+    private final Set<UUID> knownSessions = ConcurrentHashMap.newKeySet();
+
+    public AsyncMessageIngest(DurableMessageQueue queue, ChatSessionRepository sessionRepository, IngestProperties properties) {
+        this.queue = queue;
+        this.sessionRepository = sessionRepository;
+        this.asyncByDefault = "async".equalsIgnoreCase(properties.getDefaultMode());
+    }
+
+    /**
+     * @param mode the requested write mode, or null for the configured default
+     * @return true if the write should go through the queue
+     */
+    public boolean useAsync(String mode) {
+        return mode == null ? asyncByDefault : "async".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * @throws ResourceNotFoundException if the session does not exist
+     * @throws org.example.chat.exception.QueueFullException if the consumer is too far behind
+     */
+    public MessageAcceptedResponse accept(UUID sessionId, CreateMessageRequest req) {
+        if (!knownSessions.contains(sessionId)) {
+            if (!sessionRepository.existsById(sessionId)) {
+                throw new ResourceNotFoundException("ChatSession", sessionId.toString());
+            }
+            if (knownSessions.size() >= MAX_KNOWN_SESSIONS) {
+                knownSessions.clear();
+            }
+            knownSessions.add(sessionId);
+        }
+        QueuedMessage q = new QueuedMessage(UUID.randomUUID(), sessionId, req.getSenderId(), req.getRole(),
+                req.getContent(), req.getContext(), Instant.now());
+        queue.append(q);
+        return new MessageAcceptedResponse(q.id(), sessionId, "queued");
+    }
+
+    /**
+     * Stops accepting messages for a session without checking the database again.
+     */
+    public void forgetSession(UUID sessionId) {
+        knownSessions.remove(sessionId);
+    }
+
+    public int backlog() {
+        return queue.backlog();
+    }
+}
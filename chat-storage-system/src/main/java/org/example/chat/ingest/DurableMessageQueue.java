@@ -0,0 +1,402 @@
+package org.example.chat.ingest;
+
+import org.example.chat.exception.QueueFullException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Local disk-backed message log that stands in for a Kafka topic on the async write path.
+ * <p>
+ * Appended messages go to segment files in one directory and are fsynced before
+ * {@link #append} returns; concurrent appenders share one fsync (group commit). A single
+ * consumer reads batches with {@link #poll} and acknowledges them with {@link #commit}, which
+ * records its position in {@code consumer.offset} and deletes fully consumed segments. After a
+ * restart the consumer resumes from the last committed position, so delivery is at-least-once
+ * and the consumer has to be idempotent.
+ * <p>
+ * Backpressure: once {@code maxBacklog} messages are waiting for the consumer, appenders wait
+ * up to {@code appendTimeout} for room and then fail with {@link QueueFullException}.
+ * <p>
+ * Records are {@code [int length][int CRC32C][payload]}; offsets are byte positions in the
+ * whole log, and segments are named after the offset they start at. A torn record at the end
+ * of the last segment, left by a crash mid-write, is truncated on open.
+ */
+public class DurableMessageQueue implements AutoCloseable {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String OFFSET_FILE = "consumer.offset";
+    private static final int HEADER_BYTES = 8;
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final int maxBacklog;
+    private final long appendTimeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    // Guarded by lock.
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private FileChannel active;
+    private long activeBase;
+    private long writtenOffset;
+    private long committedOffset;
+    private int backlog;
+    private boolean closed;
+
+    // Written under syncLock; appended bytes below it are on disk and visible to the consumer.
+    private volatile long syncedOffset;
+
+    // Used only by the consumer thread.
+    private long readOffset;
+    private FileChannel readChannel;
+    private long readBase = -1;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+
+    public DurableMessageQueue(Path dir, long segmentBytes, int maxBacklog, Duration appendTimeout) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxBacklog = maxBacklog;
+        this.appendTimeoutNanos = appendTimeout.toNanos();
+        try {
+            Files.createDirectories(dir);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                }
+            }
+            Path offsetFile = dir.resolve(OFFSET_FILE);
+            if (Files.exists(offsetFile)) {
+                committedOffset = Long.parseLong(Files.readString(offsetFile, StandardCharsets.US_ASCII).trim());
+            }
+            if (segments.isEmpty()) {
+                segments.put(committedOffset, segmentPath(committedOffset));
+            }
+            writtenOffset = recover();
+            activeBase = segments.lastKey();
+            active = FileChannel.open(segments.get(activeBase), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            active.position(writtenOffset - activeBase);
+            syncedOffset = writtenOffset;
+            readOffset = committedOffset;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open ingest queue in " + dir, e);
+        }
+    }
+
+    /**
+     * Appends a message and waits until it is on disk.
+     * @throws QueueFullException if the backlog stays full for the append timeout
+     */
+    public void append(QueuedMessage message) {
+        byte[] payload = message.encode();
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        long end;
+        lock.lock();
+        try {
+            long nanos = appendTimeoutNanos;
+            while (backlog >= maxBacklog && !closed) {
+                if (nanos <= 0) {
+                    throw new QueueFullException("Ingest queue is full: " + backlog + " messages waiting to be stored");
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (closed) throw new IllegalStateException("Ingest queue is closed");
+            if (writtenOffset > activeBase && writtenOffset - activeBase + record.remaining() > segmentBytes) {
+                roll();
+            }
+            while (record.hasRemaining()) {
+                active.write(record);
+            }
+            writtenOffset += record.limit();
+            end = writtenOffset;
+            backlog++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for room in the ingest queue", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to ingest queue", e);
+        } finally {
+            lock.unlock();
+        }
+        sync(end);
+    }
+
+    /**
+     * Reads the next messages after those already polled, waiting up to {@code timeout} if
+     * there are none. Only the consumer thread may call this.
+     * @return the messages, possibly none, and the offset to {@link #commit} once they are stored
+     */
+    public Batch poll(int maxMessages, Duration timeout) throws InterruptedException {
+        long base;
+        long end;
+        Path path;
+        lock.lock();
+        try {
+            long nanos = timeout.toNanos();
+            while (syncedOffset <= readOffset && !closed) {
+                if (nanos <= 0) return new Batch(List.of(), readOffset);
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            if (closed) return new Batch(List.of(), readOffset);
+            base = segments.floorKey(readOffset);
+            Long next = segments.higherKey(base);
+            end = next == null ? syncedOffset : Math.min(next, syncedOffset);
+            path = segments.get(base);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            if (readBase != base) {
+                if (readChannel != null) readChannel.close();
+                readChannel = FileChannel.open(path, StandardOpenOption.READ);
+                readBase = base;
+            }
+            List<QueuedMessage> messages = new ArrayList<>();
+            long offset = readOffset;
+            while (messages.size() < maxMessages && offset < end) {
+                readBuffer.clear().limit((int) Math.min(readBuffer.capacity(), end - offset));
+                readFully(readChannel, readBuffer, offset - base);
+                readBuffer.flip();
+                int start = readBuffer.position();
+                while (messages.size() < maxMessages && readBuffer.remaining() >= HEADER_BYTES) {
+                    int pos = readBuffer.position();
+                    int length = readBuffer.getInt(pos);
+                    if (readBuffer.remaining() < HEADER_BYTES + length) break;
+                    ByteBuffer payload = readBuffer.slice(pos + HEADER_BYTES, length);
+                    if (crc(payload.duplicate()) != readBuffer.getInt(pos + 4)) {
+                        throw new IllegalStateException("Corrupt ingest queue record at offset " + (offset + pos));
+                    }
+                    messages.add(QueuedMessage.decode(payload));
+                    readBuffer.position(pos + HEADER_BYTES + length);
+                }
+                int read = readBuffer.position() - start;
+                if (read == 0) {
+                    // The next record is larger than the buffer.
+                    readBuffer = ByteBuffer.allocate(HEADER_BYTES + readBuffer.getInt(start));
+                }
+                offset += read;
+            }
+            readOffset = offset;
+            return new Batch(messages, offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ingest queue", e);
+        }
+    }
+
+    /**
+     * Marks a polled batch as stored, so it is not delivered again after a restart and its
+     * space counts as free for appenders.
+     */
+    public void commit(Batch batch) {
+        if (batch.messages().isEmpty()) return;
+        List<Path> consumed;
+        try {
+            Path tmp = dir.resolve(OFFSET_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(Long.toString(batch.endOffset()).getBytes(StandardCharsets.US_ASCII)));
+                channel.force(true);
+            }
+            Files.move(tmp, dir.resolve(OFFSET_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            lock.lock();
+            try {
+                committedOffset = batch.endOffset();
+                backlog -= batch.messages().size();
+                notFull.signalAll();
+                consumed = deleteConsumedSegments();
+            } finally {
+                lock.unlock();
+            }
+            for (Path file : consumed) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to commit ingest queue offset", e);
+        }
+    }
+
+    /**
+     * @return the number of appended messages not yet committed by the consumer
+     */
+    public int backlog() {
+        lock.lock();
+        try {
+            return backlog;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            notFull.signalAll();
+            notEmpty.signalAll();
+            active.force(false);
+            active.close();
+            if (readChannel != null) readChannel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close ingest queue", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces appended bytes up to {@code target} to disk. Appenders that arrive while one
+     * fsync runs are covered by the next, which takes everything written by then.
+     */
+    private void sync(long target) {
+        syncLock.lock();
+        try {
+            if (syncedOffset >= target) return;
+            long end;
+            FileChannel channel;
+            lock.lock();
+            try {
+                end = writtenOffset;
+                channel = active;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // Rolled over or closed since; both force the segment before closing it.
+            }
+            syncedOffset = end;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync ingest queue", e);
+        } finally {
+            syncLock.unlock();
+        }
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds lock.
+    private void roll() throws IOException {
+        active.force(false);
+        active.close();
+        activeBase = writtenOffset;
+        Path path = segmentPath(activeBase);
+        active = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        segments.put(activeBase, path);
+    }
+
+    /**
+     * Drops segments that end at or before the committed offset from the index; the caller
+     * deletes the returned files.
+     */
+    private List<Path> deleteConsumedSegments() {
+        List<Path> consumed = new ArrayList<>();
+        while (segments.size() > 1 && segments.higherKey(segments.firstKey()) <= committedOffset) {
+            consumed.add(segments.pollFirstEntry().getValue());
+        }
+        return consumed;
+    }
+
+    /**
+     * Scans the records after the committed offset, counting the backlog and truncating a torn
+     * record at the end of the last segment.
+     * @return the end offset of the log
+     */
+    private long recover() throws IOException {
+        for (Path file : deleteConsumedSegments()) {
+            Files.deleteIfExists(file);
+        }
+        Long first = segments.floorKey(committedOffset);
+        if (first == null) first = segments.firstKey();
+        long end = first;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        for (Map.Entry<Long, Path> segment : segments.tailMap(first, true).entrySet()) {
+            long base = segment.getKey();
+            boolean last = base == segments.lastKey();
+            try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                long pos = Math.max(0, committedOffset - base);
+                while (size - pos >= HEADER_BYTES) {
+                    header.clear();
+                    readFully(channel, header, pos);
+                    int length = header.getInt(0);
+                    if (length < 0 || length > size - pos - HEADER_BYTES) break;
+                    ByteBuffer payload = ByteBuffer.allocate(length);
+                    readFully(channel, payload, pos + HEADER_BYTES);
+                    if (crc(payload.flip()) != header.getInt(4)) break;
+                    pos += HEADER_BYTES + length;
+                    backlog++;
+                }
+                if (pos < size) {
+                    if (!last) throw new IOException("Corrupt record in " + segment.getValue() + " at byte " + pos);
+                    channel.truncate(pos);
+                    channel.force(true);
+                }
+                end = base + pos;
+            }
+        }
+        return end;
+    }
+
+    private Path segmentPath(long base) {
+        return dir.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, position);
+            if (n < 0) throw new EOFException("Unexpected end of ingest queue segment");
+            position += n;
+        }
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static int crc(ByteBuffer bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Messages returned by one {@link #poll}, and the log offset just past them.
+     */
+    public record Batch(List<QueuedMessage> messages, long endOffset) {
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.chat.ingest;
+
+import org.example.chat.repository.ChatSessionRepository;
+import org.example.chat.repository.MessageRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+
+/**
+ * Async write path beans, created only with {@code chat.ingest.enabled=true}.
+ */
+@Configuration
+@EnableConfigurationProperties(IngestProperties.class)
+@ConditionalOnProperty(prefix = "chat.ingest", name = "enabled", havingValue = "true")
+public class IngestConfig {
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    public DurableMessageQueue durableMessageQueue(IngestProperties properties) {
+        return new DurableMessageQueue(Path.of(properties.getQueueDir()), properties.getSegmentBytes(),
+                properties.getMaxBacklog(), properties.getAppendTimeout());
+    }
+
+    /**
+     * Messages the consumer gave up on, in the same format; nothing reads them back yet.
+     */
+    @Bean(destroyMethod = "close")
+    public DurableMessageQueue deadLetterQueue(IngestProperties properties) {
+        return new DurableMessageQueue(Path.of(properties.getDeadLetterDir()), properties.getSegmentBytes(),
+                Integer.MAX_VALUE, properties.getAppendTimeout());
+    }
+
+    @Bean
+    public MessageBatchWriter messageBatchWriter(MessageRepository messageRepository, ChatSessionRepository sessionRepository) {
+        return new MessageBatchWriter(messageRepository, sessionRepository);
+    }
+
+    @Bean
+    public MessageIngestConsumer messageIngestConsumer(DurableMessageQueue queue,
+                                                       @Qualifier("deadLetterQueue") DurableMessageQueue deadLetters,
+                                                       MessageBatchWriter writer, IngestProperties properties) {
+        return new MessageIngestConsumer(queue, deadLetters, writer, properties);
+    }
+
+    @Bean
+    public AsyncMessageIngest asyncMessageIngest(DurableMessageQueue queue, ChatSessionRepository sessionRepository,
+                                                 IngestProperties properties) {
+        return new AsyncMessageIngest(queue, sessionRepository, properties);
+    }
+}
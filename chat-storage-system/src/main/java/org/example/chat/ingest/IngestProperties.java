@@ -0,0 +1,46 @@
+package org.example.chat.ingest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the async write path, under {@code chat.ingest}.
+ */
+@Data
+@ConfigurationProperties(prefix = "chat.ingest")
+public class IngestProperties {
+
+    /** Enables the queue and its consumer; without it every write is synchronous. */
+    private boolean enabled = false;
+
+    /** Write mode when a request names none with X-Write-Mode or ?mode: sync or async. */
+    private String defaultMode = "sync";
+
+    /** Directory of the queue's segment and offset files. */
+    private String queueDir = "data/ingest";
+
+    /** Directory of the queue that keeps messages the database rejected for good. */
+    private String deadLetterDir = "data/ingest-dead-letter";
+
+    private long segmentBytes = 64L * 1024 * 1024;
+
+    /** Messages stored per consumer transaction. */
+    private int batchSize = 500;
+
+    /** Queued messages not yet stored at which appends start waiting (backpressure). */
+    private int maxBacklog = 100_000;
+
+    /** How long an append waits for room before the request fails with 503. */
+    private Duration appendTimeout = Duration.ofMillis(500);
+
+    /** How long the consumer waits for messages before polling again. */
+    private Duration pollTimeout = Duration.ofMillis(200);
+
+    /** Pause before retrying a batch the database rejected. */
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    /** Attempts to store a batch before it is split to find the message the database rejects. */
+    private int maxAttempts = 5;
+}
@@ -0,0 +1,70 @@
+package org.example.chat.ingest;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.example.chat.domain.ChatSession;
+import org.example.chat.domain.Message;
+import org.example.chat.repository.ChatSessionRepository;
+import org.example.chat.repository.MessageRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores a batch of queued messages in one transaction. Idempotent: messages whose id is already
+ * in the database (redelivered after a crash between the insert and the queue commit) are
+ * skipped, as are messages whose session was deleted after they were accepted.
+ */
+public class MessageBatchWriter {
+
+    private final MessageRepository messageRepository;
+    private final ChatSessionRepository sessionRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public MessageBatchWriter(MessageRepository messageRepository, ChatSessionRepository sessionRepository) {
+        this.messageRepository = messageRepository;
+        this.sessionRepository = sessionRepository;
+    }
+
+    /**
+     * @return the number of messages inserted
+     */
+    @Transactional
+    public int write(List<QueuedMessage> batch) {
+        Set<UUID> ids = new HashSet<>();
+        Set<UUID> sessionIds = new HashSet<>();
+        for (QueuedMessage q : batch) {
+            ids.add(q.id());
+            sessionIds.add(q.sessionId());
+        }
+        Set<UUID> stored = new HashSet<>(messageRepository.findExistingIds(ids));
+        Map<UUID, ChatSession> sessions = new HashMap<>();
+        for (ChatSession s : sessionRepository.findAllById(sessionIds)) {
+            sessions.put(s.getId(), s);
+        }
+        int inserted = 0;
+        for (QueuedMessage q : batch) {
+            ChatSession session = sessions.get(q.sessionId());
+            if (session == null || !stored.add(q.id())) continue;
+            Message m = new Message();
+            m.setId(q.id());
+            m.setSession(session);
+            m.setSenderId(q.senderId());
+            m.setRole(q.role());
+            m.setContent(q.content());
+            m.setContext(q.context());
+            m.setCreatedAt(q.createdAt());
+            // persist, not repository.save: with an assigned id save() would merge and select each row first.
+            entityManager.persist(m);
+            inserted++;
+        }
+        return inserted;
+    }
+}
@@ -0,0 +1,152 @@
+package org.example.chat.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the {@link DurableMessageQueue} into the database on one background thread, a batch
+ * per transaction. A batch is committed in the queue only after its transaction commits. A
+ * batch the database rejects is retried up to {@code maxAttempts} times, then split in halves
+ * that are stored the same way, until the message the database keeps rejecting is moved to the
+ * dead-letter queue, so one bad message cannot stall the messages behind it.
+ * <p>
+ * If the queue itself fails (a corrupt record, a disk error) the consumer stops, logs the
+ * error and reports it through {@link #getFailure()} and {@link #isRunning()}; the messages
+ * stay queued until the cause is fixed and the application restarted.
+ */
+public class MessageIngestConsumer implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageIngestConsumer.class);
+
+    private final DurableMessageQueue queue;
+    private final DurableMessageQueue deadLetters;
+    private final MessageBatchWriter writer;
+    private final IngestProperties properties;
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile boolean running;
+    private volatile Throwable failure;
+    private Thread thread;
+
+    public MessageIngestConsumer(DurableMessageQueue queue, DurableMessageQueue deadLetters, MessageBatchWriter writer,
+                                 IngestProperties properties) {
+        this.queue = queue;
+        this.deadLetters = deadLetters;
+        this.writer = writer;
+        this.properties = properties;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        failure = null;
+        thread = new Thread(this::run, "message-ingest-consumer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops after the batch in progress; what is left stays queued for the next start.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        if (thread == null) return;
+        // Not interrupted: an interrupt inside a JDBC call can break the connection. Polls time out instead.
+        try {
+            thread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return false once stopped, or once the consumer thread has died of a queue failure
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return messages inserted since start, not counting skipped duplicates
+     */
+    public long getStoredCount() {
+        return stored.get();
+    }
+
+    /**
+     * @return messages moved to the dead-letter queue since start
+     */
+    public long getDeadLetterCount() {
+        return deadLettered.get();
+    }
+
+    /**
+     * @return the error that stopped the consumer thread, or null while it is healthy
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                DurableMessageQueue.Batch batch = queue.poll(properties.getBatchSize(), properties.getPollTimeout());
+                if (batch.messages().isEmpty()) continue;
+                if (!store(batch.messages())) return;
+                // A failed fsync is not retried: the kernel may have dropped the dirty pages already.
+                queue.commit(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            log.error("Message ingest consumer stopped; {} messages stay queued until it is restarted",
+                    queue.backlog(), e);
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Stores messages, retrying a rejected write up to {@code maxAttempts} times. If it keeps
+     * failing, the halves are stored separately, down to single messages, which are
+     * dead-lettered.
+     * @return false if stopped before the messages were stored
+     */
+    private boolean store(List<QueuedMessage> messages) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                stored.addAndGet(writer.write(messages));
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= properties.getMaxAttempts()) {
+                    if (messages.size() == 1) {
+                        deadLetter(messages.get(0), e);
+                        return true;
+                    }
+                    log.warn("Failed to store {} queued messages {} times, splitting the batch: {}",
+                            messages.size(), attempt, e.toString());
+                    int half = messages.size() / 2;
+                    return store(messages.subList(0, half)) && store(messages.subList(half, messages.size()));
+                }
+                log.warn("Failed to store {} queued messages (attempt {} of {}), retrying: {}",
+                        messages.size(), attempt, properties.getMaxAttempts(), e.toString());
+                Thread.sleep(properties.getRetryBackoff().toMillis());
+                if (!running) return false;
+            }
+        }
+    }
+
+    private void deadLetter(QueuedMessage message, RuntimeException cause) {
+        deadLetters.append(message);
+        deadLettered.incrementAndGet();
+        log.error("Moved message {} of session {} to the dead-letter queue after {} failed attempts",
+                message.id(), message.sessionId(), properties.getMaxAttempts(), cause);
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.chat.ingest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A message accepted by the async write path, as stored in the {@link DurableMessageQueue}.
+ * The id is assigned when the message is accepted, so the consumer can tell a redelivered
+ * message from a new one.
+ */
+public record QueuedMessage(UUID id, UUID sessionId, UUID senderId, String role, String content,
+                            String context, Instant createdAt) {
+
+    byte[] encode() {
+        byte[] role = bytes(this.role);
+        byte[] content = bytes(this.content);
+        byte[] context = bytes(this.context);
+        ByteBuffer buf = ByteBuffer.allocate(3 * 16 + 12 + 3 * 4 + length(role) + length(content) + length(context));
+        putUuid(buf, id);
+        putUuid(buf, sessionId);
+        putUuid(buf, senderId);
+        buf.putLong(createdAt.getEpochSecond()).putInt(createdAt.getNano());
+        putBytes(buf, role);
+        putBytes(buf, content);
+        putBytes(buf, context);
+        return buf.array();
+    }
+
+    static QueuedMessage decode(ByteBuffer buf) {
+        UUID id = getUuid(buf);
+        UUID sessionId = getUuid(buf);
+        UUID senderId = getUuid(buf);
+        Instant createdAt = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
+        return new QueuedMessage(id, sessionId, senderId, getString(buf), getString(buf), getString(buf), createdAt);
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] b) {
+        return b == null ? 0 : b.length;
+    }
+
+    private static void putUuid(ByteBuffer buf, UUID uuid) {
+        buf.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buf) {
+        return new UUID(buf.getLong(), buf.getLong());
+    }
+
+    // Length -1 marks a null string.
+    private static void putBytes(ByteBuffer buf, byte[] b) {
+        if (b == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(b.length).put(b);
+        }
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) return null;
+        String s = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return s;
+    }
+}
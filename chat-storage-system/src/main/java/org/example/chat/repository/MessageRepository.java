@@ -4,13 +4,19 @@ import org.example.chat.domain.Message;
 import org.example.chat.domain.ChatSession;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, UUID> {
     List<Message> findBySessionOrderByCreatedAtDesc(ChatSession session, Pageable pageable);
+
+    @Query("select m.id from Message m where m.id in :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
 }
 
@@ -4,7 +4,9 @@ import org.example.chat.api.dto.CreateSessionRequest;
 import org.example.chat.api.dto.SessionResponse;
 import org.example.chat.domain.ChatSession;
 import org.example.chat.exception.ResourceNotFoundException;
+import org.example.chat.ingest.AsyncMessageIngest;
 import org.example.chat.repository.ChatSessionRepository;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,9 +18,11 @@ import java.util.stream.Collectors;
 public class SessionService {
 
     private final ChatSessionRepository sessionRepository;
+    private final ObjectProvider<AsyncMessageIngest> asyncIngest;
 
-    public SessionService(ChatSessionRepository sessionRepository) {
+    public SessionService(ChatSessionRepository sessionRepository, ObjectProvider<AsyncMessageIngest> asyncIngest) {
         this.sessionRepository = sessionRepository;
+        this.asyncIngest = asyncIngest;
     }
 
     @Transactional
@@ -56,6 +60,7 @@ public class SessionService {
             throw new ResourceNotFoundException("ChatSession", sessionId.toString());
         }
         sessionRepository.deleteById(sessionId);
+        asyncIngest.ifAvailable(ingest -> ingest.forgetSession(sessionId));
     }
 
     private SessionResponse toDto(ChatSession s) {
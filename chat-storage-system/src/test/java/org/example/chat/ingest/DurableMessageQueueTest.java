@@ -0,0 +1,196 @@
+package org.example.chat.ingest;
+
+import org.example.chat.exception.QueueFullException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurableMessageQueueTest {
+
+    private static final Duration NO_WAIT = Duration.ZERO;
+
+    @TempDir
+    Path dir;
+
+    static QueuedMessage message(String content) {
+        return new QueuedMessage(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), "user", content,
+                null, Instant.ofEpochSecond(1_700_000_000L, 123_456_789));
+    }
+
+    private DurableMessageQueue open(long segmentBytes, int maxBacklog) {
+        return new DurableMessageQueue(dir, segmentBytes, maxBacklog, Duration.ofMillis(50));
+    }
+
+    @Test
+    void shouldDeliverAppendedMessagesInOrder() throws Exception {
+        try (DurableMessageQueue queue = open(1 << 20, 100)) {
+            QueuedMessage first = message("hello");
+            QueuedMessage second = new QueuedMessage(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), "assistant",
+                    "caf\u00e9 \ud83d\ude00", "{\"k\":1}", Instant.now());
+            queue.append(first);
+            queue.append(second);
+            assertEquals(2, queue.backlog());
+
+            DurableMessageQueue.Batch batch = queue.poll(10, NO_WAIT);
+            assertEquals(List.of(first, second), batch.messages());
+            assertEquals(0, queue.poll(10, NO_WAIT).messages().size(), "Polled messages are not delivered twice");
+            queue.commit(batch);
+            assertEquals(0, queue.backlog());
+        }
+    }
+
+    @Test
+    void shouldRedeliverUncommittedMessagesAfterRestart() throws Exception {
+        List<QueuedMessage> appended = new ArrayList<>();
+        try (DurableMessageQueue queue = open(1 << 20, 100)) {
+            for (int i = 0; i < 5; i++) {
+                appended.add(message("m" + i));
+                queue.append(appended.get(i));
+            }
+            queue.commit(queue.poll(2, NO_WAIT));
+            assertEquals(3, queue.poll(10, NO_WAIT).messages().size(), "Polled but not committed");
+        }
+        try (DurableMessageQueue queue = open(1 << 20, 100)) {
+            assertEquals(3, queue.backlog());
+            assertEquals(appended.subList(2, 5), queue.poll(10, NO_WAIT).messages());
+        }
+    }
+
+    @Test
+    void shouldTruncateATornRecordAtTheEndOfTheLog() throws Exception {
+        QueuedMessage kept = message("kept");
+        try (DurableMessageQueue queue = open(1 << 20, 100)) {
+            queue.append(kept);
+            queue.append(message("torn"));
+        }
+        Path segment = lastSegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        Files.write(segment, Arrays.copyOf(bytes, bytes.length - 5));
+
+        try (DurableMessageQueue queue = open(1 << 20, 100)) {
+            assertEquals(1, queue.backlog());
+            QueuedMessage next = message("after the crash");
+            queue.append(next);
+            assertEquals(List.of(kept, next), queue.poll(10, NO_WAIT).messages());
+        }
+    }
+
+    @Test
+    void shouldFailAPollThatReadsACorruptRecord() throws Exception {
+        try (DurableMessageQueue queue = open(1 << 20, 100)) {
+            queue.append(message("one"));
+            queue.append(message("two"));
+            flipLastByte(lastSegment());
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> queue.poll(10, NO_WAIT));
+            assertTrue(e.getMessage().startsWith("Corrupt ingest queue record"), e.getMessage());
+        }
+    }
+
+    @Test
+    void shouldKeepEveryMessageFromConcurrentAppenders() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        try (DurableMessageQueue queue = open(16 * 1024, threads * perThread)) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        queue.append(message("x".repeat(i % 100)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+            pool.shutdown();
+            assertTrue(segments().size() > 1, "Small segments should have rolled over");
+
+            Set<UUID> ids = new HashSet<>();
+            DurableMessageQueue.Batch batch;
+            while (!(batch = queue.poll(300, NO_WAIT)).messages().isEmpty()) {
+                for (QueuedMessage m : batch.messages()) {
+                    assertTrue(ids.add(m.id()), "Duplicate " + m.id());
+                }
+                queue.commit(batch);
+            }
+            assertEquals(threads * perThread, ids.size());
+            assertEquals(0, queue.backlog());
+            assertEquals(1, segments().size(), "Consumed segments should be deleted");
+        }
+    }
+
+    @Test
+    void shouldPushBackAppendsWhileTheBacklogIsFull() throws Exception {
+        try (DurableMessageQueue queue = open(1 << 20, 2)) {
+            queue.append(message("a"));
+            queue.append(message("b"));
+            assertThrows(QueueFullException.class, () -> queue.append(message("c")));
+
+            queue.commit(queue.poll(1, NO_WAIT));
+            queue.append(message("c"));
+            assertEquals(2, queue.backlog());
+        }
+    }
+
+    @Test
+    void shouldReadARecordLargerThanTheReadBuffer() throws Exception {
+        QueuedMessage big = message("y".repeat(3 << 20));
+        QueuedMessage small = message("small");
+        try (DurableMessageQueue queue = open(1 << 20, 100)) {
+            queue.append(small);
+            queue.append(big);
+            queue.append(small);
+            List<QueuedMessage> read = new ArrayList<>();
+            DurableMessageQueue.Batch batch;
+            while (!(batch = queue.poll(10, NO_WAIT)).messages().isEmpty()) {
+                read.addAll(batch.messages());
+            }
+            assertEquals(List.of(small, big, small), read);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        List<Path> segments = segments();
+        return segments.get(segments.size() - 1);
+    }
+
+    private static void flipLastByte(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long position = channel.size() - 1;
+            channel.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 1)).rewind();
+            channel.write(b, position);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.chat.ingest;
+
+import org.example.chat.api.dto.CreateMessageRequest;
+import org.example.chat.api.dto.CreateSessionRequest;
+import org.example.chat.exception.QueueFullException;
+import org.example.chat.service.MessageService;
+import org.example.chat.service.SessionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Prints ingest throughput of the sync path against the async path, in process (service layer,
+ * no HTTP) on the test database. For the async path it reports the rate messages are accepted
+ * while the consumer is stopped, so appends do not share the machine with inserts, and then
+ * the rate the consumer stores the backlog; a rejected append is retried, as a client would
+ * after a 503.
+ */
+@SpringBootTest(properties = {
+        "chat.ingest.enabled=true",
+        "chat.ingest.queue-dir=build/tmp/ingest-report/${random.uuid}",
+        "chat.ingest.dead-letter-dir=build/tmp/ingest-report/${random.uuid}"
+})
+class IngestThroughputReportTest {
+
+    private static final int MESSAGES = 20_000;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private MessageService messageService;
+    @Autowired
+    private AsyncMessageIngest ingest;
+    @Autowired
+    private MessageIngestConsumer consumer;
+
+    @Test
+    void reportIngestThroughput() throws Exception {
+        UUID sessionId = sessionService.createSession(new CreateSessionRequest(UUID.randomUUID(), "ingest report")).getId();
+        CreateMessageRequest req = new CreateMessageRequest(UUID.randomUUID(), "user", "x".repeat(200), null);
+
+        long started = System.nanoTime();
+        runConcurrently(() -> messageService.addMessage(sessionId, req));
+        double syncSeconds = (System.nanoTime() - started) / 1e9;
+
+        AtomicLong rejected = new AtomicLong();
+        long storedBefore = consumer.getStoredCount();
+        consumer.stop();
+        started = System.nanoTime();
+        runConcurrently(() -> {
+            while (true) {
+                try {
+                    ingest.accept(sessionId, req);
+                    return;
+                } catch (QueueFullException e) {
+                    rejected.incrementAndGet();
+                    Thread.sleep(10);
+                }
+            }
+        });
+        double acceptSeconds = (System.nanoTime() - started) / 1e9;
+        started = System.nanoTime();
+        consumer.start();
+        while (consumer.getStoredCount() - storedBefore < MESSAGES && consumer.isRunning()) {
+            Thread.sleep(5);
+        }
+        double drainSeconds = (System.nanoTime() - started) / 1e9;
+
+        assertNull(consumer.getFailure());
+        assertEquals(MESSAGES, consumer.getStoredCount() - storedBefore);
+        System.out.printf("%d messages on %d threads: sync %d msg/s; async accepted %d msg/s (%d appends pushed back), stored %d msg/s%n",
+                MESSAGES, THREADS, Math.round(MESSAGES / syncSeconds), Math.round(MESSAGES / acceptSeconds),
+                rejected.get(), Math.round(MESSAGES / drainSeconds));
+    }
+
+    private interface Write {
+        void run() throws Exception;
+    }
+
+    private static void runConcurrently(Write write) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int share = MESSAGES / THREADS + (t < MESSAGES % THREADS ? 1 : 0);
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < share; i++) {
+                        write.run();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
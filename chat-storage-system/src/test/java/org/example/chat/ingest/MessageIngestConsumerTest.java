@@ -0,0 +1,138 @@
+package org.example.chat.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.example.chat.ingest.DurableMessageQueueTest.message;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageIngestConsumerTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Stores messages in a list and rejects every batch that holds one of the {@code poison} ids.
+     */
+    private static final class FakeWriter extends MessageBatchWriter {
+        final List<QueuedMessage> stored = Collections.synchronizedList(new ArrayList<>());
+        final Set<UUID> poison;
+        int attempts;
+
+        FakeWriter(Set<UUID> poison) {
+            super(null, null);
+            this.poison = poison;
+        }
+
+        @Override
+        public synchronized int write(List<QueuedMessage> batch) {
+            attempts++;
+            for (QueuedMessage q : batch) {
+                if (poison.contains(q.id())) throw new IllegalArgumentException("value too long for column content");
+            }
+            stored.addAll(batch);
+            return batch.size();
+        }
+    }
+
+    private static IngestProperties properties() {
+        IngestProperties properties = new IngestProperties();
+        properties.setBatchSize(8);
+        properties.setPollTimeout(Duration.ofMillis(10));
+        properties.setRetryBackoff(Duration.ofMillis(1));
+        properties.setMaxAttempts(3);
+        return properties;
+    }
+
+    private DurableMessageQueue open(String name) {
+        return new DurableMessageQueue(dir.resolve(name), 1 << 20, 1000, Duration.ofMillis(50));
+    }
+
+    @Test
+    void shouldDeadLetterTheMessageTheDatabaseRejectsAndStoreTheRest() throws Exception {
+        List<QueuedMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            messages.add(message("m" + i));
+        }
+        QueuedMessage bad = messages.get(5);
+        FakeWriter writer = new FakeWriter(Set.of(bad.id()));
+        try (DurableMessageQueue queue = open("queue"); DurableMessageQueue deadLetters = open("dead")) {
+            messages.forEach(queue::append);
+            MessageIngestConsumer consumer = new MessageIngestConsumer(queue, deadLetters, writer, properties());
+            consumer.start();
+            try {
+                awaitTrue(() -> queue.backlog() == 0);
+            } finally {
+                consumer.stop();
+            }
+
+            List<QueuedMessage> expected = new ArrayList<>(messages);
+            expected.remove(bad);
+            assertEquals(expected, writer.stored);
+            assertEquals(7, consumer.getStoredCount());
+            assertEquals(1, consumer.getDeadLetterCount());
+            assertEquals(List.of(bad), deadLetters.poll(10, Duration.ZERO).messages());
+            // 3 attempts for each of 8, 4, 2 and 1 messages, plus one for each healthy half.
+            assertEquals(15, writer.attempts);
+            assertNull(consumer.getFailure());
+        }
+    }
+
+    @Test
+    void shouldStopAndReportACorruptQueue() throws Exception {
+        FakeWriter writer = new FakeWriter(Set.of());
+        try (DurableMessageQueue queue = open("queue"); DurableMessageQueue deadLetters = open("dead")) {
+            queue.append(message("one"));
+            corruptLastByte(dir.resolve("queue"));
+            MessageIngestConsumer consumer = new MessageIngestConsumer(queue, deadLetters, writer, properties());
+            consumer.start();
+            awaitTrue(() -> !consumer.isRunning());
+
+            assertInstanceOf(IllegalStateException.class, consumer.getFailure());
+            assertFalse(consumer.isRunning());
+            assertTrue(writer.stored.isEmpty());
+            assertEquals(1, queue.backlog(), "The message stays queued");
+            consumer.stop();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("Timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void corruptLastByte(Path queueDir) throws Exception {
+        Path segment;
+        try (Stream<Path> files = Files.list(queueDir)) {
+            segment = files.filter(p -> p.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long position = channel.size() - 1;
+            channel.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 1)).rewind();
+            channel.write(b, position);
+        }
+    }
+}
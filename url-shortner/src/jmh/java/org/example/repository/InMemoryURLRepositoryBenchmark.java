@@ -0,0 +1,120 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of {@link InMemoryURLRepository} saves and lookups at 1, 4 and all-core thread counts.
+ * The benchmarks are declared once here and run by one subclass per thread count.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class InMemoryURLRepositoryBenchmark {
+    private static final int PRELOADED = 1 << 18;
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    /**
+     * A repository holding {@code PRELOADED} mappings, shared by every thread of a trial.
+     */
+    @State(Scope.Benchmark)
+    public static class Preloaded {
+        InMemoryURLRepository repository;
+        String[] codes;
+        String[] urls;
+
+        @Setup(Level.Trial)
+        public void preload() {
+            repository = new InMemoryURLRepository();
+            codes = new String[PRELOADED];
+            urls = new String[PRELOADED];
+            for (int i = 0; i < PRELOADED; i++) {
+                codes[i] = "c" + i;
+                urls[i] = "https://example.com/" + i;
+                repository.save(new URLMapping(codes[i], urls[i], CREATED_AT));
+            }
+        }
+    }
+
+    /**
+     * An empty repository per iteration, so saves do not keep growing one map.
+     */
+    @State(Scope.Benchmark)
+    public static class Empty {
+        InMemoryURLRepository repository;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            repository = new InMemoryURLRepository();
+        }
+    }
+
+    /**
+     * Each thread walks the keys from its own offset and saves under its own prefix.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private static final AtomicInteger THREADS = new AtomicInteger();
+        final String prefix = "t" + THREADS.getAndIncrement() + "-";
+        int next;
+
+        @Setup(Level.Trial)
+        public void spread() {
+            next = prefix.hashCode() * 7919;
+        }
+
+        int nextIndex() {
+            return next++ & (PRELOADED - 1);
+        }
+    }
+
+    @Benchmark
+    public URLMapping findByShortCode(Preloaded state, Cursor cursor) {
+        return state.repository.findByShortCode(state.codes[cursor.nextIndex()]);
+    }
+
+    @Benchmark
+    public URLMapping findByLongUrl(Preloaded state, Cursor cursor) {
+        return state.repository.findByLongUrl(state.urls[cursor.nextIndex()]);
+    }
+
+    @Benchmark
+    public URLMapping findMissing(Preloaded state, Cursor cursor) {
+        return state.repository.findByShortCode(cursor.prefix + cursor.nextIndex());
+    }
+
+    @Benchmark
+    public void save(Empty state, Cursor cursor) {
+        int i = cursor.next++;
+        state.repository.save(new URLMapping(cursor.prefix + i, "https://example.com/" + cursor.prefix + i, CREATED_AT));
+    }
+
+    @Threads(1)
+    public static class OneThread extends InMemoryURLRepositoryBenchmark {
+    }
+
+    @Threads(4)
+    public static class FourThreads extends InMemoryURLRepositoryBenchmark {
+    }
+
+    @Threads(Threads.MAX)
+    public static class AllCores extends InMemoryURLRepositoryBenchmark {
+    }
+}
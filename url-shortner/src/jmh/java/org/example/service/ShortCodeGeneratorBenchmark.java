@@ -0,0 +1,38 @@
+package org.example.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating one short code with the hash-based and the random generator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShortCodeGeneratorBenchmark {
+    private final SimpleShortCodeGenerator simple = new SimpleShortCodeGenerator();
+    private final RandomShortCodeGenerator random = new RandomShortCodeGenerator(7);
+    private final String longUrl = "https://example.com/articles/2024/01/some-fairly-long-slug?utm_source=newsletter";
+
+    @Benchmark
+    public String simple() {
+        return simple.generateShortCode(longUrl);
+    }
+
+    @Benchmark
+    public String random() {
+        return random.generateShortCode(longUrl);
+    }
+}
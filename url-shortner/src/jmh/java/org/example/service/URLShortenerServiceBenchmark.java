@@ -0,0 +1,89 @@
+package org.example.service;
+
+import org.example.repository.InMemoryURLRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link URLShortenerServiceImpl} end to end over an {@link InMemoryURLRepository}, with a
+ * {@code hitRatio} share of requests for URLs and codes that exist.
+ * <ul>
+ *     <li>{@code resolve}: {@code getOriginalUrl} for a known or an unknown code.</li>
+ *     <li>{@code shorten}: {@code shortenUrl} for an already shortened URL, which finds the
+ *     existing mapping, or for a new one, which generates a code and saves it.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class URLShortenerServiceBenchmark {
+    private static final int PRELOADED = 1 << 16;
+
+    /**
+     * 0.95 is hit-heavy, 0.05 miss-heavy.
+     */
+    @Param({"0.95", "0.05"})
+    public double hitRatio;
+
+    private URLShortenerService service;
+    private String[] urls;
+    private String[] codes;
+    private String[] unknownCodes;
+
+    @Setup(Level.Iteration)
+    public void preload() {
+        service = new URLShortenerServiceImpl(new InMemoryURLRepository(), new RandomShortCodeGenerator(7));
+        urls = new String[PRELOADED];
+        codes = new String[PRELOADED];
+        unknownCodes = new String[PRELOADED];
+        for (int i = 0; i < PRELOADED; i++) {
+            urls[i] = "https://example.com/articles/" + i;
+            codes[i] = service.shortenUrl(urls[i]);
+            unknownCodes[i] = "-" + i;
+        }
+    }
+
+    /**
+     * Per-thread random source and counter for new URLs.
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        final SplittableRandom random = new SplittableRandom();
+        long fresh;
+    }
+
+    @Benchmark
+    public String resolve(Requests requests) {
+        int i = requests.random.nextInt(PRELOADED);
+        if (requests.random.nextDouble() < hitRatio) {
+            return service.getOriginalUrl(codes[i]);
+        }
+        return service.getOriginalUrl(unknownCodes[i]);
+    }
+
+    @Benchmark
+    public String shorten(Requests requests) {
+        if (requests.random.nextDouble() < hitRatio) {
+            return service.shortenUrl(urls[requests.random.nextInt(PRELOADED)]);
+        }
+        return service.shortenUrl("https://example.com/new/" + Thread.currentThread().threadId() + "/" + requests.fresh++);
+    }
+}
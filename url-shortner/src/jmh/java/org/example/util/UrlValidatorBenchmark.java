@@ -0,0 +1,49 @@
+package org.example.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link UrlValidator#validate(String)} for accepted and rejected URLs.
+ * Rejections include the cost of the exception.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UrlValidatorBenchmark {
+    @Param({
+            "https://example.com/articles/2024/01/some-fairly-long-slug?utm_source=newsletter",
+            "http://[2001:db8::1]:8080/path",
+            "ftp://example.com/file",
+            "not a url"
+    })
+    public String url;
+
+    @Benchmark
+    public boolean validate() {
+        try {
+            UrlValidator.validate(url);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return UrlValidator.isValid(url);
+    }
+}
@@ -1,15 +1,32 @@
 package org.example;
 
+import org.example.metrics.Metrics;
+import org.example.repository.InMemoryURLRepository;
+import org.example.server.RedirectServer;
+import org.example.service.LeasingShortCodeGenerator;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+
 /**
  * Entry point for the URL shortener application.
- * This class can be extended to provide a CLI or HTTP interface.
+ * Serves redirects and shorten requests over HTTP from an in-memory repository, and
+ * latency and counter metrics at {@code GET /metrics}.
  */
 public class Main {
     /**
      * Main method to start the application.
-     * @param args command-line arguments
+     * @param args command-line arguments: an optional port (default 8080)
      */
-    public static void main(String[] args) {
-        System.out.println("Hello, World!");
+    public static void main(String[] args) throws InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        Metrics metrics = new Metrics();
+        // The service times each resolve and shorten; the repository is not wrapped in an
+        // InstrumentedURLRepository, which would time the same in-memory lookups a second time.
+        URLShortenerService service = new URLShortenerServiceImpl(
+                new InMemoryURLRepository(), new LeasingShortCodeGenerator(), null, metrics);
+        RedirectServer server = new RedirectServer(service, new RedirectServer.Options().port(port).metrics(metrics));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("URL shortener listening on port " + server.getPort());
+        Thread.currentThread().join();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,365 @@
+package org.example.analytics;
+
+import org.example.util.CoarseClock;
+import org.example.util.SpaceSavingSketch;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-code redirect counts, per-minute histograms and a hottest-codes query.
+ * <p>
+ * Recording a click adds one to the short code's {@link LongAdder}, which spreads contended
+ * updates over cells instead of serializing them on one cache line, so no click is ever dropped.
+ * The first click of a code since the last aggregation also queues its counter for the
+ * aggregator. The counters hold lifetime totals: they are never reset or evicted, one per code
+ * ever clicked.
+ * <p>
+ * A background thread aggregates every {@code flushIntervalMillis}. It adds what the queued
+ * counters gained since the last pass to the bucket of the current minute and to a
+ * {@link SpaceSavingSketch} of hot codes. When the minute changes, the finished bucket is kept
+ * for {@code retainedMinutes} and handed to the {@link ClickSink} on a separate thread, so a slow
+ * sink never holds up aggregation. Clicks count towards the minute in which they are aggregated,
+ * which may be up to one flush interval after they happened.
+ */
+public class ClickAnalytics implements ClickRecorder, AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ClickAnalytics.class.getName());
+
+    private final Options options;
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    /**
+     * Counters clicked since they were last aggregated, each at most once.
+     */
+    private final Queue<Counter> dirty = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService aggregator;
+    private final ExecutorService sinkWriter;
+    private final LongAdder sinkFailures = new LongAdder();
+    /**
+     * Finished buckets, oldest first. Guarded by this.
+     */
+    private final Deque<ClickBucket> retained = new ArrayDeque<>();
+    /**
+     * Decayed click counts of the hottest codes. Guarded by this.
+     */
+    private final SpaceSavingSketch hottest;
+    /**
+     * Guarded by this.
+     */
+    private LocalDateTime currentMinute;
+    /**
+     * Guarded by this.
+     */
+    private Map<String, Long> currentCounts = new HashMap<>();
+    /**
+     * Minutes since the hot-code counts were last halved. Guarded by this.
+     */
+    private long minutesSinceDecay;
+    private volatile boolean closed;
+
+    private ClickAnalytics(Options options) {
+        this.options = options;
+        this.hottest = new SpaceSavingSketch(options.topKCapacity);
+        this.aggregator = Executors.newSingleThreadScheduledExecutor(daemon("click-aggregator"));
+        this.sinkWriter = Executors.newSingleThreadExecutor(daemon("click-sink"));
+    }
+
+    /**
+     * Creates analytics with default options and no sink, and starts the aggregation thread.
+     * @return the analytics
+     */
+    public static ClickAnalytics start() {
+        return start(new Options());
+    }
+
+    /**
+     * Creates analytics and starts the aggregation thread.
+     * @param options the flush interval, retention, top-k size and sink
+     * @return the analytics
+     */
+    public static ClickAnalytics start(Options options) {
+        ClickAnalytics analytics = new ClickAnalytics(options);
+        analytics.aggregator.scheduleWithFixedDelay(analytics::aggregateSafely,
+                options.flushIntervalMillis, options.flushIntervalMillis, TimeUnit.MILLISECONDS);
+        return analytics;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Lock-free. Allocates only on a code's first click, for its counter, and on its first click
+     * since the last aggregation, for its place in the aggregation queue.
+     */
+    @Override
+    public void recordClick(String shortCode) {
+        Counter counter = counters.get(shortCode);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(shortCode, Counter::new);
+        }
+        counter.clicks.increment();
+        if (counter.queued == 0 && Counter.QUEUED.compareAndSet(counter, 0, 1)) {
+            dirty.add(counter);
+        }
+    }
+
+    /**
+     * Gets the number of redirects of a short code since these analytics started, including
+     * those not aggregated yet.
+     * @param shortCode the short code
+     * @return the count
+     */
+    public long getClickCount(String shortCode) {
+        Counter counter = counters.get(shortCode);
+        return counter == null ? 0 : counter.clicks.sum();
+    }
+
+    /**
+     * Gets the per-minute redirect counts of a short code over the retained minutes, including
+     * the current, unfinished minute, up to the last aggregation.
+     * @param shortCode the short code
+     * @return counts keyed by minute, oldest first; minutes without any clicks are absent
+     */
+    public synchronized Map<LocalDateTime, Long> getMinuteCounts(String shortCode) {
+        Map<LocalDateTime, Long> histogram = new LinkedHashMap<>();
+        for (ClickBucket bucket : retained) {
+            histogram.put(bucket.getMinute(), bucket.getCount(shortCode));
+        }
+        if (currentMinute != null) {
+            histogram.put(currentMinute, currentCounts.getOrDefault(shortCode, 0L));
+        }
+        return histogram;
+    }
+
+    /**
+     * Gets the most clicked codes. Counts are halved every {@code decayHalfLifeMinutes}, so codes
+     * that were hot long ago fade out. Counts are estimates that may overcount by up to
+     * {@code total / topKCapacity}.
+     * @param k how many codes to return, at most {@code topKCapacity}
+     * @return codes and their decayed click counts, hottest first
+     */
+    public synchronized Map<String, Long> getHottestCodes(int k) {
+        return hottest.top(k);
+    }
+
+    /**
+     * Gets the number of buckets the sink failed to write.
+     * @return the failure count
+     */
+    public long getSinkFailureCount() {
+        return sinkFailures.sum();
+    }
+
+    /**
+     * Aggregates pending clicks now instead of at the next tick. Does nothing once closed.
+     */
+    public void flush() {
+        if (!closed) {
+            aggregate(CoarseClock.now());
+        }
+    }
+
+    /**
+     * Stops the aggregation thread, aggregates what is pending, hands the current bucket to
+     * the sink and waits for the sink to finish. Clicks recorded after this still count towards
+     * {@link #getClickCount(String)} but never reach a bucket.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        aggregator.shutdownNow();
+        try {
+            aggregator.awaitTermination(5, TimeUnit.SECONDS);
+            synchronized (this) {
+                aggregate(CoarseClock.now());
+                finishMinute();
+            }
+            sinkWriter.shutdown();
+            sinkWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Moves pending clicks into the bucket of {@code now}'s minute and the hot-code sketch.
+     * @param now the current time
+     */
+    synchronized void aggregate(LocalDateTime now) {
+        LocalDateTime minute = now.truncatedTo(ChronoUnit.MINUTES);
+        if (currentMinute == null) {
+            currentMinute = minute;
+        } else if (minute.isAfter(currentMinute)) {
+            long elapsed = ChronoUnit.MINUTES.between(currentMinute, minute);
+            finishMinute();
+            currentMinute = minute;
+            for (minutesSinceDecay += elapsed; minutesSinceDecay >= options.decayHalfLifeMinutes;
+                 minutesSinceDecay -= options.decayHalfLifeMinutes) {
+                hottest.halve();
+            }
+            while (!retained.isEmpty() && retained.peekFirst().getMinute().isBefore(minute.minusMinutes(options.retainedMinutes))) {
+                retained.pollFirst();
+            }
+        }
+        // A counter clicked again while this runs queues itself again, so stop after one pass
+        // over the codes rather than chase a steady stream of clicks.
+        Counter counter;
+        for (int left = counters.size(); left > 0 && (counter = dirty.poll()) != null; left--) {
+            // Unmark before reading, so a click the sum misses queues the counter again.
+            counter.queued = 0;
+            long clicks = counter.clicks.sum();
+            long pending = clicks - counter.aggregated;
+            if (pending > 0) {
+                counter.aggregated = clicks;
+                currentCounts.merge(counter.shortCode, pending, Long::sum);
+                hottest.add(counter.shortCode, pending);
+            }
+        }
+    }
+
+    /**
+     * Retains the current bucket and queues it for the sink. Caller holds the lock.
+     */
+    private void finishMinute() {
+        if (currentCounts.isEmpty()) {
+            return;
+        }
+        ClickBucket bucket = new ClickBucket(currentMinute, currentCounts);
+        currentCounts = new HashMap<>();
+        retained.addLast(bucket);
+        sinkWriter.execute(() -> {
+            try {
+                options.sink.write(bucket);
+            } catch (RuntimeException e) {
+                sinkFailures.increment();
+                LOG.log(Level.WARNING, "Click sink failed for " + bucket.getMinute(), e);
+            }
+        });
+    }
+
+    private void aggregateSafely() {
+        try {
+            aggregate(CoarseClock.now());
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Click aggregation failed", e);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Clicks of one short code.
+     */
+    private static final class Counter {
+        static final AtomicIntegerFieldUpdater<Counter> QUEUED =
+                AtomicIntegerFieldUpdater.newUpdater(Counter.class, "queued");
+
+        final String shortCode;
+        /**
+         * Every click recorded.
+         */
+        final LongAdder clicks = new LongAdder();
+        /**
+         * 1 while the counter is in the aggregation queue.
+         */
+        volatile int queued;
+        /**
+         * Clicks already added to a bucket. Guarded by the analytics lock.
+         */
+        long aggregated;
+
+        Counter(String shortCode) {
+            this.shortCode = shortCode;
+        }
+    }
+
+    /**
+     * Aggregation interval, retention, hot-code tracking and sink for a {@link ClickAnalytics}.
+     */
+    public static final class Options {
+        private long flushIntervalMillis = 1000;
+        private int retainedMinutes = 60;
+        private int topKCapacity = 1024;
+        private int decayHalfLifeMinutes = 60;
+        private ClickSink sink = bucket -> { };
+
+        /**
+         * Sets how often pending clicks are aggregated (default 1 s).
+         * @param millis the interval
+         * @return these options
+         */
+        public Options flushIntervalMillis(long millis) {
+            if (millis < 1) throw new IllegalArgumentException("Flush interval must be positive");
+            this.flushIntervalMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets how many finished minutes are kept for {@link ClickAnalytics#getMinuteCounts(String)} (default 60).
+         * @param minutes the retention
+         * @return these options
+         */
+        public Options retainedMinutes(int minutes) {
+            if (minutes < 0) throw new IllegalArgumentException("Retention must not be negative");
+            this.retainedMinutes = minutes;
+            return this;
+        }
+
+        /**
+         * Sets how many codes the hot-code sketch monitors (default 1024). Codes with more than
+         * {@code 1 / capacity} of all clicks are always found.
+         * @param capacity the sketch capacity
+         * @return these options
+         */
+        public Options topKCapacity(int capacity) {
+            if (capacity < 1) throw new IllegalArgumentException("Top-k capacity must be positive");
+            this.topKCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Sets how often hot-code counts are halved (default 60 minutes).
+         * @param minutes the half-life
+         * @return these options
+         */
+        public Options decayHalfLifeMinutes(int minutes) {
+            if (minutes < 1) throw new IllegalArgumentException("Half-life must be positive");
+            this.decayHalfLifeMinutes = minutes;
+            return this;
+        }
+
+        /**
+         * Sets where finished minutes are written (default nowhere).
+         * @param sink the sink
+         * @return these options
+         */
+        public Options sink(ClickSink sink) {
+            this.sink = sink;
+            return this;
+        }
+    }
+}
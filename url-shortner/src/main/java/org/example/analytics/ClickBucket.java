@@ -0,0 +1,68 @@
+package org.example.analytics;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Redirect counts per short code for one minute.
+ */
+public final class ClickBucket {
+    private final LocalDateTime minute;
+    private final Map<String, Long> counts;
+    private final long total;
+
+    /**
+     * Creates a bucket.
+     * @param minute the start of the minute
+     * @param counts redirects per short code; not copied, so the caller must not change it afterwards
+     */
+    public ClickBucket(LocalDateTime minute, Map<String, Long> counts) {
+        this.minute = minute;
+        this.counts = Collections.unmodifiableMap(counts);
+        long sum = 0;
+        for (long count : counts.values()) {
+            sum += count;
+        }
+        this.total = sum;
+    }
+
+    /**
+     * Gets the start of the minute.
+     * @return the minute
+     */
+    public LocalDateTime getMinute() {
+        return minute;
+    }
+
+    /**
+     * Gets the redirects per short code; codes without redirects are absent.
+     * @return an unmodifiable view of the counts
+     */
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    /**
+     * Gets the number of redirects for one short code.
+     * @param shortCode the short code
+     * @return the count, or 0
+     */
+    public long getCount(String shortCode) {
+        Long count = counts.get(shortCode);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Gets the number of redirects across all codes.
+     * @return the total
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "ClickBucket{minute=" + minute + ", codes=" + counts.size() + ", total=" + total + '}';
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.analytics;
+
+/**
+ * Receives one call per successful redirect.
+ * It is called on the redirect path, so implementations must be cheap and must not block.
+ */
+@FunctionalInterface
+public interface ClickRecorder {
+    /**
+     * Records nothing.
+     */
+    ClickRecorder NONE = shortCode -> { };
+
+    /**
+     * Records one redirect.
+     * @param shortCode the short code that was resolved
+     */
+    void recordClick(String shortCode);
+}
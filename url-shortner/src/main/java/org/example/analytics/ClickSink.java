@@ -0,0 +1,14 @@
+package org.example.analytics;
+
+/**
+ * Destination for completed per-minute click buckets, such as a database table or a metrics pipeline.
+ * Buckets are written one at a time from a single background thread, oldest first.
+ */
+@FunctionalInterface
+public interface ClickSink {
+    /**
+     * Writes one bucket. A bucket that throws is dropped.
+     * @param bucket the clicks of one minute
+     */
+    void write(ClickBucket bucket);
+}
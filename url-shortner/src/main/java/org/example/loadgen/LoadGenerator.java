@@ -0,0 +1,584 @@
+package org.example.loadgen;
+
+import org.example.repository.CachingURLRepository;
+import org.example.repository.FileURLRepository;
+import org.example.repository.InMemoryURLRepository;
+import org.example.repository.OffHeapURLRepository;
+import org.example.repository.ShardedURLRepository;
+import org.example.repository.URLRepository;
+import org.example.service.LeasingShortCodeGenerator;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+import org.example.util.CoarseClock;
+import org.example.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Macro-benchmark that drives a {@link URLShortenerService} with a mix of shorten requests and
+ * redirect lookups, for capacity planning and for comparing repository implementations.
+ * <p>
+ * The service is first preloaded with {@code keys} mappings, some of them expiring. Each worker
+ * then picks redirect targets by Zipfian popularity and shortens fresh URLs, at a target rate
+ * or as fast as it can. With a target rate every operation has an intended start time on a
+ * fixed schedule, and its response time is measured from then rather than from when it
+ * actually started. A stall therefore shows up in the latency of every request that should
+ * have run during it, instead of silently lowering the request rate (coordinated omission).
+ * <p>
+ * Latencies go into {@link LatencyHistogram}s shared by a few workers each, which the calling
+ * thread collects every interval and reports through {@link Options#onInterval(Consumer)}.
+ * Run {@link #main(String[])} or {@code ./gradlew loadgen --args="..."} for the command-line tool.
+ */
+public final class LoadGenerator {
+    private static final String URL_PREFIX = "https://example.com/load/";
+    private static final int PRELOAD_BATCH = 1000;
+
+    private static final int SHORTEN = 0;
+    private static final int REDIRECT = 1;
+    private static final int MISS = 2;
+    private static final int ERROR = 3;
+
+    private final URLShortenerService service;
+    private final Options options;
+    private final ZipfianGenerator popularity;
+    private final Lane[] lanes;
+    /**
+     * Preloaded short codes by popularity rank.
+     */
+    private String[] codes;
+
+    /**
+     * Creates a load generator.
+     * @param service the service under test
+     * @param options the workload
+     */
+    public LoadGenerator(URLShortenerService service, Options options) {
+        this.service = service;
+        this.options = options;
+        this.popularity = new ZipfianGenerator(options.keys, options.zipfExponent);
+        // Enough lanes that workers rarely wait for one another, few enough to merge cheaply.
+        this.lanes = new Lane[Math.min(options.threads, 2 * Runtime.getRuntime().availableProcessors())];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    /**
+     * Preloads the service, runs the warmup and the measured period, and reports the latter.
+     * Blocks for the whole run; intervals are reported from the calling thread as they finish.
+     * @return the report
+     * @throws InterruptedException if interrupted, after stopping the workers
+     */
+    public LoadReport run() throws InterruptedException {
+        ExecutorService workers = newWorkers();
+        try {
+            preload();
+            long start = System.nanoTime();
+            long measureStart = start + TimeUnit.MILLISECONDS.toNanos(options.warmupMillis);
+            long end = measureStart + TimeUnit.MILLISECONDS.toNanos(options.durationMillis);
+            for (int i = 0; i < options.threads; i++) {
+                workers.execute(new Worker(i, start, end));
+            }
+            workers.shutdown();
+
+            sleepUntil(measureStart);
+            Counts spare = collect(new Counts(), null);
+            List<LoadReport.Interval> intervals = new ArrayList<>();
+            LatencyHistogram responseTimes = new LatencyHistogram();
+            LatencyHistogram serviceTimes = new LatencyHistogram();
+            long intervalNanos = TimeUnit.MILLISECONDS.toNanos(options.intervalMillis);
+            long intervalStart = System.nanoTime();
+            boolean last = false;
+            while (!last) {
+                last = intervalStart + intervalNanos >= end;
+                if (last) {
+                    // Let operations in flight at the end complete into the last interval.
+                    workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                } else {
+                    sleepUntil(intervalStart + intervalNanos);
+                }
+                Counts merged = new Counts();
+                spare = collect(spare, merged);
+                long collectedAt = System.nanoTime();
+                LoadReport.Interval interval = new LoadReport.Interval(
+                        (intervalStart - measureStart) / 1e9, (collectedAt - intervalStart) / 1e9,
+                        merged.shortens, merged.redirects, merged.misses, merged.errors,
+                        merged.responseTimes, merged.serviceTimes);
+                intervals.add(interval);
+                responseTimes.add(merged.responseTimes);
+                serviceTimes.add(merged.serviceTimes);
+                options.onInterval.accept(interval);
+                intervalStart = collectedAt;
+            }
+            return new LoadReport(intervals, responseTimes, serviceTimes,
+                    (intervalStart - measureStart) / 1e9, options.rate > 0);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Shortens every key once, in batches, marking {@code expiringShare} of them to expire.
+     */
+    private void preload() {
+        codes = new String[options.keys];
+        SplittableRandom random = new SplittableRandom(options.seed);
+        LocalDateTime expiresAt = LocalDateTime.now().plusSeconds(options.expirySeconds);
+        for (int from = 0; from < options.keys; from += PRELOAD_BATCH) {
+            int to = Math.min(from + PRELOAD_BATCH, options.keys);
+            List<String> lasting = new ArrayList<>();
+            List<String> expiring = new ArrayList<>();
+            for (int key = from; key < to; key++) {
+                (random.nextDouble() < options.expiringShare ? expiring : lasting).add(URL_PREFIX + key);
+            }
+            Map<String, String> shortened = new HashMap<>(service.shortenUrls(lasting, null));
+            shortened.putAll(service.shortenUrls(expiring, expiresAt));
+            for (int key = from; key < to; key++) {
+                codes[key] = shortened.get(URL_PREFIX + key);
+            }
+        }
+    }
+
+    private ExecutorService newWorkers() {
+        if (options.virtualThreads) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        AtomicInteger created = new AtomicInteger();
+        return Executors.newFixedThreadPool(options.threads, r -> {
+            Thread t = new Thread(r, "loadgen-" + created.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Takes every lane's counts, replacing them with empty ones, and adds them to {@code into}.
+     * @param spare empty counts to give the first lane
+     * @param into where to add the taken counts, or null to discard them
+     * @return empty counts for the next collection
+     */
+    private Counts collect(Counts spare, Counts into) {
+        for (Lane lane : lanes) {
+            Counts taken = lane.swap(spare);
+            if (into != null) {
+                into.add(taken);
+            }
+            taken.reset();
+            spare = taken;
+        }
+        return spare;
+    }
+
+    private static void sleepUntil(long deadline) throws InterruptedException {
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            LockSupport.parkNanos(deadline - now);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Runs the command-line tool. Options are {@code --name=value}; durations are in seconds.
+     * <ul>
+     *   <li>{@code --repository}: memory (default), sharded, offheap, file or caching-file</li>
+     *   <li>{@code --threads}, {@code --virtual-threads}, {@code --rate} (total ops/s, 0 for unthrottled)</li>
+     *   <li>{@code --duration}, {@code --warmup}, {@code --interval}</li>
+     *   <li>{@code --shorten-ratio}, {@code --keys}, {@code --zipf}, {@code --expiring-share}, {@code --expiry}, {@code --seed}</li>
+     *   <li>{@code --csv}: file to write per-interval results to</li>
+     * </ul>
+     * @param args the options
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = new Options().onInterval(System.out::println);
+        String repositoryName = "memory";
+        Path csv = null;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Expected --name=value: " + arg);
+            String name = arg.substring(2, equals < 0 ? arg.length() : equals);
+            String value = equals < 0 ? "true" : arg.substring(equals + 1);
+            switch (name) {
+                case "repository" -> repositoryName = value;
+                case "threads" -> options.threads(Integer.parseInt(value));
+                case "virtual-threads" -> options.virtualThreads(Boolean.parseBoolean(value));
+                case "rate" -> options.rate(Double.parseDouble(value));
+                case "duration" -> options.durationMillis(seconds(value));
+                case "warmup" -> options.warmupMillis(seconds(value));
+                case "interval" -> options.intervalMillis(seconds(value));
+                case "shorten-ratio" -> options.shortenRatio(Double.parseDouble(value));
+                case "keys" -> options.keys(Integer.parseInt(value));
+                case "zipf" -> options.zipfExponent(Double.parseDouble(value));
+                case "expiring-share" -> options.expiringShare(Double.parseDouble(value));
+                case "expiry" -> options.expirySeconds(Long.parseLong(value));
+                case "seed" -> options.seed(Long.parseLong(value));
+                case "csv" -> csv = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        Path directory = null;
+        FileURLRepository file = null;
+        URLRepository repository;
+        switch (repositoryName) {
+            case "memory" -> repository = new InMemoryURLRepository();
+            case "sharded" -> repository = new ShardedURLRepository();
+            case "offheap" -> repository = new OffHeapURLRepository();
+            case "file", "caching-file" -> {
+                directory = Files.createTempDirectory("loadgen");
+                file = FileURLRepository.open(directory);
+                repository = repositoryName.equals("file") ? file : new CachingURLRepository(file);
+            }
+            default -> throw new IllegalArgumentException("Unknown repository: " + repositoryName);
+        }
+
+        try {
+            LoadGenerator generator = new LoadGenerator(
+                    new URLShortenerServiceImpl(repository, new LeasingShortCodeGenerator()), options);
+            System.out.printf("%s repository, %d %s threads, %s, %d keys, zipf %.2f, %.0f%% shortens%n",
+                    repositoryName, options.threads, options.virtualThreads ? "virtual" : "platform",
+                    options.rate > 0 ? String.format("%.0f ops/s", options.rate) : "unthrottled",
+                    options.keys, options.zipfExponent, options.shortenRatio * 100);
+            System.out.println(LoadReport.intervalHeader());
+            LoadReport report = generator.run();
+            report.print(System.out);
+            if (csv != null) {
+                report.writeCsv(csv);
+                System.out.println("Intervals written to " + csv);
+            }
+        } finally {
+            if (file != null) {
+                file.close();
+                try (Stream<Path> files = Files.walk(directory)) {
+                    for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                        Files.delete(path);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long seconds(String value) {
+        return Math.round(Double.parseDouble(value) * 1000);
+    }
+
+    /**
+     * Issues operations until the end of the run, on a schedule when a target rate is set.
+     */
+    private final class Worker implements Runnable {
+        private final int id;
+        private final long start;
+        private final long end;
+        private final Lane lane;
+        private final SplittableRandom random;
+        private long sequence;
+
+        Worker(int id, long start, long end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.lane = lanes[id % lanes.length];
+            this.random = new SplittableRandom(options.seed * 31 + id);
+        }
+
+        @Override
+        public void run() {
+            long period = options.rate > 0 ? (long) (1e9 * options.threads / options.rate) : 0;
+            // Stagger the workers' schedules so their requests do not arrive in bursts.
+            long intended = start + period * id / options.threads;
+            while (!Thread.currentThread().isInterrupted()) {
+                long began;
+                if (period > 0) {
+                    began = System.nanoTime();
+                    if (intended >= end || began >= end) {
+                        return;
+                    }
+                    while (began < intended) {
+                        LockSupport.parkNanos(intended - began);
+                        began = System.nanoTime();
+                    }
+                } else {
+                    began = System.nanoTime();
+                    if (began >= end) {
+                        return;
+                    }
+                    intended = began;
+                }
+                int outcome = execute();
+                long done = System.nanoTime();
+                lane.record(done - intended, done - began, outcome);
+                intended += period;
+            }
+        }
+
+        private int execute() {
+            try {
+                if (random.nextDouble() < options.shortenRatio) {
+                    LocalDateTime expiresAt = random.nextDouble() < options.expiringShare
+                            ? CoarseClock.now().plusSeconds(options.expirySeconds) : null;
+                    service.shortenUrl(URL_PREFIX + "w" + id + "/" + sequence++, expiresAt);
+                    return SHORTEN;
+                }
+                return service.getOriginalUrl(codes[popularity.next(random)]) == null ? MISS : REDIRECT;
+            } catch (RuntimeException e) {
+                return ERROR;
+            }
+        }
+    }
+
+    /**
+     * Counts shared by the workers of one lane, under a lock that is held only to record one
+     * operation or to swap the counts out.
+     */
+    private static final class Lane {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Counts counts = new Counts();
+
+        void record(long responseTime, long serviceTime, int outcome) {
+            lock.lock();
+            try {
+                counts.record(responseTime, serviceTime, outcome);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Counts swap(Counts replacement) {
+            lock.lock();
+            try {
+                Counts taken = counts;
+                counts = replacement;
+                return taken;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Counts {
+        private final LatencyHistogram responseTimes = new LatencyHistogram();
+        private final LatencyHistogram serviceTimes = new LatencyHistogram();
+        private long shortens;
+        private long redirects;
+        private long misses;
+        private long errors;
+
+        void record(long responseTime, long serviceTime, int outcome) {
+            responseTimes.record(responseTime);
+            serviceTimes.record(serviceTime);
+            switch (outcome) {
+                case SHORTEN -> shortens++;
+                case REDIRECT -> redirects++;
+                case MISS -> {
+                    redirects++;
+                    misses++;
+                }
+                default -> errors++;
+            }
+        }
+
+        void add(Counts other) {
+            responseTimes.add(other.responseTimes);
+            serviceTimes.add(other.serviceTimes);
+            shortens += other.shortens;
+            redirects += other.redirects;
+            misses += other.misses;
+            errors += other.errors;
+        }
+
+        void reset() {
+            responseTimes.reset();
+            serviceTimes.reset();
+            shortens = 0;
+            redirects = 0;
+            misses = 0;
+            errors = 0;
+        }
+    }
+
+    /**
+     * Workload settings for a {@link LoadGenerator}.
+     */
+    public static final class Options {
+        private int threads = 8;
+        private boolean virtualThreads;
+        private double rate;
+        private long durationMillis = 30_000;
+        private long warmupMillis = 5_000;
+        private long intervalMillis = 1_000;
+        private double shortenRatio = 0.1;
+        private int keys = 100_000;
+        private double zipfExponent = 0.99;
+        private double expiringShare = 0.1;
+        private long expirySeconds = 3600;
+        private long seed = 42;
+        private Consumer<LoadReport.Interval> onInterval = interval -> { };
+
+        /**
+         * Sets how many workers issue operations (default 8). Each issues one at a time.
+         * @param threads the worker count
+         * @return these options
+         */
+        public Options threads(int threads) {
+            if (threads < 1) throw new IllegalArgumentException("Thread count must be positive");
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets whether workers run on virtual threads rather than a platform thread pool
+         * (default false).
+         * @param virtualThreads whether to use virtual threads
+         * @return these options
+         */
+        public Options virtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Sets the target rate across all workers (default 0, meaning each worker issues its next
+         * operation as soon as the previous one completes, and latencies are not corrected).
+         * @param opsPerSecond the rate
+         * @return these options
+         */
+        public Options rate(double opsPerSecond) {
+            if (!(opsPerSecond >= 0)) throw new IllegalArgumentException("Rate must not be negative");
+            this.rate = opsPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets how long the measured period lasts (default 30 s).
+         * @param millis the duration
+         * @return these options
+         */
+        public Options durationMillis(long millis) {
+            if (millis < 1) throw new IllegalArgumentException("Duration must be positive");
+            this.durationMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets how long the workload runs before measurement starts (default 5 s), so the JIT
+         * and caches settle first.
+         * @param millis the warmup
+         * @return these options
+         */
+        public Options warmupMillis(long millis) {
+            if (millis < 0) throw new IllegalArgumentException("Warmup must not be negative");
+            this.warmupMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets how often throughput and latency are reported (default 1 s).
+         * @param millis the interval
+         * @return these options
+         */
+        public Options intervalMillis(long millis) {
+            if (millis < 1) throw new IllegalArgumentException("Interval must be positive");
+            this.intervalMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets the share of operations that shorten a new URL (default 0.1); the rest are
+         * redirect lookups.
+         * @param ratio between 0 and 1
+         * @return these options
+         */
+        public Options shortenRatio(double ratio) {
+            if (!(ratio >= 0 && ratio <= 1)) throw new IllegalArgumentException("Shorten ratio must be between 0 and 1");
+            this.shortenRatio = ratio;
+            return this;
+        }
+
+        /**
+         * Sets how many mappings are preloaded and looked up (default 100,000).
+         * @param keys the key count
+         * @return these options
+         */
+        public Options keys(int keys) {
+            if (keys < 1) throw new IllegalArgumentException("Key count must be positive");
+            this.keys = keys;
+            return this;
+        }
+
+        /**
+         * Sets the skew of redirect popularity (default 0.99); higher concentrates lookups on
+         * fewer codes.
+         * @param exponent the Zipf exponent
+         * @return these options
+         */
+        public Options zipfExponent(double exponent) {
+            if (!(exponent > 0)) throw new IllegalArgumentException("Zipf exponent must be positive");
+            this.zipfExponent = exponent;
+            return this;
+        }
+
+        /**
+         * Sets the share of mappings, preloaded or shortened during the run, that expire
+         * (default 0.1).
+         * @param share between 0 and 1
+         * @return these options
+         */
+        public Options expiringShare(double share) {
+            if (!(share >= 0 && share <= 1)) throw new IllegalArgumentException("Expiring share must be between 0 and 1");
+            this.expiringShare = share;
+            return this;
+        }
+
+        /**
+         * Sets how long expiring mappings live (default 1 hour). Preloaded mappings that expire
+         * during the run turn their lookups into misses.
+         * @param seconds the time to live
+         * @return these options
+         */
+        public Options expirySeconds(long seconds) {
+            if (seconds < 0) throw new IllegalArgumentException("Expiry must not be negative");
+            this.expirySeconds = seconds;
+            return this;
+        }
+
+        /**
+         * Sets the random seed (default 42), so runs being compared see the same keys.
+         * @param seed the seed
+         * @return these options
+         */
+        public Options seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets what to call with each finished interval (default nothing). Called on the
+         * thread running {@link LoadGenerator#run()}.
+         * @param listener the listener
+         * @return these options
+         */
+        public Options onInterval(Consumer<LoadReport.Interval> listener) {
+            if (listener == null) throw new IllegalArgumentException("Listener must not be null");
+            this.onInterval = listener;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package org.example.loadgen;
+
+import org.example.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of a {@link LoadGenerator} run: throughput and latency per reporting interval, and
+ * latency histograms over the whole measured period. Response times are measured from when
+ * each request was scheduled to start, so they include time spent queued behind a slow
+ * request (corrected for coordinated omission); service times are measured from when it
+ * actually started. Without a target rate there is no schedule and the two are the same.
+ */
+public final class LoadReport {
+    private static final String CSV_HEADER =
+            "start_s,seconds,operations,ops_per_s,shortens,redirects,misses,errors,p50_us,p99_us,p999_us,max_us,service_p99_us";
+
+    private final List<Interval> intervals;
+    private final LatencyHistogram responseTimes;
+    private final LatencyHistogram serviceTimes;
+    private final double seconds;
+    private final boolean scheduled;
+
+    LoadReport(List<Interval> intervals, LatencyHistogram responseTimes, LatencyHistogram serviceTimes,
+               double seconds, boolean scheduled) {
+        this.intervals = Collections.unmodifiableList(intervals);
+        this.responseTimes = responseTimes;
+        this.serviceTimes = serviceTimes;
+        this.seconds = seconds;
+        this.scheduled = scheduled;
+    }
+
+    /**
+     * Gets the reporting intervals, oldest first.
+     * @return an unmodifiable list
+     */
+    public List<Interval> getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * Gets response times in nanoseconds over the measured period, corrected for coordinated
+     * omission when the run had a target rate.
+     * @return the histogram
+     */
+    public LatencyHistogram getResponseTimes() {
+        return responseTimes;
+    }
+
+    /**
+     * Gets service times in nanoseconds over the measured period.
+     * @return the histogram
+     */
+    public LatencyHistogram getServiceTimes() {
+        return serviceTimes;
+    }
+
+    /**
+     * Gets the number of completed operations over the measured period.
+     * @return the count
+     */
+    public long getOperations() {
+        return responseTimes.getCount();
+    }
+
+    /**
+     * Gets the average throughput over the measured period.
+     * @return operations per second
+     */
+    public double getThroughput() {
+        return seconds == 0 ? 0 : getOperations() / seconds;
+    }
+
+    /**
+     * Prints a summary: totals, then response and service time percentiles.
+     * @param out where to print
+     */
+    public void print(PrintStream out) {
+        long misses = 0;
+        long errors = 0;
+        for (Interval interval : intervals) {
+            misses += interval.misses;
+            errors += interval.errors;
+        }
+        out.printf(Locale.ROOT, "%d operations in %.1f s: %.0f ops/s, %d redirect misses, %d errors%n",
+                getOperations(), seconds, getThroughput(), misses, errors);
+        printPercentiles(out, scheduled ? "response time (from intended start)" : "response time (closed loop, uncorrected)", responseTimes);
+        if (scheduled) {
+            printPercentiles(out, "service time (from actual start)", serviceTimes);
+        }
+    }
+
+    /**
+     * Writes one CSV row per interval, with latencies in microseconds.
+     * @param file the file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public void writeCsv(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            for (Interval interval : intervals) {
+                writer.write(String.format(Locale.ROOT, "%.3f,%.3f,%d,%.1f,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f%n",
+                        interval.startSeconds, interval.seconds, interval.operations, interval.getThroughput(),
+                        interval.shortens, interval.redirects, interval.misses, interval.errors,
+                        micros(interval.p50), micros(interval.p99), micros(interval.p999), micros(interval.max),
+                        micros(interval.serviceP99)));
+            }
+        }
+    }
+
+    /**
+     * Formats the column headings matching {@link Interval#toString()}.
+     * @return the heading line
+     */
+    static String intervalHeader() {
+        return String.format(Locale.ROOT, "%8s %10s %10s %10s %10s %10s %8s",
+                "time(s)", "ops/s", "p50(us)", "p99(us)", "p99.9(us)", "max(us)", "errors");
+    }
+
+    private static void printPercentiles(PrintStream out, String label, LatencyHistogram histogram) {
+        out.printf(Locale.ROOT, "%s: mean %.1f us, p50 %.1f us, p90 %.1f us, p99 %.1f us, p99.9 %.1f us, p99.99 %.1f us, max %.1f us%n",
+                label, histogram.getMean() / 1000,
+                micros(histogram.getValueAtPercentile(50)), micros(histogram.getValueAtPercentile(90)),
+                micros(histogram.getValueAtPercentile(99)), micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getValueAtPercentile(99.99)), micros(histogram.getMax()));
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+    /**
+     * Throughput and latency over one reporting interval. Latencies are response times in
+     * nanoseconds, attributed to the interval in which the operation completed.
+     */
+    public static final class Interval {
+        private final double startSeconds;
+        private final double seconds;
+        private final long operations;
+        private final long shortens;
+        private final long redirects;
+        private final long misses;
+        private final long errors;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+        private final long serviceP99;
+
+        Interval(double startSeconds, double seconds, long shortens, long redirects, long misses, long errors,
+                 LatencyHistogram responseTimes, LatencyHistogram serviceTimes) {
+            this.startSeconds = startSeconds;
+            this.seconds = seconds;
+            this.operations = responseTimes.getCount();
+            this.shortens = shortens;
+            this.redirects = redirects;
+            this.misses = misses;
+            this.errors = errors;
+            this.p50 = responseTimes.getValueAtPercentile(50);
+            this.p99 = responseTimes.getValueAtPercentile(99);
+            this.p999 = responseTimes.getValueAtPercentile(99.9);
+            this.max = responseTimes.getMax();
+            this.serviceP99 = serviceTimes.getValueAtPercentile(99);
+        }
+
+        /**
+         * Gets when the interval started, relative to the end of the warmup.
+         * @return seconds since measurement started
+         */
+        public double getStartSeconds() {
+            return startSeconds;
+        }
+
+        /**
+         * Gets the interval's length; the last one may be shorter.
+         * @return seconds
+         */
+        public double getSeconds() {
+            return seconds;
+        }
+
+        /**
+         * Gets the number of operations that completed, including failed ones.
+         * @return the count
+         */
+        public long getOperations() {
+            return operations;
+        }
+
+        /**
+         * Gets the throughput.
+         * @return operations per second
+         */
+        public double getThroughput() {
+            return seconds == 0 ? 0 : operations / seconds;
+        }
+
+        /**
+         * Gets the number of shorten operations.
+         * @return the count
+         */
+        public long getShortens() {
+            return shortens;
+        }
+
+        /**
+         * Gets the number of redirect lookups.
+         * @return the count
+         */
+        public long getRedirects() {
+            return redirects;
+        }
+
+        /**
+         * Gets the number of redirect lookups that found nothing, such as expired codes.
+         * @return the count
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Gets the number of operations that threw.
+         * @return the count
+         */
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Gets the median response time.
+         * @return nanoseconds
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        /**
+         * Gets the 99th percentile response time.
+         * @return nanoseconds
+         */
+        public long getP99() {
+            return p99;
+        }
+
+        /**
+         * Gets the 99.9th percentile response time.
+         * @return nanoseconds
+         */
+        public long getP999() {
+            return p999;
+        }
+
+        /**
+         * Gets the largest response time.
+         * @return nanoseconds
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Gets the 99th percentile service time.
+         * @return nanoseconds
+         */
+        public long getServiceP99() {
+            return serviceP99;
+        }
+
+        /**
+         * Formats the interval as one progress line, in the columns of {@link LoadReport#intervalHeader()}.
+         * @return the line
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%8.1f %10.0f %10.1f %10.1f %10.1f %10.1f %8d",
+                    startSeconds + seconds, getThroughput(), micros(p50), micros(p99), micros(p999), micros(max), errors);
+        }
+    }
+}
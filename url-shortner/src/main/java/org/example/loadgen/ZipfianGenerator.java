@@ -0,0 +1,101 @@
+package org.example.loadgen;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws ranks from a Zipf distribution: rank {@code k} (0-based) is drawn with probability
+ * proportional to {@code 1 / (k + 1)^exponent}, so rank 0 is the most popular key.
+ * Uses rejection-inversion sampling (Hormann and Derflinger), which needs O(1) time and memory
+ * per draw for any number of keys and any positive exponent, instead of a table of cumulative
+ * probabilities. Immutable; safe to share when each thread passes its own random generator.
+ */
+public final class ZipfianGenerator {
+    private final int keys;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralKeys;
+    private final double s;
+
+    /**
+     * Creates a generator.
+     * @param keys the number of ranks
+     * @param exponent the skew; 0.99 is the usual web-traffic assumption
+     */
+    public ZipfianGenerator(int keys, double exponent) {
+        if (keys < 1) throw new IllegalArgumentException("Key count must be positive");
+        if (!(exponent > 0)) throw new IllegalArgumentException("Exponent must be positive");
+        this.keys = keys;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralKeys = hIntegral(keys + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    /**
+     * Draws a rank.
+     * @param random the source of randomness
+     * @return a rank between 0 and {@code keys - 1}
+     */
+    public int next(RandomGenerator random) {
+        while (true) {
+            double u = hIntegralKeys + random.nextDouble() * (hIntegralX1 - hIntegralKeys);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > keys) {
+                k = keys;
+            }
+            // Accept when k is in the region where the hat and the distribution coincide,
+            // or when u falls under the distribution's own mass for k.
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of ranks.
+     * @return the key count
+     */
+    public int getKeys() {
+        return keys;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    /**
+     * The integral of {@link #h} from 1 to x, shifted so it is well-defined for exponent 1.
+     */
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return expm1OverX((1 - exponent) * logX) * logX;
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = Math.max(x * (1 - exponent), -1);
+        return Math.exp(log1pOverX(t) * x);
+    }
+
+    /**
+     * {@code log(1 + x) / x}, continuous at 0.
+     */
+    private static double log1pOverX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    /**
+     * {@code (e^x - 1) / x}, continuous at 0.
+     */
+    private static double expm1OverX(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+    }
+}
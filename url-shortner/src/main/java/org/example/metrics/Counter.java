@@ -0,0 +1,63 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count of events, created by {@link Metrics#counter(String, String)}.
+ * Increments are striped across cells by {@link LongAdder}, so hot counters do not contend.
+ */
+public final class Counter {
+    private final Metrics metrics;
+    private final String name;
+    private final String help;
+    private final LongAdder count = new LongAdder();
+
+    Counter(Metrics metrics, String name, String help) {
+        this.metrics = metrics;
+        this.name = name;
+        this.help = help;
+    }
+
+    /**
+     * Counts one event, if the registry is enabled.
+     */
+    public void increment() {
+        if (metrics.isEnabled()) {
+            count.increment();
+        }
+    }
+
+    /**
+     * Counts several events, if the registry is enabled.
+     * @param events how many
+     */
+    public void add(long events) {
+        if (metrics.isEnabled()) {
+            count.add(events);
+        }
+    }
+
+    /**
+     * Gets the count.
+     * @return events counted since creation or the last reset
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the metric name.
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    String getHelp() {
+        return help;
+    }
+
+    void reset() {
+        count.reset();
+    }
+}
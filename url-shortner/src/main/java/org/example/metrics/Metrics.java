@@ -0,0 +1,154 @@
+package org.example.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of latency timers and counters, with one runtime switch for all of them.
+ * <p>
+ * Timers and counters are created once, when the instrumented component is built, and kept
+ * in fields; recording then goes straight to them with no lookup. While the registry is
+ * disabled, {@link Timer#start()} returns without reading the clock and counters ignore
+ * increments, so instrumented code pays one volatile read per call site and allocates nothing.
+ * Enabled recording does not allocate either.
+ * <p>
+ * Metric names follow Prometheus conventions: timers end in {@code _seconds} and are exported
+ * as summaries, counters end in {@code _total}. Registering a name and labels that already
+ * exist returns the existing metric, so several components may share a registry.
+ */
+public final class Metrics {
+    /**
+     * A registry that is always disabled, for components built without instrumentation.
+     */
+    public static final Metrics NONE = new Metrics(false);
+
+    private final Map<String, Timer> timers = new LinkedHashMap<>();
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+    private final Map<String, CounterFunction> counterFunctions = new LinkedHashMap<>();
+    private final boolean switchable;
+    private volatile boolean enabled;
+
+    /**
+     * Creates an enabled registry.
+     */
+    public Metrics() {
+        this.switchable = true;
+        this.enabled = true;
+    }
+
+    private Metrics(boolean switchable) {
+        this.switchable = switchable;
+        this.enabled = false;
+    }
+
+    /**
+     * Turns recording on or off. Metrics keep their values while recording is off.
+     * @param enabled whether timers and counters record
+     */
+    public void setEnabled(boolean enabled) {
+        if (!switchable && enabled) throw new UnsupportedOperationException("Metrics.NONE cannot be enabled");
+        this.enabled = enabled;
+    }
+
+    /**
+     * Tells whether timers and counters record.
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets or creates a timer.
+     * @param name the metric name, ending in {@code _seconds}
+     * @param help one line describing what is timed
+     * @return the timer
+     */
+    public Timer timer(String name, String help) {
+        return timer(name, help, null, null);
+    }
+
+    /**
+     * Gets or creates a timer with one label, such as the repository operation it times.
+     * @param name the metric name, ending in {@code _seconds}
+     * @param help one line describing what is timed, shared by every label value
+     * @param labelName the label name, or null for none
+     * @param labelValue the label value
+     * @return the timer
+     */
+    public synchronized Timer timer(String name, String help, String labelName, String labelValue) {
+        return timers.computeIfAbsent(key(name, labelName, labelValue),
+                key -> new Timer(this, name, help, labelName, labelValue));
+    }
+
+    /**
+     * Gets or creates a counter.
+     * @param name the metric name, ending in {@code _total}
+     * @param help one line describing what is counted
+     * @return the counter
+     */
+    public synchronized Counter counter(String name, String help) {
+        return counters.computeIfAbsent(key(name, null, null), key -> new Counter(this, name, help));
+    }
+
+    /**
+     * Registers a counter kept elsewhere, such as a cache's own hit count, which is read only
+     * when a snapshot is taken. It is exported whether or not the registry is enabled.
+     * Registering an existing name replaces its source.
+     * @param name the metric name, ending in {@code _total}
+     * @param help one line describing what is counted
+     * @param source reads the current count
+     */
+    public synchronized void counter(String name, String help, LongSupplier source) {
+        counterFunctions.put(key(name, null, null), new CounterFunction(name, help, source));
+    }
+
+    /**
+     * Reads every metric. Timers report quantiles over everything recorded since they were
+     * created or last {@link #reset()}.
+     * @return the values, in registration order
+     */
+    public synchronized MetricsSnapshot snapshot() {
+        List<MetricsSnapshot.TimerValue> timerValues = new ArrayList<>(timers.size());
+        for (Timer timer : timers.values()) {
+            timerValues.add(timer.snapshot());
+        }
+        List<MetricsSnapshot.CounterValue> counterValues = new ArrayList<>(counters.size() + counterFunctions.size());
+        for (Counter counter : counters.values()) {
+            counterValues.add(new MetricsSnapshot.CounterValue(counter.getName(), counter.getHelp(), counter.getCount()));
+        }
+        for (CounterFunction function : counterFunctions.values()) {
+            counterValues.add(new MetricsSnapshot.CounterValue(function.name, function.help, function.source.getAsLong()));
+        }
+        return new MetricsSnapshot(timerValues, counterValues);
+    }
+
+    /**
+     * Clears every timer and counter this registry owns. Registered counter sources are not
+     * affected.
+     */
+    public synchronized void reset() {
+        timers.values().forEach(Timer::reset);
+        counters.values().forEach(Counter::reset);
+    }
+
+    private static String key(String name, String labelName, String labelValue) {
+        if (name == null || name.isEmpty()) throw new IllegalArgumentException("Metric name must not be empty");
+        return labelName == null ? name : name + '{' + labelName + '=' + labelValue + '}';
+    }
+
+    private static final class CounterFunction {
+        private final String name;
+        private final String help;
+        private final LongSupplier source;
+
+        CounterFunction(String name, String help, LongSupplier source) {
+            this.name = name;
+            this.help = help;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.example.metrics;
+
+import org.example.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Values of every metric in a {@link Metrics} registry at one moment, for tests, logs, or a
+ * Prometheus scrape through {@link #writePrometheus(Appendable)}.
+ */
+public final class MetricsSnapshot {
+    /**
+     * Quantiles exported for every timer.
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final List<TimerValue> timers;
+    private final List<CounterValue> counters;
+
+    MetricsSnapshot(List<TimerValue> timers, List<CounterValue> counters) {
+        this.timers = Collections.unmodifiableList(timers);
+        this.counters = Collections.unmodifiableList(counters);
+    }
+
+    /**
+     * Gets every timer's values.
+     * @return an unmodifiable list, in registration order
+     */
+    public List<TimerValue> getTimers() {
+        return timers;
+    }
+
+    /**
+     * Gets every counter's value.
+     * @return an unmodifiable list, in registration order
+     */
+    public List<CounterValue> getCounters() {
+        return counters;
+    }
+
+    /**
+     * Finds a timer.
+     * @param name the metric name
+     * @param labelValue its label value, or null if it has no label
+     * @return the timer's values, or null if there is no such timer
+     */
+    public TimerValue getTimer(String name, String labelValue) {
+        for (TimerValue timer : timers) {
+            if (timer.name.equals(name) && Objects.equals(timer.labelValue, labelValue)) {
+                return timer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets a counter's value.
+     * @param name the metric name
+     * @return the count, or 0 if there is no such counter
+     */
+    public long getCounter(String name) {
+        for (CounterValue counter : counters) {
+            if (counter.name.equals(name)) {
+                return counter.count;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format (version 0.0.4). Timers are
+     * summaries in seconds with 0.5, 0.9, 0.99 and 0.999 quantiles; timers sharing a name
+     * but not a label value form one metric family.
+     * @param out where to write
+     */
+    public void writePrometheus(Appendable out) {
+        try {
+            Set<String> families = new LinkedHashSet<>();
+            for (TimerValue timer : timers) {
+                families.add(timer.name);
+            }
+            for (String family : families) {
+                boolean first = true;
+                for (TimerValue timer : timers) {
+                    if (timer.name.equals(family)) {
+                        if (first) {
+                            header(out, timer.name, timer.help, "summary");
+                            first = false;
+                        }
+                        writeSummary(out, timer);
+                    }
+                }
+            }
+            for (CounterValue counter : counters) {
+                header(out, counter.name, counter.help, "counter");
+                out.append(counter.name).append(' ').append(Long.toString(counter.count)).append('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeSummary(Appendable out, TimerValue timer) throws IOException {
+        for (double quantile : QUANTILES) {
+            out.append(timer.name).append('{');
+            if (timer.labelName != null) {
+                out.append(timer.labelName).append("=\"").append(escape(timer.labelValue)).append("\",");
+            }
+            out.append("quantile=\"").append(Double.toString(quantile)).append("\"} ")
+                    .append(seconds(timer.histogram.getValueAtPercentile(quantile * 100))).append('\n');
+        }
+        String labels = timer.labelName == null ? "" : "{" + timer.labelName + "=\"" + escape(timer.labelValue) + "\"}";
+        out.append(timer.name).append("_sum").append(labels).append(' ')
+                .append(seconds(timer.histogram.getMean() * timer.histogram.getCount())).append('\n');
+        out.append(timer.name).append("_count").append(labels).append(' ')
+                .append(Long.toString(timer.histogram.getCount())).append('\n');
+    }
+
+    /**
+     * Formats every metric in the Prometheus text exposition format.
+     * @return the text
+     */
+    public String toPrometheusText() {
+        StringBuilder text = new StringBuilder();
+        writePrometheus(text);
+        return text.toString();
+    }
+
+    private static void header(Appendable out, String name, String help, String type) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String seconds(double nanos) {
+        return String.format(Locale.ROOT, "%.9g", nanos / 1e9);
+    }
+
+    /**
+     * Latency distribution of one timer.
+     */
+    public static final class TimerValue {
+        private final String name;
+        private final String help;
+        private final String labelName;
+        private final String labelValue;
+        private final LatencyHistogram histogram;
+
+        TimerValue(String name, String help, String labelName, String labelValue, LatencyHistogram histogram) {
+            this.name = name;
+            this.help = help;
+            this.labelName = labelName;
+            this.labelValue = labelValue;
+            this.histogram = histogram;
+        }
+
+        /**
+         * Gets the metric name.
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the label value that tells timers of the same name apart.
+         * @return the value, or null if the timer has no label
+         */
+        public String getLabelValue() {
+            return labelValue;
+        }
+
+        /**
+         * Gets the number of timed operations.
+         * @return the count
+         */
+        public long getCount() {
+            return histogram.getCount();
+        }
+
+        /**
+         * Gets a latency percentile.
+         * @param percentile between 0 and 100
+         * @return nanoseconds, within 1% of the exact value
+         */
+        public long getPercentile(double percentile) {
+            return histogram.getValueAtPercentile(percentile);
+        }
+
+        /**
+         * Gets the mean latency.
+         * @return nanoseconds
+         */
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        /**
+         * Gets the largest latency.
+         * @return nanoseconds
+         */
+        public long getMax() {
+            return histogram.getMax();
+        }
+    }
+
+    /**
+     * Value of one counter.
+     */
+    public static final class CounterValue {
+        private final String name;
+        private final String help;
+        private final long count;
+
+        CounterValue(String name, String help, long count) {
+            this.name = name;
+            this.help = help;
+            this.count = count;
+        }
+
+        /**
+         * Gets the metric name.
+         * @return the name
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the count.
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.metrics;
+
+import org.example.util.ConcurrentLatencyHistogram;
+import org.example.util.LatencyHistogram;
+
+/**
+ * Latency histogram for one operation, created by {@link Metrics#timer(String, String)}.
+ * Time an operation with
+ * <pre>{@code
+ * long started = timer.start();
+ * ...
+ * timer.stop(started);
+ * }</pre>
+ * Durations go into one of a few {@link ConcurrentLatencyHistogram} stripes chosen by thread.
+ * Recording takes no lock, and threads on different stripes do not share counters, so it
+ * scales with threads and never allocates.
+ */
+public final class Timer {
+    /**
+     * What {@link #start()} returns while the registry is disabled. {@link System#nanoTime()}
+     * may return any long, including 0, but comes nowhere near this value in practice.
+     */
+    public static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private static final int MAX_STRIPES = 8;
+
+    private final Metrics metrics;
+    private final String name;
+    private final String help;
+    private final String labelName;
+    private final String labelValue;
+    private final ConcurrentLatencyHistogram[] stripes;
+    private final int mask;
+
+    Timer(Metrics metrics, String name, String help, String labelName, String labelValue) {
+        this.metrics = metrics;
+        this.name = name;
+        this.help = help;
+        this.labelName = labelName;
+        this.labelValue = labelValue;
+        int wanted = Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES);
+        int count = 1;
+        while (count < wanted) {
+            count <<= 1;
+        }
+        this.stripes = new ConcurrentLatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ConcurrentLatencyHistogram();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Starts timing an operation.
+     * @return the start time to pass to {@link #stop(long)}, or {@link #NOT_STARTED} if the registry is disabled
+     */
+    public long start() {
+        return metrics.isEnabled() ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Records the time since {@link #start()}. Does nothing if timing was not started.
+     * @param started what {@link #start()} returned
+     */
+    public void stop(long started) {
+        if (started != NOT_STARTED) {
+            add(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Records a duration measured elsewhere, if the registry is enabled.
+     * @param nanos the duration
+     */
+    public void record(long nanos) {
+        if (metrics.isEnabled()) {
+            add(nanos);
+        }
+    }
+
+    private void add(long nanos) {
+        stripes[(int) Thread.currentThread().threadId() & mask].record(nanos);
+    }
+
+    /**
+     * Gets the metric name.
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    MetricsSnapshot.TimerValue snapshot() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (ConcurrentLatencyHistogram stripe : stripes) {
+            stripe.copyInto(merged);
+        }
+        return new MetricsSnapshot.TimerValue(name, help, labelName, labelValue, merged);
+    }
+
+    void reset() {
+        for (ConcurrentLatencyHistogram stripe : stripes) {
+            stripe.reset();
+        }
+    }
+}
@@ -1,12 +1,24 @@
 package org.example.model;
 
+import org.example.util.CoarseClock;
+
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 /**
  * Represents a mapping between a short code and a long URL, including creation timestamp.
  * Used by the URL shortener service to store and retrieve URL associations.
+ * Timestamps are held as UTC epoch millis, so a mapping is one object plus its two strings;
+ * {@link LocalDateTime} values are created only when {@link #getCreatedAt()} or
+ * {@link #getExpiresAt()} is called, and are truncated to the millisecond.
  */
 public class URLMapping {
+    /**
+     * Value of {@link #getExpiresAtMillis()} for a mapping that never expires.
+     */
+    public static final long NO_EXPIRY = Long.MAX_VALUE;
+
     /**
      * The unique short code representing the long URL.
      */
@@ -16,13 +28,13 @@ public class URLMapping {
      */
     private final String longUrl;
     /**
-     * The timestamp when the mapping was created.
+     * When the mapping was created, in UTC epoch millis.
      */
-    private final LocalDateTime createdAt;
+    private final long createdAtMillis;
     /**
-     * The timestamp when the mapping expires (optional, may be null for no expiry).
+     * When the mapping expires, in UTC epoch millis, or {@link #NO_EXPIRY}.
      */
-    private final LocalDateTime expiresAt;
+    private final long expiresAtMillis;
 
     /**
      * Constructs a new URLMapping with expiry.
@@ -32,10 +44,7 @@ public class URLMapping {
      * @param expiresAt the expiry timestamp (nullable)
      */
     public URLMapping(String shortCode, String longUrl, LocalDateTime createdAt, LocalDateTime expiresAt) {
-        this.shortCode = shortCode;
-        this.longUrl = longUrl;
-        this.createdAt = createdAt;
-        this.expiresAt = expiresAt;
+        this(shortCode, longUrl, toEpochMillis(createdAt), expiresAt == null ? NO_EXPIRY : toEpochMillis(expiresAt));
     }
 
     /**
@@ -45,6 +54,20 @@ public class URLMapping {
         this(shortCode, longUrl, createdAt, null);
     }
 
+    /**
+     * Constructs a new URLMapping from epoch timestamps, as stores that keep millis do.
+     * @param shortCode the unique short code
+     * @param longUrl the original long URL
+     * @param createdAtMillis the creation time in UTC epoch millis
+     * @param expiresAtMillis the expiry time in UTC epoch millis, or {@link #NO_EXPIRY}
+     */
+    public URLMapping(String shortCode, String longUrl, long createdAtMillis, long expiresAtMillis) {
+        this.shortCode = shortCode;
+        this.longUrl = longUrl;
+        this.createdAtMillis = createdAtMillis;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
     /**
      * Gets the short code.
      * @return the short code
@@ -62,24 +85,107 @@ public class URLMapping {
     }
 
     /**
-     * Gets the creation timestamp.
+     * Gets the creation timestamp. Creates a new object on every call.
      * @return the creation timestamp
      */
     public LocalDateTime getCreatedAt() {
-        return createdAt;
+        return fromEpochMillis(createdAtMillis);
+    }
+
+    /**
+     * Gets the creation time.
+     * @return UTC epoch millis
+     */
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
     }
 
     /**
-     * Gets the expiry timestamp (nullable).
+     * Gets the expiry timestamp (nullable). Creates a new object on every call.
      */
     public LocalDateTime getExpiresAt() {
-        return expiresAt;
+        return expiresAtMillis == NO_EXPIRY ? null : fromEpochMillis(expiresAtMillis);
+    }
+
+    /**
+     * Gets the expiry time.
+     * @return UTC epoch millis, or {@link #NO_EXPIRY}
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * Tells whether the mapping has an expiry.
+     * @return false if it never expires
+     */
+    public boolean hasExpiry() {
+        return expiresAtMillis != NO_EXPIRY;
     }
 
     /**
      * Returns true if this mapping is expired (now > expiresAt), false otherwise or if no expiry.
+     * The current time comes from {@link CoarseClock}, so a mapping may still count as live for
+     * up to one clock tick after it expires.
      */
     public boolean isExpired() {
-        return expiresAt != null && LocalDateTime.now().isAfter(expiresAt);
+        return isExpiredAt(CoarseClock.currentTimeMillis());
+    }
+
+    /**
+     * Returns true if this mapping is expired at the given time (time > expiresAt).
+     * @param now the current time
+     */
+    public boolean isExpired(LocalDateTime now) {
+        return isExpiredAt(toEpochMillis(now));
+    }
+
+    /**
+     * Returns true if this mapping is expired at the given time (time > expiresAt).
+     * Never true for a mapping without expiry, as {@link #NO_EXPIRY} is the largest long.
+     * @param nowMillis the current time in UTC epoch millis
+     */
+    public boolean isExpiredAt(long nowMillis) {
+        return nowMillis > expiresAtMillis;
+    }
+
+    /**
+     * Converts a timestamp the way mappings store it.
+     * @param time a UTC date-time
+     * @return epoch millis
+     */
+    public static long toEpochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Converts a stored timestamp back.
+     * @param millis epoch millis
+     * @return the UTC date-time
+     */
+    public static LocalDateTime fromEpochMillis(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Two mappings are equal when all four fields are equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof URLMapping)) return false;
+        URLMapping other = (URLMapping) o;
+        return createdAtMillis == other.createdAtMillis
+                && expiresAtMillis == other.expiresAtMillis
+                && shortCode.equals(other.shortCode)
+                && longUrl.equals(other.longUrl);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = shortCode.hashCode();
+        result = 31 * result + longUrl.hashCode();
+        result = 31 * result + Long.hashCode(createdAtMillis);
+        return 31 * result + Long.hashCode(expiresAtMillis);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package org.example.replication;
+
+import org.example.model.URLMapping;
+import org.example.repository.URLRepository;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * URLRepository session that writes to a leader, reads from a follower, and always sees its
+ * own writes. After a write the session remembers the leader's sequence number; a later read
+ * waits up to {@code maxWaitMillis} for the follower to apply it, and falls back to the leader
+ * if the follower is still behind or follows a different leader log.
+ * Reads before the session's first write go straight to the follower.
+ * <p>
+ * One instance is one session; share it between the threads whose writes must be visible to
+ * each other, such as the requests of one client.
+ */
+public class ReadYourWritesRepository implements URLRepository {
+    private final ReplicationLeader leader;
+    private final ReplicationFollower follower;
+    private final long maxWaitMillis;
+    private final AtomicLong writtenSeq = new AtomicLong();
+
+    /**
+     * Creates a session.
+     * @param leader where writes go
+     * @param follower where reads go once it has caught up with the session's writes
+     * @param maxWaitMillis how long a read waits for the follower before asking the leader
+     */
+    public ReadYourWritesRepository(ReplicationLeader leader, ReplicationFollower follower, long maxWaitMillis) {
+        if (maxWaitMillis < 0) throw new IllegalArgumentException("Wait must not be negative");
+        this.leader = leader;
+        this.follower = follower;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        leader.save(mapping);
+        written();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        boolean saved = leader.saveIfAbsent(mapping);
+        written();
+        return saved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        URLMapping stored = leader.findOrSave(candidate);
+        written();
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        List<URLMapping> stored = leader.saveAll(candidates);
+        written();
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        boolean removed = leader.remove(mapping);
+        written();
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        return readable().findByShortCode(shortCode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        return readable().findByLongUrl(longUrl);
+    }
+
+    /**
+     * Records the leader position after a write. Writes that found or refused something also
+     * count, since what they found may be newer than the follower's replica.
+     */
+    private void written() {
+        writtenSeq.accumulateAndGet(leader.getLastSequence(), Math::max);
+    }
+
+    private URLRepository readable() {
+        long seq = writtenSeq.get();
+        if (seq == 0) {
+            return follower;
+        }
+        if (follower.getLogId() == leader.getLogId() && follower.awaitSequence(seq, maxWaitMillis)) {
+            return follower;
+        }
+        return leader;
+    }
+}
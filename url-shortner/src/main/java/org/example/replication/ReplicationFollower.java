@@ -0,0 +1,450 @@
+package org.example.replication;
+
+import org.example.model.URLMapping;
+import org.example.repository.InMemoryURLRepository;
+import org.example.repository.MappingCodec;
+import org.example.repository.URLRepository;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-only URLRepository that replicates a {@link ReplicationLeader} into memory.
+ * <p>
+ * A receiver thread connects to the leader, sends the log id and sequence number it has
+ * applied, and applies what the leader streams back: either the missing log entries, or a
+ * snapshot followed by the log from there. A snapshot is built next to the current replica and
+ * swapped in whole once complete, so reads keep being served, from slightly older data, while
+ * a follower bootstraps. After each message the follower acknowledges what it has applied.
+ * <p>
+ * If the leader closes the connection or stays silent past {@code leaderTimeoutMillis}, the
+ * follower keeps serving its replica and reconnects every {@code reconnectDelayMillis}, to the
+ * same leader or to a restarted one on the same address.
+ * <p>
+ * Reads never wait for replication. For read-your-writes, see {@link ReadYourWritesRepository}
+ * or {@link #awaitSequence(long, long)}. Writes throw {@link UnsupportedOperationException}.
+ */
+public class ReplicationFollower implements URLRepository, AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ReplicationFollower.class.getName());
+
+    private final InetSocketAddress leader;
+    private final Options options;
+    private final Thread receiver;
+    private final ReentrantLock progressLock = new ReentrantLock();
+    private final Condition progressed = progressLock.newCondition();
+    private volatile InMemoryURLRepository replica = new InMemoryURLRepository();
+    /**
+     * Log id of the leader the replica was copied from, or 0 before the first snapshot.
+     */
+    private volatile long logId;
+    private volatile long appliedSeq;
+    /**
+     * Entries behind the leader as of its last message; at least 1 while a snapshot of a
+     * different leader's log is pending.
+     */
+    private volatile long lagRecords;
+    private volatile long lastCaughtUpNanos = System.nanoTime();
+    private volatile boolean connected;
+    private volatile long snapshotsApplied;
+    private volatile SocketChannel channel;
+    private volatile boolean closed;
+    /**
+     * Snapshot being received, or null. Only the receiver thread touches it.
+     */
+    private InMemoryURLRepository staging;
+    /**
+     * Log id the connected leader announced. Only the receiver thread touches it.
+     */
+    private long leaderLogId;
+
+    /**
+     * Starts following a leader with default options.
+     * @param leader the leader's replication address
+     */
+    public ReplicationFollower(InetSocketAddress leader) {
+        this(leader, new Options());
+    }
+
+    /**
+     * Starts following a leader.
+     * @param leader the leader's replication address
+     * @param options the timeout and reconnect settings
+     */
+    public ReplicationFollower(InetSocketAddress leader, Options options) {
+        this.leader = leader;
+        this.options = options;
+        receiver = new Thread(this::receiveLoop, "replication-follower");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Always throws; followers are read-only.
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        throw readOnly();
+    }
+
+    /**
+     * Always throws; followers are read-only.
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        throw readOnly();
+    }
+
+    /**
+     * Always throws; followers are read-only.
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        throw readOnly();
+    }
+
+    /**
+     * Always throws; followers are read-only.
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        throw readOnly();
+    }
+
+    /**
+     * Always throws; followers are read-only.
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        throw readOnly();
+    }
+
+    /**
+     * Finds a URL mapping by its short code in the replica.
+     * @param shortCode the short code
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        return replica.findByShortCode(shortCode);
+    }
+
+    /**
+     * Finds a URL mapping by its original long URL in the replica.
+     * @param longUrl the original long URL
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        return replica.findByLongUrl(longUrl);
+    }
+
+    /**
+     * Waits until the replica has applied a leader sequence number.
+     * @param seq the sequence number, such as {@link ReplicationLeader#getLastSequence()} after a write
+     * @param timeoutMillis how long to wait at most
+     * @return true if the replica has applied {@code seq}
+     */
+    public boolean awaitSequence(long seq, long timeoutMillis) {
+        if (appliedSeq >= seq) {
+            return true;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        progressLock.lock();
+        try {
+            while (appliedSeq < seq) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = progressed.awaitNanos(remaining);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return appliedSeq >= seq;
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the id of the leader log the replica follows.
+     * @return the log id, or 0 before the first snapshot
+     */
+    public long getLogId() {
+        return logId;
+    }
+
+    /**
+     * Gets the last leader sequence number applied to the replica.
+     * @return the applied sequence number
+     */
+    public long getAppliedSequence() {
+        return appliedSeq;
+    }
+
+    /**
+     * Gets how many log entries the replica is behind, as of the leader's last message.
+     * @return the lag in entries
+     */
+    public long getLagRecords() {
+        return lagRecords;
+    }
+
+    /**
+     * Gets how long the replica has been behind the leader: 0 while caught up, otherwise the time
+     * since it last was. Keeps growing while the leader is unreachable.
+     * @return the lag in milliseconds
+     */
+    public long getLagMillis() {
+        if (connected && lagRecords == 0) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastCaughtUpNanos);
+    }
+
+    /**
+     * Tells whether the follower is connected to a leader.
+     * @return true while connected
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Gets the number of snapshots applied, including the initial one.
+     * @return the snapshot count
+     */
+    public long getSnapshotCount() {
+        return snapshotsApplied;
+    }
+
+    /**
+     * Stops replicating. The replica stays readable.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        SocketChannel current = channel;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+        receiver.interrupt();
+        try {
+            receiver.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void receiveLoop() {
+        while (!closed) {
+            try {
+                receive();
+            } catch (IOException e) {
+                if (!closed && connected) {
+                    LOG.log(Level.WARNING, "Replication from " + leader + " lost", e);
+                }
+            } finally {
+                connected = false;
+                staging = null;
+            }
+            try {
+                Thread.sleep(options.reconnectDelayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void receive() throws IOException {
+        try (SocketChannel socket = SocketChannel.open(); Selector selector = Selector.open()) {
+            channel = socket;
+            if (closed) {
+                return;
+            }
+            socket.socket().connect(leader, options.leaderTimeoutMillis);
+            socket.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            ByteBuffer handshake = ByteBuffer.allocate(ReplicationProtocol.HANDSHAKE_LENGTH)
+                    .putInt(ReplicationProtocol.MAGIC).putLong(logId).putLong(appliedSeq).flip();
+            while (handshake.hasRemaining()) {
+                socket.write(handshake);
+            }
+            socket.configureBlocking(false);
+            socket.register(selector, SelectionKey.OP_READ);
+            ByteBuffer in = ByteBuffer.allocate(options.bufferSize);
+            ByteBuffer ack = ByteBuffer.allocate(ReplicationProtocol.ACK_LENGTH);
+            long acked = appliedSeq;
+            while (!closed) {
+                if (selector.select(options.leaderTimeoutMillis) == 0 && !closed) {
+                    throw new IOException("Leader silent for " + options.leaderTimeoutMillis + " ms");
+                }
+                selector.selectedKeys().clear();
+                if (socket.read(in) < 0) {
+                    throw new EOFException("Leader closed the connection");
+                }
+                in.flip();
+                int length;
+                while ((length = ReplicationProtocol.messageLength(in)) >= 0 && in.remaining() >= length) {
+                    apply(in.slice(in.position(), length));
+                    in.position(in.position() + length);
+                }
+                in.compact();
+                if (!in.hasRemaining()) {
+                    in = ReplicationProtocol.grow(in, length);
+                }
+                if (appliedSeq != acked) {
+                    acked = appliedSeq;
+                    ack.clear().putLong(acked).flip();
+                    while (ack.hasRemaining()) {
+                        socket.write(ack);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies one leader message.
+     */
+    private void apply(ByteBuffer message) throws IOException {
+        byte kind = message.get();
+        long seq = message.getLong();
+        long reportedLeaderSeq = message.getLong();
+        int count = message.getInt();
+        message.position(ReplicationProtocol.HEADER);
+        long applied = appliedSeq;
+        switch (kind) {
+            case ReplicationProtocol.HELLO:
+                leaderLogId = seq;
+                connected = true;
+                break;
+            case ReplicationProtocol.BATCH:
+                if (seq != appliedSeq + 1) {
+                    throw new IOException("Expected entry " + (appliedSeq + 1) + " but got " + seq);
+                }
+                InMemoryURLRepository target = replica;
+                for (int i = 0; i < count; i++) {
+                    byte[] body = readRecord(message);
+                    URLMapping mapping = MappingCodec.decodeBody(body);
+                    if (MappingCodec.isRemoval(body)) {
+                        target.remove(mapping);
+                    } else {
+                        target.save(mapping);
+                    }
+                }
+                applied = seq + count - 1;
+                break;
+            case ReplicationProtocol.SNAPSHOT:
+                if (staging == null) {
+                    staging = new InMemoryURLRepository();
+                }
+                for (int i = 0; i < count; i++) {
+                    staging.save(MappingCodec.decodeBody(readRecord(message)));
+                }
+                break;
+            case ReplicationProtocol.SNAPSHOT_END:
+                replica = staging == null ? new InMemoryURLRepository() : staging;
+                staging = null;
+                logId = leaderLogId;
+                snapshotsApplied++;
+                applied = seq;
+                break;
+            case ReplicationProtocol.HEARTBEAT:
+                break;
+            default:
+                throw new IOException("Unknown message kind " + kind);
+        }
+        // The lag is published first, so a reader woken by the new applied sequence sees it.
+        lagRecords = logId == leaderLogId ? Math.max(0, reportedLeaderSeq - applied) : Math.max(1, reportedLeaderSeq);
+        if (lagRecords == 0) {
+            lastCaughtUpNanos = System.nanoTime();
+        }
+        if (applied != appliedSeq) {
+            advance(applied);
+        }
+    }
+
+    private static byte[] readRecord(ByteBuffer message) throws IOException {
+        byte[] body = MappingCodec.readRecord(message);
+        if (body == null) {
+            throw new IOException("Corrupt record from leader");
+        }
+        return body;
+    }
+
+    /**
+     * Publishes a new applied sequence number and wakes read-your-writes waiters.
+     */
+    private void advance(long seq) {
+        progressLock.lock();
+        try {
+            appliedSeq = seq;
+            progressed.signalAll();
+        } finally {
+            progressLock.unlock();
+        }
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Followers are read-only; write to the leader");
+    }
+
+    /**
+     * Timeout, reconnect and buffer settings for a {@link ReplicationFollower}.
+     */
+    public static final class Options {
+        private int leaderTimeoutMillis = 2000;
+        private long reconnectDelayMillis = 100;
+        private int bufferSize = 256 * 1024;
+
+        /**
+         * Sets how long the leader may stay silent before the follower reconnects (default 2 s).
+         * Must be well above the leader's heartbeat interval.
+         * @param millis the timeout
+         * @return these options
+         */
+        public Options leaderTimeoutMillis(int millis) {
+            if (millis < 1) throw new IllegalArgumentException("Leader timeout must be positive");
+            this.leaderTimeoutMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets how long to wait between connection attempts (default 100 ms).
+         * @param millis the delay
+         * @return these options
+         */
+        public Options reconnectDelayMillis(long millis) {
+            if (millis < 0) throw new IllegalArgumentException("Reconnect delay must not be negative");
+            this.reconnectDelayMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets the initial receive buffer size (default 256 KiB); it grows for larger messages.
+         * @param bytes the buffer size
+         * @return these options
+         */
+        public Options bufferSize(int bytes) {
+            if (bytes < ReplicationProtocol.HEADER) throw new IllegalArgumentException("Buffer too small");
+            this.bufferSize = bytes;
+            return this;
+        }
+    }
+}
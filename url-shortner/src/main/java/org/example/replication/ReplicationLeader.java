@@ -0,0 +1,887 @@
+package org.example.replication;
+
+import org.example.model.URLMapping;
+import org.example.repository.InMemoryURLRepository;
+import org.example.repository.MappingCodec;
+import org.example.repository.URLRepository;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * URLRepository that applies writes to a local store and streams them to followers.
+ * <p>
+ * Every successful write is applied to the store and then takes the next sequence number from
+ * an atomic counter, while holding the write stripes of its short code and long URL. Writes
+ * that share a code or URL are therefore logged in the order the store saw them, and writes
+ * that share neither never wait on each other; their relative order does not change the
+ * result of replaying the log. The log keeps the last
+ * {@code logCapacity} entries in a ring. A single sender thread serves all followers over
+ * non-blocking sockets: it sends each follower the entries it has not seen, up to
+ * {@code maxBatchRecords} per message, so a busy leader sends large batches and an idle one
+ * sends each write as soon as it lands. When nothing is new, it sends a heartbeat every
+ * {@code heartbeatMillis}.
+ * <p>
+ * A follower that connects with a position still in the ring resumes from there. A new
+ * follower, one that fell behind the ring, or one that followed a previous leader gets a
+ * snapshot of the store's live mappings followed by the log from the snapshot's sequence
+ * number on. Every write numbered up to that sequence number is already in the store when it
+ * is read. The store is copied without any lock, on a separate thread, and streamed to the sender a few batches at a time. The
+ * copy is weakly consistent: it may miss writes after that sequence number or include some of
+ * them, and replaying the log from there brings the follower to the same state either way.
+ * Each leader picks a random log id at start, so a restarted leader never resumes a follower
+ * against a log it did not write.
+ * <p>
+ * Reads go straight to the store and never lock.
+ */
+public class ReplicationLeader implements URLRepository, AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ReplicationLeader.class.getName());
+    /**
+     * Encoded snapshot batches a follower's session may hold before the snapshot thread waits.
+     */
+    private static final int SNAPSHOT_CHUNKS = 4;
+    private static final List<byte[]> SNAPSHOT_END = new ArrayList<>(0);
+    private static final List<byte[]> SNAPSHOT_FAILED = new ArrayList<>(0);
+    /**
+     * Number of write stripes; a power of two.
+     */
+    private static final int WRITE_STRIPES = 256;
+
+    private final URLRepository store;
+    private final Consumer<Consumer<URLMapping>> snapshotSource;
+    private final Options options;
+    private final long logId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    /**
+     * Serializes store writes with their log appends, per short code and per long URL.
+     */
+    private final ReentrantLock[] stripes = new ReentrantLock[WRITE_STRIPES];
+    /**
+     * The retained entries; entry {@code seq} is at {@code seq & (length - 1)}. Writers fill
+     * slots out of order, so the sender checks each entry's own sequence number.
+     */
+    private final AtomicReferenceArray<Entry> log;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Thread sender;
+    private final ExecutorService snapshotter;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    /**
+     * Sequence number of the last entry taken; entries are numbered from 1. An entry may still
+     * be on its way into the log.
+     */
+    private final AtomicLong lastSeq = new AtomicLong();
+    private volatile boolean wakeupPending;
+    private volatile boolean dropRequested;
+    private volatile long snapshotsSent;
+    private volatile boolean closed;
+
+    /**
+     * Starts a leader over an in-memory store.
+     * @param store the leader's store
+     * @param options the port, log and batching settings
+     */
+    public ReplicationLeader(InMemoryURLRepository store, Options options) {
+        this(store, store::forEach, options);
+    }
+
+    /**
+     * Starts a leader and listens for followers.
+     * @param store the leader's store
+     * @param snapshotSource visits every mapping in the store, for snapshots; it runs alongside
+     *     writes and has to visit every mapping present when it starts and not removed since
+     * @param options the port, log and batching settings
+     */
+    public ReplicationLeader(URLRepository store, Consumer<Consumer<URLMapping>> snapshotSource, Options options) {
+        this.store = store;
+        this.snapshotSource = snapshotSource;
+        this.options = options;
+        this.log = new AtomicReferenceArray<>(options.logCapacity);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        try {
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            server.bind(new InetSocketAddress(options.port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen for followers on port " + options.port, e);
+        }
+        snapshotter = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "replication-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        sender = new Thread(this::sendLoop, "replication-leader");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * Saves a URL mapping and logs it.
+     * @param mapping the URLMapping to save
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        byte[] body = MappingCodec.encodeBody(mapping);
+        lock(mapping);
+        try {
+            store.save(mapping);
+            append(body);
+        } finally {
+            unlock(mapping);
+        }
+        wakeSender();
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only a successful save is logged.
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        byte[] body = MappingCodec.encodeBody(mapping);
+        boolean saved;
+        lock(mapping);
+        try {
+            saved = store.saveIfAbsent(mapping);
+            if (saved) {
+                append(body);
+            }
+        } finally {
+            unlock(mapping);
+        }
+        if (saved) {
+            wakeSender();
+        }
+        return saved;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only a saved candidate is logged.
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        byte[] body = MappingCodec.encodeBody(candidate);
+        URLMapping stored;
+        lock(candidate);
+        try {
+            stored = store.findOrSave(candidate);
+            if (stored == candidate) {
+                append(body);
+            }
+        } finally {
+            unlock(candidate);
+        }
+        if (stored == candidate) {
+            wakeSender();
+        }
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The batch is applied with the store's own {@code saveAll} and logged while holding the
+     * stripes of all its codes and URLs, each taken once in ascending order.
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        List<byte[]> bodies = new ArrayList<>(candidates.size());
+        for (URLMapping candidate : candidates) {
+            bodies.add(MappingCodec.encodeBody(candidate));
+        }
+        boolean[] needed = new boolean[WRITE_STRIPES];
+        for (URLMapping candidate : candidates) {
+            needed[stripe(candidate.getShortCode())] = true;
+            needed[stripe(candidate.getLongUrl())] = true;
+        }
+        // Ascending order, the same order single writes use, so batches never deadlock.
+        int locked = 0;
+        List<URLMapping> stored;
+        try {
+            for (; locked < WRITE_STRIPES; locked++) {
+                if (needed[locked]) {
+                    stripes[locked].lock();
+                }
+            }
+            stored = store.saveAll(candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                if (stored.get(i) == candidates.get(i)) {
+                    append(bodies.get(i));
+                }
+            }
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                if (needed[i]) {
+                    stripes[i].unlock();
+                }
+            }
+        }
+        wakeSender();
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only a successful removal is logged.
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        byte[] body = MappingCodec.encodeRemoval(mapping);
+        boolean removed;
+        lock(mapping);
+        try {
+            removed = store.remove(mapping);
+            if (removed) {
+                append(body);
+            }
+        } finally {
+            unlock(mapping);
+        }
+        if (removed) {
+            wakeSender();
+        }
+        return removed;
+    }
+
+    /**
+     * Finds a URL mapping by its short code.
+     * @param shortCode the short code
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        return store.findByShortCode(shortCode);
+    }
+
+    /**
+     * Finds a URL mapping by its original long URL.
+     * @param longUrl the original long URL
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        return store.findByLongUrl(longUrl);
+    }
+
+    /**
+     * Gets the port followers connect to.
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Gets the id of this leader's log.
+     * @return the log id
+     */
+    public long getLogId() {
+        return logId;
+    }
+
+    /**
+     * Gets the sequence number of the last logged write. A write is covered by every value read
+     * after it returned, so callers can use this as a read-your-writes token.
+     * @return the last sequence number, or 0 before the first write
+     */
+    public long getLastSequence() {
+        return lastSeq.get();
+    }
+
+    /**
+     * Gets how far each connected follower lags, by its last acknowledgement.
+     * @return entries not yet acknowledged, keyed by follower address
+     */
+    public Map<String, Long> getFollowerLag() {
+        long last = lastSeq.get();
+        Map<String, Long> lag = new HashMap<>();
+        for (Session session : sessions) {
+            lag.put(session.address, Math.max(0, last - session.ackedSeq));
+        }
+        return lag;
+    }
+
+    /**
+     * Gets the number of snapshots sent to followers.
+     * @return the snapshot count
+     */
+    public long getSnapshotCount() {
+        return snapshotsSent;
+    }
+
+    /**
+     * Stops serving followers and closes their connections. The store is left open.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        selector.wakeup();
+        try {
+            sender.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshotter.shutdownNow();
+    }
+
+    /**
+     * Closes every follower connection, so the followers reconnect and resume.
+     */
+    void disconnectFollowers() {
+        dropRequested = true;
+        selector.wakeup();
+    }
+
+    /**
+     * Takes the write stripes of a mapping's code and URL, lower index first.
+     */
+    private void lock(URLMapping mapping) {
+        int code = stripe(mapping.getShortCode());
+        int url = stripe(mapping.getLongUrl());
+        stripes[Math.min(code, url)].lock();
+        if (code != url) {
+            stripes[Math.max(code, url)].lock();
+        }
+    }
+
+    private void unlock(URLMapping mapping) {
+        int code = stripe(mapping.getShortCode());
+        int url = stripe(mapping.getLongUrl());
+        if (code != url) {
+            stripes[Math.max(code, url)].unlock();
+        }
+        stripes[Math.min(code, url)].unlock();
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h >>> (Integer.SIZE - Integer.numberOfTrailingZeros(WRITE_STRIPES));
+    }
+
+    /**
+     * Numbers an entry and puts it in the ring. The caller holds the stripes of the write, after
+     * applying it to the store. A slot already holding a later entry is left alone: the sender
+     * then sees that this entry was lapped.
+     */
+    private void append(byte[] body) {
+        long seq = lastSeq.incrementAndGet();
+        Entry entry = new Entry(seq, body);
+        int slot = slot(seq);
+        Entry current;
+        do {
+            current = log.get(slot);
+            if (current != null && current.seq > seq) {
+                return;
+            }
+        } while (!log.compareAndSet(slot, current, entry));
+    }
+
+    /**
+     * Wakes the sender once per round instead of once per write.
+     * Called after the append, and the sender clears the flag before reading the log,
+     * so either this call wakes it or the sender's next round sees the entry.
+     */
+    private void wakeSender() {
+        if (!wakeupPending) {
+            wakeupPending = true;
+            selector.wakeup();
+        }
+    }
+
+    private void sendLoop() {
+        long heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(options.heartbeatMillis);
+        boolean backlog = false;
+        try {
+            while (!closed) {
+                if (backlog) {
+                    selector.selectNow();
+                } else {
+                    selector.select(options.heartbeatMillis);
+                }
+                wakeupPending = false;
+                if (dropRequested) {
+                    dropRequested = false;
+                    for (Session session : sessions) {
+                        session.close();
+                    }
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept();
+                    } else if (key.isValid() && key.isReadable()) {
+                        Session session = (Session) key.attachment();
+                        try {
+                            session.read();
+                        } catch (IOException e) {
+                            session.close();
+                        }
+                    }
+                }
+                selector.selectedKeys().clear();
+                backlog = false;
+                long now = System.nanoTime();
+                for (Session session : sessions) {
+                    try {
+                        backlog |= session.pump(now, heartbeatNanos);
+                    } catch (IOException e) {
+                        session.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                LOG.log(Level.SEVERE, "Replication leader stopped", e);
+            }
+        } finally {
+            for (Session session : sessions) {
+                session.close();
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Session session = new Session(channel);
+        session.key = channel.register(selector, SelectionKey.OP_READ, session);
+        sessions.add(session);
+    }
+
+    /**
+     * Copies the store's live mappings for one session on the snapshot thread, and hands them
+     * to the sender in batches of {@code maxBatchRecords} encoded mappings, waiting while the
+     * session already holds {@link #SNAPSHOT_CHUNKS} of them.
+     */
+    private final class SnapshotStream implements Runnable, Consumer<URLMapping> {
+        final Session session;
+        final BlockingQueue<List<byte[]>> chunks;
+        List<byte[]> chunk = new ArrayList<>();
+
+        SnapshotStream(Session session, BlockingQueue<List<byte[]>> chunks) {
+            this.session = session;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public void run() {
+            try {
+                snapshotSource.accept(this);
+                if (!chunk.isEmpty()) {
+                    hand(chunk);
+                }
+                hand(SNAPSHOT_END);
+            } catch (CancellationException e) {
+                // The follower disconnected or the leader closed.
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Snapshot for follower " + session.address + " failed", e);
+                chunks.clear();
+                chunks.add(SNAPSHOT_FAILED);
+                wakeSender();
+            }
+        }
+
+        @Override
+        public void accept(URLMapping mapping) {
+            if (mapping.isExpired()) {
+                return;
+            }
+            add(mapping);
+            // Followers index each URL by the last mapping they apply for it, so an older code
+            // of a URL is followed by its current one.
+            URLMapping current = store.findByLongUrl(mapping.getLongUrl());
+            if (current != null && !current.getShortCode().equals(mapping.getShortCode()) && !current.isExpired()) {
+                add(current);
+            }
+        }
+
+        private void add(URLMapping mapping) {
+            chunk.add(MappingCodec.encodeBody(mapping));
+            if (chunk.size() == options.maxBatchRecords) {
+                hand(chunk);
+                chunk = new ArrayList<>(options.maxBatchRecords);
+            }
+        }
+
+        private void hand(List<byte[]> full) {
+            try {
+                while (!chunks.offer(full, options.heartbeatMillis, TimeUnit.MILLISECONDS)) {
+                    if (session.closed || closed) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            wakeSender();
+        }
+    }
+
+    /**
+     * One follower connection. Only the sender thread touches it, apart from {@code ackedSeq}.
+     */
+    private final class Session {
+        final SocketChannel channel;
+        final String address;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(ReplicationProtocol.HANDSHAKE_LENGTH);
+        ByteBuffer out = ByteBuffer.allocate(options.bufferSize);
+        boolean handshaken;
+        /**
+         * Next log entry to send, once no snapshot is in progress.
+         */
+        long nextSeq;
+        /**
+         * Batches from the snapshot thread while a snapshot is in progress, else null.
+         */
+        BlockingQueue<List<byte[]>> snapshot;
+        List<byte[]> chunk;
+        int chunkIndex;
+        long snapshotSeq;
+        long lastSentNanos;
+        volatile long ackedSeq;
+        volatile boolean closed;
+
+        Session(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.address = String.valueOf(channel.getRemoteAddress());
+        }
+
+        void read() throws IOException {
+            if (channel.read(in) < 0) {
+                throw new EOFException("Follower closed the connection");
+            }
+            in.flip();
+            if (!handshaken) {
+                if (in.remaining() < ReplicationProtocol.HANDSHAKE_LENGTH) {
+                    in.compact();
+                    return;
+                }
+                if (in.getInt() != ReplicationProtocol.MAGIC) {
+                    throw new IOException("Not a replication follower: " + address);
+                }
+                handshake(in.getLong(), in.getLong());
+            }
+            while (in.remaining() >= ReplicationProtocol.ACK_LENGTH) {
+                ackedSeq = in.getLong();
+            }
+            in.compact();
+        }
+
+        private void handshake(long followerLogId, long appliedSeq) {
+            handshaken = true;
+            ackedSeq = appliedSeq;
+            long last = lastSeq.get();
+            out.clear();
+            ReplicationProtocol.writeEmpty(out, ReplicationProtocol.HELLO, logId, last);
+            if (followerLogId == logId && appliedSeq <= last && appliedSeq + 1 >= firstRetained(last)) {
+                nextSeq = appliedSeq + 1;
+            } else {
+                startSnapshot();
+            }
+        }
+
+        private void startSnapshot() {
+            // Entries are numbered after their write reached the store, so the copy holds every
+            // entry up to here; the ones still on their way into the ring are sent from the log.
+            snapshotSeq = lastSeq.get();
+            snapshot = new ArrayBlockingQueue<>(SNAPSHOT_CHUNKS);
+            chunk = null;
+            snapshotter.execute(new SnapshotStream(this, snapshot));
+            snapshotsSent++;
+        }
+
+        /**
+         * Sends what the follower has not seen yet, as far as the socket takes it.
+         * @return true if more is waiting to be sent
+         */
+        boolean pump(long now, long heartbeatNanos) throws IOException {
+            if (!handshaken) {
+                return false;
+            }
+            while (fill()) {
+                // Fill the buffer as far as it goes.
+            }
+            if (out.position() == 0 && now - lastSentNanos >= heartbeatNanos) {
+                long last = lastSeq.get();
+                ReplicationProtocol.writeEmpty(out, ReplicationProtocol.HEARTBEAT, last, last);
+            }
+            if (out.position() > 0) {
+                out.flip();
+                channel.write(out);
+                out.compact();
+                lastSentNanos = now;
+            }
+            boolean blocked = out.position() > 0;
+            key.interestOps(blocked ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            return !blocked && (snapshot != null ? chunk != null || !snapshot.isEmpty() : isLogged(nextSeq));
+        }
+
+        /**
+         * Adds one message to the output buffer.
+         * @return false if there is nothing to add or no room for it
+         */
+        private boolean fill() throws IOException {
+            if (snapshot != null) {
+                return fillSnapshot();
+            }
+            long last = lastSeq.get();
+            if (nextSeq > last) {
+                return false;
+            }
+            if (nextSeq < firstRetained(last)) {
+                startSnapshot();
+                return true;
+            }
+            return fillBatch(last);
+        }
+
+        /**
+         * Adds the logged entries from {@code nextSeq} on, stopping at the first one not yet in
+         * the ring. Starts a snapshot instead if writers already lapped {@code nextSeq}.
+         */
+        private boolean fillBatch(long last) {
+            Entry first = log.get(slot(nextSeq));
+            if (first == null || first.seq < nextSeq) {
+                return false;
+            }
+            if (first.seq > nextSeq) {
+                startSnapshot();
+                return true;
+            }
+            if (!reserve(ReplicationProtocol.HEADER + MappingCodec.RECORD_HEADER + first.body.length)) {
+                return false;
+            }
+            int start = ReplicationProtocol.begin(out);
+            int count = 0;
+            for (long seq = nextSeq; seq <= last && count < options.maxBatchRecords; seq++, count++) {
+                Entry entry = log.get(slot(seq));
+                if (entry == null || entry.seq != seq || out.remaining() < MappingCodec.RECORD_HEADER + entry.body.length) {
+                    break;
+                }
+                MappingCodec.writeRecord(out, entry.body);
+            }
+            if (count == 0) {
+                // Lapped since the check above; the next fill starts the snapshot.
+                out.position(start);
+                return true;
+            }
+            ReplicationProtocol.finish(out, start, ReplicationProtocol.BATCH, nextSeq, last, count);
+            nextSeq += count;
+            return true;
+        }
+
+        /**
+         * Adds the next snapshot batch the snapshot thread has handed over, if any.
+         */
+        private boolean fillSnapshot() throws IOException {
+            if (chunk == null) {
+                chunk = snapshot.poll();
+                chunkIndex = 0;
+                if (chunk == null) {
+                    return false;
+                }
+            }
+            if (chunk == SNAPSHOT_FAILED) {
+                throw new IOException("Snapshot failed");
+            }
+            if (chunk == SNAPSHOT_END) {
+                if (!reserve(ReplicationProtocol.HEADER)) {
+                    return false;
+                }
+                ReplicationProtocol.writeEmpty(out, ReplicationProtocol.SNAPSHOT_END, snapshotSeq, lastSeq.get());
+                snapshot = null;
+                chunk = null;
+                nextSeq = snapshotSeq + 1;
+                return true;
+            }
+            byte[] first = chunk.get(chunkIndex);
+            if (!reserve(ReplicationProtocol.HEADER + MappingCodec.RECORD_HEADER + first.length)) {
+                return false;
+            }
+            int start = ReplicationProtocol.begin(out);
+            MappingCodec.writeRecord(out, first);
+            int count = 1;
+            while (chunkIndex + count < chunk.size() && count < options.maxBatchRecords) {
+                byte[] body = chunk.get(chunkIndex + count);
+                if (out.remaining() < MappingCodec.RECORD_HEADER + body.length) {
+                    break;
+                }
+                MappingCodec.writeRecord(out, body);
+                count++;
+            }
+            ReplicationProtocol.finish(out, start, ReplicationProtocol.SNAPSHOT, snapshotSeq, lastSeq.get(), count);
+            chunkIndex += count;
+            if (chunkIndex == chunk.size()) {
+                chunk = null;
+            }
+            return true;
+        }
+
+        /**
+         * Makes room for a message, growing the buffer when even an empty one is too small.
+         * @return false if the message has to wait for the buffer to drain
+         */
+        private boolean reserve(int bytes) {
+            if (out.remaining() >= bytes) {
+                return true;
+            }
+            if (out.position() > 0) {
+                return false;
+            }
+            out = ReplicationProtocol.grow(out, bytes);
+            return true;
+        }
+
+        void close() {
+            closed = true;
+            sessions.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already closed.
+            }
+        }
+    }
+
+    private long firstRetained(long last) {
+        return Math.max(1, last - log.length() + 1);
+    }
+
+    private int slot(long seq) {
+        return (int) seq & (log.length() - 1);
+    }
+
+    /**
+     * Tells whether entry {@code seq} is in the ring, or was lapped there and needs a snapshot.
+     */
+    private boolean isLogged(long seq) {
+        Entry entry = log.get(slot(seq));
+        return entry != null && entry.seq >= seq;
+    }
+
+    /**
+     * One log entry: its sequence number and encoded record body.
+     */
+    private static final class Entry {
+        final long seq;
+        final byte[] body;
+
+        Entry(long seq, byte[] body) {
+            this.seq = seq;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Port, log retention and batching settings for a {@link ReplicationLeader}.
+     */
+    public static final class Options {
+        private int port;
+        private int logCapacity = 1 << 16;
+        private int maxBatchRecords = 1024;
+        private long heartbeatMillis = 200;
+        private int bufferSize = 256 * 1024;
+
+        /**
+         * Sets the port followers connect to (default 0, any free port).
+         * @param port the port
+         * @return these options
+         */
+        public Options port(int port) {
+            if (port < 0 || port > 65535) throw new IllegalArgumentException("Port must be between 0 and 65535");
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Sets how many recent log entries are kept for followers to resume from (default 65536),
+         * rounded up to a power of two. A follower further behind gets a snapshot instead.
+         * @param entries the log capacity
+         * @return these options
+         */
+        public Options logCapacity(int entries) {
+            if (entries < 1 || entries > 1 << 26) throw new IllegalArgumentException("Log capacity must be between 1 and 2^26");
+            this.logCapacity = entries == 1 ? 1 : Integer.highestOneBit(entries - 1) << 1;
+            return this;
+        }
+
+        /**
+         * Sets the most log entries or snapshot mappings sent in one message (default 1024).
+         * @param records the batch size
+         * @return these options
+         */
+        public Options maxBatchRecords(int records) {
+            if (records < 1) throw new IllegalArgumentException("Batch size must be positive");
+            this.maxBatchRecords = records;
+            return this;
+        }
+
+        /**
+         * Sets how often an idle follower is sent a heartbeat (default 200 ms).
+         * Followers treat a leader silent for longer than their timeout as gone.
+         * @param millis the heartbeat interval
+         * @return these options
+         */
+        public Options heartbeatMillis(long millis) {
+            if (millis < 1) throw new IllegalArgumentException("Heartbeat interval must be positive");
+            this.heartbeatMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets the output buffer size per follower (default 256 KiB).
+         * @param bytes the buffer size
+         * @return these options
+         */
+        public Options bufferSize(int bytes) {
+            if (bytes < ReplicationProtocol.HEADER) throw new IllegalArgumentException("Buffer too small");
+            this.bufferSize = bytes;
+            return this;
+        }
+    }
+}
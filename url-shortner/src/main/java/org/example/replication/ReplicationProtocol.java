@@ -0,0 +1,80 @@
+package org.example.replication;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format between a {@link ReplicationLeader} and its followers.
+ * <p>
+ * A follower opens the connection with {@code [int magic][long logId][long appliedSeq]}: the log
+ * it has applied and how far. It then sends {@code [long appliedSeq]} acknowledgements.
+ * <p>
+ * The leader sends messages of {@code [byte kind][long seq][long leaderSeq][int count][int payloadLength]}
+ * followed by {@code count} {@link org.example.repository.MappingCodec} records, where
+ * {@code leaderSeq} is the leader's last sequence number when the message was written.
+ * <ul>
+ *     <li>{@code HELLO}: {@code seq} is the leader's log id; no records.</li>
+ *     <li>{@code BATCH}: log entries {@code seq} to {@code seq + count - 1}, in order.</li>
+ *     <li>{@code SNAPSHOT}: mappings of a snapshot taken at {@code seq}; may be split over several messages.</li>
+ *     <li>{@code SNAPSHOT_END}: the snapshot taken at {@code seq} is complete; no records.</li>
+ *     <li>{@code HEARTBEAT}: nothing new; no records.</li>
+ * </ul>
+ */
+final class ReplicationProtocol {
+    static final int MAGIC = 0x55524C52;
+    static final int HANDSHAKE_LENGTH = 20;
+    static final int ACK_LENGTH = 8;
+    static final int HEADER = 25;
+    static final byte HELLO = 1;
+    static final byte BATCH = 2;
+    static final byte SNAPSHOT = 3;
+    static final byte SNAPSHOT_END = 4;
+    static final byte HEARTBEAT = 5;
+
+    private ReplicationProtocol() {
+    }
+
+    /**
+     * Reserves room for a message header at the buffer's position.
+     * @param out the buffer, with at least {@link #HEADER} bytes remaining
+     * @return the position of the header, for {@link #finish}
+     */
+    static int begin(ByteBuffer out) {
+        int start = out.position();
+        out.position(start + HEADER);
+        return start;
+    }
+
+    /**
+     * Fills in the header of a message whose records end at the buffer's position.
+     */
+    static void finish(ByteBuffer out, int start, byte kind, long seq, long leaderSeq, int count) {
+        out.put(start, kind)
+                .putLong(start + 1, seq)
+                .putLong(start + 9, leaderSeq)
+                .putInt(start + 17, count)
+                .putInt(start + 21, out.position() - start - HEADER);
+    }
+
+    /**
+     * Writes a message without records.
+     */
+    static void writeEmpty(ByteBuffer out, byte kind, long seq, long leaderSeq) {
+        finish(out, begin(out), kind, seq, leaderSeq, 0);
+    }
+
+    /**
+     * Gets the length of the message at the buffer's position, or -1 if its header is incomplete.
+     */
+    static int messageLength(ByteBuffer in) {
+        return in.remaining() < HEADER ? -1 : HEADER + in.getInt(in.position() + 21);
+    }
+
+    /**
+     * Doubles a buffer in write mode, keeping its contents.
+     */
+    static ByteBuffer grow(ByteBuffer buffer, int atLeast) {
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, atLeast));
+        buffer.flip();
+        return grown.put(buffer);
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.example.util.ScalableBloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * URLRepository decorator that keeps a {@link ScalableBloomFilter} of every short code
+ * written through it. Lookups for a code the filter has never seen are answered with null
+ * without touching the delegate, which is what bots probing random codes mostly hit; the
+ * filter also answers {@link #isShortCodeProbablyTaken(String)} so the service can skip
+ * likely collisions before writing. Codes are added before the delegate write, so the filter
+ * never misses a stored code. Bloom filters cannot forget: removed codes keep reaching the
+ * delegate and show up as false positives. Mappings already in the delegate must be passed to
+ * {@link #seed(String)} before the decorator is used.
+ */
+public class BloomFilterURLRepository implements URLRepository {
+    private final URLRepository delegate;
+    private final ScalableBloomFilter filter;
+    private final LongAdder definiteMisses = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * Wraps a repository with a filter sized for one million codes at a 1% false-positive rate.
+     * @param delegate the backing repository
+     */
+    public BloomFilterURLRepository(URLRepository delegate) {
+        this(delegate, 1_000_000, 0.01);
+    }
+
+    /**
+     * Wraps a repository.
+     * @param delegate the backing repository
+     * @param expectedCodes codes the first filter stage holds; the filter grows beyond it
+     * @param falsePositiveRate target false-positive rate of the filter
+     */
+    public BloomFilterURLRepository(URLRepository delegate, int expectedCodes, double falsePositiveRate) {
+        this.delegate = delegate;
+        this.filter = new ScalableBloomFilter(expectedCodes, falsePositiveRate);
+    }
+
+    /**
+     * Records a code that is already stored in the delegate.
+     * @param shortCode the short code
+     */
+    public void seed(String shortCode) {
+        filter.add(shortCode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        filter.add(mapping.getShortCode());
+        delegate.save(mapping);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        filter.add(mapping.getShortCode());
+        return delegate.saveIfAbsent(mapping);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The candidate's code is recorded even when an existing mapping is returned instead,
+     * which only costs an extra false positive.
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        filter.add(candidate.getShortCode());
+        return delegate.findOrSave(candidate);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        for (URLMapping candidate : candidates) {
+            filter.add(candidate.getShortCode());
+        }
+        return delegate.saveAll(candidates);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The code stays in the filter.
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        return delegate.remove(mapping);
+    }
+
+    /**
+     * Finds a URL mapping by its short code, skipping the delegate for codes never written.
+     * @param shortCode the short code
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        if (!filter.mightContain(shortCode)) {
+            definiteMisses.increment();
+            return null;
+        }
+        URLMapping mapping = delegate.findByShortCode(shortCode);
+        if (mapping == null) {
+            falsePositives.increment();
+        }
+        return mapping;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only codes that pass the filter are sent to the delegate.
+     */
+    @Override
+    public Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+        List<String> candidates = new ArrayList<>(shortCodes.size());
+        for (String shortCode : shortCodes) {
+            if (filter.mightContain(shortCode)) {
+                candidates.add(shortCode);
+            } else {
+                definiteMisses.increment();
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, URLMapping> found = delegate.findAllByShortCode(candidates);
+        falsePositives.add(candidates.size() - found.size());
+        return found;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        return delegate.findByLongUrl(longUrl);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isShortCodeProbablyTaken(String shortCode) {
+        return filter.mightContain(shortCode);
+    }
+
+    /**
+     * Gets the number of lookups answered by the filter alone.
+     * @return the definite-miss count
+     */
+    public long getDefiniteMisses() {
+        return definiteMisses.sum();
+    }
+
+    /**
+     * Gets the number of lookups the filter passed on that the delegate could not find.
+     * @return the false-positive count
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * Gets the observed false-positive rate: the share of lookups for absent codes that
+     * the filter failed to reject.
+     * @return the rate in [0, 1], or 0 before any absent code was looked up
+     */
+    public double getObservedFalsePositiveRate() {
+        long fp = falsePositives.sum();
+        long absent = fp + definiteMisses.sum();
+        return absent == 0 ? 0 : (double) fp / absent;
+    }
+
+    /**
+     * Gets the number of stages the filter has grown to.
+     * @return the stage count
+     */
+    public int getFilterStages() {
+        return filter.stageCount();
+    }
+}
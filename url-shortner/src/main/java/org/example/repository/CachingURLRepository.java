@@ -0,0 +1,391 @@
+package org.example.repository;
+
+import org.example.metrics.Metrics;
+import org.example.model.URLMapping;
+import org.example.util.CoarseClock;
+import org.example.util.FrequencySketch;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded read-through cache in front of a slower URLRepository, using the W-TinyLFU policy.
+ * <ul>
+ *     <li>New entries enter a small LRU window (1% of the capacity), which absorbs bursts.</li>
+ *     <li>An entry leaving the window competes with the main region's next victim and is only
+ *     admitted if a {@link FrequencySketch} says it is accessed more often, so one-hit wonders
+ *     do not flush popular codes.</li>
+ *     <li>The main region is a segmented LRU: entries hit again move from probation to a
+ *     protected segment holding 80% of it.</li>
+ * </ul>
+ * Mappings are cached once and indexed by both short code and long URL. Expired mappings are
+ * never cached, and a cached mapping found expired is dropped and looked up again. Every write
+ * through the decorator invalidates the code and URL it touches before returning, and a load
+ * that raced with a write is not cached, so reads never see a mapping older than the last
+ * write made through this decorator. Writes made to the delegate directly are not seen.
+ * Cache hits are lock-free; the policy is updated under a lock that hits only try to take,
+ * so under contention some accesses are not recorded, as with Caffeine's lossy read buffer.
+ */
+public class CachingURLRepository implements URLRepository {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+    private static final int EVICTED = -1;
+
+    private final URLRepository delegate;
+    private final int maximumSize;
+    private final int maxWindow;
+    private final int maxProtected;
+    private final Map<String, Node> byCode = new ConcurrentHashMap<>();
+    private final Map<String, Node> byUrl = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final Node[] queues = {new Node(null), new Node(null), new Node(null)};
+    private final int[] queueSizes = new int[3];
+    /**
+     * Bumped by every invalidation; a load only caches its result if no invalidation happened meanwhile.
+     */
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Wraps a repository with a cache of up to 10000 mappings.
+     * @param delegate the backing repository
+     */
+    public CachingURLRepository(URLRepository delegate) {
+        this(delegate, 10_000);
+    }
+
+    /**
+     * Wraps a repository.
+     * @param delegate the backing repository
+     * @param maximumSize the most mappings cached
+     */
+    public CachingURLRepository(URLRepository delegate, int maximumSize) {
+        if (maximumSize < 1) throw new IllegalArgumentException("Maximum size must be positive");
+        this.delegate = delegate;
+        this.maximumSize = maximumSize;
+        this.maxWindow = Math.max(1, maximumSize / 100);
+        this.maxProtected = (maximumSize - maxWindow) * 4 / 5;
+        this.sketch = new FrequencySketch(maximumSize);
+        for (Node head : queues) {
+            head.prev = head;
+            head.next = head;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        delegate.save(mapping);
+        invalidate(mapping);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        boolean saved = delegate.saveIfAbsent(mapping);
+        if (saved) {
+            invalidate(mapping);
+        }
+        return saved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        URLMapping stored = delegate.findOrSave(candidate);
+        if (stored == candidate) {
+            invalidate(candidate);
+        }
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        List<URLMapping> stored = delegate.saveAll(candidates);
+        for (int i = 0; i < stored.size(); i++) {
+            if (stored.get(i) == candidates.get(i)) {
+                invalidate(candidates.get(i));
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        boolean removed = delegate.remove(mapping);
+        invalidate(mapping);
+        return removed;
+    }
+
+    /**
+     * Finds a URL mapping by its short code, loading it from the delegate on a miss.
+     * @param shortCode the short code
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        URLMapping cached = hit(byCode.get(shortCode));
+        if (cached != null) {
+            return cached;
+        }
+        misses.increment();
+        long generation = writeGeneration.get();
+        URLMapping loaded = delegate.findByShortCode(shortCode);
+        admit(loaded, generation);
+        return loaded;
+    }
+
+    /**
+     * Finds a URL mapping by its original long URL, loading it from the delegate on a miss.
+     * @param longUrl the original long URL
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        URLMapping cached = hit(byUrl.get(longUrl));
+        if (cached != null) {
+            return cached;
+        }
+        misses.increment();
+        long generation = writeGeneration.get();
+        URLMapping loaded = delegate.findByLongUrl(longUrl);
+        admit(loaded, generation);
+        return loaded;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isShortCodeProbablyTaken(String shortCode) {
+        return byCode.containsKey(shortCode) || delegate.isShortCodeProbablyTaken(shortCode);
+    }
+
+    /**
+     * Gets the number of lookups answered from the cache.
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that went to the delegate.
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the share of lookups answered from the cache.
+     * @return the hit ratio, or 0 before the first lookup
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * Gets the number of mappings evicted to stay within the maximum size.
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Gets the number of mappings cached.
+     * @return the cache size
+     */
+    public int size() {
+        return byCode.size();
+    }
+
+    /**
+     * Exports the hit, miss and eviction counts as counters of a metrics registry. They are
+     * read when a snapshot is taken, so the lookup path is unchanged.
+     * @param metrics the registry
+     */
+    public void registerMetrics(Metrics metrics) {
+        metrics.counter("urlshortener_cache_hits_total", "Lookups answered from the cache.", this::getHitCount);
+        metrics.counter("urlshortener_cache_misses_total", "Lookups that went to the cached repository.", this::getMissCount);
+        metrics.counter("urlshortener_cache_evictions_total", "Mappings evicted to stay within the cache size.", this::getEvictionCount);
+    }
+
+    /**
+     * Returns the node's mapping if it is live, recording the access when the policy lock is free.
+     */
+    private URLMapping hit(Node node) {
+        if (node == null) {
+            return null;
+        }
+        if (node.mapping.isExpiredAt(CoarseClock.currentTimeMillis())) {
+            policyLock.lock();
+            try {
+                unlink(node);
+            } finally {
+                policyLock.unlock();
+            }
+            return null;
+        }
+        hits.increment();
+        if (policyLock.tryLock()) {
+            try {
+                sketch.increment(node.code.hashCode());
+                onAccess(node);
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        return node.mapping;
+    }
+
+    private void admit(URLMapping mapping, long generation) {
+        if (mapping == null || mapping.isExpiredAt(CoarseClock.currentTimeMillis())) {
+            return;
+        }
+        policyLock.lock();
+        try {
+            sketch.increment(mapping.getShortCode().hashCode());
+            // Checked under the lock, which invalidation also takes after bumping the generation.
+            if (writeGeneration.get() != generation
+                    || byCode.containsKey(mapping.getShortCode()) || byUrl.containsKey(mapping.getLongUrl())) {
+                return;
+            }
+            Node node = new Node(mapping);
+            byCode.put(node.code, node);
+            byUrl.put(mapping.getLongUrl(), node);
+            link(node, WINDOW);
+            if (queueSizes[WINDOW] > maxWindow) {
+                evictFromWindow();
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void invalidate(URLMapping mapping) {
+        writeGeneration.incrementAndGet();
+        policyLock.lock();
+        try {
+            unlink(byCode.get(mapping.getShortCode()));
+            unlink(byUrl.get(mapping.getLongUrl()));
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Caller holds the policy lock.
+     */
+    private void onAccess(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+            case PROTECTED:
+                moveToTail(node, node.queue);
+                break;
+            case PROBATION:
+                moveToTail(node, PROTECTED);
+                if (queueSizes[PROTECTED] > maxProtected) {
+                    moveToTail(queues[PROTECTED].next, PROBATION);
+                }
+                break;
+            default:
+                // Evicted while the caller was reading it.
+        }
+    }
+
+    /**
+     * Moves the window's oldest entry into the main region if it beats the region's victim.
+     * Caller holds the policy lock.
+     */
+    private void evictFromWindow() {
+        Node candidate = queues[WINDOW].next;
+        if (byCode.size() <= maximumSize) {
+            moveToTail(candidate, PROBATION);
+            return;
+        }
+        Node victim = queues[PROBATION].next;
+        if (victim == queues[PROBATION]) {
+            victim = queues[PROTECTED].next;
+        }
+        if (victim != queues[PROTECTED]
+                && sketch.frequency(candidate.code.hashCode()) > sketch.frequency(victim.code.hashCode())) {
+            moveToTail(candidate, PROBATION);
+            unlink(victim);
+        } else {
+            unlink(candidate);
+        }
+        evictions.increment();
+    }
+
+    private void moveToTail(Node node, int queue) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        queueSizes[node.queue]--;
+        link(node, queue);
+    }
+
+    private void link(Node node, int queue) {
+        Node head = queues[queue];
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        node.queue = queue;
+        queueSizes[queue]++;
+    }
+
+    /**
+     * Removes a node from its queue and both indexes. Caller holds the policy lock.
+     */
+    private void unlink(Node node) {
+        if (node == null || node.queue == EVICTED) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        queueSizes[node.queue]--;
+        node.queue = EVICTED;
+        byCode.remove(node.code, node);
+        byUrl.remove(node.mapping.getLongUrl(), node);
+    }
+
+    /**
+     * A cached mapping and its place in the policy queues; queue heads are sentinels.
+     */
+    private static final class Node {
+        final URLMapping mapping;
+        final String code;
+        Node prev;
+        Node next;
+        int queue = EVICTED;
+
+        Node(URLMapping mapping) {
+            this.mapping = mapping;
+            this.code = mapping == null ? null : mapping.getShortCode();
+        }
+    }
+}
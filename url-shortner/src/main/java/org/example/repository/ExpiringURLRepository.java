@@ -0,0 +1,255 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.example.util.CoarseClock;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * URLRepository decorator that evicts mappings from the delegate once they expire.
+ * Writers only enqueue mappings that carry an expiry; a single sweeper thread moves them
+ * into a {@link TimingWheel}, advances it every tick and removes the due mappings with the
+ * delegate's conditional {@link URLRepository#remove(URLMapping)}, so a mapping that was
+ * replaced in the meantime is left alone. Reads go straight to the delegate and never wait
+ * for the sweeper. Mappings that were in the delegate before it was wrapped are not tracked.
+ */
+public class ExpiringURLRepository implements URLRepository, AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(ExpiringURLRepository.class.getName());
+
+    private final URLRepository delegate;
+    private final TimingWheel<URLMapping> wheel;
+    /**
+     * Mappings saved since the last sweep, waiting to enter the wheel.
+     */
+    private final Queue<URLMapping> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService sweeper;
+    private final List<URLMapping> due = new ArrayList<>();
+
+    private volatile long evictedCount;
+    private volatile long sweepCount;
+    private volatile long failedSweepCount;
+    private volatile long lastSweepNanos;
+    private volatile long maxSweepNanos;
+    private volatile long totalSweepNanos;
+
+    /**
+     * Wraps a repository with a 100 ms sweep tick.
+     * @param delegate the repository to evict from
+     */
+    public ExpiringURLRepository(URLRepository delegate) {
+        this(delegate, 100);
+    }
+
+    /**
+     * Wraps a repository.
+     * @param delegate the repository to evict from
+     * @param tickMillis how often the sweeper runs; also the wheel resolution
+     */
+    public ExpiringURLRepository(URLRepository delegate, long tickMillis) {
+        this.delegate = delegate;
+        this.wheel = new TimingWheel<>(tickMillis, CoarseClock.currentTimeMillis());
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "url-expiry-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saves a URL mapping and schedules its eviction if it has an expiry.
+     * @param mapping the URLMapping to save
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        delegate.save(mapping);
+        track(mapping);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        boolean saved = delegate.saveIfAbsent(mapping);
+        if (saved) {
+            track(mapping);
+        }
+        return saved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        URLMapping stored = delegate.findOrSave(candidate);
+        if (stored == candidate) {
+            track(candidate);
+        }
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        List<URLMapping> stored = delegate.saveAll(candidates);
+        for (int i = 0; i < stored.size(); i++) {
+            if (stored.get(i) == candidates.get(i)) {
+                track(candidates.get(i));
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The mapping's wheel entry stays until it fires and then finds nothing to remove.
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        return delegate.remove(mapping);
+    }
+
+    /**
+     * Finds a URL mapping by its short code.
+     * @param shortCode the short code
+     * @return the URLMapping if found (possibly expired but not yet evicted), otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        return delegate.findByShortCode(shortCode);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Found mappings may be expired but not yet evicted.
+     */
+    @Override
+    public Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+        return delegate.findAllByShortCode(shortCodes);
+    }
+
+    /**
+     * Finds a URL mapping by its original long URL.
+     * @param longUrl the original long URL
+     * @return the URLMapping if found (possibly expired but not yet evicted), otherwise null
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        return delegate.findByLongUrl(longUrl);
+    }
+
+    /**
+     * Gets the number of mappings evicted so far.
+     * @return the evicted count
+     */
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * Gets the number of sweeps run so far.
+     * @return the sweep count
+     */
+    public long getSweepCount() {
+        return sweepCount;
+    }
+
+    /**
+     * Gets the number of sweeps that failed. The mappings a failed sweep found due stay in the
+     * delegate, hidden by the expiry check on read.
+     * @return the failed sweep count
+     */
+    public long getFailedSweepCount() {
+        return failedSweepCount;
+    }
+
+    /**
+     * Gets the duration of the most recent sweep.
+     * @return the latency in nanoseconds
+     */
+    public long getLastSweepNanos() {
+        return lastSweepNanos;
+    }
+
+    /**
+     * Gets the longest sweep so far.
+     * @return the latency in nanoseconds
+     */
+    public long getMaxSweepNanos() {
+        return maxSweepNanos;
+    }
+
+    /**
+     * Gets the mean sweep duration.
+     * @return the latency in nanoseconds, or 0 before the first sweep
+     */
+    public long getMeanSweepNanos() {
+        long sweeps = sweepCount;
+        return sweeps == 0 ? 0 : totalSweepNanos / sweeps;
+    }
+
+    /**
+     * Stops the sweeper. The delegate is not closed.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    private void track(URLMapping mapping) {
+        if (mapping.hasExpiry()) {
+            pending.add(mapping);
+        }
+    }
+
+    /**
+     * Runs on the sweeper thread only, so the wheel and the due list need no locking.
+     */
+    private void sweep() {
+        long started = System.nanoTime();
+        long now = CoarseClock.currentTimeMillis();
+        try {
+            URLMapping mapping;
+            while ((mapping = pending.poll()) != null) {
+                wheel.schedule(mapping, mapping.getExpiresAtMillis(), due);
+            }
+            wheel.advance(now, due);
+            long evicted = 0;
+            for (URLMapping expired : due) {
+                if (!expired.isExpiredAt(now)) {
+                    // Due within the current millisecond; look again next sweep.
+                    pending.add(expired);
+                } else if (delegate.remove(expired)) {
+                    evicted++;
+                }
+            }
+            evictedCount += evicted;
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; mappings from this sweep stay in the delegate
+            // and are still filtered by the expiry check on read.
+            failedSweepCount++;
+            LOG.log(Level.WARNING, "Expiry sweep failed", e);
+        } finally {
+            due.clear();
+            long elapsed = System.nanoTime() - started;
+            lastSweepNanos = elapsed;
+            maxSweepNanos = Math.max(maxSweepNanos, elapsed);
+            totalSweepNanos += elapsed;
+            sweepCount++;
+        }
+    }
+}
@@ -0,0 +1,716 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable implementation of the URLRepository interface.
+ * Every successful write is appended to a segment log of memory-mapped files and applied
+ * to an {@link InMemoryURLRepository} index that serves all reads.
+ * <ul>
+ *     <li>Group commit: a flusher thread fsyncs the active segment once
+ *     {@code syncBatchSize} writes are pending or {@code syncIntervalMillis} has passed.
+ *     With {@code waitForSync} a write returns only after its record is on disk.</li>
+ *     <li>Snapshots: the live, non-expired mappings are periodically written to a snapshot
+ *     that covers every earlier segment, so a restart loads the snapshot and replays only the
+ *     segments written after it.</li>
+ *     <li>Compaction: segments covered by a snapshot are deleted, which drops every
+ *     superseded and expired record they held.</li>
+ * </ul>
+ * Writes are serialized by the log; reads never take a lock.
+ * <p>
+ * Restart time is not solved by snapshots, only reduced: every live mapping is still read,
+ * checked and decoded into the heap index before the repository opens. The snapshot saves
+ * replaying superseded records and lets the index be bulk loaded at its final size, which
+ * makes a load a few times cheaper than replaying the same mappings from the log; it still
+ * grows linearly with the number of mappings.
+ */
+public class FileURLRepository implements URLRepository, AutoCloseable {
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    /**
+     * Marks a snapshot whose header is {@code [int magic][long coveredSegment][int recordCount]}.
+     */
+    private static final int SNAPSHOT_MAGIC = 0x55524C32;
+    private static final Logger LOG = Logger.getLogger(FileURLRepository.class.getName());
+
+    private final Path directory;
+    private final Options options;
+    private final InMemoryURLRepository index;
+    /**
+     * Serializes log appends with their index updates, so the index always matches log order.
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition syncRequested = syncLock.newCondition();
+    private final Condition synced = syncLock.newCondition();
+    // Set by start(), before the repository is handed out; maintenance stays null without snapshots.
+    private Thread flusher;
+    private ScheduledExecutorService maintenance;
+
+    private long segmentId;
+    private FileChannel channel;
+    private volatile MappedByteBuffer active;
+    private volatile long writeSeq;
+    private volatile long syncedSeq;
+    private volatile long writesSinceSnapshot;
+    private volatile boolean closed;
+    private final long recoveryMillis;
+    private long replayedRecords;
+    private final LongAdder snapshotFailures = new LongAdder();
+
+    private FileURLRepository(Path directory, Options options) {
+        this.directory = directory;
+        this.options = options;
+        long started = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            index = new InMemoryURLRepository(snapshotRecordCount(directory.resolve(SNAPSHOT_FILE)));
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open repository in " + directory, e);
+        }
+        this.recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    }
+
+    /**
+     * Opens (or creates) a repository in the given directory with default options.
+     * @param directory the data directory
+     * @return the open repository
+     */
+    public static FileURLRepository open(Path directory) {
+        return open(directory, new Options());
+    }
+
+    /**
+     * Opens (or creates) a repository in the given directory, recovering its contents, and
+     * starts its flusher and snapshot threads.
+     * @param directory the data directory
+     * @param options the log, sync and snapshot settings
+     * @return the open repository
+     */
+    public static FileURLRepository open(Path directory, Options options) {
+        FileURLRepository repository = new FileURLRepository(directory, options);
+        repository.start();
+        return repository;
+    }
+
+    private void start() {
+        flusher = new Thread(this::flushLoop, "url-log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        if (options.snapshotIntervalMillis > 0) {
+            maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "url-log-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            maintenance.scheduleWithFixedDelay(this::snapshotIfDue,
+                    options.snapshotIntervalMillis, options.snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves a URL mapping, replacing any mapping with the same code or URL.
+     * @param mapping the URLMapping to save
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        byte[] body = MappingCodec.encodeBody(mapping);
+        long seq;
+        appendLock.lock();
+        try {
+            seq = append(body);
+            index.save(mapping);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        byte[] body = MappingCodec.encodeBody(mapping);
+        long seq;
+        appendLock.lock();
+        try {
+            if (index.findByShortCode(mapping.getShortCode()) != null) {
+                return false;
+            }
+            seq = append(body);
+            index.save(mapping);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(seq);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        URLMapping existing = index.findByLongUrl(candidate.getLongUrl());
+        if (existing != null && !existing.isExpired()) {
+            return existing;
+        }
+        byte[] body = MappingCodec.encodeBody(candidate);
+        long seq;
+        appendLock.lock();
+        try {
+            existing = index.findByLongUrl(candidate.getLongUrl());
+            if (existing != null && !existing.isExpired()) {
+                return existing;
+            }
+            if (index.findByShortCode(candidate.getShortCode()) != null) {
+                return null;
+            }
+            seq = append(body);
+            index.save(candidate);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(seq);
+        return candidate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The whole batch is appended under one lock acquisition and waits for a single sync,
+     * so other writers are held off until the batch is in the log.
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        List<byte[]> bodies = new ArrayList<>(candidates.size());
+        for (URLMapping candidate : candidates) {
+            bodies.add(MappingCodec.encodeBody(candidate));
+        }
+        List<URLMapping> stored = new ArrayList<>(candidates.size());
+        long seq = 0;
+        appendLock.lock();
+        try {
+            for (int i = 0; i < candidates.size(); i++) {
+                URLMapping candidate = candidates.get(i);
+                URLMapping existing = index.findByLongUrl(candidate.getLongUrl());
+                if (existing != null && !existing.isExpired()) {
+                    stored.add(existing);
+                } else if (index.findByShortCode(candidate.getShortCode()) != null) {
+                    stored.add(null);
+                } else {
+                    seq = append(bodies.get(i));
+                    index.save(candidate);
+                    stored.add(candidate);
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (seq > 0) {
+            awaitDurable(seq);
+        }
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Logs a removal record, so the mapping stays removed after a restart.
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        byte[] body = MappingCodec.encodeRemoval(mapping);
+        long seq;
+        appendLock.lock();
+        try {
+            if (!mapping.equals(index.findByShortCode(mapping.getShortCode()))) {
+                return false;
+            }
+            seq = append(body);
+            index.remove(mapping);
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(seq);
+        return true;
+    }
+
+    /**
+     * Finds a URL mapping by its short code.
+     * @param shortCode the short code
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        return index.findByShortCode(shortCode);
+    }
+
+    /**
+     * Finds a URL mapping by its original long URL.
+     * @param longUrl the original long URL
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        return index.findByLongUrl(longUrl);
+    }
+
+    /**
+     * Visits every mapping reachable by short code, as {@link InMemoryURLRepository#forEach(Consumer)} does.
+     * @param action the action to apply to each mapping
+     */
+    public void forEach(Consumer<URLMapping> action) {
+        index.forEach(action);
+    }
+
+    /**
+     * Writes a snapshot of all live mappings and deletes the segments it covers.
+     * The active segment is rolled first, so the snapshot covers every earlier segment.
+     * Writers are only blocked for the roll; the mappings are copied without a lock.
+     */
+    public synchronized void snapshot() {
+        long coveredSegment;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            roll();
+            coveredSegment = segmentId;
+            writesSinceSnapshot = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll segment", e);
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            writeSnapshot(coveredSegment);
+            for (long id : listSegments()) {
+                if (id < coveredSegment) {
+                    Files.deleteIfExists(segmentPath(id));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot", e);
+        }
+    }
+
+    /**
+     * Gets how long the last open took to load the snapshot and replay the log.
+     * @return the recovery time in milliseconds
+     */
+    public long getRecoveryMillis() {
+        return recoveryMillis;
+    }
+
+    /**
+     * Gets how many log records were replayed on open, excluding the snapshot.
+     * @return the replayed record count
+     */
+    public long getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * Gets how many background snapshots have failed since open. A failed snapshot is retried on
+     * the next scheduled run.
+     * @return the failed snapshot count
+     */
+    public long getSnapshotFailures() {
+        return snapshotFailures.sum();
+    }
+
+    /**
+     * Flushes pending writes and releases the files. Does not take a snapshot.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        syncLock.lock();
+        try {
+            syncRequested.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            active.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close repository", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        long firstSegment = Files.exists(snapshot) ? loadSnapshot(snapshot) : 0;
+        List<Long> segments = listSegments();
+        long last = firstSegment;
+        for (long id : segments) {
+            if (id < firstSegment) {
+                Files.deleteIfExists(segmentPath(id));
+            } else if (id != segments.get(segments.size() - 1)) {
+                try (FileChannel sealed = FileChannel.open(segmentPath(id), StandardOpenOption.READ)) {
+                    replay(sealed.map(FileChannel.MapMode.READ_ONLY, 0, sealed.size()));
+                }
+            } else {
+                last = id;
+            }
+        }
+        openSegment(last);
+        replay(active);
+        if (active.remaining() >= Integer.BYTES && active.getInt(active.position()) != 0) {
+            // Torn tail from a crash: clear it so it can never be mistaken for a record.
+            byte[] zeros = new byte[8192];
+            ByteBuffer tail = active.duplicate();
+            while (tail.hasRemaining()) {
+                tail.put(zeros, 0, Math.min(zeros.length, tail.remaining()));
+            }
+        }
+    }
+
+    private void replay(ByteBuffer segment) {
+        byte[] body;
+        while ((body = MappingCodec.readRecord(segment)) != null) {
+            URLMapping mapping = MappingCodec.decodeBody(body);
+            if (MappingCodec.isRemoval(body)) {
+                index.remove(mapping);
+            } else {
+                index.save(mapping);
+            }
+            replayedRecords++;
+        }
+    }
+
+    /**
+     * Reads the record count from a snapshot header, so the index can be sized before loading.
+     * @return the count, or 0 without a snapshot
+     */
+    private static int snapshotRecordCount(Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshot))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                return 0;
+            }
+            in.readLong();
+            return in.readInt();
+        }
+    }
+
+    /**
+     * Bulk loads the snapshot into the still-private index. Bodies are read into one reused
+     * buffer and stored with plain puts, since nothing else can see the index yet.
+     */
+    private long loadSnapshot(Path snapshot) throws IOException {
+        try (FileChannel snapshotChannel = FileChannel.open(snapshot, StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(Channels.newInputStream(snapshotChannel), 1 << 20))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalStateException("Not a snapshot file: " + snapshot);
+            }
+            long coveredSegment = in.readLong();
+            in.readInt();
+            CRC32 crc = new CRC32();
+            byte[] body = new byte[256];
+            int length;
+            while ((length = in.readInt()) != 0) {
+                int checksum = in.readInt();
+                if (length > body.length) {
+                    body = new byte[Math.max(length, body.length * 2)];
+                }
+                in.readFully(body, 0, length);
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    throw new IllegalStateException("Corrupt snapshot record in " + snapshot);
+                }
+                index.load(MappingCodec.decodeBody(body, length));
+            }
+            return coveredSegment;
+        }
+    }
+
+    private void writeSnapshot(long coveredSegment) throws IOException {
+        Path tmp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel snapshotChannel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(snapshotChannel), 1 << 20));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(coveredSegment);
+            out.writeInt(0);
+            int[] records = {0};
+            try {
+                index.forEach(mapping -> {
+                    if (mapping.isExpired()) {
+                        return;
+                    }
+                    writeSnapshotRecord(out, mapping);
+                    records[0]++;
+                    // Loading indexes each URL by the last mapping saved for it, so an older code
+                    // of a URL is followed by its current one.
+                    URLMapping current = index.findByLongUrl(mapping.getLongUrl());
+                    if (current != null && !current.getShortCode().equals(mapping.getShortCode()) && !current.isExpired()) {
+                        writeSnapshotRecord(out, current);
+                        records[0]++;
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeInt(0);
+            out.flush();
+            ByteBuffer count = ByteBuffer.allocate(Integer.BYTES).putInt(0, records[0]);
+            snapshotChannel.write(count, Integer.BYTES + Long.BYTES);
+            snapshotChannel.force(true);
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeSnapshotRecord(DataOutputStream out, URLMapping mapping) {
+        byte[] body = MappingCodec.encodeBody(mapping);
+        try {
+            out.writeInt(body.length);
+            out.writeInt(MappingCodec.checksum(body));
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void snapshotIfDue() {
+        try {
+            if (writesSinceSnapshot >= options.snapshotMinWrites) {
+                snapshot();
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next run retries.
+            snapshotFailures.increment();
+            LOG.log(Level.WARNING, "Snapshot of " + directory + " failed", e);
+        }
+    }
+
+    private long append(byte[] body) {
+        ensureOpen();
+        int size = MappingCodec.RECORD_HEADER + body.length;
+        if (size + Integer.BYTES > options.segmentSize) {
+            throw new IllegalArgumentException("Mapping of " + size + " bytes does not fit a log segment");
+        }
+        try {
+            if (active.remaining() < size + Integer.BYTES) {
+                roll();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll segment", e);
+        }
+        MappingCodec.writeRecord(active, body);
+        writesSinceSnapshot++;
+        return ++writeSeq;
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        channel.close();
+        openSegment(segmentId + 1);
+    }
+
+    private void openSegment(long id) throws IOException {
+        segmentId = id;
+        channel = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), options.segmentSize));
+    }
+
+    private void awaitDurable(long seq) {
+        if (seq - syncedSeq < options.syncBatchSize && !options.waitForSync) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (seq - syncedSeq >= options.syncBatchSize) {
+                syncRequested.signal();
+            }
+            while (options.waitForSync && syncedSeq < seq && !closed) {
+                synced.awaitUninterruptibly();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            syncLock.lock();
+            try {
+                if (writeSeq - syncedSeq < options.syncBatchSize && !closed) {
+                    syncRequested.await(options.syncIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                syncLock.unlock();
+            }
+            syncNow();
+        }
+        syncNow();
+    }
+
+    private void syncNow() {
+        // Records up to target are fully written; any rolled segment was forced on roll.
+        long target = writeSeq;
+        if (target == syncedSeq) {
+            return;
+        }
+        active.force();
+        syncLock.lock();
+        try {
+            syncedSeq = target;
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Repository is closed");
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> ids.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%016d%s", id, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Settings for the segment log, group commit and snapshots.
+     */
+    public static final class Options {
+        private int segmentSize = 64 << 20;
+        private int syncBatchSize = 128;
+        private long syncIntervalMillis = 2;
+        private boolean waitForSync = true;
+        private long snapshotIntervalMillis = 60_000;
+        private long snapshotMinWrites = 100_000;
+
+        /**
+         * Sets the size of each memory-mapped segment file (default 64 MB).
+         * @param bytes the segment size
+         * @return these options
+         */
+        public Options segmentSize(int bytes) {
+            if (bytes < 1024) throw new IllegalArgumentException("Segment size must be at least 1 KB");
+            this.segmentSize = bytes;
+            return this;
+        }
+
+        /**
+         * Sets how many pending writes trigger an fsync (default 128).
+         * @param writes the batch size
+         * @return these options
+         */
+        public Options syncBatchSize(int writes) {
+            if (writes < 1) throw new IllegalArgumentException("Sync batch size must be positive");
+            this.syncBatchSize = writes;
+            return this;
+        }
+
+        /**
+         * Sets the longest time a pending write waits for an fsync (default 2 ms).
+         * @param millis the sync interval
+         * @return these options
+         */
+        public Options syncIntervalMillis(long millis) {
+            if (millis < 1) throw new IllegalArgumentException("Sync interval must be positive");
+            this.syncIntervalMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets whether writes block until their record is fsynced (default true).
+         * When false, up to one sync interval of writes can be lost on a crash.
+         * @param waitForSync whether to wait for durability
+         * @return these options
+         */
+        public Options waitForSync(boolean waitForSync) {
+            this.waitForSync = waitForSync;
+            return this;
+        }
+
+        /**
+         * Sets how often the background snapshot check runs; 0 disables it (default 60 s).
+         * @param millis the snapshot interval
+         * @return these options
+         */
+        public Options snapshotIntervalMillis(long millis) {
+            if (millis < 0) throw new IllegalArgumentException("Snapshot interval must not be negative");
+            this.snapshotIntervalMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets how many writes since the last snapshot make a new one due (default 100000).
+         * @param writes the minimum write count
+         * @return these options
+         */
+        public Options snapshotMinWrites(long writes) {
+            if (writes < 1) throw new IllegalArgumentException("Snapshot write threshold must be positive");
+            this.snapshotMinWrites = writes;
+            return this;
+        }
+    }
+}
@@ -4,8 +4,7 @@ import org.example.model.URLMapping;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * In-memory implementation of the URLRepository interface.
@@ -17,29 +16,99 @@ public class InMemoryURLRepository implements URLRepository {
     /**
      * Maps short codes to URLMapping objects for fast lookup by code.
      */
-    private final Map<String, URLMapping> codeToMapping = new ConcurrentHashMap<>();
+    private final Map<String, URLMapping> codeToMapping;
     /**
      * Maps long URLs to URLMapping objects for fast lookup by original URL.
      */
-    private final Map<String, URLMapping> urlToMapping = new ConcurrentHashMap<>();
+    private final Map<String, URLMapping> urlToMapping;
+
+    /**
+     * Creates an empty repository.
+     */
+    public InMemoryURLRepository() {
+        this(0);
+    }
+
     /**
-     * Lock for synchronizing access to the repository.
+     * Creates a repository sized for a known number of mappings.
+     * @param expectedMappings how many mappings are about to be loaded
      */
-    private final Lock lock = new ReentrantLock();
+    InMemoryURLRepository(int expectedMappings) {
+        this.codeToMapping = new ConcurrentHashMap<>(expectedMappings);
+        this.urlToMapping = new ConcurrentHashMap<>(expectedMappings);
+    }
 
     /**
      * Saves a URL mapping in both lookup maps.
+     * The write is striped by long URL: the code index is updated inside the
+     * {@code compute} of the URL's bin, so writers for different URLs never
+     * wait on each other and writers for the same URL are serialized.
+     * Lock order is always url bin, then code bin.
+     * <p>
+     * The two maps are not published atomically, and lock-free reads cannot see them as one
+     * snapshot: until the {@code compute} returns, the mapping can be found by code while its URL
+     * still gives the previous mapping or null. Anything found by URL can already be found by
+     * code, so a code handed out always resolves. Callers that need a consistent answer for a
+     * URL use {@link #findOrSave(URLMapping)} or {@link #saveIfAbsent(URLMapping)}, which run
+     * in the same bin and wait for the save; {@code findByLongUrl} alone is only a hint.
      * @param mapping the URLMapping to save
      */
     @Override
     public void save(URLMapping mapping) {
-        lock.lock();
-        try {
+        urlToMapping.compute(mapping.getLongUrl(), (url, previous) -> {
             codeToMapping.put(mapping.getShortCode(), mapping);
-            urlToMapping.put(mapping.getLongUrl(), mapping);
-        } finally {
-            lock.unlock();
+            return mapping;
+        });
+    }
+
+    /**
+     * Stores a mapping the way {@link #save(URLMapping)} does, with plain puts instead of an
+     * atomic update. Only for filling a repository no other thread can see yet.
+     * @param mapping the URLMapping to store
+     */
+    void load(URLMapping mapping) {
+        codeToMapping.put(mapping.getShortCode(), mapping);
+        urlToMapping.put(mapping.getLongUrl(), mapping);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Uses the same url-bin-then-code-bin order as {@link #save(URLMapping)}.
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        URLMapping stored = urlToMapping.compute(mapping.getLongUrl(), (url, existing) ->
+                codeToMapping.putIfAbsent(mapping.getShortCode(), mapping) == null ? mapping : existing);
+        return stored == mapping;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Uses the same url-bin-then-code-bin order as {@link #save(URLMapping)}.
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        URLMapping stored = urlToMapping.compute(candidate.getLongUrl(), (url, existing) -> {
+            if (existing != null && !existing.isExpired()) {
+                return existing;
+            }
+            return codeToMapping.putIfAbsent(candidate.getShortCode(), candidate) == null ? candidate : existing;
+        });
+        if (stored == candidate) {
+            return candidate;
         }
+        return stored != null && !stored.isExpired() ? stored : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The URL entry is removed before the code entry, so a mapping never stays
+     * reachable by URL after it has become unreachable by code. Readers are never blocked.
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        urlToMapping.remove(mapping.getLongUrl(), mapping);
+        return codeToMapping.remove(mapping.getShortCode(), mapping);
     }
 
     /**
@@ -61,4 +130,14 @@ public class InMemoryURLRepository implements URLRepository {
     public URLMapping findByLongUrl(String longUrl) {
         return urlToMapping.get(longUrl);
     }
+
+    /**
+     * Visits every mapping reachable by short code.
+     * Iteration is weakly consistent: it never blocks writers and may or may not
+     * reflect writes that happen while it runs.
+     * @param action the action to apply to each mapping
+     */
+    public void forEach(Consumer<URLMapping> action) {
+        codeToMapping.values().forEach(action);
+    }
 }
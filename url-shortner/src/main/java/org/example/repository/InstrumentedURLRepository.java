@@ -0,0 +1,150 @@
+package org.example.repository;
+
+import org.example.metrics.Metrics;
+import org.example.metrics.Timer;
+import org.example.model.URLMapping;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * URLRepository decorator that times every call to its delegate in
+ * {@code urlshortener_repository_seconds}, labelled by operation. Calls that throw are not
+ * timed. While the registry is disabled each call costs one volatile read.
+ * <p>
+ * A service built with the same registry already times each resolve and shorten, so wrap a
+ * store only when its calls are slow enough to need their own breakdown, such as a remote
+ * database; around an in-memory store it times the same work twice.
+ */
+public class InstrumentedURLRepository implements URLRepository {
+    private static final String NAME = "urlshortener_repository_seconds";
+    private static final String HELP = "Time spent in URLRepository calls.";
+
+    private final URLRepository delegate;
+    private final Timer save;
+    private final Timer saveIfAbsent;
+    private final Timer findOrSave;
+    private final Timer saveAll;
+    private final Timer remove;
+    private final Timer findByShortCode;
+    private final Timer findAllByShortCode;
+    private final Timer findByLongUrl;
+    private final Timer isShortCodeProbablyTaken;
+
+    /**
+     * Wraps a repository.
+     * @param delegate the repository to time
+     * @param metrics where the timers are registered
+     */
+    public InstrumentedURLRepository(URLRepository delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.save = metrics.timer(NAME, HELP, "operation", "save");
+        this.saveIfAbsent = metrics.timer(NAME, HELP, "operation", "saveIfAbsent");
+        this.findOrSave = metrics.timer(NAME, HELP, "operation", "findOrSave");
+        this.saveAll = metrics.timer(NAME, HELP, "operation", "saveAll");
+        this.remove = metrics.timer(NAME, HELP, "operation", "remove");
+        this.findByShortCode = metrics.timer(NAME, HELP, "operation", "findByShortCode");
+        this.findAllByShortCode = metrics.timer(NAME, HELP, "operation", "findAllByShortCode");
+        this.findByLongUrl = metrics.timer(NAME, HELP, "operation", "findByLongUrl");
+        this.isShortCodeProbablyTaken = metrics.timer(NAME, HELP, "operation", "isShortCodeProbablyTaken");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        long started = save.start();
+        delegate.save(mapping);
+        save.stop(started);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        long started = saveIfAbsent.start();
+        boolean saved = delegate.saveIfAbsent(mapping);
+        saveIfAbsent.stop(started);
+        return saved;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        long started = findOrSave.start();
+        URLMapping stored = delegate.findOrSave(candidate);
+        findOrSave.stop(started);
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        long started = saveAll.start();
+        List<URLMapping> stored = delegate.saveAll(candidates);
+        saveAll.stop(started);
+        return stored;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        long started = remove.start();
+        boolean removed = delegate.remove(mapping);
+        remove.stop(started);
+        return removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        long started = findByShortCode.start();
+        URLMapping mapping = delegate.findByShortCode(shortCode);
+        findByShortCode.stop(started);
+        return mapping;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+        long started = findAllByShortCode.start();
+        Map<String, URLMapping> found = delegate.findAllByShortCode(shortCodes);
+        findAllByShortCode.stop(started);
+        return found;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        long started = findByLongUrl.start();
+        URLMapping mapping = delegate.findByLongUrl(longUrl);
+        findByLongUrl.stop(started);
+        return mapping;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isShortCodeProbablyTaken(String shortCode) {
+        long started = isShortCodeProbablyTaken.start();
+        boolean taken = delegate.isShortCodeProbablyTaken(shortCode);
+        isShortCodeProbablyTaken.stop(started);
+        return taken;
+    }
+}
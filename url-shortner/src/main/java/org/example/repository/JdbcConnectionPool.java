@@ -0,0 +1,138 @@
+package org.example.repository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fixed-size pool of JDBC connections for {@link JdbcURLRepository}. Connections are opened on
+ * first demand and reused; each keeps its prepared statements, so a statement is parsed once per
+ * connection rather than once per call. A connection returned as broken is closed and replaced
+ * by a new one on a later borrow.
+ */
+final class JdbcConnectionPool implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(JdbcConnectionPool.class.getName());
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<PooledConnection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    JdbcConnectionPool(String url, String user, String password, int size, long timeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(size, true);
+    }
+
+    /**
+     * Takes a connection, waiting for one to be returned if all are in use.
+     * @return a connection in auto-commit mode, to be passed back to {@link #release}
+     * @throws SQLException if a new connection cannot be opened
+     */
+    PooledConnection borrow() throws SQLException {
+        if (closed) throw new IllegalStateException("Connection pool is closed");
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("No database connection free within " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a database connection", e);
+        }
+        PooledConnection pooled = idle.poll();
+        if (pooled != null) {
+            return pooled;
+        }
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, user, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a connection.
+     * @param pooled the borrowed connection
+     * @param broken true to close it instead of reusing it, after an error that may have left it unusable
+     */
+    void release(PooledConnection pooled, boolean broken) {
+        if (broken || closed) {
+            pooled.close();
+        } else {
+            idle.add(pooled);
+        }
+        permits.release();
+    }
+
+    /**
+     * Closes the idle connections. Connections still borrowed are closed when they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            pooled.close();
+        }
+    }
+
+    /**
+     * A connection and its prepared statements. Used by one thread at a time.
+     */
+    static final class PooledConnection {
+        final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Gets the connection's prepared statement for some SQL, preparing it on first use.
+         * @param sql the statement text
+         * @return the statement, with parameters left from its last use
+         * @throws SQLException if it cannot be prepared
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        /**
+         * Drops the rows queued on every prepared statement, so a batch that failed or was never
+         * executed is not sent along with the next batch on this connection.
+         * @throws SQLException if a statement cannot be cleared
+         */
+        void clearBatches() throws SQLException {
+            for (PreparedStatement statement : statements.values()) {
+                statement.clearBatch();
+            }
+        }
+
+        void close() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.log(Level.WARNING, "Failed to close database connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,671 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.example.util.CoarseClock;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * URLRepository backed by a relational database through JDBC, so several nodes can share one
+ * set of mappings. Written against H2's SQL; {@code JdbcURLRepositoryTest} runs it on an
+ * in-memory H2 database.
+ * <ul>
+ *     <li>The {@code url_mappings} table has a primary key on {@code short_code} and a unique
+ *     index on {@code long_url}, so the database itself detects a taken code or URL atomically.
+ *     Conditional writes insert first and only look at the existing rows after a constraint
+ *     violation.</li>
+ *     <li>Connections come from a fixed pool, and each keeps its prepared statements.</li>
+ *     <li>Concurrent {@link #save(URLMapping)} calls are coalesced: while one caller writes a
+ *     batch, others queue up, and the next caller to get the write lock writes every queued save
+ *     as one JDBC batch in one transaction.</li>
+ *     <li>{@link #saveAll(List)} and {@link #findAllByShortCode(Collection)} read with
+ *     {@code IN} lists and write with JDBC batches, a few round trips per call.</li>
+ * </ul>
+ * A URL has at most one row. Unlike {@link InMemoryURLRepository}, saving a new code for a URL
+ * deletes the URL's old code, and an expired mapping is deleted when its URL is shortened again.
+ * Timestamps are stored as epoch millis; {@code expires_at} holds {@link URLMapping#NO_EXPIRY}
+ * for mappings that never expire. Database errors are thrown as {@link IllegalStateException}.
+ */
+public class JdbcURLRepository implements URLRepository, AutoCloseable {
+    private static final String COLUMNS = "short_code, long_url, created_at, expires_at";
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS url_mappings ("
+            + "short_code VARCHAR(255) NOT NULL PRIMARY KEY, "
+            + "long_url VARCHAR(4096) NOT NULL, "
+            + "created_at BIGINT NOT NULL, "
+            + "expires_at BIGINT NOT NULL, "
+            + "CONSTRAINT url_mappings_long_url UNIQUE (long_url))";
+    private static final String INSERT = "INSERT INTO url_mappings (" + COLUMNS + ") VALUES (?, ?, ?, ?)";
+    private static final String SELECT_BY_CODE = "SELECT " + COLUMNS + " FROM url_mappings WHERE short_code = ?";
+    private static final String SELECT_BY_URL = "SELECT " + COLUMNS + " FROM url_mappings WHERE long_url = ?";
+    // Deleting by code and by URL takes two statements: H2 scans the whole table for an OR of the two.
+    private static final String DELETE_BY_CODE = "DELETE FROM url_mappings WHERE short_code = ?";
+    private static final String DELETE_BY_URL = "DELETE FROM url_mappings WHERE long_url = ?";
+    private static final String DELETE_EXPIRED_BY_URL = "DELETE FROM url_mappings WHERE long_url = ? AND expires_at < ?";
+    private static final String DELETE_EXACT = "DELETE FROM url_mappings "
+            + "WHERE short_code = ? AND long_url = ? AND created_at = ? AND expires_at = ?";
+    /**
+     * Largest {@code IN} list of one multi-get. Shorter lists are padded to a power of two,
+     * so each connection prepares at most eight multi-get statements per column.
+     */
+    private static final int MAX_IN = 128;
+    private static final String[] SELECT_BY_CODES = inListQueries("short_code");
+    private static final String[] SELECT_BY_URLS = inListQueries("long_url");
+    /**
+     * Conditional writes retry when a concurrent writer changes the row they collided with.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Options options;
+    private final JdbcConnectionPool pool;
+    private final ReentrantLock saveLock = new ReentrantLock();
+    private final ConcurrentLinkedQueue<PendingSave> pendingSaves = new ConcurrentLinkedQueue<>();
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder saveBatches = new LongAdder();
+
+    /**
+     * Opens a repository with default options.
+     * @param jdbcUrl the database URL, such as {@code jdbc:h2:mem:urls;DB_CLOSE_DELAY=-1}
+     */
+    public JdbcURLRepository(String jdbcUrl) {
+        this(jdbcUrl, new Options());
+    }
+
+    /**
+     * Opens a repository, creating the table if it does not exist and the options allow it.
+     * @param jdbcUrl the database URL
+     * @param options the credentials, pool and batching settings
+     */
+    public JdbcURLRepository(String jdbcUrl, Options options) {
+        this.options = options;
+        this.pool = new JdbcConnectionPool(jdbcUrl, options.user, options.password,
+                options.poolSize, options.connectionTimeoutMillis);
+        if (options.createSchema) {
+            run(pooled -> {
+                try (Statement statement = pooled.connection.createStatement()) {
+                    roundTrips.increment();
+                    statement.execute(CREATE_TABLE);
+                }
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Saves a URL mapping, replacing any mapping with the same code or URL.
+     * Concurrent calls are written together, one transaction per batch.
+     * @param mapping the URLMapping to save
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        if (!options.coalesceSaves) {
+            writeSaves(List.of(mapping));
+            return;
+        }
+        PendingSave pending = new PendingSave(mapping);
+        pendingSaves.add(pending);
+        saveLock.lock();
+        try {
+            while (!pending.done) {
+                List<PendingSave> batch = new ArrayList<>();
+                PendingSave next;
+                while (batch.size() < options.maxSaveBatch && (next = pendingSaves.poll()) != null) {
+                    batch.add(next);
+                }
+                writeBatch(batch);
+            }
+        } finally {
+            saveLock.unlock();
+        }
+        if (pending.failure != null) {
+            throw pending.failure;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * A mapping whose code is free replaces any mapping for its URL.
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        return run(pooled -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    insert(pooled, mapping);
+                    return true;
+                } catch (SQLException e) {
+                    if (!isConstraintViolation(e) || attempt == MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+                if (select(pooled, SELECT_BY_CODE, mapping.getShortCode()) != null) {
+                    return false;
+                }
+                PreparedStatement delete = pooled.prepare(DELETE_BY_URL);
+                delete.setString(1, mapping.getLongUrl());
+                update(delete);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * Tries the insert first; an expired mapping for the URL is deleted and the insert retried.
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        return run(pooled -> findOrSave(pooled, candidate, CoarseClock.currentTimeMillis()));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Reads the existing rows for all URLs and codes with multi-gets, then deletes the expired
+     * ones and inserts the new mappings in JDBC batches, in one transaction. If a concurrent
+     * writer takes a code or URL in between, the batch is rolled back and each candidate is
+     * saved with {@link #findOrSave(URLMapping)}.
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long now = CoarseClock.currentTimeMillis();
+        return run(pooled -> {
+            try {
+                return inTransaction(pooled, () -> saveAllBatched(pooled, candidates, now));
+            } catch (SQLException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+            }
+            List<URLMapping> stored = new ArrayList<>(candidates.size());
+            for (URLMapping candidate : candidates) {
+                stored.add(findOrSave(pooled, candidate, now));
+            }
+            return stored;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        return run(pooled -> {
+            PreparedStatement delete = pooled.prepare(DELETE_EXACT);
+            bind(delete, mapping);
+            return update(delete) == 1;
+        });
+    }
+
+    /**
+     * Finds a URL mapping by its short code.
+     * @param shortCode the short code
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        return run(pooled -> select(pooled, SELECT_BY_CODE, shortCode));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Up to {@value #MAX_IN} codes are read per round trip.
+     */
+    @Override
+    public Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+        Map<String, URLMapping> found = new HashMap<>(shortCodes.size() * 4 / 3 + 1);
+        if (shortCodes.isEmpty()) {
+            return found;
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(shortCodes));
+        for (URLMapping mapping : run(pooled -> selectIn(pooled, SELECT_BY_CODES, distinct))) {
+            found.put(mapping.getShortCode(), mapping);
+        }
+        return found;
+    }
+
+    /**
+     * Finds a URL mapping by its original long URL.
+     * @param longUrl the original long URL
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        return run(pooled -> select(pooled, SELECT_BY_URL, longUrl));
+    }
+
+    /**
+     * Gets the number of statements, batches and commits sent to the database so far.
+     * @return the round-trip count
+     */
+    public long getRoundTrips() {
+        return roundTrips.sum();
+    }
+
+    /**
+     * Gets the number of batches coalesced {@link #save(URLMapping)} calls were written in.
+     * @return the batch count
+     */
+    public long getSaveBatches() {
+        return saveBatches.sum();
+    }
+
+    /**
+     * Closes the pooled connections. Does not touch the data.
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * Caller holds the save lock. Writes the batch in one transaction; if that fails, writes each
+     * save on its own so one bad mapping fails only its own caller.
+     */
+    private void writeBatch(List<PendingSave> batch) {
+        List<URLMapping> mappings = new ArrayList<>(batch.size());
+        for (PendingSave pending : batch) {
+            mappings.add(pending.mapping);
+        }
+        try {
+            writeSaves(mappings);
+        } catch (RuntimeException e) {
+            for (PendingSave pending : batch) {
+                try {
+                    writeSaves(List.of(pending.mapping));
+                } catch (RuntimeException single) {
+                    pending.failure = single;
+                }
+                pending.done = true;
+            }
+            return;
+        }
+        for (PendingSave pending : batch) {
+            pending.done = true;
+        }
+    }
+
+    /**
+     * Applies saves in order in one transaction: every row sharing a code or URL with any of them
+     * is deleted, then the mappings not replaced by a later one in the list are inserted.
+     */
+    private void writeSaves(List<URLMapping> mappings) {
+        run(pooled -> inTransaction(pooled, () -> {
+            PreparedStatement deleteByCode = pooled.prepare(DELETE_BY_CODE);
+            PreparedStatement deleteByUrl = pooled.prepare(DELETE_BY_URL);
+            for (URLMapping mapping : mappings) {
+                deleteByCode.setString(1, mapping.getShortCode());
+                deleteByCode.addBatch();
+                deleteByUrl.setString(1, mapping.getLongUrl());
+                deleteByUrl.addBatch();
+            }
+            executeBatch(deleteByCode);
+            executeBatch(deleteByUrl);
+            Set<String> laterCodes = new HashSet<>();
+            Set<String> laterUrls = new HashSet<>();
+            PreparedStatement insert = pooled.prepare(INSERT);
+            for (int i = mappings.size() - 1; i >= 0; i--) {
+                URLMapping mapping = mappings.get(i);
+                boolean codeFree = laterCodes.add(mapping.getShortCode());
+                boolean urlFree = laterUrls.add(mapping.getLongUrl());
+                if (codeFree && urlFree) {
+                    bind(insert, mapping);
+                    insert.addBatch();
+                }
+            }
+            executeBatch(insert);
+            return null;
+        }));
+        saveBatches.increment();
+    }
+
+    private URLMapping findOrSave(JdbcConnectionPool.PooledConnection pooled, URLMapping candidate, long now)
+            throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                insert(pooled, candidate);
+                return candidate;
+            } catch (SQLException e) {
+                if (!isConstraintViolation(e) || attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+            URLMapping existing = select(pooled, SELECT_BY_URL, candidate.getLongUrl());
+            if (existing != null) {
+                if (!existing.isExpiredAt(now)) {
+                    return existing;
+                }
+                PreparedStatement delete = pooled.prepare(DELETE_EXPIRED_BY_URL);
+                delete.setString(1, candidate.getLongUrl());
+                delete.setLong(2, now);
+                update(delete);
+            } else if (select(pooled, SELECT_BY_CODE, candidate.getShortCode()) != null) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Runs in a transaction. Candidates are decided in order against the rows read up front and
+     * the candidates already accepted, as {@link URLRepository#saveAll(List)} requires.
+     */
+    private List<URLMapping> saveAllBatched(JdbcConnectionPool.PooledConnection pooled, List<URLMapping> candidates,
+                                            long now) throws SQLException {
+        Set<String> urls = new LinkedHashSet<>();
+        Set<String> codes = new LinkedHashSet<>();
+        for (URLMapping candidate : candidates) {
+            urls.add(candidate.getLongUrl());
+            codes.add(candidate.getShortCode());
+        }
+        Map<String, URLMapping> byUrl = new HashMap<>();
+        for (URLMapping mapping : selectIn(pooled, SELECT_BY_URLS, new ArrayList<>(urls))) {
+            byUrl.put(mapping.getLongUrl(), mapping);
+        }
+        Map<String, URLMapping> byCode = new HashMap<>();
+        for (URLMapping mapping : selectIn(pooled, SELECT_BY_CODES, new ArrayList<>(codes))) {
+            byCode.put(mapping.getShortCode(), mapping);
+        }
+
+        List<URLMapping> stored = new ArrayList<>(candidates.size());
+        PreparedStatement deleteExpired = pooled.prepare(DELETE_EXPIRED_BY_URL);
+        PreparedStatement insert = pooled.prepare(INSERT);
+        boolean deletes = false;
+        boolean inserts = false;
+        for (URLMapping candidate : candidates) {
+            URLMapping existing = byUrl.get(candidate.getLongUrl());
+            if (existing != null && !existing.isExpiredAt(now)) {
+                stored.add(existing);
+                continue;
+            }
+            URLMapping holder = byCode.get(candidate.getShortCode());
+            if (holder != null && (existing == null || !holder.getShortCode().equals(existing.getShortCode()))) {
+                stored.add(null);
+                continue;
+            }
+            if (existing != null) {
+                deleteExpired.setString(1, existing.getLongUrl());
+                deleteExpired.setLong(2, now);
+                deleteExpired.addBatch();
+                deletes = true;
+                byCode.remove(existing.getShortCode());
+            }
+            bind(insert, candidate);
+            insert.addBatch();
+            inserts = true;
+            byUrl.put(candidate.getLongUrl(), candidate);
+            byCode.put(candidate.getShortCode(), candidate);
+            stored.add(candidate);
+        }
+        if (deletes) {
+            executeBatch(deleteExpired);
+        }
+        if (inserts) {
+            executeBatch(insert);
+        }
+        return stored;
+    }
+
+    private void insert(JdbcConnectionPool.PooledConnection pooled, URLMapping mapping) throws SQLException {
+        PreparedStatement insert = pooled.prepare(INSERT);
+        bind(insert, mapping);
+        update(insert);
+    }
+
+    private URLMapping select(JdbcConnectionPool.PooledConnection pooled, String sql, String key) throws SQLException {
+        PreparedStatement select = pooled.prepare(sql);
+        select.setString(1, key);
+        roundTrips.increment();
+        try (ResultSet rows = select.executeQuery()) {
+            return rows.next() ? read(rows) : null;
+        }
+    }
+
+    /**
+     * Reads the rows matching any of the keys, {@value #MAX_IN} keys per query.
+     */
+    private List<URLMapping> selectIn(JdbcConnectionPool.PooledConnection pooled, String[] queries, List<String> keys)
+            throws SQLException {
+        List<URLMapping> found = new ArrayList<>(keys.size());
+        for (int from = 0; from < keys.size(); from += MAX_IN) {
+            int count = Math.min(MAX_IN, keys.size() - from);
+            int size = Integer.numberOfTrailingZeros(Integer.highestOneBit(count));
+            if (1 << size < count) {
+                size++;
+            }
+            PreparedStatement select = pooled.prepare(queries[size]);
+            for (int i = 0; i < 1 << size; i++) {
+                // Pad with the last key; a repeated key matches the same row once.
+                select.setString(i + 1, keys.get(from + Math.min(i, count - 1)));
+            }
+            roundTrips.increment();
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    found.add(read(rows));
+                }
+            }
+        }
+        return found;
+    }
+
+    private int update(PreparedStatement statement) throws SQLException {
+        roundTrips.increment();
+        return statement.executeUpdate();
+    }
+
+    private void executeBatch(PreparedStatement statement) throws SQLException {
+        roundTrips.increment();
+        statement.executeBatch();
+    }
+
+    /**
+     * Runs work in a transaction. On failure the statements' queued batches are cleared and the
+     * transaction rolled back before the connection goes back to the pool.
+     */
+    private <T> T inTransaction(JdbcConnectionPool.PooledConnection pooled, SqlWork<T> work) throws SQLException {
+        pooled.connection.setAutoCommit(false);
+        try {
+            T result = work.run();
+            roundTrips.increment();
+            pooled.connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                pooled.clearBatches();
+                pooled.connection.rollback();
+            } catch (SQLException cleanup) {
+                // Thrown instead of e, which may be a constraint violation, so the connection is discarded.
+                cleanup.addSuppressed(e);
+                throw cleanup;
+            }
+            throw e;
+        } finally {
+            pooled.connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Runs work on a pooled connection. The connection is discarded after any error other than
+     * a constraint violation, since it may be left unusable.
+     */
+    private <T> T run(PooledWork<T> work) {
+        JdbcConnectionPool.PooledConnection pooled;
+        try {
+            pooled = pool.borrow();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to connect to the database", e);
+        }
+        boolean broken = false;
+        try {
+            return work.run(pooled);
+        } catch (SQLException e) {
+            broken = !isConstraintViolation(e);
+            throw new IllegalStateException("Database call failed: " + e.getMessage(), e);
+        } finally {
+            pool.release(pooled, broken);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, URLMapping mapping) throws SQLException {
+        statement.setString(1, mapping.getShortCode());
+        statement.setString(2, mapping.getLongUrl());
+        statement.setLong(3, mapping.getCreatedAtMillis());
+        statement.setLong(4, mapping.getExpiresAtMillis());
+    }
+
+    private static URLMapping read(ResultSet rows) throws SQLException {
+        return new URLMapping(rows.getString(1), rows.getString(2), rows.getLong(3), rows.getLong(4));
+    }
+
+    /**
+     * Tells a duplicate key (SQLSTATE class 23), which the write paths expect, from other errors.
+     * Drivers may report it directly, as the cause, or as the next exception of a failed batch.
+     */
+    private static boolean isConstraintViolation(SQLException e) {
+        for (SQLException next = e; next != null; next = next.getNextException()) {
+            for (Throwable cause = next; cause != null; cause = cause.getCause()) {
+                if (cause instanceof SQLIntegrityConstraintViolationException) {
+                    return true;
+                }
+                if (cause instanceof SQLException) {
+                    String state = ((SQLException) cause).getSQLState();
+                    if (state != null && state.startsWith("23")) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Builds the multi-get statements for lists of 1, 2, 4 ... {@value #MAX_IN} keys.
+     */
+    private static String[] inListQueries(String column) {
+        String[] queries = new String[Integer.numberOfTrailingZeros(MAX_IN) + 1];
+        for (int size = 0; size < queries.length; size++) {
+            StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM url_mappings WHERE " + column + " IN (?");
+            for (int i = 1; i < 1 << size; i++) {
+                sql.append(", ?");
+            }
+            queries[size] = sql.append(')').toString();
+        }
+        return queries;
+    }
+
+    private interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    private interface PooledWork<T> {
+        T run(JdbcConnectionPool.PooledConnection pooled) throws SQLException;
+    }
+
+    /**
+     * A {@link #save(URLMapping)} call waiting to be written. Its fields are written and read
+     * under the save lock.
+     */
+    private static final class PendingSave {
+        final URLMapping mapping;
+        boolean done;
+        RuntimeException failure;
+
+        PendingSave(URLMapping mapping) {
+            this.mapping = mapping;
+        }
+    }
+
+    /**
+     * Options for {@link JdbcURLRepository}.
+     */
+    public static final class Options {
+        private String user = "";
+        private String password = "";
+        private int poolSize = 8;
+        private long connectionTimeoutMillis = 5000;
+        private boolean coalesceSaves = true;
+        private int maxSaveBatch = 500;
+        private boolean createSchema = true;
+
+        /**
+         * Sets the database credentials (default: empty user and password).
+         * @param user the user name
+         * @param password the password
+         * @return these options
+         */
+        public Options credentials(String user, String password) {
+            if (user == null || password == null) throw new IllegalArgumentException("Credentials must not be null");
+            this.user = user;
+            this.password = password;
+            return this;
+        }
+
+        /**
+         * Sets the most connections open at once (default 8).
+         * @param connections the pool size
+         * @return these options
+         */
+        public Options poolSize(int connections) {
+            if (connections < 1) throw new IllegalArgumentException("Pool size must be positive");
+            this.poolSize = connections;
+            return this;
+        }
+
+        /**
+         * Sets how long a call waits for a free connection before failing (default 5 s).
+         * @param millis the timeout
+         * @return these options
+         */
+        public Options connectionTimeoutMillis(long millis) {
+            if (millis < 1) throw new IllegalArgumentException("Connection timeout must be positive");
+            this.connectionTimeoutMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets whether concurrent {@link JdbcURLRepository#save(URLMapping)} calls are written
+         * together in batches (default true). When false each save is its own transaction.
+         * @param coalesce true to batch saves
+         * @return these options
+         */
+        public Options coalesceSaves(boolean coalesce) {
+            this.coalesceSaves = coalesce;
+            return this;
+        }
+
+        /**
+         * Sets the most saves written in one batch (default 500).
+         * @param saves the batch limit
+         * @return these options
+         */
+        public Options maxSaveBatch(int saves) {
+            if (saves < 1) throw new IllegalArgumentException("Save batch limit must be positive");
+            this.maxSaveBatch = saves;
+            return this;
+        }
+
+        /**
+         * Sets whether the table is created on open if it does not exist (default true).
+         * @param create false when the schema is managed elsewhere
+         * @return these options
+         */
+        public Options createSchema(boolean create) {
+            this.createSchema = create;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.repository;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash table from primitive {@code long} keys to {@code long} offsets.
+ * Uses linear probing over two parallel arrays, so an entry costs 16 bytes and no objects.
+ * Several entries may share a key (for example two URLs with the same hash); callers pass
+ * a predicate that verifies the candidate offset against the real data.
+ * Key {@code 0} is reserved as the empty marker. Not thread-safe.
+ */
+final class LongOffsetTable {
+    /**
+     * Marker for an unused slot.
+     */
+    private static final long EMPTY = 0L;
+    /**
+     * Returned when no entry matches.
+     */
+    static final long NOT_FOUND = -1L;
+
+    private long[] keys;
+    private long[] offsets;
+    private int mask;
+    private int size;
+
+    /**
+     * Creates a table sized for the given number of entries without resizing.
+     * @param expectedSize the expected number of entries
+     */
+    LongOffsetTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Finds the offset of the first entry with the given key accepted by the predicate.
+     * @param key the key (must not be 0)
+     * @param matches verifies a candidate offset
+     * @return the offset, or {@link #NOT_FOUND}
+     */
+    long find(long key, LongPredicate matches) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == EMPTY) {
+                return NOT_FOUND;
+            }
+            if (k == key && matches.test(offsets[i])) {
+                return offsets[i];
+            }
+        }
+    }
+
+    /**
+     * Replaces the offset of the matching entry, or inserts a new entry.
+     * @param key the key (must not be 0)
+     * @param offset the new offset
+     * @param matches verifies a candidate offset
+     * @return the previous offset, or {@link #NOT_FOUND} if the entry was inserted
+     */
+    long put(long key, long offset, LongPredicate matches) {
+        int i = slot(key);
+        for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (keys[i] == key && matches.test(offsets[i])) {
+                long previous = offsets[i];
+                offsets[i] = offset;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        offsets[i] = offset;
+        if (++size * 4 >= keys.length * 3) {
+            resize();
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Removes the first entry with the given key accepted by the predicate.
+     * Uses backward-shift deletion, so no tombstones are left behind.
+     * @param key the key (must not be 0)
+     * @param matches verifies a candidate offset
+     * @return the removed offset, or {@link #NOT_FOUND}
+     */
+    long remove(long key, LongPredicate matches) {
+        int i = slot(key);
+        for (; ; i = (i + 1) & mask) {
+            if (keys[i] == EMPTY) {
+                return NOT_FOUND;
+            }
+            if (keys[i] == key && matches.test(offsets[i])) {
+                break;
+            }
+        }
+        long removed = offsets[i];
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            // Move the entry back unless its home slot lies cyclically in (i, j]
+            boolean stays = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {
+                keys[i] = keys[j];
+                offsets[i] = offsets[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Gets the number of entries.
+     * @return the entry count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the heap footprint of the backing arrays.
+     * @return the size in bytes
+     */
+    long footprintBytes() {
+        return (long) keys.length * Long.BYTES * 2;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        offsets = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldOffsets = offsets;
+        allocate(oldKeys.length << 1);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY) {
+                int i = slot(oldKeys[j]);
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                offsets[i] = oldOffsets[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Binary encoding of URL mappings shared by the file-backed stores and by replication.
+ * A record is {@code [int bodyLength][int crc32(body)][body]} where the body is
+ * {@code [byte type][long createdAt][long expiresAt][int codeLength][code][int urlLength][url]};
+ * the type tells a saved mapping from a removed one.
+ * Timestamps are UTC epoch millis; {@link Long#MIN_VALUE} stands for "no expiry".
+ * A zero body length marks the end of written data in a preallocated file.
+ */
+public final class MappingCodec {
+    /**
+     * Bytes taken by the length and checksum in front of every body.
+     */
+    public static final int RECORD_HEADER = 8;
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+    private static final byte TYPE_SAVE = 1;
+    private static final byte TYPE_REMOVE = 2;
+
+    private MappingCodec() {
+    }
+
+    /**
+     * Encodes the body of a record that saves the mapping.
+     * @param mapping the mapping to encode
+     * @return the body bytes
+     */
+    public static byte[] encodeBody(URLMapping mapping) {
+        return encode(TYPE_SAVE, mapping);
+    }
+
+    /**
+     * Encodes the body of a record that removes the mapping.
+     * @param mapping the mapping to encode
+     * @return the body bytes
+     */
+    public static byte[] encodeRemoval(URLMapping mapping) {
+        return encode(TYPE_REMOVE, mapping);
+    }
+
+    /**
+     * Tells whether a body records a removal.
+     * @param body the body bytes
+     * @return true for a removal, false for a save
+     */
+    public static boolean isRemoval(byte[] body) {
+        return body[0] == TYPE_REMOVE;
+    }
+
+    private static byte[] encode(byte type, URLMapping mapping) {
+        byte[] code = mapping.getShortCode().getBytes(StandardCharsets.UTF_8);
+        byte[] url = mapping.getLongUrl().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(25 + code.length + url.length);
+        body.put(type)
+                .putLong(mapping.getCreatedAtMillis())
+                .putLong(mapping.hasExpiry() ? mapping.getExpiresAtMillis() : NO_EXPIRY)
+                .putInt(code.length).put(code)
+                .putInt(url.length).put(url);
+        return body.array();
+    }
+
+    /**
+     * Decodes a record body.
+     * @param body the body bytes
+     * @return the mapping
+     */
+    public static URLMapping decodeBody(byte[] body) {
+        return decodeBody(body, body.length);
+    }
+
+    /**
+     * Decodes a record body held at the start of a possibly larger, reused array.
+     * @param body the array holding the body
+     * @param length the body length
+     * @return the mapping
+     */
+    static URLMapping decodeBody(byte[] body, int length) {
+        ByteBuffer buffer = ByteBuffer.wrap(body, 1, length - 1);
+        long createdAt = buffer.getLong();
+        long expiresAt = buffer.getLong();
+        int codeLength = buffer.getInt();
+        String code = new String(body, buffer.position(), codeLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + codeLength);
+        int urlLength = buffer.getInt();
+        String url = new String(body, buffer.position(), urlLength, StandardCharsets.UTF_8);
+        return new URLMapping(code, url, createdAt, expiresAt == NO_EXPIRY ? URLMapping.NO_EXPIRY : expiresAt);
+    }
+
+    /**
+     * Writes a full record (header and body) at the buffer's position.
+     * @param buffer the target buffer, with at least {@code RECORD_HEADER + body.length} bytes remaining
+     * @param body the encoded body
+     */
+    public static void writeRecord(ByteBuffer buffer, byte[] body) {
+        buffer.putInt(body.length).putInt(checksum(body)).put(body);
+    }
+
+    /**
+     * Reads the record at the buffer's position.
+     * On success the position moves past the record; otherwise it is left unchanged.
+     * @param buffer the source buffer
+     * @return the record body, or null at end of data or on a torn or corrupt record
+     */
+    public static byte[] readRecord(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < RECORD_HEADER) {
+            return null;
+        }
+        int length = buffer.getInt(start);
+        if (length <= 0 || length > buffer.remaining() - RECORD_HEADER) {
+            return null;
+        }
+        byte[] body = new byte[length];
+        buffer.get(start + RECORD_HEADER, body);
+        if (checksum(body) != buffer.getInt(start + 4)) {
+            return null;
+        }
+        buffer.position(start + RECORD_HEADER + length);
+        return body;
+    }
+
+    /**
+     * Computes the CRC32 of a body.
+     * @param body the body bytes
+     * @return the checksum
+     */
+    static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
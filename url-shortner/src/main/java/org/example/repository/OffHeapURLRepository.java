@@ -0,0 +1,462 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compact implementation of the URLRepository interface for very large mapping counts.
+ * Keeps no per-mapping objects on the heap:
+ * <ul>
+ *     <li>Base62 short codes of up to 10 characters are decoded to {@code long} keys in a
+ *     primitive open-addressing table; other codes are keyed by hash and verified.</li>
+ *     <li>URL bytes, code keys and creation/expiry epochs live in an append-only arena of
+ *     direct {@link ByteBuffer} chunks.</li>
+ *     <li>The reverse url-to-mapping index is keyed by a 64-bit URL hash and verified
+ *     against the stored URL bytes.</li>
+ * </ul>
+ * {@link URLMapping} objects are materialized only when returned. Timestamps are stored as
+ * UTC epoch millis, so sub-millisecond precision is dropped. Overwritten records stay in the
+ * arena until the repository is discarded. Reads share a read lock; writes are exclusive.
+ */
+public class OffHeapURLRepository implements URLRepository {
+    /**
+     * Alphabet used to turn base62 short codes into numeric keys.
+     */
+    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    /**
+     * Longest code that fits a {@code long} in bijective base62.
+     */
+    private static final int MAX_COMPACT_CODE_LENGTH = 10;
+    private static final int[] DIGITS = new int[128];
+    /**
+     * Stored in place of a missing expiry.
+     */
+    private static final long NO_EXPIRY = Long.MIN_VALUE;
+    /**
+     * Default arena chunk size (16 MB).
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+    // Record layout: codeKey, createdAt, expiresAt, codeLength, urlLength, code bytes, url bytes
+    private static final int CODE_KEY = 0;
+    private static final int CREATED_AT = 8;
+    private static final int EXPIRES_AT = 16;
+    private static final int CODE_LENGTH = 24;
+    private static final int URL_LENGTH = 28;
+    private static final int HEADER = 32;
+
+    static {
+        Arrays.fill(DIGITS, -1);
+        for (int i = 0; i < BASE62.length(); i++) {
+            DIGITS[BASE62.charAt(i)] = i;
+        }
+    }
+
+    private final LongOffsetTable codeIndex;
+    private final LongOffsetTable urlIndex;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final int chunkSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ByteBuffer current;
+    private long usedBytes;
+
+    /**
+     * Creates an empty repository with default sizing.
+     */
+    public OffHeapURLRepository() {
+        this(1024, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates an empty repository.
+     * @param expectedMappings the number of mappings to size the indexes for
+     * @param chunkSize the size of each off-heap arena chunk in bytes
+     */
+    public OffHeapURLRepository(int expectedMappings, int chunkSize) {
+        if (chunkSize < HEADER) throw new IllegalArgumentException("Chunk size must be at least " + HEADER + " bytes");
+        this.codeIndex = new LongOffsetTable(expectedMappings);
+        this.urlIndex = new LongOffsetTable(expectedMappings);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Saves a URL mapping in both indexes, replacing any mapping with the same code or URL.
+     * @param mapping the URLMapping to save
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        Record record = new Record(mapping);
+        lock.writeLock().lock();
+        try {
+            insert(record);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        Record record = new Record(mapping);
+        lock.writeLock().lock();
+        try {
+            if (findCode(record.codeKey, record.codeBytes) != LongOffsetTable.NOT_FOUND) {
+                return false;
+            }
+            insert(record);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        Record record = new Record(candidate);
+        long now = URLMapping.toEpochMillis(LocalDateTime.now());
+        lock.writeLock().lock();
+        try {
+            return findOrInsert(record, candidate, now);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Candidates are encoded before the write lock is taken once for the whole batch.
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        List<Record> records = new ArrayList<>(candidates.size());
+        for (URLMapping candidate : candidates) {
+            records.add(new Record(candidate));
+        }
+        long now = URLMapping.toEpochMillis(LocalDateTime.now());
+        List<URLMapping> stored = new ArrayList<>(candidates.size());
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < candidates.size(); i++) {
+                stored.add(findOrInsert(records.get(i), candidates.get(i), now));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return stored;
+    }
+
+    /**
+     * Caller holds the write lock.
+     */
+    private URLMapping findOrInsert(Record record, URLMapping candidate, long now) {
+        long existing = findUrl(record.urlHash, record.urlBytes);
+        if (existing != LongOffsetTable.NOT_FOUND && !isExpired(existing, now)) {
+            return read(existing);
+        }
+        if (findCode(record.codeKey, record.codeBytes) != LongOffsetTable.NOT_FOUND) {
+            return null;
+        }
+        insert(record);
+        return candidate;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The arena space of the removed record is not reclaimed.
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        Record record = new Record(mapping);
+        lock.writeLock().lock();
+        try {
+            long address = findCode(record.codeKey, record.codeBytes);
+            if (address == LongOffsetTable.NOT_FOUND || !sameRecord(address, record)) {
+                return false;
+            }
+            codeIndex.remove(record.codeKey, a -> a == address);
+            urlIndex.remove(record.urlHash, a -> a == address);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds a URL mapping by its short code.
+     * @param shortCode the short code
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        long key = codeKey(shortCode);
+        byte[] codeBytes = key < 0 ? shortCode.getBytes(StandardCharsets.UTF_8) : null;
+        lock.readLock().lock();
+        try {
+            long address = findCode(key, codeBytes);
+            return address == LongOffsetTable.NOT_FOUND ? null : read(address);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The whole batch is looked up under one read-lock acquisition.
+     */
+    @Override
+    public Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+        Map<String, URLMapping> found = new HashMap<>(shortCodes.size() * 4 / 3 + 1);
+        lock.readLock().lock();
+        try {
+            for (String shortCode : shortCodes) {
+                long key = codeKey(shortCode);
+                long address = findCode(key, key < 0 ? shortCode.getBytes(StandardCharsets.UTF_8) : null);
+                if (address != LongOffsetTable.NOT_FOUND) {
+                    found.put(shortCode, read(address));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return found;
+    }
+
+    /**
+     * Finds a URL mapping by its original long URL.
+     * @param longUrl the original long URL
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        byte[] urlBytes = longUrl.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(urlBytes);
+        lock.readLock().lock();
+        try {
+            long address = findUrl(hash, urlBytes);
+            return address == LongOffsetTable.NOT_FOUND ? null : read(address);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of distinct short codes stored.
+     * @return the mapping count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return codeIndex.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of arena bytes written so far, including overwritten records.
+     * @return the used off-heap bytes
+     */
+    public long offHeapBytesUsed() {
+        lock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the heap footprint of the two primitive index tables.
+     * @return the index size in bytes
+     */
+    public long indexBytes() {
+        lock.readLock().lock();
+        try {
+            return codeIndex.footprintBytes() + urlIndex.footprintBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(Record record) {
+        long address = append(record);
+        codeIndex.put(record.codeKey, address, a -> codeMatches(a, record.codeBytes));
+        urlIndex.put(record.urlHash, address, a -> urlMatches(a, record.urlBytes));
+    }
+
+    private long findCode(long key, byte[] codeBytes) {
+        return codeIndex.find(key, a -> codeMatches(a, codeBytes));
+    }
+
+    private long findUrl(long hash, byte[] urlBytes) {
+        return urlIndex.find(hash, a -> urlMatches(a, urlBytes));
+    }
+
+    private long append(Record record) {
+        int length = HEADER + (record.codeBytes == null ? 0 : record.codeBytes.length) + record.urlBytes.length;
+        if (current == null || current.remaining() < length) {
+            current = ByteBuffer.allocateDirect(Math.max(chunkSize, length));
+            chunks.add(current);
+        }
+        int offset = current.position();
+        current.putLong(record.codeKey)
+                .putLong(record.createdAt)
+                .putLong(record.expiresAt)
+                .putInt(record.codeBytes == null ? 0 : record.codeBytes.length)
+                .putInt(record.urlBytes.length);
+        if (record.codeBytes != null) {
+            current.put(record.codeBytes);
+        }
+        current.put(record.urlBytes);
+        usedBytes += length;
+        return ((long) (chunks.size() - 1) << 32) | offset;
+    }
+
+    private URLMapping read(long address) {
+        ByteBuffer chunk = chunks.get((int) (address >>> 32));
+        int offset = (int) address;
+        long key = chunk.getLong(offset + CODE_KEY);
+        int codeLength = chunk.getInt(offset + CODE_LENGTH);
+        byte[] url = new byte[chunk.getInt(offset + URL_LENGTH)];
+        chunk.get(offset + HEADER + codeLength, url);
+        String code;
+        if (codeLength == 0) {
+            code = decodeCode(key);
+        } else {
+            byte[] codeBytes = new byte[codeLength];
+            chunk.get(offset + HEADER, codeBytes);
+            code = new String(codeBytes, StandardCharsets.UTF_8);
+        }
+        long expiresAt = chunk.getLong(offset + EXPIRES_AT);
+        return new URLMapping(code, new String(url, StandardCharsets.UTF_8), chunk.getLong(offset + CREATED_AT),
+                expiresAt == NO_EXPIRY ? URLMapping.NO_EXPIRY : expiresAt);
+    }
+
+    private boolean isExpired(long address, long nowMillis) {
+        long expiresAt = chunks.get((int) (address >>> 32)).getLong((int) address + EXPIRES_AT);
+        return expiresAt != NO_EXPIRY && nowMillis > expiresAt;
+    }
+
+    private boolean sameRecord(long address, Record record) {
+        ByteBuffer chunk = chunks.get((int) (address >>> 32));
+        int offset = (int) address;
+        return chunk.getLong(offset + CREATED_AT) == record.createdAt
+                && chunk.getLong(offset + EXPIRES_AT) == record.expiresAt
+                && urlMatches(address, record.urlBytes);
+    }
+
+    private boolean codeMatches(long address, byte[] codeBytes) {
+        if (codeBytes == null) {
+            return true;
+        }
+        ByteBuffer chunk = chunks.get((int) (address >>> 32));
+        int offset = (int) address;
+        return chunk.getInt(offset + CODE_LENGTH) == codeBytes.length
+                && bytesEqual(chunk, offset + HEADER, codeBytes);
+    }
+
+    private boolean urlMatches(long address, byte[] urlBytes) {
+        ByteBuffer chunk = chunks.get((int) (address >>> 32));
+        int offset = (int) address;
+        return chunk.getInt(offset + URL_LENGTH) == urlBytes.length
+                && bytesEqual(chunk, offset + HEADER + chunk.getInt(offset + CODE_LENGTH), urlBytes);
+    }
+
+    private static boolean bytesEqual(ByteBuffer chunk, int offset, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (chunk.get(offset + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a short code to its index key.
+     * Base62 codes of up to 10 characters map one-to-one onto positive keys using bijective
+     * base62, so they need no verification. Any other code maps to a negative hash key.
+     */
+    private static long codeKey(String code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_COMPACT_CODE_LENGTH) {
+            return hashedCodeKey(code);
+        }
+        long key = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            int digit = c < 128 ? DIGITS[c] : -1;
+            if (digit < 0) {
+                return hashedCodeKey(code);
+            }
+            key = key * 62 + digit + 1;
+        }
+        return key;
+    }
+
+    private static long hashedCodeKey(String code) {
+        return hash(code.getBytes(StandardCharsets.UTF_8)) | Long.MIN_VALUE;
+    }
+
+    private static String decodeCode(long key) {
+        char[] buffer = new char[MAX_COMPACT_CODE_LENGTH];
+        int pos = buffer.length;
+        while (key > 0) {
+            key--;
+            buffer[--pos] = BASE62.charAt((int) (key % 62));
+            key /= 62;
+        }
+        return new String(buffer, pos, buffer.length - pos);
+    }
+
+    /**
+     * 64-bit FNV-1a hash with a final avalanche step; never returns the reserved 0 key.
+     */
+    private static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * A mapping encoded for the arena, prepared before the write lock is taken.
+     */
+    private static final class Record {
+        final long codeKey;
+        final byte[] codeBytes;
+        final byte[] urlBytes;
+        final long urlHash;
+        final long createdAt;
+        final long expiresAt;
+
+        Record(URLMapping mapping) {
+            this.codeKey = codeKey(mapping.getShortCode());
+            this.codeBytes = codeKey < 0 ? mapping.getShortCode().getBytes(StandardCharsets.UTF_8) : null;
+            this.urlBytes = mapping.getLongUrl().getBytes(StandardCharsets.UTF_8);
+            this.urlHash = hash(urlBytes);
+            this.createdAt = mapping.getCreatedAtMillis();
+            this.expiresAt = mapping.hasExpiry() ? mapping.getExpiresAtMillis() : NO_EXPIRY;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory URLRepository split into independent shards.
+ * A mapping is stored by short code in the shard its code hashes to, and by long URL in the
+ * shard its URL hashes to, so the two indexes are partitioned separately and a lookup touches
+ * exactly one small map. Each shard has its own write lock, which guards every write for a long
+ * URL hashing to that shard: {@link #findOrSave(URLMapping)} for one URL is serialized, writers
+ * for URLs in different shards never wait on each other, and reads never lock.
+ * <p>
+ * The shard count can be changed at runtime with {@link #reshard(int)}, which holds every
+ * shard's lock while it moves the mappings into the new layout. Reads keep going against the
+ * old layout meanwhile; writers wait and then retry against the new one.
+ */
+public class ShardedURLRepository implements URLRepository {
+    private volatile Shard[] shards;
+
+    /**
+     * Creates a repository with one shard per available processor.
+     */
+    public ShardedURLRepository() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a repository.
+     * @param shardCount the number of shards
+     */
+    public ShardedURLRepository(int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("Shard count must be positive");
+        this.shards = newShards(shardCount, 16);
+    }
+
+    /**
+     * Saves a URL mapping in both indexes, replacing any mapping for its code or URL.
+     * As in {@link InMemoryURLRepository}, the mapping is visible by code before it is visible by URL.
+     * @param mapping the URLMapping to save
+     */
+    @Override
+    public void save(URLMapping mapping) {
+        writeByUrl(mapping.getLongUrl(), (layout, urlShard) -> {
+            shardFor(layout, mapping.getShortCode()).byCode.put(mapping.getShortCode(), mapping);
+            urlShard.byUrl.put(mapping.getLongUrl(), mapping);
+            return null;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean saveIfAbsent(URLMapping mapping) {
+        return writeByUrl(mapping.getLongUrl(), (layout, urlShard) -> {
+            if (shardFor(layout, mapping.getShortCode()).byCode.putIfAbsent(mapping.getShortCode(), mapping) != null) {
+                return false;
+            }
+            urlShard.byUrl.put(mapping.getLongUrl(), mapping);
+            return true;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public URLMapping findOrSave(URLMapping candidate) {
+        return writeByUrl(candidate.getLongUrl(), (layout, urlShard) -> findOrSave(layout, urlShard, candidate));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Locks each shard the batch's URLs hash to once, in shard order, instead of once per candidate.
+     */
+    @Override
+    public List<URLMapping> saveAll(List<URLMapping> candidates) {
+        for (;;) {
+            Shard[] layout = shards;
+            boolean[] needed = new boolean[layout.length];
+            for (URLMapping candidate : candidates) {
+                needed[indexFor(layout.length, candidate.getLongUrl())] = true;
+            }
+            // Ascending order, the same order reshard uses, so batches never deadlock.
+            int locked = 0;
+            for (; locked < layout.length; locked++) {
+                if (needed[locked]) {
+                    layout[locked].lock.lock();
+                }
+            }
+            try {
+                if (layout != shards) {
+                    continue;
+                }
+                List<URLMapping> stored = new ArrayList<>(candidates.size());
+                for (URLMapping candidate : candidates) {
+                    stored.add(findOrSave(layout, shardFor(layout, candidate.getLongUrl()), candidate));
+                }
+                return stored;
+            } finally {
+                for (int i = locked - 1; i >= 0; i--) {
+                    if (needed[i]) {
+                        layout[i].lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The URL entry is removed before the code entry, so a mapping never stays
+     * reachable by URL after it has become unreachable by code.
+     */
+    @Override
+    public boolean remove(URLMapping mapping) {
+        return writeByUrl(mapping.getLongUrl(), (layout, urlShard) -> {
+            urlShard.byUrl.remove(mapping.getLongUrl(), mapping);
+            return shardFor(layout, mapping.getShortCode()).byCode.remove(mapping.getShortCode(), mapping);
+        });
+    }
+
+    /**
+     * Finds a URL mapping by its short code.
+     * @param shortCode the short code
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByShortCode(String shortCode) {
+        return shardFor(shards, shortCode).byCode.get(shortCode);
+    }
+
+    /**
+     * Finds a URL mapping by its original long URL.
+     * @param longUrl the original long URL
+     * @return the URLMapping if found, otherwise null
+     */
+    @Override
+    public URLMapping findByLongUrl(String longUrl) {
+        return shardFor(shards, longUrl).byUrl.get(longUrl);
+    }
+
+    /**
+     * Visits every mapping reachable by short code.
+     * Iteration is weakly consistent: it never blocks writers and may or may not
+     * reflect writes that happen while it runs.
+     * @param action the action to apply to each mapping
+     */
+    public void forEach(Consumer<URLMapping> action) {
+        for (Shard shard : shards) {
+            shard.byCode.values().forEach(action);
+        }
+    }
+
+    /**
+     * Gets the current number of shards.
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Moves every mapping into a new layout with a different number of shards.
+     * Writers are held off until the move is done; the move itself is spread over the
+     * common fork-join pool, one old shard per task. Reads are not blocked.
+     * @param shardCount the new number of shards
+     */
+    public synchronized void reshard(int shardCount) {
+        if (shardCount < 1) throw new IllegalArgumentException("Shard count must be positive");
+        Shard[] old = shards;
+        if (shardCount == old.length) {
+            return;
+        }
+        for (Shard shard : old) {
+            shard.lock.lock();
+        }
+        try {
+            long mappings = 0;
+            for (Shard shard : old) {
+                mappings += shard.byCode.size();
+            }
+            Shard[] resized = newShards(shardCount, (int) Math.min(mappings / shardCount + 16, 1 << 30));
+            IntStream.range(0, old.length).parallel().forEach(i -> {
+                for (URLMapping mapping : old[i].byCode.values()) {
+                    shardFor(resized, mapping.getShortCode()).byCode.put(mapping.getShortCode(), mapping);
+                }
+                for (Map.Entry<String, URLMapping> entry : old[i].byUrl.entrySet()) {
+                    shardFor(resized, entry.getKey()).byUrl.put(entry.getKey(), entry.getValue());
+                }
+            });
+            shards = resized;
+        } finally {
+            for (int i = old.length - 1; i >= 0; i--) {
+                old[i].lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of mappings stored by short code in each shard.
+     */
+    int[] shardSizes() {
+        Shard[] layout = shards;
+        int[] sizes = new int[layout.length];
+        for (int i = 0; i < layout.length; i++) {
+            sizes[i] = layout[i].byCode.size();
+        }
+        return sizes;
+    }
+
+    /**
+     * Caller holds the lock of the URL's shard.
+     */
+    private static URLMapping findOrSave(Shard[] layout, Shard urlShard, URLMapping candidate) {
+        URLMapping existing = urlShard.byUrl.get(candidate.getLongUrl());
+        if (existing != null && !existing.isExpired()) {
+            return existing;
+        }
+        if (shardFor(layout, candidate.getShortCode()).byCode.putIfAbsent(candidate.getShortCode(), candidate) != null) {
+            return null;
+        }
+        urlShard.byUrl.put(candidate.getLongUrl(), candidate);
+        return candidate;
+    }
+
+    /**
+     * Runs a write holding the lock of the URL's shard in the current layout. If a reshard
+     * replaced the layout while the lock was awaited, the write is retried in the new one.
+     */
+    private <T> T writeByUrl(String longUrl, Write<T> write) {
+        for (;;) {
+            Shard[] layout = shards;
+            Shard urlShard = shardFor(layout, longUrl);
+            urlShard.lock.lock();
+            try {
+                if (layout == shards) {
+                    return write.apply(layout, urlShard);
+                }
+            } finally {
+                urlShard.lock.unlock();
+            }
+        }
+    }
+
+    private static Shard shardFor(Shard[] layout, String key) {
+        return layout[indexFor(layout.length, key)];
+    }
+
+    /**
+     * Maps a key to a shard with a multiply-shift over a fully mixed hash. Taking the hash's
+     * low bits instead would leave every key in a shard with the same low bits, and the
+     * shard's own hash map would then use only a fraction of its bins.
+     */
+    private static int indexFor(int shardCount, String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return (int) (((h & 0xffffffffL) * shardCount) >>> 32);
+    }
+
+    private static Shard[] newShards(int shardCount, int initialCapacity) {
+        Shard[] created = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            created[i] = new Shard(initialCapacity);
+        }
+        return created;
+    }
+
+    @FunctionalInterface
+    private interface Write<T> {
+        T apply(Shard[] layout, Shard urlShard);
+    }
+
+    /**
+     * One partition of each index, and the lock for writes to URLs hashing here.
+     */
+    private static final class Shard {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<String, URLMapping> byCode;
+        final Map<String, URLMapping> byUrl;
+
+        Shard(int initialCapacity) {
+            byCode = new ConcurrentHashMap<>(initialCapacity);
+            byUrl = new ConcurrentHashMap<>(initialCapacity);
+        }
+    }
+}
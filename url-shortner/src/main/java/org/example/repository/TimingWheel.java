@@ -0,0 +1,113 @@
+package org.example.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel that hands back items once their deadline has passed.
+ * Each of the 11 levels has 64 slots; a level-{@code L} slot spans {@code 64^L} ticks,
+ * so scheduling and expiring are O(1) and an item is moved down a level at most
+ * 10 times before it fires. Deadlines are rounded up to the next tick, so items fire
+ * no earlier than their deadline and at most one tick (plus sweep delay) late.
+ * Not thread-safe: one owner thread schedules and advances.
+ * @param <T> the item type
+ */
+final class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 11;
+
+    private final long tickMillis;
+    private final List<List<Entry<T>>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates an empty wheel.
+     * @param tickMillis the resolution of the wheel
+     * @param startMillis the current time
+     */
+    TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis < 1) throw new IllegalArgumentException("Tick must be at least 1 ms");
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Schedules an item.
+     * @param item the item
+     * @param deadlineMillis when the item is due
+     * @param due receives the item immediately if its deadline has already passed
+     */
+    void schedule(T item, long deadlineMillis, List<T> due) {
+        long deadlineTick = Math.floorDiv(deadlineMillis, tickMillis)
+                + (Math.floorMod(deadlineMillis, tickMillis) == 0 ? 0 : 1);
+        place(new Entry<>(item, deadlineTick), due);
+    }
+
+    /**
+     * Advances the wheel to the given time, collecting every item that became due.
+     * @param nowMillis the current time
+     * @param due receives the due items
+     */
+    void advance(long nowMillis, List<T> due) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        while (currentTick < targetTick) {
+            currentTick++;
+            int topLevel = Math.min(LEVELS - 1, Long.numberOfTrailingZeros(currentTick) / SLOT_BITS);
+            for (int level = topLevel; level >= 1; level--) {
+                List<Entry<T>> slot = slot(level, currentTick);
+                if (!slot.isEmpty()) {
+                    List<Entry<T>> cascading = new ArrayList<>(slot);
+                    size -= slot.size();
+                    slot.clear();
+                    for (Entry<T> entry : cascading) {
+                        place(entry, due);
+                    }
+                }
+            }
+            List<Entry<T>> expiring = slot(0, currentTick);
+            for (Entry<T> entry : expiring) {
+                due.add(entry.item);
+            }
+            size -= expiring.size();
+            expiring.clear();
+        }
+    }
+
+    /**
+     * Gets the number of scheduled items.
+     * @return the item count
+     */
+    int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry, List<T> due) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta <= 0) {
+            due.add(entry.item);
+            return;
+        }
+        int level = Math.min(LEVELS - 1, (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS);
+        slot(level, entry.deadlineTick).add(entry);
+        size++;
+    }
+
+    private List<Entry<T>> slot(int level, long tick) {
+        return slots.get(level * SLOTS + (int) ((tick >>> (level * SLOT_BITS)) & (SLOTS - 1)));
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final long deadlineTick;
+
+        Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -2,6 +2,12 @@ package org.example.repository;
 
 import org.example.model.URLMapping;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Repository interface for storing and retrieving URL mappings.
  * Implementations may use in-memory, database, or distributed storage.
@@ -13,6 +19,48 @@ public interface URLRepository {
      */
     void save(URLMapping mapping);
 
+    /**
+     * Saves a URL mapping only if its short code is not already taken.
+     * The check and the save happen atomically.
+     * @param mapping the URLMapping to save
+     * @return true if the mapping was saved, false if the short code is in use
+     */
+    boolean saveIfAbsent(URLMapping mapping);
+
+    /**
+     * Returns the live (non-expired) mapping for the candidate's long URL,
+     * saving the candidate if there is none. The check and the save happen atomically.
+     * @param candidate the mapping to save when the long URL has no live mapping
+     * @return the existing live mapping, the candidate if it was saved,
+     *         or null if the candidate's short code is already taken
+     */
+    URLMapping findOrSave(URLMapping candidate);
+
+    /**
+     * Batch form of {@link #findOrSave(URLMapping)}: applies it to every candidate in order,
+     * so a later candidate sees the mappings saved for earlier ones. Each candidate is
+     * checked and saved atomically; the batch as a whole is not atomic. Implementations
+     * override this to amortize locking or durability work over the batch.
+     * @param candidates the mappings to save
+     * @return for each candidate, in order: the existing live mapping for its long URL,
+     *         the candidate if it was saved, or null if its short code is already taken
+     */
+    default List<URLMapping> saveAll(List<URLMapping> candidates) {
+        List<URLMapping> stored = new ArrayList<>(candidates.size());
+        for (URLMapping candidate : candidates) {
+            stored.add(findOrSave(candidate));
+        }
+        return stored;
+    }
+
+    /**
+     * Removes a URL mapping, but only while it is still the stored mapping for its
+     * short code; a newer mapping saved under the same code or URL is left alone.
+     * @param mapping the URLMapping to remove
+     * @return true if the mapping was removed
+     */
+    boolean remove(URLMapping mapping);
+
     /**
      * Finds a URL mapping by its short code.
      * @param shortCode the short code
@@ -20,10 +68,40 @@ public interface URLRepository {
      */
     URLMapping findByShortCode(String shortCode);
 
+    /**
+     * Finds the URL mappings for several short codes in one call.
+     * Remote or lock-based implementations override this to answer the whole batch in one
+     * round trip or one lock acquisition.
+     * @param shortCodes the short codes
+     * @return the mappings found, keyed by short code; codes without a mapping are absent
+     */
+    default Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+        Map<String, URLMapping> found = new HashMap<>(shortCodes.size() * 4 / 3 + 1);
+        for (String shortCode : shortCodes) {
+            URLMapping mapping = findByShortCode(shortCode);
+            if (mapping != null) {
+                found.put(shortCode, mapping);
+            }
+        }
+        return found;
+    }
+
     /**
      * Finds a URL mapping by its original long URL.
      * @param longUrl the original long URL
      * @return the URLMapping if found, otherwise null
      */
     URLMapping findByLongUrl(String longUrl);
+
+    /**
+     * Cheap, possibly wrong hint that a short code is already in use, answered without a
+     * round trip to the backing store. Callers may use it to skip a code before attempting
+     * an atomic write; the write itself stays the authority on collisions.
+     * @param shortCode the short code
+     * @return true if the code is probably taken; false if it is free or the
+     *         implementation has no cheap way to tell
+     */
+    default boolean isShortCodeProbablyTaken(String shortCode) {
+        return false;
+    }
 }
@@ -0,0 +1,685 @@
+package org.example.server;
+
+import org.example.metrics.Metrics;
+import org.example.service.URLShortenerService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Minimal HTTP/1.1 front end for a {@link URLShortenerService}.
+ * <ul>
+ *     <li>{@code GET /{code}} answers with a redirect to the original URL, or 404.</li>
+ *     <li>{@code POST /shorten} takes the long URL as the request body and answers 201 with
+ *     the short code as the body, or 400 if the URL is rejected.</li>
+ *     <li>{@code GET /metrics} answers with a {@link Metrics} snapshot in the Prometheus text
+ *     format, if the server was given a registry.</li>
+ * </ul>
+ * Each connection is served by its own virtual thread with its own read and write buffers,
+ * and is kept alive until the client closes it, sends {@code Connection: close}, or stays idle
+ * past the timeout. An idle connection parks its virtual thread in a timed read and costs only
+ * its buffers, so idle keep-alive clients never hold up other connections. Status lines and
+ * headers are preallocated byte arrays, so a redirect allocates only the short-code string it
+ * looks up. Requests on one connection may be pipelined. Bodies must be sent with
+ * {@code Content-Length}; a request with {@code Transfer-Encoding} is answered 501 and its
+ * connection closed.
+ * Once {@code maxConnections} are open, new connections wait in the accept backlog.
+ */
+public class RedirectServer implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(RedirectServer.class.getName());
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+    private static final byte[] FOUND = ascii("HTTP/1.1 302 Found\r\nLocation: ");
+    private static final byte[] MOVED_PERMANENTLY = ascii("HTTP/1.1 301 Moved Permanently\r\nLocation: ");
+    private static final byte[] REDIRECT_END = ascii("\r\nContent-Length: 0\r\n\r\n");
+    private static final byte[] CREATED = ascii("HTTP/1.1 201 Created\r\nContent-Type: text/plain\r\nContent-Length: ");
+    private static final byte[] BAD_REQUEST = ascii("HTTP/1.1 400 Bad Request\r\nContent-Type: text/plain\r\nContent-Length: ");
+    private static final byte[] HEADERS_END = ascii("\r\n\r\n");
+    private static final byte[] NOT_FOUND = ascii("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\n\r\n");
+    private static final byte[] METHOD_NOT_ALLOWED = ascii("HTTP/1.1 405 Method Not Allowed\r\nContent-Length: 0\r\n\r\n");
+    private static final byte[] NOT_IMPLEMENTED = ascii("HTTP/1.1 501 Not Implemented\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+    private static final byte[] TOO_LARGE = ascii("HTTP/1.1 413 Payload Too Large\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+    private static final byte[] OK_METRICS = ascii("HTTP/1.1 200 OK\r\nContent-Type: text/plain; version=0.0.4; charset=utf-8\r\nContent-Length: ");
+    private static final byte[] SERVICE_UNAVAILABLE = ascii("HTTP/1.1 503 Service Unavailable\r\nContent-Type: text/plain\r\nContent-Length: ");
+    private static final byte[] GET = ascii("GET");
+    private static final byte[] POST = ascii("POST");
+    private static final byte[] SHORTEN_PATH = ascii("/shorten");
+    private static final byte[] METRICS_PATH = ascii("/metrics");
+    private static final byte[] CONTENT_LENGTH = ascii("\ncontent-length:");
+    private static final byte[] TRANSFER_ENCODING = ascii("\ntransfer-encoding:");
+    private static final byte[] CONNECTION = ascii("\nconnection:");
+    private static final byte[] CLOSE = ascii("close");
+
+    private final URLShortenerService service;
+    private final Options options;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Semaphore connectionSlots;
+    private final Set<Socket> open = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder connectionErrors = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Starts a server on the given port with default options.
+     * @param service the service to serve
+     * @param port the port to listen on; 0 picks a free one
+     */
+    public RedirectServer(URLShortenerService service, int port) {
+        this(service, new Options().port(port));
+    }
+
+    /**
+     * Starts a server.
+     * @param service the service to serve
+     * @param options the port, connection and redirect settings
+     */
+    public RedirectServer(URLShortenerService service, Options options) {
+        this.service = service;
+        this.options = options;
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(options.port), options.backlog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to listen on port " + options.port, e);
+        }
+        connectionSlots = new Semaphore(options.maxConnections);
+        connections = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("url-http-", 0).factory());
+        acceptor = new Thread(this::acceptLoop, "url-http-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Gets the port the server listens on.
+     * @return the bound port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the number of requests answered so far.
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Gets the number of connections dropped by an I/O error other than a timeout or reset.
+     * @return the error count
+     */
+    public long getConnectionErrorCount() {
+        return connectionErrors.sum();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Already closed.
+        }
+        for (Socket socket : open) {
+            closeQuietly(socket);
+        }
+        connections.shutdownNow();
+        try {
+            acceptor.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                connectionSlots.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(options.idleTimeoutMillis);
+            } catch (IOException e) {
+                connectionSlots.release();
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            open.add(socket);
+            connections.execute(() -> {
+                try {
+                    new Connection(socket).serve();
+                } finally {
+                    open.remove(socket);
+                    closeQuietly(socket);
+                    connectionSlots.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * One keep-alive connection and its reusable buffers. Only its thread touches it.
+     */
+    private final class Connection {
+        private final Socket socket;
+        private final byte[] in;
+        private final byte[] out;
+        private OutputStream output;
+        private int outLength;
+        /**
+         * Unconsumed bytes are {@code in[start, end)}.
+         */
+        private int start;
+        private int end;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+            this.in = new byte[options.bufferSize];
+            this.out = new byte[options.bufferSize];
+        }
+
+        void serve() {
+            try {
+                InputStream input = socket.getInputStream();
+                output = socket.getOutputStream();
+                boolean keepAlive = true;
+                while (keepAlive && !closed) {
+                    int headerEnd = readHeaders(input);
+                    if (headerEnd < 0) {
+                        break;
+                    }
+                    keepAlive = handle(input, headerEnd);
+                    requests.increment();
+                }
+                flush();
+            } catch (SocketTimeoutException | SocketException e) {
+                // Idle timeout, client reset or server shutdown.
+            } catch (IOException e) {
+                if (!closed) {
+                    connectionErrors.increment();
+                    LOG.log(Level.WARNING, "HTTP connection failed", e);
+                }
+            }
+        }
+
+        /**
+         * Reads until the buffered data holds a complete header block.
+         * @return the index just past the blank line, or -1 if the client closed the
+         *         connection or the headers do not fit in the buffer
+         */
+        private int readHeaders(InputStream input) throws IOException {
+            int scanned = 0;
+            while (true) {
+                for (int i = start + Math.max(scanned, 3); i < end; i++) {
+                    if (in[i] == '\n' && in[i - 1] == '\r' && in[i - 2] == '\n' && in[i - 3] == '\r') {
+                        return i + 1;
+                    }
+                }
+                // Relative to start, which fill may move.
+                scanned = end - start;
+                if (!fill(input)) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * Reads more bytes, first moving unconsumed bytes to the front of the buffer.
+         * Queued responses are written before blocking, so pipelined requests that were
+         * already buffered are answered with one write.
+         * @return false at end of stream or when the buffer is full of one request
+         */
+        private boolean fill(InputStream input) throws IOException {
+            flush();
+            if (start > 0) {
+                System.arraycopy(in, start, in, 0, end - start);
+                end -= start;
+                start = 0;
+            }
+            if (end == in.length) {
+                append(TOO_LARGE);
+                return false;
+            }
+            int read = input.read(in, end, in.length - end);
+            if (read < 0) {
+                return false;
+            }
+            end += read;
+            return true;
+        }
+
+        /**
+         * Handles the request whose headers end at {@code headerEnd} and queues its response.
+         * @return whether the connection stays open
+         */
+        private boolean handle(InputStream input, int headerEnd) throws IOException {
+            int lineEnd = indexOf(in, '\r', start, headerEnd);
+            int methodEnd = indexOf(in, ' ', start, lineEnd);
+            int targetEnd = methodEnd < 0 ? -1 : indexOf(in, ' ', methodEnd + 1, lineEnd);
+            if (targetEnd < 0) {
+                reply(BAD_REQUEST, "Malformed request line");
+                return false;
+            }
+            boolean http10 = lineEnd - targetEnd == 9 && in[lineEnd - 1] == '0';
+            boolean close = http10 || hasConnectionClose(lineEnd, headerEnd);
+            if (indexOfIgnoreCase(in, TRANSFER_ENCODING, lineEnd, headerEnd) >= 0) {
+                // The body's framing is unknown, so its bytes cannot be told from the next request.
+                append(NOT_IMPLEMENTED);
+                return false;
+            }
+            long contentLength = contentLength(lineEnd, headerEnd);
+            if (contentLength < 0 || contentLength > in.length - (headerEnd - start)) {
+                append(TOO_LARGE);
+                return false;
+            }
+            int requestStart = start;
+            int targetStart = methodEnd + 1;
+            int bodyEnd = readBody(input, headerEnd, (int) contentLength);
+            if (bodyEnd < 0) {
+                return false;
+            }
+            // readBody may have compacted the buffer.
+            int shift = requestStart - start;
+            requestStart -= shift;
+            methodEnd -= shift;
+            targetStart -= shift;
+            targetEnd -= shift;
+            int bodyStart = bodyEnd - (int) contentLength;
+            start = bodyEnd;
+
+            if (equalsAt(in, GET, requestStart, methodEnd)) {
+                if (options.metrics != null && equalsAt(in, METRICS_PATH, targetStart, targetEnd)) {
+                    reply(OK_METRICS, options.metrics.snapshot().toPrometheusText());
+                } else {
+                    redirect(targetStart, targetEnd);
+                }
+            } else if (equalsAt(in, POST, requestStart, methodEnd)) {
+                if (equalsAt(in, SHORTEN_PATH, targetStart, targetEnd)) {
+                    shorten(bodyStart, bodyEnd);
+                } else {
+                    append(NOT_FOUND);
+                }
+            } else {
+                append(METHOD_NOT_ALLOWED);
+            }
+            return !close;
+        }
+
+        /**
+         * Makes sure the whole body is buffered.
+         * @return the index just past the body, or -1 if the client closed the connection
+         */
+        private int readBody(InputStream input, int bodyStart, int length) throws IOException {
+            if (bodyStart + length > in.length) {
+                int shift = start;
+                System.arraycopy(in, start, in, 0, end - start);
+                end -= shift;
+                start = 0;
+                bodyStart -= shift;
+            }
+            while (end < bodyStart + length) {
+                flush();
+                int read = input.read(in, end, in.length - end);
+                if (read < 0) {
+                    return -1;
+                }
+                end += read;
+            }
+            return bodyStart + length;
+        }
+
+        /**
+         * Parses the Content-Length header.
+         * @return the length, 0 if absent, or -1 if it is not a number
+         */
+        private long contentLength(int from, int to) {
+            int at = indexOfIgnoreCase(in, CONTENT_LENGTH, from, to);
+            if (at < 0) {
+                return 0;
+            }
+            int i = at + CONTENT_LENGTH.length;
+            while (i < to && in[i] == ' ') {
+                i++;
+            }
+            long value = 0;
+            int digits = 0;
+            for (; i < to && in[i] >= '0' && in[i] <= '9' && digits < 10; i++, digits++) {
+                value = value * 10 + (in[i] - '0');
+            }
+            while (i < to && in[i] == ' ') {
+                i++;
+            }
+            return digits == 0 || in[i] != '\r' ? -1 : value;
+        }
+
+        /**
+         * Looks for the {@code close} option in the Connection headers. Options are comma
+         * separated with optional whitespace, and may be spread over several headers.
+         */
+        private boolean hasConnectionClose(int from, int to) {
+            for (int at = indexOfIgnoreCase(in, CONNECTION, from, to); at >= 0;
+                 at = indexOfIgnoreCase(in, CONNECTION, at + 1, to)) {
+                int valueEnd = indexOf(in, '\r', at, to);
+                for (int tokenStart = at + CONNECTION.length; tokenStart <= valueEnd; ) {
+                    int tokenEnd = indexOf(in, ',', tokenStart, valueEnd);
+                    if (tokenEnd < 0) {
+                        tokenEnd = valueEnd;
+                    }
+                    int i = tokenStart;
+                    int j = tokenEnd;
+                    while (i < j && (in[i] == ' ' || in[i] == '\t')) {
+                        i++;
+                    }
+                    while (j > i && (in[j - 1] == ' ' || in[j - 1] == '\t')) {
+                        j--;
+                    }
+                    if (j - i == CLOSE.length && indexOfIgnoreCase(in, CLOSE, i, j) == i) {
+                        return true;
+                    }
+                    tokenStart = tokenEnd + 1;
+                }
+            }
+            return false;
+        }
+
+        private void redirect(int targetStart, int targetEnd) throws IOException {
+            int codeEnd = indexOf(in, '?', targetStart, targetEnd);
+            if (codeEnd < 0) {
+                codeEnd = targetEnd;
+            }
+            int codeStart = targetStart + 1;
+            if (in[targetStart] != '/' || codeStart == codeEnd || indexOf(in, '/', codeStart, codeEnd) >= 0) {
+                append(NOT_FOUND);
+                return;
+            }
+            String shortCode = new String(in, codeStart, codeEnd - codeStart, StandardCharsets.ISO_8859_1);
+            String longUrl = service.getOriginalUrl(shortCode);
+            if (longUrl == null) {
+                append(NOT_FOUND);
+                return;
+            }
+            append(options.permanentRedirects ? MOVED_PERMANENTLY : FOUND);
+            appendAscii(longUrl);
+            append(REDIRECT_END);
+        }
+
+        private void shorten(int bodyStart, int bodyEnd) throws IOException {
+            String longUrl = new String(in, bodyStart, bodyEnd - bodyStart, StandardCharsets.UTF_8).trim();
+            String shortCode;
+            try {
+                shortCode = service.shortenUrl(longUrl);
+            } catch (IllegalArgumentException e) {
+                reply(BAD_REQUEST, e.getMessage());
+                return;
+            } catch (IllegalStateException e) {
+                reply(SERVICE_UNAVAILABLE, e.getMessage());
+                return;
+            }
+            append(CREATED);
+            appendInt(shortCode.length());
+            append(HEADERS_END);
+            appendAscii(shortCode);
+        }
+
+        private void reply(byte[] head, String message) throws IOException {
+            byte[] body = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+            append(head);
+            appendInt(body.length);
+            append(HEADERS_END);
+            append(body);
+        }
+
+        private void append(byte[] bytes) throws IOException {
+            if (outLength + bytes.length > out.length) {
+                flush();
+                if (bytes.length > out.length) {
+                    output.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, out, outLength, bytes.length);
+            outLength += bytes.length;
+        }
+
+        /**
+         * Copies a string into the write buffer without encoding it to a byte array first.
+         * Anything but printable ASCII is percent-encoded as UTF-8, so a stored URL can never put
+         * a CR or LF into the header block (response splitting) or raw non-ASCII bytes on the wire.
+         */
+        private void appendAscii(String value) throws IOException {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c <= ' ' || c >= 0x7F) {
+                    appendPercentEncoded(value);
+                    return;
+                }
+            }
+            if (outLength + length > out.length) {
+                flush();
+                if (length > out.length) {
+                    output.write(value.getBytes(StandardCharsets.ISO_8859_1));
+                    return;
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                out[outLength++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void appendPercentEncoded(String value) throws IOException {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            byte[] encoded = new byte[utf8.length * 3];
+            int length = 0;
+            for (byte b : utf8) {
+                int u = b & 0xFF;
+                if (u <= ' ' || u >= 0x7F) {
+                    encoded[length++] = '%';
+                    encoded[length++] = HEX[u >>> 4];
+                    encoded[length++] = HEX[u & 0xF];
+                } else {
+                    encoded[length++] = b;
+                }
+            }
+            append(Arrays.copyOf(encoded, length));
+        }
+
+        private void appendInt(int value) throws IOException {
+            if (outLength + 10 > out.length) {
+                flush();
+            }
+            int digits = 1;
+            for (int rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            for (int i = outLength + digits - 1; i >= outLength; i--) {
+                out[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            outLength += digits;
+        }
+
+        private void flush() throws IOException {
+            if (outLength > 0) {
+                output.write(out, 0, outLength);
+                outLength = 0;
+            }
+        }
+    }
+
+    /**
+     * Connection limits, timeouts, redirect style and metrics endpoint for a {@link RedirectServer}.
+     */
+    public static final class Options {
+        private int port = 8080;
+        private int backlog = 1024;
+        private int maxConnections = 10_000;
+        private int idleTimeoutMillis = 30_000;
+        private int bufferSize = 8192;
+        private boolean permanentRedirects;
+        private Metrics metrics;
+
+        /**
+         * Sets the port to listen on; 0 picks a free one (default 8080).
+         * @param port the port
+         * @return these options
+         */
+        public Options port(int port) {
+            if (port < 0 || port > 65535) throw new IllegalArgumentException("Port must be between 0 and 65535");
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Sets how many connections may wait in the accept queue (default 1024).
+         * @param backlog the backlog
+         * @return these options
+         */
+        public Options backlog(int backlog) {
+            if (backlog < 1) throw new IllegalArgumentException("Backlog must be positive");
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Sets how many connections are open at once, one virtual thread and two buffers of
+         * {@code bufferSize} each (default 10,000).
+         * @param connections the connection limit
+         * @return these options
+         */
+        public Options maxConnections(int connections) {
+            if (connections < 1) throw new IllegalArgumentException("Connection limit must be positive");
+            this.maxConnections = connections;
+            return this;
+        }
+
+        /**
+         * Sets how long an idle keep-alive connection stays open (default 30 s).
+         * @param millis the idle timeout
+         * @return these options
+         */
+        public Options idleTimeoutMillis(int millis) {
+            if (millis < 1) throw new IllegalArgumentException("Idle timeout must be positive");
+            this.idleTimeoutMillis = millis;
+            return this;
+        }
+
+        /**
+         * Sets the per-connection read and write buffer size, which also caps the size of
+         * one request (default 8 KB).
+         * @param bytes the buffer size
+         * @return these options
+         */
+        public Options bufferSize(int bytes) {
+            if (bytes < 256) throw new IllegalArgumentException("Buffer size must be at least 256 bytes");
+            this.bufferSize = bytes;
+            return this;
+        }
+
+        /**
+         * Sets whether redirects are 301 instead of 302 (default false). Browsers cache 301s
+         * indefinitely, so expiring or replaced mappings keep redirecting to the old URL.
+         * @param permanent whether to send 301
+         * @return these options
+         */
+        public Options permanentRedirects(boolean permanent) {
+            this.permanentRedirects = permanent;
+            return this;
+        }
+
+        /**
+         * Sets the registry served at {@code GET /metrics} (default none, and the path is an
+         * ordinary short code). With a registry set, a short code named "metrics" cannot be
+         * redirected to.
+         * @param metrics the registry, or null to serve none
+         * @return these options
+         */
+        public Options metrics(Metrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds a lowercase ASCII pattern in {@code bytes[from, to)}, ignoring the case of the bytes.
+     */
+    private static int indexOfIgnoreCase(byte[] bytes, byte[] lowerPattern, int from, int to) {
+        outer:
+        for (int i = from; i <= to - lowerPattern.length; i++) {
+            for (int j = 0; j < lowerPattern.length; j++) {
+                int b = bytes[i + j];
+                if (b >= 'A' && b <= 'Z') {
+                    b += 'a' - 'A';
+                }
+                if (b != lowerPattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static boolean equalsAt(byte[] bytes, byte[] expected, int from, int to) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[from + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release.
+        }
+    }
+}
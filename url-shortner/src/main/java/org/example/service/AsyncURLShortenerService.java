@@ -0,0 +1,125 @@
+package org.example.service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking front end for a {@link URLShortenerService}.
+ * Each call runs on a virtual thread of its own and returns a {@link CompletableFuture}, so callers can pipeline requests and overlap repository I/O.
+ * At most {@code maxInFlight} calls are queued or running at once; a call beyond the limit
+ * never blocks the caller but returns a future failed with {@link RejectedExecutionException},
+ * which pushes back on producers instead of growing an unbounded queue.
+ * Lookups can be routed through a {@link BatchingURLResolver} so concurrent redirects
+ * share repository round trips.
+ */
+public class AsyncURLShortenerService implements AutoCloseable {
+    private final URLShortenerService delegate;
+    private final BatchingURLResolver resolver;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+
+    /**
+     * Creates an async service that runs lookups on virtual threads as well.
+     * @param delegate the synchronous service
+     * @param maxInFlight the most calls queued or running at once
+     */
+    public AsyncURLShortenerService(URLShortenerService delegate, int maxInFlight) {
+        this(delegate, null, maxInFlight);
+    }
+
+    /**
+     * Creates an async service.
+     * @param delegate the synchronous service
+     * @param resolver answers {@link #getOriginalUrl(String)} when non-null; the caller closes it
+     * @param maxInFlight the most calls queued or running at once
+     */
+    public AsyncURLShortenerService(URLShortenerService delegate, BatchingURLResolver resolver, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.delegate = delegate;
+        this.resolver = resolver;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Shortens a long URL without expiry.
+     * @param longUrl the original long URL
+     * @return a future completed with the short code, or failed as {@link URLShortenerService#shortenUrl(String)} throws
+     *     or with {@link RejectedExecutionException} if {@code maxInFlight} calls are already in flight
+     */
+    public CompletableFuture<String> shortenUrl(String longUrl) {
+        return submit(() -> delegate.shortenUrl(longUrl));
+    }
+
+    /**
+     * Shortens a long URL with an optional expiry time.
+     * @param longUrl the original long URL
+     * @param expiresAt the expiry timestamp (nullable)
+     * @return a future completed with the short code
+     */
+    public CompletableFuture<String> shortenUrl(String longUrl, LocalDateTime expiresAt) {
+        return submit(() -> delegate.shortenUrl(longUrl, expiresAt));
+    }
+
+    /**
+     * Resolves a short code, through the batching resolver when one was given.
+     * @param shortCode the short code
+     * @return a future completed with the original URL, or null if not found or expired
+     */
+    public CompletableFuture<String> getOriginalUrl(String shortCode) {
+        if (resolver == null) {
+            return submit(() -> delegate.getOriginalUrl(shortCode));
+        }
+        if (!inFlight.tryAcquire()) {
+            return tooManyInFlight();
+        }
+        CompletableFuture<String> result = resolver.getOriginalUrl(shortCode);
+        result.whenComplete((url, e) -> inFlight.release());
+        return result;
+    }
+
+    /**
+     * Gets the number of calls that may still start before calls are rejected.
+     * @return the free in-flight permits
+     */
+    public int getAvailablePermits() {
+        return inFlight.availablePermits();
+    }
+
+    /**
+     * Stops accepting calls. Calls already submitted still complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        if (!inFlight.tryAcquire()) {
+            return tooManyInFlight();
+        }
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(call, executor);
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, e) -> inFlight.release());
+        return result;
+    }
+
+    private <T> CompletableFuture<T> tooManyInFlight() {
+        return CompletableFuture.failedFuture(
+                new RejectedExecutionException("Too many calls in flight: " + maxInFlight));
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.service;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * High-throughput variant of {@link RandomShortCodeGenerator}.
+ * Random bytes come from the same kind of {@link SecureRandom}, but are drawn in bulk into
+ * a few striped buffers instead of one {@code nextInt} call per character, so threads no longer
+ * serialize inside the shared SecureRandom. A thread starts at the stripe its thread ID hashes
+ * to and moves on if that stripe is busy, so a virtual thread per task shares the buffers
+ * instead of filling one of its own. Each byte is used at most once and mapped to base62
+ * by rejection sampling: bytes of 248 or more are skipped and the rest are taken modulo 62,
+ * which keeps every character equally likely.
+ * A background thread refills used buffers and keeps a few spare ones ready; a stripe that
+ * finds no spare fills its buffer on the calling thread rather than waiting.
+ * {@link #close()} stops the background thread.
+ */
+public class BatchedRandomShortCodeGenerator implements ShortCodeGenerator, AutoCloseable {
+    /**
+     * Largest multiple of 62 that fits a byte; bytes at or above it are rejected.
+     */
+    private static final int ACCEPT_BELOW = 248;
+    private static final int BASE = RandomShortCodeGenerator.BASE62.length();
+    private static final int MAX_STRIPES = 64;
+
+    private final int codeLength;
+    private final int bufferSize;
+    private final SecureRandom random = new SecureRandom();
+    private final BlockingQueue<byte[]> spares;
+    private final ExecutorService refiller;
+    private final Pool[] pools;
+    private final int mask;
+
+    /**
+     * Creates a generator with 4 KB buffers and 16 spare buffers.
+     * @param codeLength the length of the short code (e.g., 6-8)
+     */
+    public BatchedRandomShortCodeGenerator(int codeLength) {
+        this(codeLength, 4096, 16);
+    }
+
+    /**
+     * Creates a generator.
+     * @param codeLength the length of the short code (4-12)
+     * @param bufferSize random bytes drawn per refill
+     * @param spareBuffers filled buffers kept ready for threads whose buffer runs out
+     */
+    public BatchedRandomShortCodeGenerator(int codeLength, int bufferSize, int spareBuffers) {
+        if (codeLength < 4 || codeLength > 12) throw new IllegalArgumentException("Code length should be 4-12");
+        if (bufferSize < 64) throw new IllegalArgumentException("Buffer size should be at least 64 bytes");
+        if (spareBuffers < 1) throw new IllegalArgumentException("At least one spare buffer is needed");
+        this.codeLength = codeLength;
+        this.bufferSize = bufferSize;
+        this.spares = new ArrayBlockingQueue<>(spareBuffers);
+        int count = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES / 2)) * 2;
+        this.pools = new Pool[count];
+        for (int i = 0; i < count; i++) {
+            pools[i] = new Pool();
+        }
+        this.mask = count - 1;
+        this.refiller = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "entropy-refill");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < spareBuffers; i++) {
+            refill(new byte[bufferSize]);
+        }
+    }
+
+    @Override
+    public String generateShortCode(String longUrl) {
+        int index = (int) (Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L >>> 32);
+        Pool pool = pools[index & mask];
+        // Skip past busy stripes, and wait for one only after trying them all.
+        for (int tried = 1; !pool.lock.tryLock(); tried++) {
+            pool = pools[(index + tried) & mask];
+            if (tried == pools.length) {
+                pool.lock.lock();
+                break;
+            }
+        }
+        char[] code = new char[codeLength];
+        try {
+            int filled = 0;
+            while (filled < codeLength) {
+                if (pool.position == pool.bytes.length) {
+                    pool.swap();
+                }
+                int value = pool.bytes[pool.position++] & 0xFF;
+                if (value < ACCEPT_BELOW) {
+                    code[filled++] = RandomShortCodeGenerator.BASE62.charAt(value % BASE);
+                }
+            }
+        } finally {
+            pool.lock.unlock();
+        }
+        return new String(code);
+    }
+
+    /**
+     * Stops the refill thread. Codes can still be generated; each stripe then fills its own
+     * buffer when it runs out.
+     */
+    @Override
+    public void close() {
+        refiller.shutdown();
+    }
+
+    boolean isRefillerTerminated() {
+        return refiller.isTerminated();
+    }
+
+    private void refill(byte[] used) {
+        try {
+            refiller.execute(() -> {
+                random.nextBytes(used);
+                spares.offer(used);
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed: the buffer is dropped and stripes fill their own.
+        }
+    }
+
+    /**
+     * A stripe's current buffer of unused random bytes, used under its lock.
+     */
+    private final class Pool {
+        final ReentrantLock lock = new ReentrantLock();
+        byte[] bytes = new byte[0];
+        int position;
+
+        void swap() {
+            byte[] used = bytes;
+            byte[] next = spares.poll();
+            if (next == null) {
+                next = new byte[bufferSize];
+                random.nextBytes(next);
+            }
+            if (used.length == bufferSize) {
+                refill(used);
+            }
+            bytes = next;
+            position = 0;
+        }
+    }
+}
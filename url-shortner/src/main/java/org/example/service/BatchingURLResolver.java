@@ -0,0 +1,183 @@
+package org.example.service;
+
+import org.example.model.URLMapping;
+import org.example.repository.URLRepository;
+import org.example.util.CoarseClock;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resolves short codes asynchronously, coalescing concurrent lookups into
+ * {@link URLRepository#findAllByShortCode(java.util.Collection)} calls.
+ * Callers enqueue a lookup and get a future; drainer threads take everything queued
+ * (up to {@code maxBatchSize}) and answer it with one multi-get. There is no linger
+ * timer: while one batch is with the repository the next one builds up, so batches grow
+ * with load and a lone lookup is never delayed. The queue is bounded, so callers block
+ * once it is full.
+ */
+public class BatchingURLResolver implements AutoCloseable {
+    private final URLRepository repository;
+    private final int maxBatchSize;
+    private final BlockingQueue<Lookup> queue;
+    private final Thread[] drainers;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder lookups = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Creates a resolver with one drainer, batches of up to 256 codes and room for 4096 queued lookups.
+     * @param repository the repository to read from
+     */
+    public BatchingURLResolver(URLRepository repository) {
+        this(repository, 1, 256, 4096);
+    }
+
+    /**
+     * Creates a resolver.
+     * @param repository the repository to read from
+     * @param drainerCount how many batches may be with the repository at once
+     * @param maxBatchSize the most codes sent in one multi-get
+     * @param queueCapacity the most lookups waiting for a drainer before callers block
+     */
+    public BatchingURLResolver(URLRepository repository, int drainerCount, int maxBatchSize, int queueCapacity) {
+        if (drainerCount < 1 || maxBatchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("drainerCount, maxBatchSize and queueCapacity must be positive");
+        }
+        this.repository = repository;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.drainers = new Thread[drainerCount];
+        for (int i = 0; i < drainerCount; i++) {
+            drainers[i] = new Thread(this::drainLoop, "url-resolver-" + i);
+            drainers[i].setDaemon(true);
+            drainers[i].start();
+        }
+    }
+
+    /**
+     * Queues a lookup, blocking while the queue is full.
+     * Expiry is checked against {@link CoarseClock}, as in {@link URLShortenerServiceImpl#getOriginalUrl(String)}.
+     * @param shortCode the short code
+     * @return a future completed with the original URL, or null if not found or expired
+     */
+    public CompletableFuture<String> getOriginalUrl(String shortCode) {
+        Lookup lookup = new Lookup(shortCode);
+        try {
+            while (!queue.offer(lookup, 100, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lookup.result.completeExceptionally(e);
+            return lookup.result;
+        }
+        if (closed) {
+            // The drainers may already be gone; fail whatever they left behind.
+            failQueued();
+        }
+        return lookup.result;
+    }
+
+    /**
+     * Gets the number of multi-get calls made so far.
+     * @return the batch count
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * Gets the number of lookups answered so far.
+     * @return the lookup count
+     */
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * Stops the drainers. Lookups still queued fail with {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread drainer : drainers) {
+            drainer.interrupt();
+        }
+        for (Thread drainer : drainers) {
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        failQueued();
+    }
+
+    private void drainLoop() {
+        List<Lookup> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+            resolve(batch);
+            batch.clear();
+        }
+    }
+
+    private void resolve(List<Lookup> batch) {
+        Set<String> codes = new LinkedHashSet<>(batch.size() * 4 / 3 + 1);
+        for (Lookup lookup : batch) {
+            codes.add(lookup.shortCode);
+        }
+        Map<String, URLMapping> found;
+        try {
+            found = repository.findAllByShortCode(codes);
+        } catch (RuntimeException e) {
+            for (Lookup lookup : batch) {
+                lookup.result.completeExceptionally(e);
+            }
+            return;
+        }
+        batches.increment();
+        lookups.add(batch.size());
+        long now = CoarseClock.currentTimeMillis();
+        for (Lookup lookup : batch) {
+            URLMapping mapping = found.get(lookup.shortCode);
+            lookup.result.complete(mapping == null || mapping.isExpiredAt(now) ? null : mapping.getLongUrl());
+        }
+    }
+
+    private void failQueued() {
+        Lookup lookup;
+        while ((lookup = queue.poll()) != null) {
+            lookup.result.completeExceptionally(new IllegalStateException("Resolver is closed"));
+        }
+    }
+
+    /**
+     * A queued lookup and the future its caller holds.
+     */
+    private static final class Lookup {
+        final String shortCode;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Lookup(String shortCode) {
+            this.shortCode = shortCode;
+        }
+    }
+}
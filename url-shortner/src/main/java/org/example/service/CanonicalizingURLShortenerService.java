@@ -0,0 +1,72 @@
+package org.example.service;
+
+import org.example.util.UrlCanonicalizer;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * URLShortenerService decorator that canonicalizes long URLs with {@link UrlCanonicalizer}
+ * before shortening them, so equivalent URLs (differing only in scheme or host case, a default
+ * port, or query-parameter order) share one short code and one stored mapping.
+ * Redirects go to the canonical form of the first URL shortened.
+ */
+public class CanonicalizingURLShortenerService implements URLShortenerService {
+    private final URLShortenerService delegate;
+
+    /**
+     * Wraps a service.
+     * @param delegate the service that validates, shortens and resolves
+     */
+    public CanonicalizingURLShortenerService(URLShortenerService delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String shortenUrl(String longUrl) {
+        return delegate.shortenUrl(canonicalize(longUrl));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String shortenUrl(String longUrl, LocalDateTime expiresAt) {
+        return delegate.shortenUrl(canonicalize(longUrl), expiresAt);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The result is keyed by the URLs as given; equivalent URLs map to the same code.
+     */
+    @Override
+    public Map<String, String> shortenUrls(Collection<String> longUrls, LocalDateTime expiresAt) {
+        List<String> canonical = longUrls.stream().map(CanonicalizingURLShortenerService::canonicalize).toList();
+        Map<String, String> codes = delegate.shortenUrls(canonical, expiresAt);
+        Map<String, String> result = new LinkedHashMap<>(longUrls.size() * 4 / 3 + 1);
+        int i = 0;
+        for (String longUrl : longUrls) {
+            result.putIfAbsent(longUrl, codes.get(canonical.get(i++)));
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getOriginalUrl(String shortCode) {
+        return delegate.getOriginalUrl(shortCode);
+    }
+
+    private static String canonicalize(String longUrl) {
+        // Null and blank input is left for the delegate's validation to reject.
+        return longUrl == null ? null : UrlCanonicalizer.canonicalize(longUrl);
+    }
+}
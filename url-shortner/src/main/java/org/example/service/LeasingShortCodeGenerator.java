@@ -0,0 +1,110 @@
+package org.example.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counter-based ShortCodeGenerator that leases blocks of IDs to a fixed set of stripes.
+ * Each stripe takes {@code blockSize} IDs from the shared counter in one atomic add and
+ * hands them out one by one, so the shared counter's cache line is touched once per block
+ * instead of once per code. A thread starts at the stripe its thread ID hashes to and moves
+ * on to the next one if that stripe is busy, so leases do not depend on how long threads
+ * live: a virtual thread per task shares the stripes like a pooled platform thread does.
+ * Codes are encoded into the stripe's {@code char[]}, so the returned String is the only
+ * allocation.
+ * Codes are unique across threads. At any time at most one partly used block per stripe is
+ * outstanding, so IDs stay dense: the highest ID handed out exceeds the count of codes by at
+ * most {@code blockSize} per stripe.
+ */
+public class LeasingShortCodeGenerator implements ShortCodeGenerator {
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * Shared counter; always points at the first ID of the next unleased block.
+     */
+    private final AtomicLong counter;
+    /**
+     * Number of IDs leased per counter update.
+     */
+    private final int blockSize;
+    private final Lease[] leases;
+    private final int mask;
+
+    /**
+     * Creates a generator that starts at the same ID as {@link SimpleShortCodeGenerator}
+     * and leases 1024 IDs at a time.
+     */
+    public LeasingShortCodeGenerator() {
+        this(100000, 1024);
+    }
+
+    /**
+     * Creates a generator.
+     * @param firstId the first ID handed out
+     * @param blockSize the number of IDs each thread leases at a time
+     */
+    public LeasingShortCodeGenerator(long firstId, int blockSize) {
+        if (firstId < 1) throw new IllegalArgumentException("First ID must be positive");
+        if (blockSize < 1) throw new IllegalArgumentException("Block size must be positive");
+        this.counter = new AtomicLong(firstId);
+        this.blockSize = blockSize;
+        int count = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES / 2)) * 2;
+        this.leases = new Lease[count];
+        for (int i = 0; i < count; i++) {
+            leases[i] = new Lease();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Generates a unique short code from a stripe's leased block.
+     * @param longUrl the original long URL (not used in this implementation)
+     * @return a unique short code
+     */
+    @Override
+    public String generateShortCode(String longUrl) {
+        long id = Thread.currentThread().threadId();
+        int index = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        Lease lease = leases[index & mask];
+        // Skip past busy stripes, and wait for one only after trying them all.
+        for (int tried = 1; !lease.lock.tryLock(); tried++) {
+            lease = leases[(index + tried) & mask];
+            if (tried == leases.length) {
+                lease.lock.lock();
+                break;
+            }
+        }
+        try {
+            if (lease.next == lease.end) {
+                lease.next = counter.getAndAdd(blockSize);
+                lease.end = lease.next + blockSize;
+            }
+            int start = SimpleShortCodeGenerator.encodeBase62(lease.next++, lease.buffer);
+            return new String(lease.buffer, start, lease.buffer.length - start);
+        } finally {
+            lease.lock.unlock();
+        }
+    }
+
+    /**
+     * Generates codes for a batch of URLs from a dedicated range leased in one counter update,
+     * leaving the stripes' current blocks untouched.
+     * @param longUrls the original long URLs (not used in this implementation)
+     * @return unique short codes, in the order of the URLs
+     */
+    @Override
+    public List<String> generateShortCodes(List<String> longUrls) {
+        return SimpleShortCodeGenerator.encodeRange(counter.getAndAdd(longUrls.size()), longUrls.size());
+    }
+
+    /**
+     * A stripe's current block of IDs and its encoding buffer, used under its lock.
+     */
+    private static final class Lease {
+        final ReentrantLock lock = new ReentrantLock();
+        long next;
+        long end;
+        final char[] buffer = new char[SimpleShortCodeGenerator.MAX_ENCODED_LENGTH];
+    }
+}
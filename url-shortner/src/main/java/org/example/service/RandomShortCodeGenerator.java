@@ -7,7 +7,7 @@ import java.security.SecureRandom;
  * Suitable for distributed environments with collision checking.
  */
 public class RandomShortCodeGenerator implements ShortCodeGenerator {
-    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
     private static final SecureRandom RANDOM = new SecureRandom();
     private final int codeLength;
 
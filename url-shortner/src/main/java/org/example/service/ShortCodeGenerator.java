@@ -1,5 +1,8 @@
 package org.example.service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Interface for generating unique short codes for long URLs.
  * Implementations may use hashing, counters, or other algorithms.
@@ -11,4 +14,18 @@ public interface ShortCodeGenerator {
      * @return a unique short code
      */
     String generateShortCode(String longUrl);
+
+    /**
+     * Generates a short code for each of the given long URLs in one call.
+     * Counter-based implementations override this to reserve the whole range at once.
+     * @param longUrls the original long URLs
+     * @return the short codes, in the order of the URLs
+     */
+    default List<String> generateShortCodes(List<String> longUrls) {
+        List<String> codes = new ArrayList<>(longUrls.size());
+        for (String longUrl : longUrls) {
+            codes.add(generateShortCode(longUrl));
+        }
+        return codes;
+    }
 }
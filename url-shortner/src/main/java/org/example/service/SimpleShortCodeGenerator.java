@@ -1,5 +1,7 @@
 package org.example.service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -20,6 +22,11 @@ public class SimpleShortCodeGenerator implements ShortCodeGenerator {
      */
     private static final int BASE = ALPHABET.length();
 
+    /**
+     * Length of the longest base62 encoding of a {@code long}.
+     */
+    static final int MAX_ENCODED_LENGTH = 11;
+
     /**
      * Generates a unique short code for the given long URL using a counter and base62 encoding.
      * @param longUrl the original long URL (not used in this implementation)
@@ -28,23 +35,63 @@ public class SimpleShortCodeGenerator implements ShortCodeGenerator {
     @Override
     public String generateShortCode(String longUrl) {
         long id = counter.getAndIncrement();
-        return encodeBase62(id);
+        char[] buffer = new char[MAX_ENCODED_LENGTH];
+        int start = encodeBase62(id, buffer);
+        return new String(buffer, start, MAX_ENCODED_LENGTH - start);
+    }
+
+    /**
+     * Generates codes for a batch of URLs from one counter update.
+     * @param longUrls the original long URLs (not used in this implementation)
+     * @return unique short codes, in the order of the URLs
+     */
+    @Override
+    public List<String> generateShortCodes(List<String> longUrls) {
+        return encodeRange(counter.getAndAdd(longUrls.size()), longUrls.size());
+    }
+
+    /**
+     * Encodes {@code count} consecutive IDs starting at {@code first}.
+     * @param first the first ID
+     * @param count the number of IDs
+     * @return the codes
+     */
+    static List<String> encodeRange(long first, int count) {
+        List<String> codes = new ArrayList<>(count);
+        char[] buffer = new char[MAX_ENCODED_LENGTH];
+        for (int i = 0; i < count; i++) {
+            int start = encodeBase62(first + i, buffer);
+            codes.add(new String(buffer, start, MAX_ENCODED_LENGTH - start));
+        }
+        return codes;
     }
 
     /**
-     * Encodes a number into a base62 string.
+     * Encodes a non-negative number into base62, filling the buffer from its end.
+     * Avoids the StringBuilder and reverse of a digit-by-digit append.
      * @param num the number to encode
-     * @return the base62-encoded string
+     * @param buffer a buffer of at least {@link #MAX_ENCODED_LENGTH} chars
+     * @return the index of the first encoded char; the code runs to the end of the buffer
      */
-    private String encodeBase62(long num) {
-        StringBuilder sb = new StringBuilder();
+    static int encodeBase62(long num, char[] buffer) {
+        int pos = buffer.length;
         while (num > 0) {
-            int lastDigit = (int)(num % BASE);
-            char ch = ALPHABET.charAt(lastDigit);
-            sb.append(ch);
+            buffer[--pos] = ALPHABET.charAt((int) (num % BASE));
             num /= BASE;
         }
-        return sb.reverse().toString();
+        return pos;
+    }
+
+    /**
+     * Left-pads an encoding produced by {@link #encodeBase62(long, char[])} with the zero digit,
+     * so the code fills the whole buffer.
+     * @param buffer the buffer holding the encoding
+     * @param start the index of the first encoded char
+     */
+    static void padBase62(char[] buffer, int start) {
+        for (int i = 0; i < start; i++) {
+            buffer[i] = ALPHABET.charAt(0);
+        }
     }
 
 }
@@ -0,0 +1,104 @@
+package org.example.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Coordination-free ShortCodeGenerator for multi-node deployments, Snowflake style.
+ * Each ID packs 41 bits of milliseconds since 2025-01-01T00:00Z, a 10-bit node ID and a
+ * 12-bit per-millisecond sequence, so nodes with distinct IDs can never collide and each
+ * node can issue 4096 codes per millisecond. IDs are base62-encoded and padded to a fixed
+ * length of 11 characters.
+ * <p>
+ * The timestamp and sequence live in one {@link AtomicLong} that only moves forward.
+ * When the sequence of a millisecond runs out, or the wall clock moves backwards, the
+ * generator keeps issuing from the following milliseconds ("borrowing" time) for up to
+ * {@code maxBorrowMillis} ahead of the wall clock, then waits for the clock to catch up.
+ * A node that restarts while its clock is behind the last issued timestamp can repeat
+ * codes, so restarts should wait out any known regression.
+ */
+public class SnowflakeShortCodeGenerator implements ShortCodeGenerator {
+    /**
+     * Custom epoch (2025-01-01T00:00:00Z) that keeps the timestamp in 41 bits until 2094.
+     */
+    static final long EPOCH_MILLIS = 1735689600000L;
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int TIMESTAMP_BITS = 41;
+    /**
+     * Highest usable node ID.
+     */
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    /**
+     * Length of every generated code.
+     */
+    public static final int CODE_LENGTH = SimpleShortCodeGenerator.MAX_ENCODED_LENGTH;
+
+    private final long shiftedNodeId;
+    private final LongSupplier clock;
+    private final long maxBorrowMillis;
+    /**
+     * Last issued {@code timestamp << SEQUENCE_BITS | sequence}.
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Creates a generator for the given node using the system clock.
+     * @param nodeId the node ID, unique per running node, 0 to {@link #MAX_NODE_ID}
+     */
+    public SnowflakeShortCodeGenerator(int nodeId) {
+        this(nodeId, System::currentTimeMillis, 1000);
+    }
+
+    /**
+     * Creates a generator for the given node.
+     * @param nodeId the node ID, unique per running node, 0 to {@link #MAX_NODE_ID}
+     * @param clock source of epoch milliseconds
+     * @param maxBorrowMillis how far ahead of the clock IDs may be issued before waiting
+     */
+    public SnowflakeShortCodeGenerator(int nodeId, LongSupplier clock, long maxBorrowMillis) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) throw new IllegalArgumentException("Node ID should be 0-" + MAX_NODE_ID);
+        if (maxBorrowMillis < 0) throw new IllegalArgumentException("Borrow window must not be negative");
+        this.shiftedNodeId = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+        this.maxBorrowMillis = maxBorrowMillis;
+    }
+
+    /**
+     * Generates a unique short code of {@link #CODE_LENGTH} characters.
+     * @param longUrl the original long URL (not used in this implementation)
+     * @return a unique short code
+     */
+    @Override
+    public String generateShortCode(String longUrl) {
+        long id = nextId();
+        char[] buffer = new char[CODE_LENGTH];
+        SimpleShortCodeGenerator.padBase62(buffer, SimpleShortCodeGenerator.encodeBase62(id, buffer));
+        return new String(buffer);
+    }
+
+    /**
+     * Issues the next raw ID.
+     * @return the ID
+     */
+    long nextId() {
+        while (true) {
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            if (now < 0 || now >>> TIMESTAMP_BITS != 0) {
+                throw new IllegalStateException("Clock is outside the generator's time range: " + (now + EPOCH_MILLIS));
+            }
+            long current = state.get();
+            long fresh = now << SEQUENCE_BITS;
+            // Sequence overflow carries into the timestamp, borrowing the next millisecond
+            long next = fresh > current ? fresh : current + 1;
+            long timestamp = next >>> SEQUENCE_BITS;
+            if (timestamp - now > maxBorrowMillis) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (state.compareAndSet(current, next)) {
+                return timestamp << (NODE_BITS + SEQUENCE_BITS) | shiftedNodeId | (next & ((1L << SEQUENCE_BITS) - 1));
+            }
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package org.example.service;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Service interface for shortening URLs and resolving short codes to original URLs.
  * Implementations provide the core business logic for the URL shortener.
@@ -21,6 +24,17 @@ public interface URLShortenerService {
      */
     String shortenUrl(String longUrl, java.time.LocalDateTime expiresAt);
 
+    /**
+     * Shortens a batch of long URLs with a shared expiry time.
+     * Each distinct URL gets the same treatment as {@link #shortenUrl(String, java.time.LocalDateTime)};
+     * duplicates within the batch are shortened once. Every URL is validated before anything
+     * is saved, so one invalid URL fails the whole batch.
+     * @param longUrls the original long URLs
+     * @param expiresAt the expiry timestamp (nullable)
+     * @return the short code for each distinct URL, in first-seen order
+     */
+    Map<String, String> shortenUrls(Collection<String> longUrls, java.time.LocalDateTime expiresAt);
+
     /**
      * Retrieves the original long URL for a given short code.
      * @param shortCode the short code
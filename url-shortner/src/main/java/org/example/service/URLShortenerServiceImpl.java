@@ -1,17 +1,40 @@
 package org.example.service;
 
+import org.example.analytics.ClickRecorder;
+import org.example.metrics.Counter;
+import org.example.metrics.Metrics;
+import org.example.metrics.Timer;
 import org.example.model.URLMapping;
 import org.example.repository.URLRepository;
+import org.example.util.CoarseClock;
 import org.example.util.UrlValidator;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of the URLShortenerService interface.
  * Handles the business logic for shortening URLs and resolving short codes.
  * Uses a repository for storage and a generator for code creation.
+ * When given a {@link Metrics} registry, times each shorten and its validation and code
+ * generation phases, and counts collision retries and lookups of unknown or expired codes;
+ * wrap the repository in an {@link org.example.repository.InstrumentedURLRepository} to time
+ * the storage phase as well.
  */
 public class URLShortenerServiceImpl implements URLShortenerService {
+    /**
+     * Maximum number of generated codes tried before giving up on a shorten request.
+     */
+    private static final int MAX_ATTEMPTS = 10;
+    /**
+     * Batches at least this large are validated on the common fork-join pool.
+     */
+    private static final int PARALLEL_VALIDATION_THRESHOLD = 1024;
     /**
      * Repository for storing and retrieving URL mappings.
      */
@@ -20,15 +43,60 @@ public class URLShortenerServiceImpl implements URLShortenerService {
      * Generator for creating unique short codes.
      */
     private final ShortCodeGenerator generator;
+    /**
+     * Told about every successful redirect.
+     */
+    private final ClickRecorder clicks;
+    private final Timer shortenTimer;
+    private final Timer shortenBatchTimer;
+    private final Timer validationTimer;
+    private final Timer generationTimer;
+    private final Timer resolveTimer;
+    private final Counter collisionRetries;
+    private final Counter unknownCodes;
+    private final Counter expiredHits;
 
     /**
-     * Constructs a new URLShortenerServiceImpl.
+     * Constructs a new URLShortenerServiceImpl that records no clicks.
      * @param repository the URL mapping repository
      * @param generator the short code generator
      */
     public URLShortenerServiceImpl(URLRepository repository, ShortCodeGenerator generator) {
+        this(repository, generator, ClickRecorder.NONE);
+    }
+
+    /**
+     * Constructs a new URLShortenerServiceImpl.
+     * @param repository the URL mapping repository
+     * @param generator the short code generator
+     * @param clicks told about every short code {@link #getOriginalUrl(String)} resolves; null records nothing
+     */
+    public URLShortenerServiceImpl(URLRepository repository, ShortCodeGenerator generator, ClickRecorder clicks) {
+        this(repository, generator, clicks, Metrics.NONE);
+    }
+
+    /**
+     * Constructs a new URLShortenerServiceImpl that reports to a metrics registry.
+     * @param repository the URL mapping repository
+     * @param generator the short code generator
+     * @param clicks told about every short code {@link #getOriginalUrl(String)} resolves; null records nothing
+     * @param metrics where timers and counters are registered; null records nothing
+     */
+    public URLShortenerServiceImpl(URLRepository repository, ShortCodeGenerator generator, ClickRecorder clicks,
+                                   Metrics metrics) {
         this.repository = repository;
         this.generator = generator;
+        this.clicks = clicks == null ? ClickRecorder.NONE : clicks;
+        Metrics registry = metrics == null ? Metrics.NONE : metrics;
+        this.shortenTimer = registry.timer("urlshortener_shorten_seconds", "Time to shorten one URL, including retries.");
+        this.shortenBatchTimer = registry.timer("urlshortener_shorten_batch_seconds", "Time to shorten one batch of URLs.");
+        this.validationTimer = registry.timer("urlshortener_validation_seconds", "Time to validate the URLs of one shorten call.");
+        this.generationTimer = registry.timer("urlshortener_code_generation_seconds", "Time to generate the short codes of one attempt.");
+        this.resolveTimer = registry.timer("urlshortener_resolve_seconds", "Time to resolve one short code.");
+        this.collisionRetries = registry.counter("urlshortener_collision_retries_total",
+                "Generated short codes that turned out to be taken.");
+        this.unknownCodes = registry.counter("urlshortener_unknown_codes_total", "Lookups of short codes that do not exist.");
+        this.expiredHits = registry.counter("urlshortener_expired_hits_total", "Lookups of short codes whose mapping has expired.");
     }
 
     /**
@@ -42,41 +110,125 @@ public class URLShortenerServiceImpl implements URLShortenerService {
         return shortenUrl(longUrl, null);
     }
 
+    /**
+     * {@inheritDoc}
+     * A URL that already has a live mapping is answered from {@link URLRepository#findByLongUrl(String)}
+     * without generating a code. Otherwise each attempt is a single atomic {@link URLRepository#findOrSave(URLMapping)} call,
+     * so an existing live mapping is reused and a colliding code is never overwritten.
+     * An expired mapping for the same URL is replaced by a new code.
+     * Codes the repository reports as {@link URLRepository#isShortCodeProbablyTaken(String) probably taken}
+     * are skipped without a write, except on the last attempt, which always asks the store.
+     */
     @Override
     public String shortenUrl(String longUrl, LocalDateTime expiresAt) {
+        long started = shortenTimer.start();
+        long phase = validationTimer.start();
         UrlValidator.validate(longUrl);
+        validationTimer.stop(phase);
+        long now = URLMapping.toEpochMillis(LocalDateTime.now());
         URLMapping existing = repository.findByLongUrl(longUrl);
-        if (existing != null) {
-            // If the existing mapping is expired, allow re-shortening
-            if (!existing.isExpired()) {
-                return existing.getShortCode();
+        if (existing != null && !existing.isExpiredAt(now)) {
+            shortenTimer.stop(started);
+            return existing.getShortCode();
+        }
+        long expiry = expiresAt == null ? URLMapping.NO_EXPIRY : URLMapping.toEpochMillis(expiresAt);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            phase = generationTimer.start();
+            String shortCode = generator.generateShortCode(longUrl);
+            generationTimer.stop(phase);
+            if (attempt < MAX_ATTEMPTS - 1 && repository.isShortCodeProbablyTaken(shortCode)) {
+                collisionRetries.increment();
+                continue;
+            }
+            URLMapping stored = repository.findOrSave(new URLMapping(shortCode, longUrl, now, expiry));
+            if (stored != null) {
+                shortenTimer.stop(started);
+                return stored.getShortCode();
+            }
+            collisionRetries.increment();
+        }
+        throw new IllegalStateException("Failed to generate a unique short code after " + MAX_ATTEMPTS + " attempts");
+    }
+
+    /**
+     * {@inheritDoc}
+     * Large batches are validated in parallel. Codes for all pending URLs come from one
+     * {@link ShortCodeGenerator#generateShortCodes(List)} call and are committed with one
+     * {@link URLRepository#saveAll(List)}; URLs whose code collided are retried together,
+     * up to the same attempt limit as a single shorten.
+     */
+    @Override
+    public Map<String, String> shortenUrls(Collection<String> longUrls, LocalDateTime expiresAt) {
+        long started = shortenBatchTimer.start();
+        long phase = validationTimer.start();
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(longUrls));
+        if (distinct.size() >= PARALLEL_VALIDATION_THRESHOLD) {
+            distinct.parallelStream().forEach(UrlValidator::validate);
+        } else {
+            distinct.forEach(UrlValidator::validate);
+        }
+        validationTimer.stop(phase);
+        long now = URLMapping.toEpochMillis(LocalDateTime.now());
+        long expiry = expiresAt == null ? URLMapping.NO_EXPIRY : URLMapping.toEpochMillis(expiresAt);
+        Map<String, String> codes = new LinkedHashMap<>(distinct.size() * 4 / 3 + 1);
+        List<String> pending = distinct;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            phase = generationTimer.start();
+            List<String> generated = generator.generateShortCodes(pending);
+            generationTimer.stop(phase);
+            List<String> retry = new ArrayList<>();
+            List<URLMapping> candidates = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                String shortCode = generated.get(i);
+                if (attempt < MAX_ATTEMPTS - 1 && repository.isShortCodeProbablyTaken(shortCode)) {
+                    retry.add(pending.get(i));
+                } else {
+                    candidates.add(new URLMapping(shortCode, pending.get(i), now, expiry));
+                }
+            }
+            List<URLMapping> stored = repository.saveAll(candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                if (stored.get(i) != null) {
+                    codes.put(candidates.get(i).getLongUrl(), stored.get(i).getShortCode());
+                } else {
+                    retry.add(candidates.get(i).getLongUrl());
+                }
             }
+            collisionRetries.add(retry.size());
+            pending = retry;
         }
-        // Generate a new short code
-        String shortCode = generator.generateShortCode(longUrl);
-        int maxAttempts = 10;
-        int attempts = 1;
-        while (repository.findByShortCode(shortCode) != null && attempts < maxAttempts) {
-            shortCode = generator.generateShortCode(longUrl);
-            attempts++;
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException("Failed to generate a unique short code after " + MAX_ATTEMPTS + " attempts");
         }
-        if (repository.findByShortCode(shortCode) != null) {
-            throw new IllegalStateException("Failed to generate a unique short code after " + maxAttempts + " attempts");
+        Map<String, String> ordered = new LinkedHashMap<>(codes.size() * 4 / 3 + 1);
+        for (String longUrl : distinct) {
+            ordered.put(longUrl, codes.get(longUrl));
         }
-        URLMapping mapping = new URLMapping(shortCode, longUrl, LocalDateTime.now(), expiresAt);
-        repository.save(mapping);
-        return shortCode;
+        shortenBatchTimer.stop(started);
+        return ordered;
     }
 
     /**
      * {@inheritDoc}
+     * Expiry is checked against {@link CoarseClock}, so a mapping may resolve for up to
+     * one clock tick after it expires. Each resolved code is passed to the click recorder as
+     * the stored mapping's string, so codes the recorder keeps share it with the repository
+     * instead of retaining a copy from every request.
      */
     @Override
     public String getOriginalUrl(String shortCode) {
+        long started = resolveTimer.start();
         URLMapping mapping = repository.findByShortCode(shortCode);
-        if (mapping == null || mapping.isExpired()) {
-            return null;
+        String longUrl = null;
+        if (mapping == null) {
+            unknownCodes.increment();
+        } else if (mapping.isExpiredAt(CoarseClock.currentTimeMillis())) {
+            expiredHits.increment();
+        } else {
+            clicks.recordClick(mapping.getShortCode());
+            longUrl = mapping.getLongUrl();
         }
-        return mapping.getLongUrl();
+        resolveTimer.stop(started);
+        return longUrl;
     }
 }
@@ -0,0 +1,78 @@
+package org.example.transfer;
+
+/**
+ * Outcome of a {@link MappingImporter} run. Every mapping read from the file is counted in
+ * exactly one of imported, skipped, conflicting or expired.
+ */
+public final class ImportResult {
+    private final TransferSummary summary;
+    private final long imported;
+    private final long skipped;
+    private final long conflicts;
+    private final long expired;
+    private final long millis;
+
+    ImportResult(TransferSummary summary, long imported, long skipped, long conflicts, long expired, long millis) {
+        this.summary = summary;
+        this.imported = imported;
+        this.skipped = skipped;
+        this.conflicts = conflicts;
+        this.expired = expired;
+        this.millis = millis;
+    }
+
+    /**
+     * Gets the checked trailer of the imported file.
+     * @return the format, record count and checksum
+     */
+    public TransferSummary getSummary() {
+        return summary;
+    }
+
+    /**
+     * Gets how many mappings the repository now holds as they were in the file,
+     * including ones it already held.
+     * @return the count
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Gets how many mappings were not saved because their URL already had a different live mapping.
+     * @return the count
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Gets how many mappings were not saved because their short code was taken by another URL.
+     * @return the count
+     */
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Gets how many mappings were not saved because they had expired by the time they were read.
+     * @return the count
+     */
+    public long getExpired() {
+        return expired;
+    }
+
+    /**
+     * Gets how long the import took.
+     * @return wall-clock milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s; imported %d, skipped %d, conflicts %d, expired %d in %d ms",
+                summary, imported, skipped, conflicts, expired, millis);
+    }
+}
@@ -0,0 +1,201 @@
+package org.example.transfer;
+
+import org.example.model.URLMapping;
+import org.example.repository.MappingCodec;
+import org.example.util.CoarseClock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Streams every live mapping of a store to a file in one of the {@link TransferFormat}s.
+ * Mappings are encoded into one direct buffer that is written to a {@link FileChannel} each
+ * time it fills, so memory use does not grow with the number of mappings.
+ */
+public final class MappingExporter {
+    /**
+     * First four bytes of a {@link TransferFormat#BINARY} file ("URLX").
+     */
+    static final int MAGIC = 0x55524C58;
+    static final int VERSION = 1;
+    /**
+     * Size of the direct buffers used to write and read files.
+     */
+    static final int BUFFER_BYTES = 4 << 20;
+
+    private MappingExporter() {
+    }
+
+    /**
+     * Writes every live mapping the source visits to a file, replacing the file.
+     * Mappings already expired are left out. The file is forced to disk before this returns.
+     * @param source visits every mapping in the store, such as {@code repository::forEach}
+     * @param file the file to write
+     * @param format the file format
+     * @return the record count and checksum written to the trailer
+     */
+    public static TransferSummary export(Consumer<Consumer<URLMapping>> source, Path file, TransferFormat format) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer writer = format == TransferFormat.BINARY ? new BinaryWriter(channel) : new JsonWriter(channel);
+            long now = CoarseClock.currentTimeMillis();
+            writer.begin();
+            source.accept(mapping -> {
+                if (!mapping.isExpiredAt(now)) {
+                    writer.write(mapping);
+                    writer.records++;
+                }
+            });
+            writer.end();
+            writer.flush();
+            channel.force(false);
+            return new TransferSummary(format, writer.records, (int) writer.checksum.getValue(), channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export to " + file, e);
+        } catch (UncheckedIOException e) {
+            throw new UncheckedIOException("Failed to export to " + file, e.getCause());
+        }
+    }
+
+    /**
+     * Buffers encoded mappings for a channel. Methods throw {@link UncheckedIOException}
+     * so they can run inside the source's visitor.
+     */
+    private abstract static class Writer {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        final CRC32C checksum = new CRC32C();
+        long records;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        abstract void begin();
+
+        abstract void write(URLMapping mapping);
+
+        abstract void end();
+
+        /**
+         * Makes room for {@code bytes}, which must not exceed the buffer size.
+         */
+        void reserve(int bytes) {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Copies bytes of any length, flushing whenever the buffer fills.
+         */
+        void put(byte[] bytes) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void flush() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static final class BinaryWriter extends Writer {
+        BinaryWriter(FileChannel channel) {
+            super(channel);
+        }
+
+        @Override
+        void begin() {
+            buffer.putInt(MAGIC).putInt(VERSION);
+        }
+
+        @Override
+        void write(URLMapping mapping) {
+            byte[] body = MappingCodec.encodeBody(mapping);
+            if (MappingCodec.RECORD_HEADER + body.length > buffer.capacity()) {
+                throw new IllegalStateException("Mapping " + mapping.getShortCode() + " is too large to export");
+            }
+            checksum.update(body);
+            reserve(MappingCodec.RECORD_HEADER + body.length);
+            MappingCodec.writeRecord(buffer, body);
+        }
+
+        @Override
+        void end() {
+            reserve(16);
+            buffer.putInt(0).putLong(records).putInt((int) checksum.getValue());
+        }
+    }
+
+    private static final class JsonWriter extends Writer {
+        private final StringBuilder line = new StringBuilder(256);
+
+        JsonWriter(FileChannel channel) {
+            super(channel);
+        }
+
+        @Override
+        void begin() {
+        }
+
+        @Override
+        void write(URLMapping mapping) {
+            line.setLength(0);
+            line.append("{\"code\":");
+            appendString(line, mapping.getShortCode());
+            line.append(",\"url\":");
+            appendString(line, mapping.getLongUrl());
+            line.append(",\"createdAt\":").append(mapping.getCreatedAtMillis());
+            if (mapping.hasExpiry()) {
+                line.append(",\"expiresAt\":").append(mapping.getExpiresAtMillis());
+            }
+            line.append("}\n");
+            byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+            checksum.update(bytes);
+            put(bytes);
+        }
+
+        @Override
+        void end() {
+            put(String.format("{\"records\":%d,\"crc32c\":\"%08x\"}\n", records, (int) checksum.getValue())
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static void appendString(StringBuilder out, String value) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else {
+                    out.append(c);
+                }
+            }
+            out.append('"');
+        }
+    }
+}
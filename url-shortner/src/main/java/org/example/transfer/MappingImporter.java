@@ -0,0 +1,220 @@
+package org.example.transfer;
+
+import org.example.model.URLMapping;
+import org.example.repository.URLRepository;
+import org.example.util.CoarseClock;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads a file written by {@link MappingExporter} into a repository.
+ * The calling thread reads and checks the file and partitions the mappings by URL hash; one
+ * worker per partition saves them with {@link URLRepository#saveAll(List)} in batches. All
+ * mappings for a URL go to the same worker, in file order. Each partition queues at most
+ * {@value #QUEUED_BATCHES} batches, so memory use does not grow with the file.
+ * <p>
+ * Mappings go through the normal write path, so a mapping whose URL already has a live
+ * mapping, or whose code is taken, is counted rather than overwriting anything. When a file
+ * holds several codes for one URL, the first in the file is imported and the rest are
+ * skipped, however many threads run. The trailer is
+ * checked once the whole file has been read: if the file turns out to be corrupt or truncated,
+ * the mappings before the damage have already been saved.
+ */
+public class MappingImporter {
+    private static final int QUEUED_BATCHES = 4;
+    private static final List<URLMapping> END = List.of();
+
+    private final Options options;
+
+    /**
+     * Creates an importer with default options.
+     */
+    public MappingImporter() {
+        this(new Options());
+    }
+
+    /**
+     * Creates an importer.
+     * @param options the parallelism and batch settings
+     */
+    public MappingImporter(Options options) {
+        this.options = options;
+    }
+
+    /**
+     * Reads a file through to its trailer, checking every checksum, without importing anything.
+     * @param file an exported file, in either format
+     * @return the checked record count and checksum
+     */
+    public static TransferSummary verify(Path file) {
+        try (MappingReader reader = new MappingReader(file, MappingExporter.BUFFER_BYTES)) {
+            while (reader.next() != null) {
+                // Reading is the check.
+            }
+            return reader.getSummary();
+        }
+    }
+
+    /**
+     * Imports every mapping in a file that has not expired. Blocks until all of them are saved.
+     * @param file an exported file, in either format
+     * @param target the repository to save into
+     * @return what happened to the mappings
+     * @throws InterruptedException if interrupted, after stopping the workers
+     */
+    public ImportResult importFrom(Path file, URLRepository target) throws InterruptedException {
+        long started = System.nanoTime();
+        int partitions = options.threads;
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(partitions, r -> {
+            Thread t = new Thread(r, "mapping-import-" + created.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        List<BlockingQueue<List<URLMapping>>> queues = new ArrayList<>(partitions);
+        List<Future<long[]>> futures = new ArrayList<>(partitions);
+        List<List<URLMapping>> batches = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            BlockingQueue<List<URLMapping>> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+            queues.add(queue);
+            futures.add(workers.submit(() -> save(queue, target, failure)));
+            batches.add(new ArrayList<>(options.batchSize));
+        }
+        workers.shutdown();
+
+        TransferSummary summary = null;
+        long expired = 0;
+        boolean drained = false;
+        try (MappingReader reader = new MappingReader(file, options.bufferBytes)) {
+            long now = CoarseClock.currentTimeMillis();
+            URLMapping mapping;
+            while (failure.get() == null && (mapping = reader.next()) != null) {
+                if (mapping.isExpiredAt(now)) {
+                    expired++;
+                    continue;
+                }
+                int p = Math.floorMod(mapping.getLongUrl().hashCode(), partitions);
+                List<URLMapping> batch = batches.get(p);
+                batch.add(mapping);
+                if (batch.size() == options.batchSize) {
+                    queues.get(p).put(batch);
+                    batches.set(p, new ArrayList<>(options.batchSize));
+                }
+            }
+            summary = reader.getSummary();
+            for (int p = 0; p < partitions; p++) {
+                if (summary != null && !batches.get(p).isEmpty()) {
+                    queues.get(p).put(batches.get(p));
+                }
+                queues.get(p).put(END);
+            }
+            drained = true;
+        } finally {
+            if (!drained) {
+                workers.shutdownNow();
+            }
+        }
+
+        long[] totals = new long[3];
+        for (Future<long[]> future : futures) {
+            try {
+                long[] counts = future.get();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += counts[i];
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Import worker failed", e.getCause());
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new ImportResult(summary, totals[0], totals[1], totals[2], expired,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Runs on a worker: saves each batch from the queue until {@link #END}. After any worker
+     * fails, the rest of the batches are dropped so the reader is never left blocked.
+     * @return imported, skipped and conflicting counts
+     */
+    private static long[] save(BlockingQueue<List<URLMapping>> queue, URLRepository target,
+                               AtomicReference<RuntimeException> failure) {
+        long[] counts = new long[3];
+        try {
+            List<URLMapping> batch;
+            while ((batch = queue.take()) != END) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                try {
+                    List<URLMapping> stored = target.saveAll(batch);
+                    for (int i = 0; i < batch.size(); i++) {
+                        URLMapping result = stored.get(i);
+                        counts[result == null ? 2 : result.equals(batch.get(i)) ? 0 : 1]++;
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return counts;
+    }
+
+    /**
+     * Options for {@link MappingImporter}.
+     */
+    public static final class Options {
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int batchSize = 1000;
+        private int bufferBytes = MappingExporter.BUFFER_BYTES;
+
+        /**
+         * Sets the number of partitions, each saved by its own thread (default: one per processor).
+         * @param threads the thread count
+         * @return these options
+         */
+        public Options threads(int threads) {
+            if (threads < 1) throw new IllegalArgumentException("Thread count must be positive");
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets how many mappings each {@link URLRepository#saveAll(List)} call carries (default 1000).
+         * @param mappings the batch size
+         * @return these options
+         */
+        public Options batchSize(int mappings) {
+            if (mappings < 1) throw new IllegalArgumentException("Batch size must be positive");
+            this.batchSize = mappings;
+            return this;
+        }
+
+        /**
+         * Sets the size of the direct buffer the file is read through (default 4 MiB).
+         * It must hold the longest record.
+         * @param bytes the buffer size
+         * @return these options
+         */
+        public Options bufferBytes(int bytes) {
+            if (bytes < 4096) throw new IllegalArgumentException("Buffer must be at least 4 KiB");
+            this.bufferBytes = bytes;
+            return this;
+        }
+    }
+}
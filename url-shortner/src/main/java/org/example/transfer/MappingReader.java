@@ -0,0 +1,385 @@
+package org.example.transfer;
+
+import org.example.model.URLMapping;
+import org.example.repository.MappingCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the mappings of an exported file one at a time through a direct buffer, checking every
+ * record's checksum and, at the end, the trailer's count and CRC32C. The format is told by the
+ * first byte. Corrupt, malformed or truncated files fail with {@link IllegalStateException}.
+ */
+final class MappingReader implements AutoCloseable {
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final TransferFormat format;
+    private final CRC32C checksum = new CRC32C();
+    private boolean eof;
+    private long records;
+    private TransferSummary summary;
+    private byte[] line = new byte[256];
+    private long lineNumber;
+
+    // Fields of the NDJSON line being parsed.
+    private String code;
+    private String url;
+    private long createdAt;
+    private long expiresAt;
+    private long trailerRecords;
+    private String trailerChecksum;
+
+    MappingReader(Path file, int bufferBytes) {
+        this.file = file;
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        buffer.flip();
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open " + file, e);
+        }
+        try {
+            if (!fill(8)) {
+                throw corrupt("too short to be an export");
+            }
+            if (buffer.get(buffer.position()) == '{') {
+                format = TransferFormat.NDJSON;
+            } else if (buffer.getInt() == MappingExporter.MAGIC) {
+                format = TransferFormat.BINARY;
+                int version = buffer.getInt();
+                if (version != MappingExporter.VERSION) {
+                    throw corrupt("unsupported version " + version);
+                }
+            } else {
+                throw corrupt("not an export");
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next mapping.
+     * @return the mapping, or null once the trailer has been read and checked
+     */
+    URLMapping next() {
+        if (summary != null) {
+            return null;
+        }
+        URLMapping mapping = format == TransferFormat.BINARY ? nextBinary() : nextJson();
+        if (mapping != null) {
+            records++;
+        }
+        return mapping;
+    }
+
+    /**
+     * Gets the checked trailer.
+     * @return the summary, or null before {@link #next()} has returned null
+     */
+    TransferSummary getSummary() {
+        return summary;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + file, e);
+        }
+    }
+
+    private URLMapping nextBinary() {
+        if (!fill(4)) {
+            throw corrupt("truncated after record " + records);
+        }
+        int length = buffer.getInt(buffer.position());
+        if (length == 0) {
+            if (!fill(16)) {
+                throw corrupt("truncated trailer");
+            }
+            buffer.getInt();
+            finish(buffer.getLong(), buffer.getInt());
+            return null;
+        }
+        if (length < 0 || length > buffer.capacity() - MappingCodec.RECORD_HEADER) {
+            throw corrupt("bad length in record " + (records + 1));
+        }
+        if (!fill(MappingCodec.RECORD_HEADER + length)) {
+            throw corrupt("truncated record " + (records + 1));
+        }
+        byte[] body = MappingCodec.readRecord(buffer);
+        if (body == null || MappingCodec.isRemoval(body)) {
+            throw corrupt("bad record " + (records + 1));
+        }
+        checksum.update(body);
+        return MappingCodec.decodeBody(body);
+    }
+
+    private URLMapping nextJson() {
+        int end = nextLineEnd();
+        int length = end - buffer.position();
+        if (line.length < length) {
+            line = new byte[Math.max(length, line.length * 2)];
+        }
+        buffer.get(line, 0, length);
+        buffer.get();
+        lineNumber++;
+        parseLine(length);
+        if (code != null) {
+            if (url == null || createdAt == Long.MIN_VALUE) {
+                throw corrupt("missing field on line " + lineNumber);
+            }
+            checksum.update(line, 0, length);
+            checksum.update('\n');
+            return new URLMapping(code, url, createdAt, expiresAt);
+        }
+        if (trailerRecords < 0 || trailerChecksum == null) {
+            throw corrupt("malformed line " + lineNumber);
+        }
+        int crc;
+        try {
+            crc = Integer.parseUnsignedInt(trailerChecksum, 16);
+        } catch (NumberFormatException e) {
+            throw corrupt("malformed trailer");
+        }
+        finish(trailerRecords, crc);
+        return null;
+    }
+
+    private void finish(long expectedRecords, int expectedChecksum) {
+        if (expectedRecords != records) {
+            throw corrupt("trailer expects " + expectedRecords + " records, read " + records);
+        }
+        if (expectedChecksum != (int) checksum.getValue()) {
+            throw corrupt("checksum mismatch");
+        }
+        try {
+            summary = new TransferSummary(format, records, expectedChecksum, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        }
+    }
+
+    /**
+     * Finds the newline ending the next line, reading more of the file as needed.
+     * @return its absolute index in the buffer
+     */
+    private int nextLineEnd() {
+        int scanned = buffer.position();
+        for (;;) {
+            for (; scanned < buffer.limit(); scanned++) {
+                if (buffer.get(scanned) == '\n') {
+                    return scanned;
+                }
+            }
+            int start = buffer.position();
+            if (eof) {
+                throw corrupt(start == buffer.limit() ? "missing trailer" : "truncated line " + (lineNumber + 1));
+            }
+            if (start == 0 && buffer.limit() == buffer.capacity()) {
+                throw corrupt("line " + (lineNumber + 1) + " is longer than the buffer");
+            }
+            scanned -= start;
+            fill(buffer.remaining() + 1);
+        }
+    }
+
+    /**
+     * Ensures at least {@code bytes} unread bytes are buffered, compacting and reading as needed.
+     * @return false if the file ends first
+     */
+    private boolean fill(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes && !eof) {
+                if (channel.read(buffer) < 0) {
+                    eof = true;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read " + file, e);
+        } finally {
+            buffer.flip();
+        }
+        return buffer.remaining() >= bytes;
+    }
+
+    /**
+     * Parses one flat JSON object from {@code line} into the field variables. Keys other than
+     * the known ones are skipped, so files with extra fields still import.
+     */
+    private void parseLine(int length) {
+        code = null;
+        url = null;
+        createdAt = Long.MIN_VALUE;
+        expiresAt = URLMapping.NO_EXPIRY;
+        trailerRecords = -1;
+        trailerChecksum = null;
+        int i = skipSpace(0, length);
+        if (i == length || line[i] != '{') {
+            throw corrupt("malformed line " + lineNumber);
+        }
+        i = skipSpace(i + 1, length);
+        if (i < length && line[i] == '}') {
+            i++;
+        } else {
+            for (;;) {
+                if (i == length || line[i] != '"') {
+                    throw corrupt("malformed line " + lineNumber);
+                }
+                int keyStart = i + 1;
+                int keyEnd = stringEnd(keyStart, length);
+                i = skipSpace(keyEnd + 1, length);
+                if (i == length || line[i] != ':') {
+                    throw corrupt("malformed line " + lineNumber);
+                }
+                i = skipSpace(i + 1, length);
+                if (i == length) {
+                    throw corrupt("malformed line " + lineNumber);
+                }
+                if (line[i] == '"') {
+                    int valueEnd = stringEnd(i + 1, length);
+                    String value = decodeString(i + 1, valueEnd);
+                    if (keyIs(keyStart, keyEnd, "code")) {
+                        code = value;
+                    } else if (keyIs(keyStart, keyEnd, "url")) {
+                        url = value;
+                    } else if (keyIs(keyStart, keyEnd, "crc32c")) {
+                        trailerChecksum = value;
+                    }
+                    i = valueEnd + 1;
+                } else {
+                    int valueEnd = i;
+                    while (valueEnd < length && line[valueEnd] != ',' && line[valueEnd] != '}'
+                            && line[valueEnd] != ' ') {
+                        valueEnd++;
+                    }
+                    if (keyIs(keyStart, keyEnd, "createdAt")) {
+                        createdAt = parseLong(i, valueEnd);
+                    } else if (keyIs(keyStart, keyEnd, "expiresAt")) {
+                        expiresAt = parseLong(i, valueEnd);
+                    } else if (keyIs(keyStart, keyEnd, "records")) {
+                        trailerRecords = parseLong(i, valueEnd);
+                    }
+                    i = valueEnd;
+                }
+                i = skipSpace(i, length);
+                if (i < length && line[i] == ',') {
+                    i = skipSpace(i + 1, length);
+                } else if (i < length && line[i] == '}') {
+                    i++;
+                    break;
+                } else {
+                    throw corrupt("malformed line " + lineNumber);
+                }
+            }
+        }
+        if (skipSpace(i, length) != length) {
+            throw corrupt("malformed line " + lineNumber);
+        }
+    }
+
+    private int skipSpace(int i, int length) {
+        while (i < length && (line[i] == ' ' || line[i] == '\t' || line[i] == '\r')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Finds the closing quote of a string whose contents start at {@code i}.
+     */
+    private int stringEnd(int i, int length) {
+        for (; i < length; i++) {
+            if (line[i] == '\\') {
+                i++;
+            } else if (line[i] == '"') {
+                return i;
+            }
+        }
+        throw corrupt("unterminated string on line " + lineNumber);
+    }
+
+    private boolean keyIs(int start, int end, String key) {
+        if (end - start != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (line[start + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decodeString(int start, int end) {
+        String raw = new String(line, start, end - start, StandardCharsets.UTF_8);
+        if (raw.indexOf('\\') < 0) {
+            return raw;
+        }
+        StringBuilder value = new StringBuilder(raw.length());
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = raw.charAt(++i);
+            switch (escaped) {
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (i + 4 >= raw.length()) {
+                        throw corrupt("bad escape on line " + lineNumber);
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException e) {
+                        throw corrupt("bad escape on line " + lineNumber);
+                    }
+                    i += 4;
+                    break;
+                default: value.append(escaped);
+            }
+        }
+        return value.toString();
+    }
+
+    private long parseLong(int start, int end) {
+        boolean negative = start < end && line[start] == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end || end - i > 18) {
+            throw corrupt("bad number on line " + lineNumber);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw corrupt("bad number on line " + lineNumber);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private IllegalStateException corrupt(String problem) {
+        return new IllegalStateException("Corrupt export " + file + ": " + problem);
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.transfer;
+
+/**
+ * File formats for {@link MappingExporter} and {@link MappingImporter}.
+ * Both end with a trailer that holds the record count and a CRC32C checksum of every
+ * record, so a truncated or altered file is detected on import.
+ */
+public enum TransferFormat {
+    /**
+     * {@code [int magic][int version]}, then one
+     * {@link org.example.repository.MappingCodec} record per mapping, each with its own CRC32,
+     * then {@code [int 0][long records][int crc32c]}. The CRC32C covers every record body.
+     */
+    BINARY,
+    /**
+     * One JSON object per line:
+     * {@code {"code":"abc","url":"https://...","createdAt":1700000000000,"expiresAt":1700003600000}},
+     * with timestamps as UTC epoch millis and {@code expiresAt} left out for mappings that never
+     * expire. The last line is {@code {"records":2,"crc32c":"1a2b3c4d"}}; the CRC32C covers
+     * every mapping line, newline included.
+     */
+    NDJSON
+}
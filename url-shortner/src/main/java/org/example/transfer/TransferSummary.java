@@ -0,0 +1,56 @@
+package org.example.transfer;
+
+/**
+ * What an export wrote or a verification read: the format, the record count and the
+ * checksum stored in the file's trailer.
+ */
+public final class TransferSummary {
+    private final TransferFormat format;
+    private final long records;
+    private final int checksum;
+    private final long bytes;
+
+    TransferSummary(TransferFormat format, long records, int checksum, long bytes) {
+        this.format = format;
+        this.records = records;
+        this.checksum = checksum;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Gets the file format.
+     * @return the format
+     */
+    public TransferFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets the number of mappings in the file.
+     * @return the record count
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Gets the CRC32C of the file's records.
+     * @return the checksum
+     */
+    public int getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Gets the file size.
+     * @return bytes, trailer included
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d records, %d bytes, crc32c %08x", format, records, bytes, checksum);
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Cheap, cached wall clock for hot paths such as redirect expiry checks.
+ * While the clock is being read, a daemon thread refreshes the cached time every millisecond as
+ * epoch millis, on the scale of {@link org.example.model.URLMapping#getExpiresAtMillis()}, so
+ * readers get a volatile read instead of a clock call. A tick allocates nothing: the
+ * {@link LocalDateTime} returned by {@link #now()} is built on first request after a tick and
+ * shared until the next one. The value may lag the real time by about one tick.
+ * <p>
+ * The ticker is started by the first read and stops after a second without reads; the next
+ * read refreshes the time itself and starts a new one.
+ */
+public final class CoarseClock {
+    /**
+     * How often the cached time is refreshed.
+     */
+    private static final long TICK_MILLIS = 1;
+    /**
+     * How often the default time zone's offset is looked up again, besides at its transitions,
+     * so a changed default zone is picked up.
+     */
+    private static final long OFFSET_CHECK_MILLIS = 60_000;
+    /**
+     * How many ticks without a read stop the ticker.
+     */
+    private static final int IDLE_TICKS = 1000;
+
+    // Only touched under the class lock, by whichever thread ticks.
+    private static long offsetMillis;
+    private static long offsetValidUntil = Long.MIN_VALUE;
+
+    private static volatile long nowMillis = localMillis(System.currentTimeMillis());
+    private static volatile Reading last = new Reading(nowMillis);
+    private static volatile boolean ticking;
+    /**
+     * Set by readers, cleared by the ticker; written only when it changes, so readers that find
+     * it set do not contend on it.
+     */
+    private static volatile boolean read;
+
+    private CoarseClock() {
+    }
+
+    private static synchronized void tick() {
+        nowMillis = localMillis(System.currentTimeMillis());
+    }
+
+    /**
+     * Marks the clock as read, starting the ticker if it has stopped.
+     */
+    private static void touch() {
+        if (!read) {
+            read = true;
+        }
+        if (!ticking) {
+            startTicker();
+        }
+    }
+
+    private static synchronized void startTicker() {
+        if (ticking) {
+            return;
+        }
+        tick();
+        ticking = true;
+        Thread ticker = new Thread(CoarseClock::tickWhileRead, "coarse-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    private static void tickWhileRead() {
+        int idle = 0;
+        while (true) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS));
+            tick();
+            if (read) {
+                read = false;
+                idle = 0;
+            } else if (++idle >= IDLE_TICKS && stopTicker()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the ticker unless a read arrived since the last check.
+     */
+    private static synchronized boolean stopTicker() {
+        if (read) {
+            return false;
+        }
+        ticking = false;
+        return true;
+    }
+
+    /**
+     * Tells whether the ticker thread is running. For tests.
+     */
+    static boolean isTicking() {
+        return ticking;
+    }
+
+    /**
+     * Shifts a UTC reading by the default zone's offset, so the result is the local date-time
+     * read as UTC, the way {@link LocalDateTime#now()} values are stored.
+     */
+    private static long localMillis(long utcMillis) {
+        if (utcMillis >= offsetValidUntil) {
+            Instant instant = Instant.ofEpochMilli(utcMillis);
+            ZoneRules rules = ZoneId.systemDefault().getRules();
+            offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+            ZoneOffsetTransition next = rules.nextTransition(instant);
+            long checkAt = utcMillis + OFFSET_CHECK_MILLIS;
+            offsetValidUntil = next == null ? checkAt : Math.min(checkAt, next.toEpochSecond() * 1000);
+        }
+        return utcMillis + offsetMillis;
+    }
+
+    /**
+     * Gets the cached current time.
+     * @return the time as of the last tick, to the millisecond
+     */
+    public static LocalDateTime now() {
+        touch();
+        long millis = nowMillis;
+        Reading reading = last;
+        if (reading.millis != millis) {
+            reading = new Reading(millis);
+            last = reading;
+        }
+        return reading.time;
+    }
+
+    /**
+     * Gets the cached current time as epoch millis, treating the local date-time as UTC
+     * the way stored mappings do. This is not {@link System#currentTimeMillis()} unless the
+     * default time zone is UTC.
+     * @return the millis as of the last tick
+     */
+    public static long currentTimeMillis() {
+        touch();
+        return nowMillis;
+    }
+
+    /**
+     * One tick's millis and the date-time built from them.
+     */
+    private static final class Reading {
+        final long millis;
+        final LocalDateTime time;
+
+        Reading(long millis) {
+            this.millis = millis;
+            this.time = LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000),
+                    Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link LatencyHistogram} that many threads can record into without a lock. Each bucket is an
+ * element of an {@link AtomicLongArray}, so recording is one atomic increment and one atomic
+ * add, plus a compare-and-set for a new maximum. A copy taken while values are being recorded
+ * may leave out the values in flight, but its count always matches its buckets.
+ */
+public final class ConcurrentLatencyHistogram {
+    private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one value.
+     * @param value the value; negative values are recorded as 0
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        counts.incrementAndGet(LatencyHistogram.indexFor(v));
+        sum.addAndGet(v);
+        long current;
+        while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+            // Lost to another new maximum; check against it.
+        }
+    }
+
+    /**
+     * Adds every value recorded so far to a histogram.
+     * @param target the histogram to add to
+     */
+    public void copyInto(LatencyHistogram target) {
+        target.add(counts, sum.get(), max.get());
+    }
+
+    /**
+     * Forgets every recorded value. Values recorded during the reset may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.util;
+
+/**
+ * Count-min sketch of recent access frequency, as used by TinyLFU cache admission.
+ * Counters are 4 bits wide (saturating at 15), sixteen to a {@code long}, and each key
+ * touches four of them in different words. After {@code 10 * maximumSize} increments every
+ * counter is halved, so the sketch follows shifts in popularity instead of remembering
+ * all history. Estimates never undercount an item since the last halving, but may
+ * overcount on hash collisions. Not thread-safe; callers serialize access.
+ */
+public final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * Creates a sketch sized for a cache of the given capacity.
+     * @param maximumSize the cache capacity
+     */
+    public FrequencySketch(int maximumSize) {
+        if (maximumSize < 1) throw new IllegalArgumentException("Maximum size must be positive");
+        int length = Integer.highestOneBit(Math.max(maximumSize, 16) - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * maximumSize;
+    }
+
+    /**
+     * Estimates how often an item was seen since the counters were last halved.
+     * @param hash the item's hash code
+     * @return the estimate, between 0 and 15
+     */
+    public int frequency(int hash) {
+        int start = (spread(hash) & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Records one access of an item.
+     * @param hash the item's hash code
+     */
+    public void increment(int hash) {
+        int start = (spread(hash) & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves every counter.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
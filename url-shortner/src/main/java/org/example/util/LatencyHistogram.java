@@ -0,0 +1,146 @@
+package org.example.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative long values such as latencies in nanoseconds, in the
+ * style of HdrHistogram. Values below 256 are counted exactly; above that, every power-of-two
+ * range is split into 128 equal sub-buckets, so a reported value is within 1/128 (under 0.8%)
+ * of the recorded one across the whole long range, in a fixed 57 KB of counts.
+ * Recording is a few shifts and an array increment and never allocates.
+ * Not thread-safe; callers serialize access, or record into a {@link ConcurrentLatencyHistogram}.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Values below this have a bucket of their own.
+     */
+    private static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+    static final int BUCKETS = EXACT_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Records one value.
+     * @param value the value; negative values are recorded as 0
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        counts[indexFor(v)]++;
+        count++;
+        sum += v;
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    /**
+     * Adds every value recorded in another histogram to this one.
+     * @param other the histogram to add; not changed
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Adds the values counted in a {@link ConcurrentLatencyHistogram}'s buckets.
+     * @param otherCounts the bucket counts, {@value #BUCKETS} of them
+     * @param otherSum the sum of the values
+     * @param otherMax the largest value
+     */
+    void add(AtomicLongArray otherCounts, long otherSum, long otherMax) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = otherCounts.get(i);
+            counts[i] += n;
+            count += n;
+        }
+        sum += otherSum;
+        max = Math.max(max, otherMax);
+    }
+
+    /**
+     * Forgets every recorded value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    /**
+     * Gets the number of recorded values.
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the largest recorded value, exactly.
+     * @return the maximum, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the mean of the recorded values, exactly.
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Gets the value at a percentile: the smallest value that at least {@code percentile}
+     * percent of the recorded values do not exceed, rounded up to the end of its bucket.
+     * @param percentile between 0 and 100
+     * @return the value, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int indexFor(long value) {
+        if (value < EXACT_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return EXACT_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestEquivalentValue(int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+        int range = (index - EXACT_LIMIT) / SUB_BUCKETS;
+        int shift = range + 1;
+        long lowest = (long) (SUB_BUCKETS + (index - EXACT_LIMIT) % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
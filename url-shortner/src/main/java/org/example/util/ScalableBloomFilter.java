@@ -0,0 +1,154 @@
+package org.example.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter for strings that grows as elements are added.
+ * Follows the scalable Bloom filter scheme: when the newest stage reaches its capacity a new
+ * stage with twice the capacity and half the false-positive rate is added, so the compound
+ * false-positive rate stays below the configured target however many elements arrive.
+ * Bits are set with lock-free CAS on an {@link AtomicLongArray}; only adding a stage locks.
+ * Elements cannot be removed; there are never false negatives.
+ */
+public final class ScalableBloomFilter {
+    private final double falsePositiveRate;
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a filter.
+     * @param initialCapacity elements the first stage holds before a new stage is added
+     * @param falsePositiveRate the target compound false-positive rate, e.g. 0.01
+     */
+    public ScalableBloomFilter(int initialCapacity, double falsePositiveRate) {
+        if (initialCapacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) throw new IllegalArgumentException("False-positive rate must be in (0, 1)");
+        this.falsePositiveRate = falsePositiveRate;
+        // Stage rates p/2, p/4, ... sum to at most p
+        stages.add(new Stage(initialCapacity, falsePositiveRate / 2));
+    }
+
+    /**
+     * Adds an element.
+     * @param value the element
+     */
+    public void add(String value) {
+        long hash = hash(value);
+        Stage stage = stages.get(stages.size() - 1);
+        if (stage.count.get() >= stage.capacity) {
+            stage = grow(stage);
+        }
+        stage.add(hash);
+    }
+
+    /**
+     * Tells whether the element may have been added.
+     * @param value the element
+     * @return false if the element was definitely never added
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of stages allocated so far.
+     * @return the stage count
+     */
+    public int stageCount() {
+        return stages.size();
+    }
+
+    /**
+     * Gets the approximate number of elements added.
+     * @return the element count
+     */
+    public long approximateSize() {
+        long size = 0;
+        for (Stage stage : stages) {
+            size += stage.count.get();
+        }
+        return size;
+    }
+
+    private synchronized Stage grow(Stage full) {
+        Stage newest = stages.get(stages.size() - 1);
+        if (newest != full) {
+            return newest;
+        }
+        Stage next = new Stage(Math.multiplyExact(full.capacity, 2), full.falsePositiveRate / 2);
+        stages.add(next);
+        return next;
+    }
+
+    /**
+     * 64-bit hash of the string's chars with a final avalanche step.
+     */
+    private static long hash(String value) {
+        long h = 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * One fixed-size Bloom filter; probe positions use double hashing.
+     */
+    private static final class Stage {
+        final long capacity;
+        final double falsePositiveRate;
+        final AtomicLongArray words;
+        final long bitCount;
+        final int hashCount;
+        final AtomicLong count = new AtomicLong();
+
+        Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            double ln2 = Math.log(2);
+            long bits = Math.max(64, (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2)));
+            this.words = new AtomicLongArray(Math.toIntExact((bits + 63) / 64));
+            this.bitCount = words.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+        }
+
+        void add(long hash) {
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = words.get(word);
+                while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                    current = words.get(word);
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        boolean mightContain(long hash) {
+            long h1 = hash;
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving summary of the heaviest items in a weighted stream (Metwally et al.).
+ * A fixed number of counters is kept in a min-heap. An unmonitored item takes over the
+ * smallest counter and inherits its count, so estimates never undercount, and any item whose
+ * true weight exceeds {@code total / capacity} is guaranteed to be monitored. Each update is
+ * O(log capacity). Not thread-safe; callers serialize access.
+ */
+public final class SpaceSavingSketch {
+    private static final Comparator<Counter> BY_COUNT_DESCENDING =
+            Comparator.comparingLong((Counter counter) -> counter.count).reversed();
+
+    private final Counter[] heap;
+    private final Map<String, Counter> counters;
+    private int size;
+
+    /**
+     * Creates a sketch.
+     * @param capacity how many items are monitored
+     */
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        this.heap = new Counter[capacity];
+        this.counters = new HashMap<>(capacity * 4 / 3 + 1);
+    }
+
+    /**
+     * Adds weight to an item.
+     * @param item the item
+     * @param weight the weight to add, at least 1
+     */
+    public void add(String item, long weight) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += weight;
+            siftDown(counter.index);
+            return;
+        }
+        if (size < heap.length) {
+            counter = new Counter(item, weight, size);
+            heap[size++] = counter;
+            counters.put(item, counter);
+            siftUp(counter.index);
+            return;
+        }
+        // Replace the lightest item; its count is an upper bound on what the new item may have had.
+        counter = heap[0];
+        counters.remove(counter.item);
+        counter.item = item;
+        counter.count += weight;
+        counters.put(item, counter);
+        siftDown(0);
+    }
+
+    /**
+     * Estimates an item's weight.
+     * @param item the item
+     * @return an upper bound on its weight, or 0 if it is not monitored
+     */
+    public long estimate(String item) {
+        Counter counter = counters.get(item);
+        return counter == null ? 0 : counter.count;
+    }
+
+    /**
+     * Gets the heaviest monitored items.
+     * @param k how many to return
+     * @return up to {@code k} items and their estimated weights, heaviest first
+     */
+    public Map<String, Long> top(int k) {
+        Counter[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted, BY_COUNT_DESCENDING);
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(k, sorted.length); i++) {
+            top.put(sorted[i].item, sorted[i].count);
+        }
+        return top;
+    }
+
+    /**
+     * Halves every count, so old weight fades. Halving keeps the heap order.
+     */
+    public void halve() {
+        for (int i = 0; i < size; i++) {
+            heap[i].count >>>= 1;
+        }
+    }
+
+    /**
+     * Gets the number of monitored items.
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    private void siftUp(int index) {
+        Counter counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index) {
+        Counter counter = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter counter, int index) {
+        heap[index] = counter;
+        counter.index = index;
+    }
+
+    /**
+     * One monitored item and its position in the heap.
+     */
+    private static final class Counter {
+        String item;
+        long count;
+        int index;
+
+        Counter(String item, long count, int index) {
+            this.item = item;
+            this.count = count;
+            this.index = index;
+        }
+    }
+}
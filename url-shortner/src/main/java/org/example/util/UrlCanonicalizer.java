@@ -0,0 +1,104 @@
+package org.example.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * Rewrites HTTP(S) URLs into a canonical form, so equivalent URLs compare equal.
+ * <ul>
+ *     <li>The scheme and host are lower-cased.</li>
+ *     <li>The default port (80 for http, 443 for https) is dropped.</li>
+ *     <li>An empty path becomes {@code /}.</li>
+ *     <li>Query parameters are sorted by name; parameters with the same name keep their order.</li>
+ * </ul>
+ * The path, the parameter values and the fragment are left as they are, since changing their
+ * case or encoding can change what the server returns. Input that is not an absolute
+ * {@code scheme://host} URL is returned unchanged.
+ */
+public final class UrlCanonicalizer {
+    private static final Comparator<String> BY_PARAMETER_NAME = Comparator.comparing(UrlCanonicalizer::parameterName);
+
+    private UrlCanonicalizer() {
+    }
+
+    /**
+     * Canonicalizes a URL.
+     * @param url the URL
+     * @return the canonical form, or the input itself if it is already canonical or not an absolute URL
+     */
+    public static String canonicalize(String url) {
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0) {
+            return url;
+        }
+        int authorityStart = schemeEnd + 3;
+        int authorityEnd = indexOfAny(url, "/?#", authorityStart);
+        int queryStart = url.indexOf('?', authorityEnd);
+        int fragmentStart = url.indexOf('#', authorityEnd);
+        if (queryStart > fragmentStart && fragmentStart >= 0) {
+            queryStart = -1;
+        }
+        int pathEnd = queryStart >= 0 ? queryStart : fragmentStart >= 0 ? fragmentStart : url.length();
+        int queryEnd = fragmentStart >= 0 ? fragmentStart : url.length();
+
+        String scheme = url.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        StringBuilder out = new StringBuilder(url.length() + 1);
+        out.append(scheme).append("://");
+        appendAuthority(out, scheme, url.substring(authorityStart, authorityEnd));
+        out.append(pathEnd > authorityEnd ? url.substring(authorityEnd, pathEnd) : "/");
+        if (queryStart >= 0) {
+            out.append('?').append(sortParameters(url.substring(queryStart + 1, queryEnd)));
+        }
+        if (fragmentStart >= 0) {
+            out.append(url, fragmentStart, url.length());
+        }
+        String canonical = out.toString();
+        return canonical.equals(url) ? url : canonical;
+    }
+
+    private static void appendAuthority(StringBuilder out, String scheme, String authority) {
+        int at = authority.lastIndexOf('@');
+        if (at >= 0) {
+            out.append(authority, 0, at + 1);
+        }
+        String hostPort = authority.substring(at + 1);
+        int colon = hostPort.lastIndexOf(':');
+        // A colon inside brackets belongs to an IPv6 literal, not a port.
+        if (colon >= 0 && colon > hostPort.lastIndexOf(']')) {
+            String port = hostPort.substring(colon + 1);
+            if (port.isEmpty() || ("http".equals(scheme) && "80".equals(port)) || ("https".equals(scheme) && "443".equals(port))) {
+                hostPort = hostPort.substring(0, colon);
+            } else {
+                hostPort = hostPort.substring(0, colon).toLowerCase(Locale.ROOT) + ':' + port;
+                out.append(hostPort);
+                return;
+            }
+        }
+        out.append(hostPort.toLowerCase(Locale.ROOT));
+    }
+
+    private static String sortParameters(String query) {
+        if (query.indexOf('&') < 0) {
+            return query;
+        }
+        String[] parameters = query.split("&", -1);
+        // Arrays.sort on objects is stable, so repeated names keep their relative order.
+        Arrays.sort(parameters, BY_PARAMETER_NAME);
+        return String.join("&", parameters);
+    }
+
+    private static String parameterName(String parameter) {
+        int eq = parameter.indexOf('=');
+        return eq < 0 ? parameter : parameter.substring(0, eq);
+    }
+
+    private static int indexOfAny(String value, String chars, int from) {
+        for (int i = from; i < value.length(); i++) {
+            if (chars.indexOf(value.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return value.length();
+    }
+}
@@ -1,32 +1,366 @@
 package org.example.util;
 
-import java.net.MalformedURLException;
-import java.net.URL;
+import java.util.Arrays;
 
 /**
  * Utility class for validating URLs.
+ * URLs are checked in a single pass over the string, without building a {@code java.net.URL},
+ * so a valid URL allocates nothing and an invalid one allocates only the exception.
+ * The verdicts match {@code new URL(url)} on this JDK, including its leniency: surrounding
+ * whitespace and a {@code url:} prefix are ignored, and the path, query and fragment are not checked.
+ * Like java.net.URL since JDK 20, it rejects spaces and characters such as '<' and '|' in the host.
  */
 public class UrlValidator {
+    private static final int VALID = 0;
+    private static final int EMPTY = 1;
+    private static final int MALFORMED = 2;
+    private static final int UNSUPPORTED_SCHEME = 3;
+    private static final int NO_HOST = 4;
+    /**
+     * Non-ASCII characters that java.net.URL rejects in a host, such as the fullwidth '/' and ':'.
+     */
+    private static final char[] ILLEGAL_HOST_CHARS = {
+            8263, 8264, 8265, 8448, 8449, 8453, 8454, 10868,
+            65109, 65110, 65119, 65131, 65283, 65295, 65306, 65311, 65312
+    };
+    /**
+     * ASCII characters that java.net.URL rejects in a host name but not in an IPv6 literal's scope.
+     */
+    private static final String ILLEGAL_HOST_NAME_CHARS = " \"<>]^`{|}";
+
     /**
      * Validates the input URL. Throws IllegalArgumentException if invalid.
      * @param url the URL string to validate
      */
     public static void validate(String url) {
-        if (url == null || url.trim().isEmpty()) {
-            throw new IllegalArgumentException("URL must not be null or empty");
-        }
-        try {
-            URL parsed = new URL(url);
-            String protocol = parsed.getProtocol();
-            if (!protocol.equals("http") && !protocol.equals("https")) {
+        switch (check(url)) {
+            case VALID:
+                return;
+            case EMPTY:
+                throw new IllegalArgumentException("URL must not be null or empty");
+            case UNSUPPORTED_SCHEME:
                 throw new IllegalArgumentException("Only HTTP and HTTPS URLs are supported");
-            }
-            String host = parsed.getHost();
-            if (host == null || host.trim().isEmpty()) {
+            case NO_HOST:
                 throw new IllegalArgumentException("URL must have a valid host");
+            default:
+                throw new IllegalArgumentException("Invalid URL: " + url);
+        }
+    }
+
+    /**
+     * Checks the input URL without throwing.
+     * @param url the URL string to check
+     * @return true if {@link #validate(String)} would accept it
+     */
+    public static boolean isValid(String url) {
+        return check(url) == VALID;
+    }
+
+    private static int check(String url) {
+        if (url == null) {
+            return EMPTY;
+        }
+        // Leading and trailing characters up to ' ' are ignored, as String.trim does.
+        int limit = url.length();
+        while (limit > 0 && url.charAt(limit - 1) <= ' ') {
+            limit--;
+        }
+        if (limit == 0) {
+            return EMPTY;
+        }
+        int start = 0;
+        while (url.charAt(start) <= ' ') {
+            start++;
+        }
+        if (url.regionMatches(true, start, "url:", 0, 4)) {
+            start += 4;
+        }
+
+        // Scheme: everything before the first ':', unless a '/' or a leading '#' comes first.
+        int colon = -1;
+        if (start < limit && url.charAt(start) != '#') {
+            for (int i = start; i < limit; i++) {
+                char c = url.charAt(i);
+                if (c == '/') {
+                    break;
+                }
+                if (c == ':') {
+                    colon = i;
+                    break;
+                }
+            }
+        }
+        if (colon < 0 || !isScheme(url, start, colon)) {
+            return MALFORMED;
+        }
+        if (!isHttpScheme(url, start, colon)) {
+            return UNSUPPORTED_SCHEME;
+        }
+        start = colon + 1;
+
+        // The authority ends at the first '/', '?' or '#' after "//".
+        int fragment = url.indexOf('#', start);
+        if (fragment >= 0) {
+            limit = fragment;
+        }
+        int query = url.indexOf('?', start);
+        int end = query >= 0 && query < limit ? query : limit;
+        boolean hasAuthority = start <= end - 2 && url.charAt(start) == '/' && url.charAt(start + 1) == '/';
+        // Four slashes mark a UNC path, which has no authority.
+        if (!hasAuthority || (start <= end - 4 && url.charAt(start + 2) == '/' && url.charAt(start + 3) == '/')) {
+            return NO_HOST;
+        }
+        int authorityStart = start + 2;
+        int authorityEnd = url.indexOf('/', authorityStart);
+        if (authorityEnd < 0 || authorityEnd > end) {
+            authorityEnd = end;
+        }
+        return checkAuthority(url, authorityStart, authorityEnd);
+    }
+
+    private static int checkAuthority(String url, int start, int end) {
+        int at = url.indexOf('@', start);
+        int hostStart = start;
+        if (at >= 0 && at < end) {
+            int secondAt = url.indexOf('@', at + 1);
+            if (secondAt >= 0 && secondAt < end) {
+                // More than one '@' is not a server-based authority.
+                return NO_HOST;
+            }
+            for (int i = start; i < at; i++) {
+                char c = url.charAt(i);
+                if (isIllegalInAuthority(c) || c == ']') {
+                    return MALFORMED;
+                }
+            }
+            hostStart = at + 1;
+        }
+        if (hostStart < end && url.charAt(hostStart) == '[') {
+            int close = url.indexOf(']', hostStart);
+            if (close < 0 || close >= end || close - hostStart <= 2 || !isIpv6Literal(url, hostStart + 1, close)) {
+                return MALFORMED;
+            }
+            if (close + 1 < end) {
+                if (url.charAt(close + 1) != ':') {
+                    return MALFORMED;
+                }
+                if (close + 2 < end && !isPort(url, close + 2, end)) {
+                    return MALFORMED;
+                }
+            }
+            return hasIllegalHostChar(url, hostStart + 1, close, false) ? MALFORMED : VALID;
+        }
+        int hostEnd = end;
+        int portColon = url.indexOf(':', hostStart);
+        if (portColon >= 0 && portColon < end) {
+            if (portColon + 1 < end && !isPort(url, portColon + 1, end)) {
+                return MALFORMED;
+            }
+            hostEnd = portColon;
+        }
+        if (hasIllegalHostChar(url, hostStart, hostEnd, true)) {
+            return MALFORMED;
+        }
+        return hostStart < hostEnd ? VALID : NO_HOST;
+    }
+
+    /**
+     * Characters rejected anywhere in the authority, '/' and a few look-alike Unicode punctuation
+     * marks, and in a host name also the characters of {@link #ILLEGAL_HOST_NAME_CHARS}.
+     */
+    private static boolean hasIllegalHostChar(String url, int start, int end, boolean name) {
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (isIllegalInAuthority(c) || c == '/' || (name && ILLEGAL_HOST_NAME_CHARS.indexOf(c) >= 0)
+                    || (c >= ILLEGAL_HOST_CHARS[0] && Arrays.binarySearch(ILLEGAL_HOST_CHARS, c) >= 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Control characters, '[', '\' and DEL, which java.net.URL rejects in the user info and the host.
+     */
+    private static boolean isIllegalInAuthority(char c) {
+        return c < ' ' || c == '[' || c == '\\' || c == 127;
+    }
+
+    /**
+     * A letter followed by letters, digits, '.', '+' or '-'.
+     */
+    private static boolean isScheme(String url, int start, int end) {
+        if (start == end || !Character.isLetter(url.charAt(start))) {
+            return false;
+        }
+        for (int i = start + 1; i < end; i++) {
+            char c = url.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '.' && c != '+' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * "http" or "https" in any ASCII case.
+     */
+    private static boolean isHttpScheme(String url, int start, int end) {
+        int length = end - start;
+        if (length != 4 && length != 5) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = url.charAt(start + i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != "https".charAt(i)) {
+                return false;
             }
-        } catch (MalformedURLException e) {
-            throw new IllegalArgumentException("Invalid URL: " + url, e);
         }
+        return true;
+    }
+
+    /**
+     * An optionally signed decimal int that is at least -1, as Integer.parseInt reads it.
+     */
+    private static boolean isPort(String url, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        char first = url.charAt(i);
+        if (first < '0') {
+            if (first != '-' && first != '+') {
+                return false;
+            }
+            negative = first == '-';
+            if (++i == end) {
+                return false;
+            }
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(url.charAt(i), 10);
+            if (digit < 0) {
+                return false;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                return false;
+            }
+        }
+        return !negative || value <= 1;
+    }
+
+    /**
+     * An IPv6 address with an optional trailing IPv4 part and "%scope", as InetAddress reads it.
+     */
+    private static boolean isIpv6Literal(String url, int start, int end) {
+        if (end - start < 2) {
+            return false;
+        }
+        int scope = url.indexOf('%', start);
+        if (scope == end - 1) {
+            return false;
+        }
+        int addressEnd = scope >= 0 && scope < end ? scope : end;
+        int i = start;
+        if (url.charAt(i) == ':' && url.charAt(++i) != ':') {
+            return false;
+        }
+        int bytes = 0;
+        int doubleColon = -1;
+        int token = i;
+        boolean sawDigit = false;
+        int value = 0;
+        while (i < addressEnd) {
+            char c = url.charAt(i++);
+            int digit = hexDigit(c);
+            if (digit >= 0) {
+                value = value << 4 | digit;
+                if (value > 0xffff) {
+                    return false;
+                }
+                sawDigit = true;
+                continue;
+            }
+            if (c == ':') {
+                token = i;
+                if (!sawDigit) {
+                    if (doubleColon != -1) {
+                        return false;
+                    }
+                    doubleColon = bytes;
+                    continue;
+                }
+                if (i == addressEnd || bytes + 2 > 16) {
+                    return false;
+                }
+                bytes += 2;
+                sawDigit = false;
+                value = 0;
+                continue;
+            }
+            if (c == '.' && bytes + 4 <= 16) {
+                if (!isIpv4Literal(url, token, addressEnd)) {
+                    return false;
+                }
+                bytes += 4;
+                sawDigit = false;
+                break;
+            }
+            return false;
+        }
+        if (sawDigit) {
+            if (bytes + 2 > 16) {
+                return false;
+            }
+            bytes += 2;
+        }
+        if (doubleColon != -1) {
+            return bytes != 16;
+        }
+        return bytes == 16;
+    }
+
+    /**
+     * Four dotted decimal octets.
+     */
+    private static boolean isIpv4Literal(String url, int start, int end) {
+        if (end - start > 15) {
+            return false;
+        }
+        int dots = 0;
+        long value = 0;
+        boolean newOctet = true;
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            if (c == '.') {
+                if (newOctet || value > 0xff || ++dots > 3) {
+                    return false;
+                }
+                value = 0;
+                newOctet = true;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                newOctet = false;
+            } else {
+                return false;
+            }
+        }
+        return dots == 3 && !newOctet && value <= 0xff;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
     }
 }
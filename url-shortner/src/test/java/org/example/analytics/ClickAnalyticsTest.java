@@ -0,0 +1,351 @@
+package org.example.analytics;
+
+import org.example.repository.InMemoryURLRepository;
+import org.example.server.RedirectServer;
+import org.example.service.SimpleShortCodeGenerator;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickAnalyticsTest {
+    private static final Logger LOG = Logger.getLogger(ClickAnalyticsTest.class.getName());
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    /**
+     * Options that leave aggregation to the test.
+     */
+    private static ClickAnalytics.Options manual() {
+        return new ClickAnalytics.Options().flushIntervalMillis(TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Test
+    void shouldAggregateClicksIntoMinuteBuckets() {
+        try (ClickAnalytics analytics = ClickAnalytics.start(manual())) {
+            analytics.recordClick("abc");
+            analytics.recordClick("abc");
+            analytics.recordClick("xyz");
+            analytics.aggregate(NOON.plusSeconds(10));
+            analytics.recordClick("abc");
+            analytics.aggregate(NOON.plusMinutes(1).plusSeconds(5));
+            analytics.aggregate(NOON.plusMinutes(3));
+            analytics.recordClick("abc");
+
+            assertEquals(4, analytics.getClickCount("abc"), "Totals should include clicks not aggregated yet");
+            assertEquals(0, analytics.getClickCount("missing"));
+            Map<LocalDateTime, Long> minutes = analytics.getMinuteCounts("abc");
+            assertEquals(List.of(NOON, NOON.plusMinutes(1), NOON.plusMinutes(3)), List.copyOf(minutes.keySet()));
+            assertEquals(List.of(2L, 1L, 0L), List.copyOf(minutes.values()));
+            assertEquals(Map.of(NOON, 1L, NOON.plusMinutes(1), 0L, NOON.plusMinutes(3), 0L), analytics.getMinuteCounts("xyz"));
+        }
+    }
+
+    @Test
+    void shouldWriteFinishedMinutesToTheSinkInOrder() throws InterruptedException {
+        List<ClickBucket> written = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch twoBuckets = new CountDownLatch(2);
+        ClickAnalytics analytics = ClickAnalytics.start(manual().sink(bucket -> {
+            written.add(bucket);
+            twoBuckets.countDown();
+        }));
+        analytics.recordClick("abc");
+        analytics.aggregate(NOON);
+        analytics.recordClick("abc");
+        analytics.recordClick("xyz");
+        analytics.aggregate(NOON.plusMinutes(1));
+        analytics.recordClick("xyz");
+        analytics.aggregate(NOON.plusMinutes(2));
+        assertTrue(twoBuckets.await(5, TimeUnit.SECONDS));
+
+        assertEquals(NOON, written.get(0).getMinute());
+        assertEquals(Map.of("abc", 1L), written.get(0).getCounts());
+        assertEquals(NOON.plusMinutes(1), written.get(1).getMinute());
+        assertEquals(2, written.get(1).getTotal());
+
+        analytics.recordClick("last");
+        analytics.close();
+        assertEquals(4, written.size(), "close should hand the unfinished minutes to the sink");
+        assertEquals(1, written.get(2).getCount("xyz"));
+        assertEquals(1, written.get(3).getCount("last"));
+    }
+
+    @Test
+    void shouldSurviveAFailingSink() {
+        ClickAnalytics analytics = ClickAnalytics.start(manual().sink(bucket -> {
+            throw new IllegalStateException("sink down");
+        }));
+        analytics.recordClick("abc");
+        analytics.aggregate(NOON);
+        assertEquals(1, analytics.getClickCount("abc"));
+        analytics.close();
+        assertEquals(1, analytics.getSinkFailureCount());
+    }
+
+    @Test
+    void shouldReportHottestCodesAndLetThemFade() {
+        try (ClickAnalytics analytics = ClickAnalytics.start(manual().topKCapacity(8).decayHalfLifeMinutes(1))) {
+            for (int i = 0; i < 100; i++) {
+                analytics.recordClick("hot");
+                analytics.recordClick("warm" + (i % 5 < 3 ? 0 : 1));
+                analytics.recordClick("cold" + i);
+            }
+            analytics.aggregate(NOON);
+            Map<String, Long> hottest = analytics.getHottestCodes(3);
+            assertEquals(List.of("hot", "warm0", "warm1"), List.copyOf(hottest.keySet()));
+            assertTrue(hottest.get("hot") >= 100);
+            assertTrue(hottest.get("warm0") >= 60);
+
+            for (int i = 0; i < 80; i++) {
+                analytics.recordClick("new");
+            }
+            analytics.aggregate(NOON.plusMinutes(2));
+            assertEquals(100, analytics.getClickCount("hot"), "Decay applies to the ranking, not the totals");
+            assertEquals("new", analytics.getHottestCodes(1).keySet().iterator().next(),
+                    "Two half-lives should have quartered the old counts");
+        }
+    }
+
+    @Test
+    void shouldNotLoseClicksRecordedDuringAggregation() throws Exception {
+        int threads = 8;
+        int clicksPerThread = 100_000;
+        try (ClickAnalytics analytics = ClickAnalytics.start(new ClickAnalytics.Options().flushIntervalMillis(1))) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < clicksPerThread; i++) {
+                        analytics.recordClick("c" + (i % 16));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            pool.shutdown();
+            analytics.flush();
+            long total = 0;
+            for (int i = 0; i < 16; i++) {
+                total += analytics.getClickCount("c" + i);
+            }
+            assertEquals((long) threads * clicksPerThread, total);
+            long bucketed = 0;
+            for (int i = 0; i < 16; i++) {
+                bucketed += analytics.getMinuteCounts("c" + i).values().stream().mapToLong(Long::longValue).sum();
+            }
+            assertEquals((long) threads * clicksPerThread, bucketed, "Every click should land in a minute bucket");
+        }
+    }
+
+    @Test
+    void shouldCountEveryClickOfAVirtualThreadPerRedirect() throws Exception {
+        int clicks = 50_000;
+        try (ClickAnalytics analytics = ClickAnalytics.start(manual())) {
+            try (ExecutorService perTask = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < clicks; i++) {
+                    String code = "c" + (i % 8);
+                    perTask.execute(() -> analytics.recordClick(code));
+                }
+            }
+            assertEquals(clicks / 8, analytics.getClickCount("c0"));
+            analytics.aggregate(NOON);
+            long bucketed = 0;
+            for (int i = 0; i < 8; i++) {
+                bucketed += analytics.getMinuteCounts("c" + i).get(NOON);
+            }
+            assertEquals(clicks, bucketed);
+        }
+    }
+
+    @Test
+    void shouldKeepTotalsOfCodesNoLongerClicked() {
+        try (ClickAnalytics analytics = ClickAnalytics.start(manual().retainedMinutes(2))) {
+            analytics.recordClick("abc");
+            analytics.recordClick("xyz");
+            analytics.aggregate(NOON);
+            analytics.recordClick("xyz");
+            analytics.aggregate(NOON.plusDays(1));
+
+            assertEquals(1, analytics.getClickCount("abc"));
+            assertEquals(2, analytics.getClickCount("xyz"));
+            assertEquals(Map.of(NOON.plusDays(1), 0L), analytics.getMinuteCounts("abc"),
+                    "Retention limits the histogram, not the totals");
+        }
+    }
+
+    @Test
+    void shouldRecordOnlyResolvedRedirects() {
+        try (ClickAnalytics analytics = ClickAnalytics.start(manual())) {
+            URLShortenerService service = new URLShortenerServiceImpl(
+                    new InMemoryURLRepository(), new SimpleShortCodeGenerator(), analytics);
+            String code = service.shortenUrl("https://example.com/a");
+            service.getOriginalUrl(code);
+            service.getOriginalUrl(code);
+            service.getOriginalUrl("missing");
+            analytics.aggregate(NOON);
+
+            assertEquals(2, analytics.getClickCount(code));
+            assertEquals(0, analytics.getClickCount("missing"));
+        }
+    }
+
+    /**
+     * Logs what click analytics costs over Zipfian traffic: in process through
+     * URLShortenerServiceImpl, how many queued clicks the aggregator counts per second on one
+     * thread, and end to end through the RedirectServer.
+     */
+    @Test
+    @Tag("report")
+    void reportRedirectOverhead() throws Exception {
+        int codes = 100_000;
+        int threads = 4;
+        int rounds = 3;
+        InMemoryURLRepository repository = new InMemoryURLRepository();
+        String[] shortCodes = new String[codes];
+        URLShortenerService plain = new URLShortenerServiceImpl(repository, new SimpleShortCodeGenerator());
+        for (int i = 0; i < codes; i++) {
+            shortCodes[i] = plain.shortenUrl("https://example.com/" + i);
+        }
+        String[][] traffic = zipfTraffic(shortCodes, threads, 2_000_000);
+        try (ClickAnalytics analytics = ClickAnalytics.start()) {
+            URLShortenerService counted = new URLShortenerServiceImpl(repository, new SimpleShortCodeGenerator(), analytics);
+            double plainRate = 0;
+            double countedRate = 0;
+            for (int round = 0; round < rounds; round++) {
+                plainRate = Math.max(plainRate, lookupsPerSecond(plain, traffic));
+                countedRate = Math.max(countedRate, lookupsPerSecond(counted, traffic));
+            }
+            LOG.info(String.format("in process, %d threads: %.0f redirects/s without analytics, %.0f with (overhead %.1f%%)",
+                    threads, plainRate, countedRate, (plainRate - countedRate) * 100 / plainRate));
+        }
+
+        try (ClickAnalytics analytics = ClickAnalytics.start(manual())) {
+            long fastest = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                for (int i = 0; i < 1 << 20; i++) {
+                    analytics.recordClick(traffic[0][i]);
+                }
+                long started = System.nanoTime();
+                analytics.aggregate(NOON);
+                fastest = Math.min(fastest, System.nanoTime() - started);
+            }
+            LOG.info(String.format("aggregator: %.0f clicks/s counted on one thread", (1 << 20) * 1e9 / fastest));
+        }
+
+        String[][] httpTraffic = zipfTraffic(shortCodes, 8, 200_000);
+        try (ClickAnalytics analytics = ClickAnalytics.start();
+             RedirectServer plainServer = new RedirectServer(plain, 0);
+             RedirectServer countedServer = new RedirectServer(
+                     new URLShortenerServiceImpl(repository, new SimpleShortCodeGenerator(), analytics), 0)) {
+            double plainRate = 0;
+            double countedRate = 0;
+            for (int round = 0; round < rounds; round++) {
+                plainRate = Math.max(plainRate, httpRedirectsPerSecond(plainServer, httpTraffic));
+                countedRate = Math.max(countedRate, httpRedirectsPerSecond(countedServer, httpTraffic));
+            }
+            LOG.info(String.format("over HTTP, %d connections: %.0f redirects/s without analytics, %.0f with (overhead %.1f%%)",
+                    httpTraffic.length, plainRate, countedRate, (plainRate - countedRate) * 100 / plainRate));
+            analytics.flush();
+            LOG.info("hottest codes: " + analytics.getHottestCodes(5));
+        }
+    }
+
+    private static String[][] zipfTraffic(String[] shortCodes, int threads, int lookupsPerThread) {
+        String[][] traffic = new String[threads][lookupsPerThread];
+        double[] cdf = zipfCdf(shortCodes.length, 0.99);
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            for (int i = 0; i < lookupsPerThread; i++) {
+                int index = Arrays.binarySearch(cdf, random.nextDouble());
+                traffic[t][i] = shortCodes[index >= 0 ? index : Math.min(-index - 1, shortCodes.length - 1)];
+            }
+        }
+        return traffic;
+    }
+
+    private static double lookupsPerSecond(URLShortenerService service, String[][] traffic) throws Exception {
+        return runPerThread(traffic, lookups -> {
+            for (String code : lookups) {
+                if (service.getOriginalUrl(code) == null) {
+                    throw new AssertionError("Unresolved code " + code);
+                }
+            }
+        });
+    }
+
+    private static double httpRedirectsPerSecond(RedirectServer server, String[][] traffic) throws Exception {
+        return runPerThread(traffic, lookups -> {
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                for (String code : lookups) {
+                    out.write(("GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    // A redirect has no body, so the response ends with its blank line.
+                    int matched = 0;
+                    while (matched < 4) {
+                        int b = in.read();
+                        if (b < 0) {
+                            throw new IOException("Connection closed mid-response");
+                        }
+                        matched = b == (matched % 2 == 0 ? '\r' : '\n') ? matched + 1 : (b == '\r' ? 1 : 0);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static double runPerThread(String[][] traffic, Consumer<String[]> work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(traffic.length);
+        List<Future<?>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+        for (String[] lookups : traffic) {
+            futures.add(pool.submit(() -> work.accept(lookups)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        pool.shutdown();
+        return (double) traffic.length * traffic[0].length * TimeUnit.SECONDS.toNanos(1) / elapsed;
+    }
+
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+}
@@ -0,0 +1,236 @@
+package org.example.loadgen;
+
+import org.example.repository.InMemoryURLRepository;
+import org.example.repository.OffHeapURLRepository;
+import org.example.repository.ShardedURLRepository;
+import org.example.repository.URLRepository;
+import org.example.service.LeasingShortCodeGenerator;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadGeneratorTest {
+    private static final Logger LOG = Logger.getLogger(LoadGeneratorTest.class.getName());
+
+    @Test
+    void shouldDrawRanksWithZipfProbabilities() {
+        for (double exponent : new double[] {0.5, 0.99, 1.0, 1.5}) {
+            int keys = 50;
+            ZipfianGenerator zipf = new ZipfianGenerator(keys, exponent);
+            SplittableRandom random = new SplittableRandom(42);
+            int draws = 1_000_000;
+            int[] counts = new int[keys];
+            for (int i = 0; i < draws; i++) {
+                counts[zipf.next(random)]++;
+            }
+            double norm = 0;
+            for (int k = 1; k <= keys; k++) {
+                norm += Math.pow(k, -exponent);
+            }
+            for (int k = 0; k < keys; k++) {
+                double expected = Math.pow(k + 1, -exponent) / norm;
+                assertEquals(expected, (double) counts[k] / draws, 0.003, "exponent " + exponent + ", rank " + k);
+            }
+        }
+    }
+
+    @Test
+    void shouldStayInRangeForLargeKeySpaces() {
+        ZipfianGenerator zipf = new ZipfianGenerator(Integer.MAX_VALUE, 0.99);
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 100_000; i++) {
+            int rank = zipf.next(random);
+            assertTrue(rank >= 0 && rank < Integer.MAX_VALUE);
+        }
+        assertEquals(0, new ZipfianGenerator(1, 0.99).next(random));
+        assertThrows(IllegalArgumentException.class, () -> new ZipfianGenerator(0, 0.99));
+        assertThrows(IllegalArgumentException.class, () -> new ZipfianGenerator(10, 0));
+    }
+
+    @Test
+    void shouldMixShortensAndRedirectsAndReportEveryInterval() throws InterruptedException {
+        List<LoadReport.Interval> reported = new ArrayList<>();
+        LoadReport report = new LoadGenerator(service(new InMemoryURLRepository()), options()
+                .shortenRatio(0.2).expiringShare(0).onInterval(reported::add)).run();
+
+        assertEquals(report.getIntervals(), reported);
+        assertTrue(reported.size() >= 4 && reported.size() <= 6, "About five 100 ms intervals: " + reported.size());
+        long shortens = 0;
+        long redirects = 0;
+        for (LoadReport.Interval interval : reported) {
+            shortens += interval.getShortens();
+            redirects += interval.getRedirects();
+            assertEquals(0, interval.getMisses());
+            assertEquals(0, interval.getErrors());
+            assertEquals(interval.getShortens() + interval.getRedirects(), interval.getOperations());
+        }
+        assertTrue(report.getOperations() > 100);
+        assertEquals(shortens + redirects, report.getOperations());
+        assertEquals(0.2, (double) shortens / report.getOperations(), 0.05);
+        assertTrue(report.getThroughput() > 0);
+    }
+
+    @Test
+    void shouldTurnLookupsOfExpiredMappingsIntoMisses() throws InterruptedException {
+        LoadReport report = new LoadGenerator(service(new InMemoryURLRepository()), options()
+                .shortenRatio(0).expiringShare(1).expirySeconds(0).warmupMillis(50)).run();
+
+        long redirects = report.getIntervals().stream().mapToLong(LoadReport.Interval::getRedirects).sum();
+        long misses = report.getIntervals().stream().mapToLong(LoadReport.Interval::getMisses).sum();
+        assertTrue(redirects > 0);
+        assertEquals(redirects, misses);
+    }
+
+    @Test
+    void shouldChargeAStallToEveryRequestScheduledDuringIt() throws InterruptedException {
+        AtomicInteger lookups = new AtomicInteger();
+        URLShortenerService stalling = new FakeService() {
+            @Override
+            public String getOriginalUrl(String shortCode) {
+                if (lookups.incrementAndGet() == 500) {
+                    sleep(300);
+                }
+                return shortCode;
+            }
+        };
+        LoadReport report = new LoadGenerator(stalling, options()
+                .threads(1).rate(1000).shortenRatio(0).warmupMillis(0).durationMillis(1500)).run();
+
+        // Only one request took 300 ms, but the ~300 scheduled behind it waited for it.
+        assertTrue(report.getResponseTimes().getValueAtPercentile(90) > 50_000_000L,
+                "Corrected p90: " + report.getResponseTimes().getValueAtPercentile(90));
+        assertTrue(report.getServiceTimes().getValueAtPercentile(99) < 50_000_000L,
+                "Service p99: " + report.getServiceTimes().getValueAtPercentile(99));
+        assertTrue(report.getResponseTimes().getMax() >= 300_000_000L);
+    }
+
+    @Test
+    void shouldCountFailedOperationsAsErrors() throws InterruptedException {
+        URLShortenerService failing = new FakeService() {
+            @Override
+            public String shortenUrl(String longUrl, LocalDateTime expiresAt) {
+                throw new IllegalStateException("Store is full");
+            }
+        };
+        LoadReport report = new LoadGenerator(failing, options().shortenRatio(1)).run();
+
+        long errors = report.getIntervals().stream().mapToLong(LoadReport.Interval::getErrors).sum();
+        assertTrue(errors > 0);
+        assertEquals(report.getOperations(), errors);
+    }
+
+    @Test
+    void shouldWriteIntervalsAsCsv() throws IOException, InterruptedException {
+        LoadReport report = new LoadGenerator(new FakeService(), options()).run();
+        Path csv = Files.createTempFile("loadgen", ".csv");
+        try {
+            report.writeCsv(csv);
+            List<String> lines = Files.readAllLines(csv);
+            assertEquals(report.getIntervals().size() + 1, lines.size());
+            assertTrue(lines.get(0).startsWith("start_s,seconds,operations,ops_per_s"));
+            assertEquals(13, lines.get(1).split(",").length);
+        } finally {
+            Files.delete(csv);
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidOptions() {
+        LoadGenerator.Options options = new LoadGenerator.Options();
+        assertThrows(IllegalArgumentException.class, () -> options.threads(0));
+        assertThrows(IllegalArgumentException.class, () -> options.rate(-1));
+        assertThrows(IllegalArgumentException.class, () -> options.shortenRatio(1.5));
+        assertThrows(IllegalArgumentException.class, () -> options.expiringShare(-0.1));
+        assertThrows(IllegalArgumentException.class, () -> options.zipfExponent(0));
+        assertThrows(IllegalArgumentException.class, () -> options.durationMillis(0));
+    }
+
+    /**
+     * Compares repository implementations under the same Zipfian workload, unthrottled and at
+     * a fixed rate where coordinated omission matters.
+     */
+    @Test
+    @Tag("report")
+    void reportRepositoriesUnderZipfianLoad() throws InterruptedException {
+        Map<String, Supplier<URLRepository>> repositories = new LinkedHashMap<>();
+        repositories.put("in-memory", InMemoryURLRepository::new);
+        repositories.put("sharded", ShardedURLRepository::new);
+        repositories.put("off-heap", OffHeapURLRepository::new);
+        for (double rate : new double[] {0, 100_000}) {
+            for (Map.Entry<String, Supplier<URLRepository>> entry : repositories.entrySet()) {
+                LoadReport report = new LoadGenerator(service(entry.getValue().get()), new LoadGenerator.Options()
+                        .threads(4).rate(rate).keys(200_000).warmupMillis(1000).durationMillis(2000)).run();
+                LOG.info(String.format("%s, %s: %.0f ops/s, p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us (service p99 %.1f us)",
+                        entry.getKey(), rate > 0 ? String.format("%.0f ops/s target", rate) : "unthrottled",
+                        report.getThroughput(),
+                        report.getResponseTimes().getValueAtPercentile(50) / 1e3,
+                        report.getResponseTimes().getValueAtPercentile(99) / 1e3,
+                        report.getResponseTimes().getValueAtPercentile(99.9) / 1e3,
+                        report.getResponseTimes().getMax() / 1e3,
+                        report.getServiceTimes().getValueAtPercentile(99) / 1e3));
+            }
+        }
+    }
+
+    private static LoadGenerator.Options options() {
+        return new LoadGenerator.Options().threads(2).keys(1000).warmupMillis(100).durationMillis(500).intervalMillis(100);
+    }
+
+    private static URLShortenerService service(URLRepository repository) {
+        return new URLShortenerServiceImpl(repository, new LeasingShortCodeGenerator());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Service that uses each URL as its own code.
+     */
+    private static class FakeService implements URLShortenerService {
+        @Override
+        public String shortenUrl(String longUrl) {
+            return shortenUrl(longUrl, null);
+        }
+
+        @Override
+        public String shortenUrl(String longUrl, LocalDateTime expiresAt) {
+            return longUrl;
+        }
+
+        @Override
+        public Map<String, String> shortenUrls(Collection<String> longUrls, LocalDateTime expiresAt) {
+            Map<String, String> codes = new LinkedHashMap<>();
+            for (String longUrl : longUrls) {
+                codes.put(longUrl, longUrl);
+            }
+            return codes;
+        }
+
+        @Override
+        public String getOriginalUrl(String shortCode) {
+            return shortCode;
+        }
+    }
+}
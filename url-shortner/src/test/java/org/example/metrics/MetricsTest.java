@@ -0,0 +1,273 @@
+package org.example.metrics;
+
+import org.example.model.URLMapping;
+import org.example.repository.CachingURLRepository;
+import org.example.repository.InMemoryURLRepository;
+import org.example.repository.InstrumentedURLRepository;
+import org.example.repository.URLRepository;
+import org.example.service.ShortCodeGenerator;
+import org.example.service.SimpleShortCodeGenerator;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    private static final Logger LOG = Logger.getLogger(MetricsTest.class.getName());
+
+    @Test
+    void shouldRecordLatenciesAndCounts() {
+        Metrics metrics = new Metrics();
+        Timer timer = metrics.timer("test_seconds", "Test timer.");
+        Counter counter = metrics.counter("test_total", "Test counter.");
+        for (int i = 1; i <= 1000; i++) {
+            timer.record(i * 1000L);
+            counter.increment();
+        }
+        counter.add(5);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        MetricsSnapshot.TimerValue value = snapshot.getTimer("test_seconds", null);
+        assertEquals(1000, value.getCount());
+        assertEquals(500_000, value.getPercentile(50), 500_000 / 100.0);
+        assertEquals(990_000, value.getPercentile(99), 990_000 / 100.0);
+        assertEquals(1_000_000, value.getMax());
+        assertEquals(500_500, value.getMean(), 1e-6);
+        assertEquals(1005, snapshot.getCounter("test_total"));
+        assertSame(timer, metrics.timer("test_seconds", "Test timer."), "Registering again returns the existing timer");
+        assertSame(counter, metrics.counter("test_total", "Test counter."));
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().getTimer("test_seconds", null).getCount());
+        assertEquals(0, metrics.snapshot().getCounter("test_total"));
+    }
+
+    @Test
+    void shouldRecordNothingWhileDisabled() {
+        Metrics metrics = new Metrics();
+        Timer timer = metrics.timer("test_seconds", "Test timer.");
+        Counter counter = metrics.counter("test_total", "Test counter.");
+        long started = timer.start();
+        counter.increment();
+
+        metrics.setEnabled(false);
+        timer.stop(started);
+        assertEquals(1, timer.snapshot().getCount(), "An operation started while enabled is still recorded");
+        long ignored = timer.start();
+        assertEquals(Timer.NOT_STARTED, ignored);
+        timer.stop(ignored);
+        timer.record(5);
+        counter.increment();
+        counter.add(10);
+        assertEquals(1, metrics.snapshot().getTimer("test_seconds", null).getCount());
+        assertEquals(1, metrics.snapshot().getCounter("test_total"));
+
+        metrics.setEnabled(true);
+        counter.increment();
+        assertEquals(2, counter.getCount());
+        assertFalse(Metrics.NONE.isEnabled());
+        assertThrows(UnsupportedOperationException.class, () -> Metrics.NONE.setEnabled(true));
+    }
+
+    @Test
+    void shouldNotAllocateWhenRecording() {
+        Metrics metrics = new Metrics();
+        Timer timer = metrics.timer("test_seconds", "Test timer.");
+        Counter counter = metrics.counter("test_total", "Test counter.");
+        // Warm both paths up first, so one-off class loading and compilation are not counted.
+        for (boolean enabled : new boolean[] {false, true, false, true}) {
+            metrics.setEnabled(enabled);
+            exercise(timer, counter, 200_000);
+        }
+        for (boolean enabled : new boolean[] {false, true}) {
+            metrics.setEnabled(enabled);
+            long before = allocatedBytes();
+            exercise(timer, counter, 1_000_000);
+            long allocated = allocatedBytes() - before;
+            // Reading the allocation counter itself allocates under a kilobyte.
+            assertTrue(allocated < 2048, (enabled ? "Enabled" : "Disabled") + " recording allocated " + allocated + " bytes");
+        }
+    }
+
+    @Test
+    void shouldRecordFromManyThreads() throws Exception {
+        Metrics metrics = new Metrics();
+        Timer timer = metrics.timer("test_seconds", "Test timer.");
+        Counter counter = metrics.counter("test_total", "Test counter.");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> exercise(timer, counter, 100_000)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(800_000, metrics.snapshot().getTimer("test_seconds", null).getCount());
+        assertEquals(800_000, counter.getCount());
+    }
+
+    @Test
+    void shouldTimeAnOperationThatStartsAtNanoTimeZero() {
+        Metrics metrics = new Metrics();
+        Timer timer = metrics.timer("test_seconds", "Test timer.");
+        timer.stop(0);
+        assertEquals(1, timer.snapshot().getCount(), "0 is a valid System.nanoTime() reading");
+        timer.stop(Timer.NOT_STARTED);
+        assertEquals(1, timer.snapshot().getCount());
+    }
+
+    @Test
+    void shouldExportPrometheusText() {
+        Metrics metrics = new Metrics();
+        metrics.timer("op_seconds", "Operation time.", "operation", "read").record(2_000_000);
+        metrics.timer("other_seconds", "Other time.").record(1_000);
+        metrics.timer("op_seconds", "Operation time.", "operation", "write").record(4_000_000);
+        metrics.counter("events_total", "Events.").add(3);
+        metrics.counter("external_total", "Counted elsewhere.", () -> 42);
+
+        String text = metrics.snapshot().toPrometheusText();
+        List<String> lines = List.of(text.split("\n"));
+        assertEquals("# HELP op_seconds Operation time.", lines.get(0));
+        assertEquals("# TYPE op_seconds summary", lines.get(1));
+        assertEquals(1, lines.stream().filter(line -> line.equals("# TYPE op_seconds summary")).count(),
+                "Labelled timers form one family");
+        assertTrue(lines.contains("op_seconds{operation=\"read\",quantile=\"0.5\"} 0.00200000000"), text);
+        assertTrue(lines.contains("op_seconds{operation=\"write\",quantile=\"0.999\"} 0.00400000000"), text);
+        assertTrue(lines.contains("op_seconds_count{operation=\"write\"} 1"), text);
+        assertTrue(lines.contains("op_seconds_sum{operation=\"read\"} 0.00200000000"), text);
+        assertTrue(lines.contains("other_seconds_count 1"), text);
+        assertTrue(lines.contains("# TYPE events_total counter"), text);
+        assertTrue(lines.contains("events_total 3"), text);
+        assertTrue(lines.contains("external_total 42"), text);
+        assertTrue(lines.indexOf("# TYPE other_seconds summary") > lines.indexOf("op_seconds_count{operation=\"write\"} 1"));
+    }
+
+    @Test
+    void shouldBreakDownShortenTimeAndCountRetries() {
+        Metrics metrics = new Metrics();
+        URLRepository repository = new InstrumentedURLRepository(new InMemoryURLRepository(), metrics);
+        repository.save(new URLMapping("taken", "https://example.com/existing", LocalDateTime.now()));
+        Iterator<String> codes = List.of("taken", "taken", "fresh", "batch1", "taken", "batch2").iterator();
+        ShortCodeGenerator generator = longUrl -> codes.next();
+        URLShortenerService service = new URLShortenerServiceImpl(repository, generator, null, metrics);
+
+        assertEquals("fresh", service.shortenUrl("https://example.com/new"));
+        Map<String, String> batch = service.shortenUrls(List.of("https://example.com/b1", "https://example.com/b2"), null);
+        assertEquals("batch1", batch.get("https://example.com/b1"));
+        assertEquals("batch2", batch.get("https://example.com/b2"));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getCounter("urlshortener_collision_retries_total"));
+        assertEquals(1, snapshot.getTimer("urlshortener_shorten_seconds", null).getCount());
+        assertEquals(1, snapshot.getTimer("urlshortener_shorten_batch_seconds", null).getCount());
+        assertEquals(2, snapshot.getTimer("urlshortener_validation_seconds", null).getCount());
+        assertEquals(5, snapshot.getTimer("urlshortener_code_generation_seconds", null).getCount());
+        assertEquals(3, snapshot.getTimer("urlshortener_repository_seconds", "findOrSave").getCount());
+        assertEquals(2, snapshot.getTimer("urlshortener_repository_seconds", "saveAll").getCount());
+        assertEquals(1, snapshot.getTimer("urlshortener_repository_seconds", "save").getCount());
+    }
+
+    @Test
+    void shouldCountUnknownAndExpiredCodesAndCacheHits() {
+        Metrics metrics = new Metrics();
+        InMemoryURLRepository store = new InMemoryURLRepository();
+        LocalDateTime now = LocalDateTime.now();
+        store.save(new URLMapping("live", "https://example.com/live", now));
+        store.save(new URLMapping("old", "https://example.com/old", now.minusDays(2), now.minusDays(1)));
+        CachingURLRepository cache = new CachingURLRepository(store);
+        cache.registerMetrics(metrics);
+        URLShortenerService service = new URLShortenerServiceImpl(cache, new SimpleShortCodeGenerator(), null, metrics);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("https://example.com/live", service.getOriginalUrl("live"));
+        }
+        assertNull(service.getOriginalUrl("old"));
+        assertNull(service.getOriginalUrl("missing"));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(5, snapshot.getTimer("urlshortener_resolve_seconds", null).getCount());
+        assertEquals(1, snapshot.getCounter("urlshortener_expired_hits_total"));
+        assertEquals(1, snapshot.getCounter("urlshortener_unknown_codes_total"));
+        assertEquals(cache.getHitCount(), snapshot.getCounter("urlshortener_cache_hits_total"));
+        assertEquals(cache.getMissCount(), snapshot.getCounter("urlshortener_cache_misses_total"));
+        assertTrue(snapshot.getCounter("urlshortener_cache_hits_total") >= 2);
+    }
+
+    /**
+     * Compares redirect throughput with no instrumentation, with instrumentation switched
+     * off, with it on in the service, and with it on in the service and an instrumented
+     * repository as well.
+     */
+    @Test
+    @Tag("report")
+    void reportInstrumentationOverhead() {
+        int codes = 100_000;
+        InMemoryURLRepository store = new InMemoryURLRepository();
+        String[] shortCodes = new String[codes];
+        for (int i = 0; i < codes; i++) {
+            shortCodes[i] = "c" + i;
+            store.save(new URLMapping(shortCodes[i], "https://example.com/" + i, LocalDateTime.now()));
+        }
+        Metrics metrics = new Metrics();
+        URLShortenerService plain = new URLShortenerServiceImpl(store, new SimpleShortCodeGenerator());
+        URLShortenerService instrumented = new URLShortenerServiceImpl(store, new SimpleShortCodeGenerator(), null, metrics);
+        URLShortenerService layered = new URLShortenerServiceImpl(
+                new InstrumentedURLRepository(store, metrics), new SimpleShortCodeGenerator(), null, metrics);
+        for (int round = 0; round < 3; round++) {
+            double none = resolvesPerSecond(plain, shortCodes);
+            metrics.setEnabled(false);
+            double off = resolvesPerSecond(instrumented, shortCodes);
+            metrics.setEnabled(true);
+            double on = resolvesPerSecond(instrumented, shortCodes);
+            double both = resolvesPerSecond(layered, shortCodes);
+            LOG.info(String.format("resolves/s: uninstrumented %.0f, instrumentation off %.0f, on %.0f, on with repository timers %.0f",
+                    none, off, on, both));
+        }
+        MetricsSnapshot.TimerValue resolve = metrics.snapshot().getTimer("urlshortener_resolve_seconds", null);
+        LOG.info(String.format("resolve p50 %d ns, p99 %d ns, p99.9 %d ns over %d calls",
+                resolve.getPercentile(50), resolve.getPercentile(99), resolve.getPercentile(99.9), resolve.getCount()));
+    }
+
+    private static double resolvesPerSecond(URLShortenerService service, String[] shortCodes) {
+        int lookups = 5_000_000;
+        long began = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            if (service.getOriginalUrl(shortCodes[i % shortCodes.length]) != null) {
+                found++;
+            }
+        }
+        assertEquals(lookups, found);
+        return lookups * 1e9 / (System.nanoTime() - began);
+    }
+
+    private static void exercise(Timer timer, Counter counter, int operations) {
+        for (int i = 0; i < operations; i++) {
+            long started = timer.start();
+            counter.increment();
+            timer.stop(started);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+}
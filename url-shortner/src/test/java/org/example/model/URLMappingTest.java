@@ -0,0 +1,94 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class URLMappingTest {
+    private static final Logger LOG = Logger.getLogger(URLMappingTest.class.getName());
+
+    @Test
+    void shouldKeepTimestampsAsEpochMillis() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 12, 30, 15, 123_456_789);
+        URLMapping mapping = new URLMapping("abc", "https://example.com", createdAt, createdAt.plusDays(1));
+
+        assertEquals(createdAt.truncatedTo(ChronoUnit.MILLIS), mapping.getCreatedAt());
+        assertEquals(createdAt.plusDays(1).truncatedTo(ChronoUnit.MILLIS), mapping.getExpiresAt());
+        assertEquals(URLMapping.toEpochMillis(createdAt), mapping.getCreatedAtMillis());
+        assertEquals(mapping.getCreatedAtMillis() + 86_400_000, mapping.getExpiresAtMillis());
+        assertTrue(mapping.hasExpiry());
+        assertEquals(mapping, new URLMapping("abc", "https://example.com", mapping.getCreatedAtMillis(), mapping.getExpiresAtMillis()));
+        assertEquals(mapping.hashCode(), new URLMapping("abc", "https://example.com", mapping.getCreatedAt(), mapping.getExpiresAt()).hashCode());
+        assertNotEquals(mapping, new URLMapping("abc", "https://example.com", createdAt));
+    }
+
+    @Test
+    void shouldNeverExpireWithoutExpiry() {
+        URLMapping mapping = new URLMapping("abc", "https://example.com", LocalDateTime.now());
+
+        assertNull(mapping.getExpiresAt());
+        assertEquals(URLMapping.NO_EXPIRY, mapping.getExpiresAtMillis());
+        assertFalse(mapping.hasExpiry());
+        assertFalse(mapping.isExpired());
+        assertFalse(mapping.isExpiredAt(Long.MAX_VALUE));
+        assertFalse(mapping.isExpired(LocalDateTime.now().plusYears(1000)));
+    }
+
+    @Test
+    void shouldExpireAfterExpiryTime() {
+        LocalDateTime now = LocalDateTime.now();
+        URLMapping past = new URLMapping("old", "https://example.com/old", now.minusDays(2), now.minusDays(1));
+        URLMapping future = new URLMapping("new", "https://example.com/new", now, now.plusDays(1));
+
+        assertTrue(past.isExpired());
+        assertFalse(future.isExpired());
+        assertTrue(future.isExpired(now.plusDays(2)));
+        assertFalse(future.isExpiredAt(future.getExpiresAtMillis()), "Expiry is exclusive");
+        assertTrue(future.isExpiredAt(future.getExpiresAtMillis() + 1));
+    }
+
+    /**
+     * Logs the live-heap class histogram rows that a large array of mappings accounts for.
+     * Every mapping has its own code and timestamps, as mappings created by the service or
+     * decoded from the log do; they share one URL string so the URL does not dominate.
+     * Set -Dmappings=10000000 (with a large enough heap) for the full-size comparison.
+     */
+    @Test
+    @Tag("report")
+    void reportHeapHistogram() throws Exception {
+        int count = Integer.getInteger("mappings", 1_000_000);
+        LocalDateTime base = LocalDateTime.of(2025, 1, 1, 0, 0);
+        String longUrl = "https://example.com/some/fairly/typical/path?with=query";
+        URLMapping[] mappings = new URLMapping[count];
+        for (int i = 0; i < count; i++) {
+            LocalDateTime createdAt = base.plus(i, ChronoUnit.MILLIS);
+            mappings[i] = new URLMapping(Integer.toString(i, 36), longUrl, createdAt, i % 2 == 0 ? null : createdAt.plusDays(30));
+        }
+        String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[] {null}, new String[] {String[].class.getName()});
+        Set<String> relevant = Set.of(URLMapping.class.getName(), "java.lang.String", "[B",
+                "java.time.LocalDateTime", "java.time.LocalDate", "java.time.LocalTime");
+        long total = 0;
+        StringBuilder report = new StringBuilder(String.format("%d mappings:%n", count));
+        for (String line : histogram.split("\n")) {
+            String[] columns = line.trim().split("\\s+");
+            if (columns.length >= 4 && relevant.contains(columns[3])) {
+                long bytes = Long.parseLong(columns[2]);
+                total += bytes;
+                report.append(String.format("  %-28s %,12d instances %,15d bytes%n", columns[3], Long.parseLong(columns[1]), bytes));
+            }
+        }
+        report.append(String.format("  total %,d bytes, %.1f bytes per mapping", total, (double) total / count));
+        LOG.info(report.toString());
+        assertEquals(count, mappings.length);
+    }
+}
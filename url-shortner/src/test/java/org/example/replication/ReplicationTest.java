@@ -0,0 +1,389 @@
+package org.example.replication;
+
+import org.example.model.URLMapping;
+import org.example.repository.InMemoryURLRepository;
+import org.example.service.SimpleShortCodeGenerator;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicationTest {
+    private static final Logger LOG = Logger.getLogger(ReplicationTest.class.getName());
+
+    @Test
+    void shouldReplicateWritesToEveryFollower() {
+        InMemoryURLRepository store = new InMemoryURLRepository();
+        try (ReplicationLeader leader = new ReplicationLeader(store, new ReplicationLeader.Options());
+             ReplicationFollower first = follower(leader, new ReplicationFollower.Options());
+             ReplicationFollower second = follower(leader, new ReplicationFollower.Options())) {
+            LocalDateTime now = now();
+            leader.saveAll(mappings(0, 1000, now));
+            assertNull(leader.findOrSave(new URLMapping("c1", "https://example.com/other", now)));
+            assertTrue(leader.remove(leader.findByShortCode("c7")));
+            URLMapping replacement = new URLMapping("x3", "https://example.com/3", now);
+            leader.save(replacement);
+
+            for (ReplicationFollower follower : List.of(first, second)) {
+                assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+                store.forEach(mapping -> assertEquals(mapping, follower.findByShortCode(mapping.getShortCode())));
+                assertNull(follower.findByShortCode("c7"));
+                assertNull(follower.findByLongUrl("https://example.com/other"));
+                assertEquals(replacement, follower.findByLongUrl("https://example.com/3"));
+                assertEquals(0, follower.getLagRecords());
+                assertEquals(leader.getLogId(), follower.getLogId());
+            }
+            await(() -> leader.getFollowerLag().size() == 2 && leader.getFollowerLag().values().stream().allMatch(lag -> lag == 0),
+                    "Leader never saw both followers acknowledge");
+            assertThrows(UnsupportedOperationException.class, () -> first.save(replacement));
+        }
+    }
+
+    @Test
+    void shouldBootstrapNewFollowerFromSnapshotThenStream() {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryURLRepository(), new ReplicationLeader.Options().logCapacity(16))) {
+            LocalDateTime now = now();
+            leader.saveAll(mappings(0, 5000, now));
+            // An older mapping still reachable by code must not take over its URL on the follower.
+            leader.save(new URLMapping("newer", "https://example.com/42", now));
+
+            try (ReplicationFollower follower = follower(leader, new ReplicationFollower.Options())) {
+                assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+                assertEquals(1, follower.getSnapshotCount());
+                assertEquals("newer", follower.findByLongUrl("https://example.com/42").getShortCode());
+                assertNotNull(follower.findByShortCode("c42"));
+
+                leader.saveAll(mappings(5000, 5010, now));
+                assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+                assertNotNull(follower.findByShortCode("c5009"));
+                assertEquals(1, follower.getSnapshotCount(), "Writes after the snapshot are streamed, not snapshotted");
+                assertEquals(1, leader.getSnapshotCount());
+            }
+        }
+    }
+
+    @Test
+    void shouldStreamASnapshotWithoutHoldingUpWritesOrOtherFollowers() throws InterruptedException {
+        InMemoryURLRepository store = new InMemoryURLRepository();
+        AtomicReference<CountDownLatch> gate = new AtomicReference<>();
+        CountDownLatch snapshotStarted = new CountDownLatch(1);
+        Consumer<Consumer<URLMapping>> gatedSource = action -> {
+            CountDownLatch resume = gate.get();
+            if (resume != null) {
+                snapshotStarted.countDown();
+                try {
+                    resume.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            store.forEach(action);
+        };
+        try (ReplicationLeader leader = new ReplicationLeader(store, gatedSource, new ReplicationLeader.Options());
+             ReplicationFollower streaming = follower(leader, new ReplicationFollower.Options())) {
+            LocalDateTime now = now();
+            leader.saveAll(mappings(0, 2000, now));
+            assertTrue(streaming.awaitSequence(leader.getLastSequence(), 5000));
+
+            CountDownLatch resume = new CountDownLatch(1);
+            gate.set(resume);
+            try (ReplicationFollower fresh = follower(leader, new ReplicationFollower.Options())) {
+                assertTrue(snapshotStarted.await(5, TimeUnit.SECONDS));
+                // The snapshot waits with no lock held, off the sender thread.
+                leader.save(new URLMapping("x5", "https://example.com/5", now));
+                assertTrue(leader.remove(leader.findByShortCode("c7")));
+                leader.saveAll(mappings(2000, 2100, now));
+                assertTrue(streaming.awaitSequence(leader.getLastSequence(), 5000));
+                assertEquals(0, fresh.getAppliedSequence(), "Still waiting for its snapshot");
+                resume.countDown();
+
+                assertTrue(fresh.awaitSequence(leader.getLastSequence(), 5000));
+                store.forEach(mapping -> assertEquals(mapping, fresh.findByShortCode(mapping.getShortCode())));
+                assertNull(fresh.findByShortCode("c7"));
+                assertNotNull(fresh.findByShortCode("c5"));
+                assertEquals("x5", fresh.findByLongUrl("https://example.com/5").getShortCode());
+                assertEquals(1, fresh.getSnapshotCount());
+            }
+        }
+    }
+
+    @Test
+    void shouldNotHoldUpWritesToOtherUrlsBehindASlowStoreWrite() throws InterruptedException {
+        CountDownLatch slowEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryURLRepository store = new InMemoryURLRepository() {
+            @Override
+            public void save(URLMapping mapping) {
+                if (mapping.getLongUrl().endsWith("/slow")) {
+                    slowEntered.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.save(mapping);
+            }
+        };
+        try (ReplicationLeader leader = new ReplicationLeader(store, new ReplicationLeader.Options());
+             ReplicationFollower follower = follower(leader, new ReplicationFollower.Options())) {
+            LocalDateTime now = now();
+            Thread slow = new Thread(() -> leader.save(new URLMapping("slow", "https://example.com/slow", now)));
+            slow.start();
+            assertTrue(slowEntered.await(5, TimeUnit.SECONDS));
+
+            CountDownLatch fastDone = new CountDownLatch(1);
+            Thread fast = new Thread(() -> {
+                leader.save(new URLMapping("fast", "https://example.com/fast", now));
+                fastDone.countDown();
+            });
+            fast.start();
+            boolean finished = fastDone.await(5, TimeUnit.SECONDS);
+            release.countDown();
+            slow.join();
+            fast.join();
+            assertTrue(finished, "A write to another URL waited for the slow one");
+
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+            assertNotNull(follower.findByShortCode("slow"));
+            assertNotNull(follower.findByShortCode("fast"));
+        }
+    }
+
+    @Test
+    void shouldReplicateConcurrentWritesToSharedCodesAndUrls() throws InterruptedException {
+        InMemoryURLRepository store = new InMemoryURLRepository();
+        try (ReplicationLeader leader = new ReplicationLeader(store, new ReplicationLeader.Options());
+             ReplicationFollower follower = follower(leader, new ReplicationFollower.Options())) {
+            LocalDateTime now = now();
+            int keys = 50;
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                writers.add(new Thread(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        int code = (i * 31 + seed * 7) % keys;
+                        int url = (i * 17 + seed * 13) % keys;
+                        URLMapping mapping = new URLMapping("c" + code, "https://example.com/" + url, now);
+                        if (i % 10 == 9) {
+                            URLMapping current = leader.findByShortCode(mapping.getShortCode());
+                            if (current != null) {
+                                leader.remove(current);
+                            }
+                        } else {
+                            leader.save(mapping);
+                        }
+                    }
+                }));
+            }
+            writers.forEach(Thread::start);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 10_000));
+            for (int i = 0; i < keys; i++) {
+                assertEquals(store.findByShortCode("c" + i), follower.findByShortCode("c" + i));
+                assertEquals(store.findByLongUrl("https://example.com/" + i), follower.findByLongUrl("https://example.com/" + i));
+            }
+        }
+    }
+
+    @Test
+    void shouldResumeFromTheLogAfterReconnecting() {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryURLRepository(), new ReplicationLeader.Options());
+             ReplicationFollower follower = follower(leader, new ReplicationFollower.Options().reconnectDelayMillis(200))) {
+            LocalDateTime now = now();
+            leader.saveAll(mappings(0, 100, now));
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+
+            leader.disconnectFollowers();
+            await(() -> !follower.isConnected(), "Follower never noticed the disconnect");
+            leader.saveAll(mappings(100, 200, now));
+            assertNotNull(follower.findByShortCode("c50"), "A disconnected follower keeps serving reads");
+
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+            assertNotNull(follower.findByShortCode("c199"));
+            assertEquals(1, follower.getSnapshotCount(), "Only the initial snapshot");
+        }
+    }
+
+    @Test
+    void shouldSnapshotAFollowerThatFellBehindTheLog() {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryURLRepository(), new ReplicationLeader.Options().logCapacity(16));
+             ReplicationFollower follower = follower(leader, new ReplicationFollower.Options().reconnectDelayMillis(200))) {
+            LocalDateTime now = now();
+            leader.saveAll(mappings(0, 10, now));
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+
+            leader.disconnectFollowers();
+            await(() -> !follower.isConnected(), "Follower never noticed the disconnect");
+            leader.saveAll(mappings(10, 100, now));
+
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+            assertNotNull(follower.findByShortCode("c99"));
+            assertEquals(2, follower.getSnapshotCount());
+        }
+    }
+
+    @Test
+    void shouldFollowARestartedLeader() {
+        InMemoryURLRepository store = new InMemoryURLRepository();
+        LocalDateTime now = now();
+        ReplicationLeader leader = new ReplicationLeader(store, new ReplicationLeader.Options());
+        int port = leader.getPort();
+        try (ReplicationFollower follower = follower(leader, new ReplicationFollower.Options()
+                .leaderTimeoutMillis(500).reconnectDelayMillis(50))) {
+            leader.saveAll(mappings(0, 100, now));
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+
+            leader.close();
+            await(() -> !follower.isConnected(), "Follower never noticed the leader going away");
+            assertNotNull(follower.findByShortCode("c10"), "The replica stays readable without a leader");
+
+            // The leader comes back over the same (durable) store, on the same port, with a new log.
+            try (ReplicationLeader restarted = new ReplicationLeader(store, new ReplicationLeader.Options().port(port))) {
+                restarted.save(new URLMapping("after", "https://example.com/after", now));
+                await(() -> follower.getLogId() == restarted.getLogId(), "Follower never resynchronized with the new leader");
+                assertTrue(follower.awaitSequence(restarted.getLastSequence(), 5000));
+                assertNotNull(follower.findByShortCode("after"));
+                assertNotNull(follower.findByShortCode("c10"));
+                assertEquals(2, follower.getSnapshotCount());
+            }
+        }
+    }
+
+    @Test
+    void shouldCatchUpARestartedFollower() {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryURLRepository(), new ReplicationLeader.Options())) {
+            LocalDateTime now = now();
+            ReplicationFollower follower = follower(leader, new ReplicationFollower.Options());
+            leader.saveAll(mappings(0, 100, now));
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+
+            follower.close();
+            leader.saveAll(mappings(100, 200, now));
+            assertNull(follower.findByShortCode("c150"));
+
+            try (ReplicationFollower restarted = follower(leader, new ReplicationFollower.Options())) {
+                assertTrue(restarted.awaitSequence(leader.getLastSequence(), 5000));
+                assertNotNull(restarted.findByShortCode("c150"));
+            }
+        }
+    }
+
+    @Test
+    void shouldReadOwnWritesThroughAFollower() {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryURLRepository(), new ReplicationLeader.Options());
+             ReplicationFollower follower = follower(leader, new ReplicationFollower.Options().reconnectDelayMillis(60_000))) {
+            ReadYourWritesRepository session = new ReadYourWritesRepository(leader, follower, 1000);
+            LocalDateTime now = now();
+            for (int i = 0; i < 1000; i++) {
+                URLMapping mapping = new URLMapping("c" + i, "https://example.com/" + i, now);
+                assertSame(mapping, session.findOrSave(mapping));
+                assertEquals(mapping, session.findByShortCode("c" + i));
+            }
+
+            // With the follower cut off, reads fall back to the leader after the wait.
+            leader.disconnectFollowers();
+            await(() -> !follower.isConnected(), "Follower never noticed the disconnect");
+            ReadYourWritesRepository impatient = new ReadYourWritesRepository(leader, follower, 10);
+            impatient.save(new URLMapping("late", "https://example.com/late", now));
+            assertNotNull(impatient.findByShortCode("late"));
+            assertNull(follower.findByShortCode("late"));
+        }
+    }
+
+    @Test
+    void shouldResolveShortCodesFromAFollower() {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryURLRepository(), new ReplicationLeader.Options());
+             ReplicationFollower follower = follower(leader, new ReplicationFollower.Options())) {
+            URLShortenerService writer = new URLShortenerServiceImpl(leader, new SimpleShortCodeGenerator());
+            URLShortenerService reader = new URLShortenerServiceImpl(follower, new SimpleShortCodeGenerator());
+
+            String code = writer.shortenUrl("https://example.com/replicated");
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 5000));
+
+            assertEquals("https://example.com/replicated", reader.getOriginalUrl(code));
+        }
+    }
+
+    /**
+     * Measures how fast one follower keeps up with a single writer, the lag it reaches,
+     * and how long a new follower takes to bootstrap from a snapshot.
+     */
+    @Test
+    @Tag("report")
+    void reportReplicationThroughput() {
+        try (ReplicationLeader leader = new ReplicationLeader(new InMemoryURLRepository(), new ReplicationLeader.Options());
+             ReplicationFollower follower = follower(leader, new ReplicationFollower.Options())) {
+            LocalDateTime now = now();
+            int total = 500_000;
+            long maxLag = 0;
+            long began = System.nanoTime();
+            for (int i = 0; i < total; i++) {
+                leader.save(new URLMapping("c" + i, "https://example.com/" + i, now));
+                if ((i & 1023) == 0) {
+                    maxLag = Math.max(maxLag, leader.getLastSequence() - follower.getAppliedSequence());
+                }
+            }
+            long written = System.nanoTime() - began;
+            assertTrue(follower.awaitSequence(leader.getLastSequence(), 60_000));
+            long replicated = System.nanoTime() - began;
+            LOG.info(String.format("%d writes: leader %.0f writes/s, follower caught up after %d ms (%.0f entries/s), max lag %d entries",
+                    total, total * 1e9 / written, replicated / 1_000_000, total * 1e9 / replicated, maxLag));
+
+            began = System.nanoTime();
+            try (ReplicationFollower fresh = follower(leader, new ReplicationFollower.Options())) {
+                assertTrue(fresh.awaitSequence(leader.getLastSequence(), 60_000));
+                LOG.info(String.format("snapshot of %d mappings applied in %d ms", total, (System.nanoTime() - began) / 1_000_000));
+            }
+        }
+    }
+
+    /**
+     * The current time at the millisecond precision replication keeps.
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    private static ReplicationFollower follower(ReplicationLeader leader, ReplicationFollower.Options options) {
+        return new ReplicationFollower(new InetSocketAddress("localhost", leader.getPort()), options);
+    }
+
+    private static List<URLMapping> mappings(int from, int to, LocalDateTime now) {
+        List<URLMapping> mappings = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            mappings.add(new URLMapping("c" + i, "https://example.com/" + i, now));
+        }
+        return mappings;
+    }
+
+    private static void await(BooleanSupplier condition, String message) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(message);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+import org.example.service.RandomShortCodeGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterURLRepositoryTest {
+    private static final Logger LOG = Logger.getLogger(BloomFilterURLRepositoryTest.class.getName());
+
+    /**
+     * Counts lookups that reach the backing store.
+     */
+    private static class CountingRepository extends InMemoryURLRepository {
+        final AtomicLong lookups = new AtomicLong();
+
+        @Override
+        public URLMapping findByShortCode(String shortCode) {
+            lookups.incrementAndGet();
+            return super.findByShortCode(shortCode);
+        }
+    }
+
+    @Test
+    void shouldAnswerDefiniteMissesWithoutDelegate() {
+        CountingRepository delegate = new CountingRepository();
+        BloomFilterURLRepository repo = new BloomFilterURLRepository(delegate, 1000, 0.01);
+        repo.save(new URLMapping("abc", "https://example.com/a", LocalDateTime.now()));
+
+        assertEquals("https://example.com/a", repo.findByShortCode("abc").getLongUrl());
+        for (int i = 0; i < 1000; i++) {
+            assertNull(repo.findByShortCode("probe" + i));
+        }
+        assertEquals(1000, repo.getDefiniteMisses() + repo.getFalsePositives());
+        assertEquals(1 + repo.getFalsePositives(), delegate.lookups.get());
+        assertTrue(repo.getObservedFalsePositiveRate() < 0.05);
+    }
+
+    @Test
+    void shouldNeverMissWrittenCodesWhileGrowing() throws Exception {
+        BloomFilterURLRepository repo = new BloomFilterURLRepository(new InMemoryURLRepository(), 1000, 0.01);
+        int threads = 8;
+        int perThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int threadNum = t;
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    String code = threadNum + "-" + i;
+                    repo.saveIfAbsent(new URLMapping(code, "https://example.com/" + code, LocalDateTime.now()));
+                    assertNotNull(repo.findByShortCode(code));
+                }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertTrue(repo.getFilterStages() > 1);
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < perThread; i++) {
+                assertNotNull(repo.findByShortCode(t + "-" + i));
+                assertTrue(repo.isShortCodeProbablyTaken(t + "-" + i));
+            }
+        }
+    }
+
+    @Test
+    void shouldCountRemovedCodesAsFalsePositives() {
+        BloomFilterURLRepository repo = new BloomFilterURLRepository(new InMemoryURLRepository(), 1000, 0.01);
+        URLMapping mapping = new URLMapping("abc", "https://example.com/a", LocalDateTime.now());
+        repo.save(mapping);
+        assertTrue(repo.remove(mapping));
+
+        assertNull(repo.findByShortCode("abc"));
+        assertEquals(1, repo.getFalsePositives());
+    }
+
+    @Test
+    void shouldUseSeededCodes() {
+        InMemoryURLRepository delegate = new InMemoryURLRepository();
+        delegate.save(new URLMapping("old", "https://example.com/old", LocalDateTime.now()));
+        BloomFilterURLRepository repo = new BloomFilterURLRepository(delegate, 1000, 0.01);
+        delegate.forEach(m -> repo.seed(m.getShortCode()));
+
+        assertEquals("https://example.com/old", repo.findByShortCode("old").getLongUrl());
+    }
+
+    @Test
+    void shouldSendOnlyPossibleCodesToMultiGet() {
+        CountingRepository delegate = new CountingRepository();
+        BloomFilterURLRepository repo = new BloomFilterURLRepository(delegate, 1000, 0.01);
+        repo.save(new URLMapping("abc", "https://example.com/a", LocalDateTime.now()));
+
+        Map<String, URLMapping> found = repo.findAllByShortCode(List.of("abc", "probe1", "probe2"));
+
+        assertEquals(Map.of("abc", repo.findByShortCode("abc")), found);
+        assertEquals(2, repo.getDefiniteMisses() + repo.getFalsePositives());
+        assertEquals(1 + repo.getFalsePositives() + 1, delegate.lookups.get());
+    }
+
+    /**
+     * Logs the observed false-positive rate and probe cost with and without the filter.
+     */
+    @Test
+    @Tag("report")
+    void reportProbeTraffic() {
+        int codes = 200_000;
+        int probes = 1_000_000;
+        CountingRepository plain = new CountingRepository();
+        BloomFilterURLRepository guarded = new BloomFilterURLRepository(new CountingRepository(), 50_000, 0.01);
+        URLShortenerService service = new URLShortenerServiceImpl(guarded, new RandomShortCodeGenerator(7));
+        for (int i = 0; i < codes; i++) {
+            String code = service.shortenUrl("https://example.com/" + i);
+            plain.save(new URLMapping(code, "https://example.com/" + i, LocalDateTime.now()));
+        }
+        RandomShortCodeGenerator probeCodes = new RandomShortCodeGenerator(7);
+        String[] probe = new String[probes];
+        for (int i = 0; i < probes; i++) {
+            probe[i] = probeCodes.generateShortCode("bot");
+        }
+
+        long plainNanos = time(plain, probe);
+        long guardedNanos = time(guarded, probe);
+        LOG.info(String.format("bloom guard: %d codes in %d stages, %d probes, observed fpp %.4f, "
+                        + "store lookups %d -> %d, probe time %d ms -> %d ms",
+                codes, guarded.getFilterStages(), probes, guarded.getObservedFalsePositiveRate(),
+                plain.lookups.get(), guarded.getFalsePositives(),
+                plainNanos / 1_000_000, guardedNanos / 1_000_000));
+        assertTrue(guarded.getObservedFalsePositiveRate() < 0.02);
+    }
+
+    private static long time(URLRepository repo, String[] probes) {
+        long started = System.nanoTime();
+        int found = 0;
+        for (String code : probes) {
+            if (repo.findByShortCode(code) != null) {
+                found++;
+            }
+        }
+        assertTrue(found < probes.length);
+        return System.nanoTime() - started;
+    }
+}
@@ -0,0 +1,191 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingURLRepositoryTest {
+    private static final Logger LOG = Logger.getLogger(CachingURLRepositoryTest.class.getName());
+
+    /**
+     * Counts lookups that reach the backing store.
+     */
+    private static class CountingRepository extends InMemoryURLRepository {
+        final AtomicLong lookups = new AtomicLong();
+
+        @Override
+        public URLMapping findByShortCode(String shortCode) {
+            lookups.incrementAndGet();
+            return super.findByShortCode(shortCode);
+        }
+
+        @Override
+        public URLMapping findByLongUrl(String longUrl) {
+            lookups.incrementAndGet();
+            return super.findByLongUrl(longUrl);
+        }
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsByCodeAndUrlFromCache() {
+        CountingRepository delegate = new CountingRepository();
+        CachingURLRepository cache = new CachingURLRepository(delegate, 100);
+        URLMapping mapping = new URLMapping("abc", "https://example.com/a", LocalDateTime.now());
+        cache.save(mapping);
+
+        assertSame(mapping, cache.findByShortCode("abc"));
+        assertSame(mapping, cache.findByShortCode("abc"));
+        assertSame(mapping, cache.findByLongUrl("https://example.com/a"));
+        assertEquals(1, delegate.lookups.get());
+        assertEquals(2, cache.getHitCount());
+        assertNull(cache.findByShortCode("missing"));
+    }
+
+    @Test
+    void shouldInvalidateOnWrites() {
+        CachingURLRepository cache = new CachingURLRepository(new InMemoryURLRepository(), 100);
+        LocalDateTime now = LocalDateTime.now();
+        URLMapping first = new URLMapping("abc", "https://example.com/a", now);
+        cache.save(first);
+        assertSame(first, cache.findByLongUrl("https://example.com/a"));
+
+        URLMapping replacement = new URLMapping("xyz", "https://example.com/a", now);
+        cache.save(replacement);
+        assertSame(replacement, cache.findByLongUrl("https://example.com/a"));
+
+        assertTrue(cache.remove(replacement));
+        assertNull(cache.findByShortCode("xyz"));
+        assertNull(cache.findByLongUrl("https://example.com/a"));
+    }
+
+    @Test
+    void shouldNotServeExpiredMappingsFromCache() {
+        CountingRepository delegate = new CountingRepository();
+        CachingURLRepository cache = new CachingURLRepository(delegate, 100);
+        URLMapping expired = new URLMapping("old", "https://example.com/old",
+                LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1));
+        delegate.save(expired);
+
+        assertSame(expired, cache.findByShortCode("old"));
+        assertSame(expired, cache.findByShortCode("old"));
+        assertEquals(2, delegate.lookups.get(), "Expired mappings should not be cached");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldStayWithinMaximumSize() {
+        InMemoryURLRepository delegate = new InMemoryURLRepository();
+        CachingURLRepository cache = new CachingURLRepository(delegate, 50);
+        for (int i = 0; i < 1000; i++) {
+            delegate.save(new URLMapping("c" + i, "https://example.com/" + i, LocalDateTime.now()));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("https://example.com/" + i, cache.findByShortCode("c" + i).getLongUrl());
+            }
+        }
+        assertTrue(cache.size() <= 50, "size " + cache.size());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    void shouldKeepFrequentCodesThroughAScan() {
+        InMemoryURLRepository delegate = new InMemoryURLRepository();
+        CachingURLRepository cache = new CachingURLRepository(delegate, 100);
+        for (int i = 0; i < 10_000; i++) {
+            delegate.save(new URLMapping("c" + i, "https://example.com/" + i, LocalDateTime.now()));
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.findByShortCode("c" + i);
+            }
+        }
+        for (int i = 1000; i < 10_000; i++) {
+            cache.findByShortCode("c" + i);
+        }
+        long hitsBefore = cache.getHitCount();
+        for (int i = 0; i < 50; i++) {
+            cache.findByShortCode("c" + i);
+        }
+        // A plain LRU would have lost all of them; the one in the window may lose its admission tie.
+        assertTrue(cache.getHitCount() - hitsBefore >= 45, "Hot codes should survive a one-off scan");
+    }
+
+    /**
+     * Logs hit ratios of this cache and a plain LRU of the same size under Zipfian traffic,
+     * alone and mixed with one-off lookups such as bots crawling old codes.
+     */
+    @Test
+    @Tag("report")
+    void reportHitRatioUnderZipfianWorkload() {
+        int keys = 200_000;
+        int requests = 2_000_000;
+        InMemoryURLRepository delegate = new InMemoryURLRepository();
+        for (int i = 0; i < keys; i++) {
+            delegate.save(new URLMapping("c" + i, "https://example.com/" + i, LocalDateTime.now()));
+        }
+        double[] cdf = zipfCdf(keys, 0.99);
+        for (double scanShare : new double[] {0, 0.3}) {
+            for (int size : new int[] {1_000, 10_000}) {
+                Random random = new Random(42);
+                CachingURLRepository cache = new CachingURLRepository(delegate, size);
+                LruCache lru = new LruCache(size);
+                long lruHits = 0;
+                int scan = keys;
+                for (int r = 0; r < requests; r++) {
+                    String code = random.nextDouble() < scanShare ? "c" + (scan++ % keys) : "c" + sample(cdf, random);
+                    cache.findByShortCode(code);
+                    if (lru.get(code) != null) {
+                        lruHits++;
+                    } else {
+                        lru.put(code, delegate.findByShortCode(code));
+                    }
+                }
+                LOG.info(String.format("zipf(0.99) over %d codes, %.0f%% scan, cache %d: w-tinylfu %.3f, lru %.3f",
+                        keys, scanShare * 100, size, cache.getHitRatio(), (double) lruHits / requests));
+            }
+        }
+    }
+
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return index >= 0 ? index : Math.min(-index - 1, cdf.length - 1);
+    }
+
+    private static class LruCache extends LinkedHashMap<String, URLMapping> {
+        private final int maximumSize;
+
+        LruCache(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, URLMapping> eldest) {
+            return size() > maximumSize;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringURLRepositoryTest {
+
+    @Test
+    void wheelShouldFireItemsNoEarlierThanTheirDeadline() {
+        long start = 1_700_000_000_000L;
+        TimingWheel<Long> wheel = new TimingWheel<>(10, start);
+        List<Long> due = new ArrayList<>();
+        long[] delays = {5, 10, 640, 655, 41_000, 2_621_440, 3_000_000, 86_400_000L * 30};
+        for (long delay : delays) {
+            wheel.schedule(start + delay, start + delay, due);
+        }
+        wheel.schedule(start - 1, start - 1, due);
+        assertEquals(List.of(start - 1), due);
+        due.clear();
+
+        for (long now = start; now <= start + 86_400_000L * 30 + 10; now += 7) {
+            wheel.advance(now, due);
+            for (Long deadline : due) {
+                assertTrue(now >= deadline, "fired early: " + (deadline - start));
+                assertTrue(now - deadline < 20, "fired late: " + (deadline - start));
+            }
+            due.clear();
+            if (now > start + 3_000_100 && now < start + 86_400_000L * 29) {
+                now += 3_600_000;
+            }
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void wheelShouldCatchUpAfterLongPause() {
+        TimingWheel<String> wheel = new TimingWheel<>(1, 0);
+        List<String> due = new ArrayList<>();
+        for (int i = 1; i <= 10_000; i++) {
+            wheel.schedule("item" + i, i * 37L, due);
+        }
+        wheel.advance(370_000, due);
+        assertEquals(10_000, due.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void inMemoryRemoveShouldOnlyRemoveTheStoredMapping() {
+        InMemoryURLRepository repo = new InMemoryURLRepository();
+        URLMapping first = new URLMapping("abc", "https://example.com/1", LocalDateTime.now());
+        URLMapping second = new URLMapping("abc", "https://example.com/2", LocalDateTime.now());
+        repo.save(first);
+        repo.save(second);
+
+        assertFalse(repo.remove(first));
+        assertNotNull(repo.findByShortCode("abc"));
+        assertTrue(repo.remove(second));
+        assertNull(repo.findByShortCode("abc"));
+        assertNull(repo.findByLongUrl("https://example.com/2"));
+    }
+
+    @Test
+    void shouldEvictExpiredMappingsInBackground() throws InterruptedException {
+        InMemoryURLRepository backing = new InMemoryURLRepository();
+        try (ExpiringURLRepository repo = new ExpiringURLRepository(backing, 5)) {
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < 100; i++) {
+                repo.save(new URLMapping("short" + i, "https://example.com/s/" + i, now, now.plusNanos(50_000_000)));
+            }
+            repo.save(new URLMapping("long", "https://example.com/long", now, now.plusDays(1)));
+            repo.save(new URLMapping("forever", "https://example.com/forever", now));
+            URLMapping replaced = new URLMapping("reused", "https://example.com/old", now, now.plusNanos(20_000_000));
+            repo.save(replaced);
+            repo.save(new URLMapping("reused", "https://example.com/new", now));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (repo.getEvictedCount() < 100 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(100, repo.getEvictedCount());
+            assertNull(backing.findByShortCode("short0"));
+            assertNull(backing.findByLongUrl("https://example.com/s/99"));
+            assertNotNull(backing.findByShortCode("long"));
+            assertNotNull(backing.findByShortCode("forever"));
+            assertEquals("https://example.com/new", backing.findByShortCode("reused").getLongUrl());
+            assertTrue(repo.getSweepCount() > 0);
+            assertTrue(repo.getMaxSweepNanos() >= repo.getMeanSweepNanos());
+        }
+    }
+
+    @Test
+    void shouldTrackOnlyMappingsThatWereStored() throws InterruptedException {
+        InMemoryURLRepository backing = new InMemoryURLRepository();
+        try (ExpiringURLRepository repo = new ExpiringURLRepository(backing, 5)) {
+            LocalDateTime now = LocalDateTime.now();
+            URLMapping kept = new URLMapping("abc", "https://example.com/a", now);
+            repo.save(kept);
+            URLMapping rejected = new URLMapping("abc", "https://example.com/b", now, now.plusNanos(10_000_000));
+            assertFalse(repo.saveIfAbsent(rejected));
+            URLMapping accepted = new URLMapping("def", "https://example.com/c", now, now.plusNanos(10_000_000));
+            assertSame(accepted, repo.findOrSave(accepted));
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (repo.getEvictedCount() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+
+            assertEquals(1, repo.getEvictedCount());
+            assertSame(kept, backing.findByShortCode("abc"));
+            assertNull(backing.findByShortCode("def"));
+        }
+    }
+
+    @Test
+    void shouldCountFailedSweepsAndKeepSweeping() throws InterruptedException {
+        InMemoryURLRepository backing = new InMemoryURLRepository() {
+            private boolean failed;
+
+            @Override
+            public synchronized boolean remove(URLMapping mapping) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("Store unavailable");
+                }
+                return super.remove(mapping);
+            }
+        };
+        try (ExpiringURLRepository repo = new ExpiringURLRepository(backing, 5)) {
+            LocalDateTime now = LocalDateTime.now();
+            repo.save(new URLMapping("first", "https://example.com/1", now, now.plusNanos(10_000_000)));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (repo.getFailedSweepCount() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, repo.getFailedSweepCount());
+            assertNotNull(backing.findByShortCode("first"), "A failed sweep leaves its mappings in the store");
+
+            repo.save(new URLMapping("second", "https://example.com/2", now, now.plusNanos(10_000_000)));
+            while (repo.getEvictedCount() < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(1, repo.getEvictedCount());
+            assertNull(backing.findByShortCode("second"));
+            assertEquals(1, repo.getFailedSweepCount());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileURLRepositoryTest {
+    private static final Logger LOG = Logger.getLogger(FileURLRepositoryTest.class.getName());
+
+    @TempDir
+    Path dir;
+
+    private FileURLRepository.Options fastOptions() {
+        return new FileURLRepository.Options()
+                .segmentSize(64 * 1024)
+                .waitForSync(false)
+                .snapshotIntervalMillis(0);
+    }
+
+    @Test
+    void shouldKeepMappingsAcrossRestart() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 5, 1, 12, 0);
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            repo.save(new URLMapping("abc", "https://example.com/a", createdAt, createdAt.plusYears(100)));
+            assertTrue(repo.saveIfAbsent(new URLMapping("def", "https://example.com/b", createdAt)));
+            assertFalse(repo.saveIfAbsent(new URLMapping("def", "https://example.com/c", createdAt)));
+            assertEquals("abc", repo.findOrSave(new URLMapping("xyz", "https://example.com/a", createdAt)).getShortCode());
+        }
+
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            URLMapping a = repo.findByShortCode("abc");
+            assertEquals("https://example.com/a", a.getLongUrl());
+            assertEquals(createdAt, a.getCreatedAt());
+            assertEquals(createdAt.plusYears(100), a.getExpiresAt());
+            assertEquals("def", repo.findByLongUrl("https://example.com/b").getShortCode());
+            assertNull(repo.findByShortCode("xyz"));
+            assertEquals(2, repo.getReplayedRecords());
+        }
+    }
+
+    @Test
+    void shouldKeepRemovalsAcrossRestart() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 5, 1, 12, 0);
+        URLMapping removed = new URLMapping("abc", "https://example.com/a", createdAt);
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            repo.save(removed);
+            repo.save(new URLMapping("def", "https://example.com/b", createdAt));
+            assertFalse(repo.remove(new URLMapping("def", "https://example.com/other", createdAt)));
+            assertTrue(repo.remove(removed));
+        }
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            assertNull(repo.findByShortCode("abc"));
+            assertNull(repo.findByLongUrl("https://example.com/a"));
+            assertNotNull(repo.findByShortCode("def"));
+        }
+    }
+
+    @Test
+    void shouldRollSegmentsAndReplayThemInOrder() {
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            for (int i = 0; i < 5000; i++) {
+                repo.save(new URLMapping("c" + (i % 100), "https://example.com/" + i, LocalDateTime.now()));
+            }
+        }
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            for (int i = 4900; i < 5000; i++) {
+                assertEquals("https://example.com/" + i, repo.findByShortCode("c" + (i % 100)).getLongUrl());
+            }
+        }
+    }
+
+    @Test
+    void shouldIgnoreTornTailAfterCrash() throws IOException {
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            repo.save(new URLMapping("abc", "https://example.com/a", LocalDateTime.now()));
+        }
+        Path segment = segments().get(segments().size() - 1);
+        long end;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            end = MappingCodec.RECORD_HEADER + data.getInt(0);
+            // A record header whose body never made it to disk
+            channel.write(ByteBuffer.allocate(8).putInt(40).putInt(12345).flip(), end);
+        }
+
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            assertEquals("https://example.com/a", repo.findByShortCode("abc").getLongUrl());
+            repo.save(new URLMapping("def", "https://example.com/b", LocalDateTime.now()));
+        }
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            assertEquals("https://example.com/b", repo.findByShortCode("def").getLongUrl());
+            assertEquals(2, repo.getReplayedRecords());
+        }
+    }
+
+    @Test
+    void shouldCompactSupersededAndExpiredMappingsIntoSnapshot() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            for (int i = 0; i < 3000; i++) {
+                repo.save(new URLMapping("same", "https://example.com/" + i, now));
+            }
+            repo.save(new URLMapping("gone", "https://example.com/gone", now, now.minusMinutes(1)));
+            int segmentsBefore = segments().size();
+            repo.snapshot();
+            assertTrue(segments().size() < segmentsBefore);
+            assertEquals(1, segments().size());
+            repo.save(new URLMapping("after", "https://example.com/after", now));
+        }
+
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            assertEquals("https://example.com/2999", repo.findByShortCode("same").getLongUrl());
+            assertEquals("after", repo.findByLongUrl("https://example.com/after").getShortCode());
+            assertNull(repo.findByShortCode("gone"));
+            assertEquals(1, repo.getReplayedRecords());
+        }
+    }
+
+    @Test
+    void shouldKeepTheCurrentCodeOfEachUrlAcrossASnapshot() throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        int urls = 500;
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            for (int i = 0; i < urls; i++) {
+                repo.save(new URLMapping("old" + i, "https://example.com/" + i, now));
+                repo.save(new URLMapping("new" + i, "https://example.com/" + i, now));
+            }
+            repo.snapshot();
+        }
+
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            assertEquals(0, repo.getReplayedRecords());
+            for (int i = 0; i < urls; i++) {
+                assertEquals("new" + i, repo.findByLongUrl("https://example.com/" + i).getShortCode());
+                assertEquals("https://example.com/" + i, repo.findByShortCode("old" + i).getLongUrl());
+            }
+        }
+    }
+
+    @Test
+    void shouldSnapshotInBackground() throws Exception {
+        FileURLRepository.Options options = fastOptions().snapshotIntervalMillis(10).snapshotMinWrites(10);
+        try (FileURLRepository repo = FileURLRepository.open(dir, options)) {
+            for (int i = 0; i < 100; i++) {
+                repo.save(new URLMapping("c" + i, "https://example.com/" + i, LocalDateTime.now()));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!Files.exists(dir.resolve("snapshot.bin")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(dir.resolve("snapshot.bin")));
+        }
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            assertEquals("https://example.com/99", repo.findByShortCode("c99").getLongUrl());
+        }
+    }
+
+    @Test
+    void shouldGroupCommitConcurrentDurableWrites() throws Exception {
+        FileURLRepository.Options options = new FileURLRepository.Options()
+                .segmentSize(1 << 20).syncBatchSize(32).syncIntervalMillis(1).waitForSync(true).snapshotIntervalMillis(0);
+        int threads = 8;
+        int perThread = 200;
+        try (FileURLRepository repo = FileURLRepository.open(dir, options)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch latch = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                int threadNum = t;
+                executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        repo.save(new URLMapping(threadNum + "-" + i, "https://example.com/" + threadNum + "/" + i, LocalDateTime.now()));
+                    }
+                    latch.countDown();
+                });
+            }
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            executor.shutdown();
+        }
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            assertEquals(threads * perThread, repo.getReplayedRecords());
+            assertNotNull(repo.findByLongUrl("https://example.com/7/199"));
+        }
+    }
+
+    @Test
+    void shouldKeepBatchWritesAcrossRestart() {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 5, 1, 12, 0);
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            repo.save(new URLMapping("taken", "https://example.com/x", createdAt));
+            List<URLMapping> stored = repo.saveAll(List.of(
+                    new URLMapping("a", "https://example.com/a", createdAt),
+                    new URLMapping("taken", "https://example.com/b", createdAt),
+                    new URLMapping("c", "https://example.com/a", createdAt)));
+            assertEquals("a", stored.get(0).getShortCode());
+            assertNull(stored.get(1));
+            assertSame(stored.get(0), stored.get(2));
+        }
+        try (FileURLRepository repo = FileURLRepository.open(dir, fastOptions())) {
+            assertEquals("https://example.com/a", repo.findByShortCode("a").getLongUrl());
+            assertEquals("https://example.com/x", repo.findByShortCode("taken").getLongUrl());
+            assertNull(repo.findByShortCode("c"));
+            assertEquals(2, repo.getReplayedRecords());
+        }
+    }
+
+    @Test
+    void shouldRejectWritesAfterClose() {
+        FileURLRepository repo = FileURLRepository.open(dir, fastOptions());
+        repo.close();
+        assertThrows(IllegalStateException.class,
+                () -> repo.save(new URLMapping("abc", "https://example.com/a", LocalDateTime.now())));
+    }
+
+    /**
+     * Logs restart time with and without a snapshot for the same data set.
+     */
+    @Test
+    @Tag("report")
+    void reportRestartTime() {
+        int count = 500_000;
+        FileURLRepository.Options options = new FileURLRepository.Options().waitForSync(false).snapshotIntervalMillis(0);
+        try (FileURLRepository repo = FileURLRepository.open(dir, options)) {
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < count; i++) {
+                repo.save(new URLMapping(Integer.toString(i, 36), "https://example.com/campaign/" + i + "?utm_source=mail", now));
+            }
+        }
+        long replayMillis;
+        try (FileURLRepository repo = FileURLRepository.open(dir, options)) {
+            replayMillis = repo.getRecoveryMillis();
+            assertEquals(count, repo.getReplayedRecords());
+            repo.snapshot();
+        }
+        try (FileURLRepository repo = FileURLRepository.open(dir, options)) {
+            assertEquals(0, repo.getReplayedRecords());
+            assertNotNull(repo.findByShortCode(Integer.toString(count - 1, 36)));
+            LOG.info(String.format("restart with %d mappings: full log replay %d ms, snapshot load %d ms",
+                    count, replayMillis, repo.getRecoveryMillis()));
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -3,6 +3,8 @@ package org.example.repository;
 import org.example.model.URLMapping;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -11,6 +13,8 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -56,5 +60,111 @@ class InMemoryURLRepositoryConcurrencyTest {
             assertEquals(url, mapping.getLongUrl());
         }
     }
-}
 
+    /**
+     * Saves from contending writer threads and checks nothing was lost.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8, 64})
+    void shouldKeepEverySaveAcrossWriterThreads(int threadCount) throws InterruptedException {
+        InMemoryURLRepository repo = new InMemoryURLRepository();
+        int urlsPerThread = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int t = 0; t < threadCount; t++) {
+            int threadNum = t;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < urlsPerThread; i++) {
+                        repo.save(new URLMapping("c" + threadNum + "-" + i, "https://example.com/" + threadNum + "/" + i, now));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        for (int t = 0; t < threadCount; t++) {
+            for (int i = 0; i < urlsPerThread; i += 997) {
+                assertNotNull(repo.findByShortCode("c" + t + "-" + i));
+                assertNotNull(repo.findByLongUrl("https://example.com/" + t + "/" + i));
+            }
+        }
+    }
+
+    /**
+     * A code handed out by a lookup by long URL must always resolve.
+     */
+    @Test
+    void shouldNeverExposeUrlIndexBeforeCodeIndex() throws InterruptedException {
+        InMemoryURLRepository repo = new InMemoryURLRepository();
+        int count = 50000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger violations = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                for (int i = 0; i < count; i += 101) {
+                    URLMapping byUrl = repo.findByLongUrl("https://example.com/" + i);
+                    if (byUrl != null && repo.findByShortCode(byUrl.getShortCode()) == null) {
+                        violations.incrementAndGet();
+                    }
+                }
+            }
+        });
+        reader.start();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            repo.save(new URLMapping("code-" + i, "https://example.com/" + i, now));
+        }
+        writing.set(false);
+        reader.join();
+
+        assertEquals(0, violations.get());
+    }
+
+    /**
+     * A save is visible by code before its URL entry is published; findOrSave for the same URL
+     * must still return the saved mapping rather than store its own candidate.
+     */
+    @Test
+    void shouldFindOrSaveMappingAlreadyVisibleByCode() throws InterruptedException {
+        InMemoryURLRepository repo = new InMemoryURLRepository();
+        int count = 50000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger violations = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            while (writing.get()) {
+                for (int i = 0; i < count; i += 101) {
+                    URLMapping byCode = repo.findByShortCode("code-" + i);
+                    if (byCode == null) {
+                        continue;
+                    }
+                    URLMapping stored = repo.findOrSave(new URLMapping("other-" + i, byCode.getLongUrl(), now));
+                    if (stored == null || !("code-" + i).equals(stored.getShortCode())) {
+                        violations.incrementAndGet();
+                    }
+                }
+            }
+        });
+        reader.start();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            repo.save(new URLMapping("code-" + i, "https://example.com/" + i, now));
+        }
+        writing.set(false);
+        reader.join();
+
+        assertEquals(0, violations.get());
+        assertNull(repo.findByShortCode("other-0"));
+    }
+}
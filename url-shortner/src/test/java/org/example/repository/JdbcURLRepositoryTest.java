@@ -0,0 +1,276 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against an embedded in-memory H2 database, one per test.
+ */
+class JdbcURLRepositoryTest {
+    private static final Logger LOG = Logger.getLogger(JdbcURLRepositoryTest.class.getName());
+
+    private static String newDatabase() {
+        return "jdbc:h2:mem:" + UUID.randomUUID();
+    }
+
+    @Test
+    void shouldSaveAndFindByCodeAndUrl() {
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase())) {
+            LocalDateTime now = LocalDateTime.now();
+            URLMapping mapping = new URLMapping("abc", "https://example.com/a", now, now.plusDays(1));
+            repository.save(mapping);
+
+            assertEquals(mapping, repository.findByShortCode("abc"));
+            assertEquals(mapping, repository.findByLongUrl("https://example.com/a"));
+            assertNull(repository.findByShortCode("missing"));
+
+            URLMapping replacement = new URLMapping("xyz", "https://example.com/a", now);
+            repository.save(replacement);
+            assertEquals(replacement, repository.findByLongUrl("https://example.com/a"));
+            assertNull(repository.findByShortCode("abc"), "A URL has one row, so its old code goes");
+        }
+    }
+
+    @Test
+    void shouldDetectTakenCodesAndUrlsThroughUniqueIndexes() {
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase())) {
+            LocalDateTime now = LocalDateTime.now();
+            URLMapping first = new URLMapping("abc", "https://example.com/a", now);
+            assertTrue(repository.saveIfAbsent(first));
+            assertFalse(repository.saveIfAbsent(new URLMapping("abc", "https://example.com/b", now)));
+
+            assertEquals(first, repository.findOrSave(new URLMapping("def", "https://example.com/a", now)),
+                    "The live mapping for the URL wins");
+            assertNull(repository.findOrSave(new URLMapping("abc", "https://example.com/c", now)),
+                    "The code is taken by another URL");
+            URLMapping saved = new URLMapping("ghi", "https://example.com/d", now);
+            assertEquals(saved, repository.findOrSave(saved));
+
+            repository.save(new URLMapping("old", "https://example.com/e", now.minusDays(2), now.minusDays(1)));
+            URLMapping renewed = new URLMapping("new", "https://example.com/e", now);
+            assertEquals(renewed, repository.findOrSave(renewed), "An expired mapping is replaced");
+            assertNull(repository.findByShortCode("old"));
+        }
+    }
+
+    @Test
+    void shouldRemoveOnlyTheStoredMapping() {
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase())) {
+            LocalDateTime now = LocalDateTime.now();
+            URLMapping first = new URLMapping("abc", "https://example.com/a", now);
+            repository.save(first);
+            URLMapping second = new URLMapping("abc", "https://example.com/b", now);
+            repository.save(second);
+
+            assertFalse(repository.remove(first));
+            assertTrue(repository.remove(second));
+            assertNull(repository.findByShortCode("abc"));
+        }
+    }
+
+    @Test
+    void shouldSaveAllWithMultiGetsAndBatches() {
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase())) {
+            LocalDateTime now = LocalDateTime.now();
+            URLMapping live = new URLMapping("live", "https://example.com/live", now);
+            repository.save(live);
+            repository.save(new URLMapping("gone", "https://example.com/gone", now.minusDays(2), now.minusDays(1)));
+            List<URLMapping> candidates = new ArrayList<>();
+            candidates.add(new URLMapping("c1", "https://example.com/live", now));
+            candidates.add(new URLMapping("live", "https://example.com/other", now));
+            candidates.add(new URLMapping("c2", "https://example.com/gone", now));
+            candidates.add(new URLMapping("c3", "https://example.com/new", now));
+            candidates.add(new URLMapping("c4", "https://example.com/new", now));
+            candidates.add(new URLMapping("c3", "https://example.com/newer", now));
+            for (int i = 0; i < 300; i++) {
+                candidates.add(new URLMapping("b" + i, "https://example.com/bulk/" + i, now));
+            }
+
+            long before = repository.getRoundTrips();
+            List<URLMapping> stored = repository.saveAll(candidates);
+            long roundTrips = repository.getRoundTrips() - before;
+
+            assertEquals(live, stored.get(0));
+            assertNull(stored.get(1));
+            assertEquals(candidates.get(2), stored.get(2), "The expired mapping is replaced");
+            assertEquals(candidates.get(3), stored.get(3));
+            assertEquals(candidates.get(3), stored.get(4), "Later candidates see earlier ones");
+            assertNull(stored.get(5));
+            assertEquals("https://example.com/bulk/299", repository.findByShortCode("b299").getLongUrl());
+            assertNull(repository.findByShortCode("gone"));
+            // Three multi-gets per column for 303 keys, one delete batch, one insert batch, one commit.
+            assertTrue(roundTrips <= 9, "round trips " + roundTrips);
+        }
+    }
+
+    @Test
+    void shouldFindManyCodesPerRoundTrip() {
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase())) {
+            List<URLMapping> candidates = new ArrayList<>();
+            List<String> codes = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                candidates.add(new URLMapping("c" + i, "https://example.com/" + i, LocalDateTime.now()));
+                codes.add("c" + i);
+            }
+            repository.saveAll(candidates);
+            codes.add("missing");
+            codes.add("c0");
+
+            long before = repository.getRoundTrips();
+            Map<String, URLMapping> found = repository.findAllByShortCode(codes);
+            assertEquals(3, repository.getRoundTrips() - before);
+            assertEquals(300, found.size());
+            assertEquals("https://example.com/17", found.get("c17").getLongUrl());
+        }
+    }
+
+    @Test
+    void shouldCoalesceConcurrentSaves() throws Exception {
+        int threads = 8;
+        int savesPerThread = 200;
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase(),
+                new JdbcURLRepository.Options().poolSize(4))) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < savesPerThread; i++) {
+                        repository.save(new URLMapping("t" + thread + "-" + i,
+                                "https://example.com/" + thread + "/" + i, LocalDateTime.now()));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            pool.shutdown();
+
+            for (int t = 0; t < threads; t++) {
+                for (int i = 0; i < savesPerThread; i += 37) {
+                    assertEquals("https://example.com/" + t + "/" + i,
+                            repository.findByShortCode("t" + t + "-" + i).getLongUrl());
+                }
+            }
+            assertTrue(repository.getSaveBatches() <= threads * savesPerThread);
+        }
+    }
+
+    @Test
+    void shouldApplyLaterSavesInABatchLast() {
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase())) {
+            LocalDateTime now = LocalDateTime.now();
+            repository.save(new URLMapping("abc", "https://example.com/a", now));
+            repository.save(new URLMapping("abc", "https://example.com/b", now));
+            repository.save(new URLMapping("def", "https://example.com/b", now));
+            assertNull(repository.findByShortCode("abc"));
+            assertEquals("def", repository.findByLongUrl("https://example.com/b").getShortCode());
+        }
+    }
+
+    /**
+     * Writes and reads the same mappings one call at a time and in batches, and logs the
+     * database round trips and time of each next to InMemoryURLRepository.
+     * Set -Dmappings to change the count.
+     */
+    @Test
+    @Tag("report")
+    void reportRoundTripsSavedByBatching() throws Exception {
+        int count = Integer.getInteger("mappings", 20_000);
+        int threads = 16;
+        LocalDateTime now = LocalDateTime.now();
+        List<URLMapping> mappings = new ArrayList<>(count);
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            mappings.add(new URLMapping(Integer.toString(i, 36), "https://example.com/articles/" + i, now));
+            codes.add(Integer.toString(i, 36));
+        }
+
+        long started = System.nanoTime();
+        InMemoryURLRepository memory = new InMemoryURLRepository();
+        runSaves(memory, mappings, threads);
+        memory.findAllByShortCode(codes);
+        LOG.info(String.format("in-memory: %d saves and lookups in %.0f ms", count, (System.nanoTime() - started) / 1e6));
+
+        for (boolean coalesce : new boolean[] {false, true}) {
+            try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase(),
+                    new JdbcURLRepository.Options().coalesceSaves(coalesce))) {
+                long before = repository.getRoundTrips();
+                started = System.nanoTime();
+                runSaves(repository, mappings, threads);
+                LOG.info(String.format("jdbc save x%d threads, coalescing %s: %d round trips, %d batches, %.0f ms",
+                        threads, coalesce ? "on" : "off", repository.getRoundTrips() - before,
+                        repository.getSaveBatches(), (System.nanoTime() - started) / 1e6));
+            }
+        }
+
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase())) {
+            long before = repository.getRoundTrips();
+            started = System.nanoTime();
+            for (URLMapping mapping : mappings) {
+                repository.findOrSave(mapping);
+            }
+            LOG.info(String.format("jdbc findOrSave loop: %d round trips, %.0f ms",
+                    repository.getRoundTrips() - before, (System.nanoTime() - started) / 1e6));
+        }
+
+        try (JdbcURLRepository repository = new JdbcURLRepository(newDatabase())) {
+            long before = repository.getRoundTrips();
+            started = System.nanoTime();
+            for (int from = 0; from < count; from += 1000) {
+                repository.saveAll(mappings.subList(from, Math.min(count, from + 1000)));
+            }
+            LOG.info(String.format("jdbc saveAll of 1000: %d round trips, %.0f ms",
+                    repository.getRoundTrips() - before, (System.nanoTime() - started) / 1e6));
+
+            before = repository.getRoundTrips();
+            started = System.nanoTime();
+            for (String code : codes) {
+                assertNotNull(repository.findByShortCode(code));
+            }
+            LOG.info(String.format("jdbc findByShortCode loop: %d round trips, %.0f ms",
+                    repository.getRoundTrips() - before, (System.nanoTime() - started) / 1e6));
+
+            before = repository.getRoundTrips();
+            started = System.nanoTime();
+            assertEquals(count, repository.findAllByShortCode(codes).size());
+            LOG.info(String.format("jdbc findAllByShortCode: %d round trips, %.0f ms",
+                    repository.getRoundTrips() - before, (System.nanoTime() - started) / 1e6));
+        }
+    }
+
+    private static void runSaves(URLRepository repository, List<URLMapping> mappings, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = thread; i < mappings.size(); i += threads) {
+                    repository.save(mappings.get(i));
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+    }
+}
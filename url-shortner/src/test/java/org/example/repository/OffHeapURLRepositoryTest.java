@@ -0,0 +1,197 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.example.service.RandomShortCodeGenerator;
+import org.example.service.SimpleShortCodeGenerator;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapURLRepositoryTest {
+    private static final Logger LOG = Logger.getLogger(OffHeapURLRepositoryTest.class.getName());
+
+    @Test
+    void shouldRoundTripBase62AndArbitraryCodes() {
+        OffHeapURLRepository repo = new OffHeapURLRepository();
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 2, 3, 4, 5);
+        LocalDateTime expiresAt = createdAt.plusDays(30);
+        repo.save(new URLMapping("aZ09", "https://example.com/a", createdAt, expiresAt));
+        repo.save(new URLMapping("code-with-dash", "https://example.com/\u00fc", createdAt));
+        repo.save(new URLMapping("zzzzzzzzzzzz", "https://example.com/long-code", createdAt));
+
+        URLMapping compact = repo.findByShortCode("aZ09");
+        assertEquals("aZ09", compact.getShortCode());
+        assertEquals("https://example.com/a", compact.getLongUrl());
+        assertEquals(createdAt, compact.getCreatedAt());
+        assertEquals(expiresAt, compact.getExpiresAt());
+
+        URLMapping hashed = repo.findByLongUrl("https://example.com/\u00fc");
+        assertEquals("code-with-dash", hashed.getShortCode());
+        assertNull(hashed.getExpiresAt());
+        assertEquals("https://example.com/long-code", repo.findByShortCode("zzzzzzzzzzzz").getLongUrl());
+
+        assertNull(repo.findByShortCode("aZ0"));
+        assertNull(repo.findByShortCode("0aZ09"));
+        assertNull(repo.findByLongUrl("https://example.com/b"));
+        assertEquals(3, repo.size());
+    }
+
+    @Test
+    void shouldReplaceMappingOnSaveWithSameCode() {
+        OffHeapURLRepository repo = new OffHeapURLRepository();
+        repo.save(new URLMapping("abc", "https://example.com/1", LocalDateTime.now()));
+        repo.save(new URLMapping("abc", "https://example.com/2", LocalDateTime.now()));
+
+        assertEquals("https://example.com/2", repo.findByShortCode("abc").getLongUrl());
+        assertEquals(1, repo.size());
+    }
+
+    @Test
+    void shouldInsertOnlyIfCodeIsAbsent() {
+        OffHeapURLRepository repo = new OffHeapURLRepository();
+        assertTrue(repo.saveIfAbsent(new URLMapping("abc", "https://example.com/1", LocalDateTime.now())));
+        assertFalse(repo.saveIfAbsent(new URLMapping("abc", "https://example.com/2", LocalDateTime.now())));
+
+        URLMapping candidate = new URLMapping("def", "https://example.com/1", LocalDateTime.now());
+        assertEquals("abc", repo.findOrSave(candidate).getShortCode());
+        assertNull(repo.findOrSave(new URLMapping("abc", "https://example.com/3", LocalDateTime.now())));
+        URLMapping fresh = new URLMapping("def", "https://example.com/4", LocalDateTime.now());
+        assertSame(fresh, repo.findOrSave(fresh));
+    }
+
+    @Test
+    void shouldReplaceExpiredMappingInFindOrSave() {
+        OffHeapURLRepository repo = new OffHeapURLRepository();
+        LocalDateTime now = LocalDateTime.now();
+        repo.save(new URLMapping("old", "https://example.com/x", now.minusDays(2), now.minusDays(1)));
+
+        URLMapping candidate = new URLMapping("new", "https://example.com/x", now);
+        assertSame(candidate, repo.findOrSave(candidate));
+        assertEquals("new", repo.findByLongUrl("https://example.com/x").getShortCode());
+    }
+
+    @Test
+    void shouldRemoveOnlyTheStoredMapping() {
+        OffHeapURLRepository repo = new OffHeapURLRepository(16, 4096);
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < 1000; i++) {
+            repo.save(new URLMapping(Integer.toString(i, 36), "https://example.com/" + i, now));
+        }
+        assertFalse(repo.remove(new URLMapping("a", "https://example.com/other", now)));
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(repo.remove(new URLMapping(Integer.toString(i, 36), "https://example.com/" + i, now)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 1, repo.findByShortCode(Integer.toString(i, 36)) != null);
+            assertEquals(i % 2 == 1, repo.findByLongUrl("https://example.com/" + i) != null);
+        }
+        assertEquals(500, repo.size());
+    }
+
+    @Test
+    void shouldGrowAcrossChunksAndTables() {
+        OffHeapURLRepository repo = new OffHeapURLRepository(16, 4096);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 20000; i++) {
+            repo.save(new URLMapping(Integer.toString(i, 36), "https://example.com/" + i, now));
+        }
+        for (int i = 0; i < 20000; i++) {
+            assertEquals("https://example.com/" + i, repo.findByShortCode(Integer.toString(i, 36)).getLongUrl());
+            assertEquals(Integer.toString(i, 36), repo.findByLongUrl("https://example.com/" + i).getShortCode());
+        }
+    }
+
+    @Test
+    void shouldHandleConcurrentSavesAndLookups() throws InterruptedException {
+        OffHeapURLRepository repo = new OffHeapURLRepository();
+        int threadCount = 20;
+        int urlsPerThread = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            int threadNum = t;
+            executor.submit(() -> {
+                for (int i = 0; i < urlsPerThread; i++) {
+                    repo.save(new URLMapping("code-" + threadNum + "-" + i,
+                            "https://example.com/" + threadNum + "/" + i, LocalDateTime.now()));
+                    assertNotNull(repo.findByShortCode("code-" + threadNum + "-" + i));
+                }
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        for (int t = 0; t < threadCount; t++) {
+            for (int i = 0; i < urlsPerThread; i++) {
+                assertEquals("code-" + t + "-" + i, repo.findByLongUrl("https://example.com/" + t + "/" + i).getShortCode());
+            }
+        }
+    }
+
+    @Test
+    void shouldBackTheShortenerService() {
+        URLShortenerService simple = new URLShortenerServiceImpl(new OffHeapURLRepository(), new SimpleShortCodeGenerator());
+        URLShortenerService random = new URLShortenerServiceImpl(new OffHeapURLRepository(), new RandomShortCodeGenerator(7));
+        for (URLShortenerService service : new URLShortenerService[]{simple, random}) {
+            String code = service.shortenUrl("https://example.com/abc");
+            assertEquals(code, service.shortenUrl("https://example.com/abc"));
+            assertEquals("https://example.com/abc", service.getOriginalUrl(code));
+            String expired = service.shortenUrl("https://example.com/gone", LocalDateTime.now().minusMinutes(1));
+            assertNull(service.getOriginalUrl(expired));
+            assertNull(service.getOriginalUrl("missing"));
+        }
+    }
+
+    /**
+     * Logs the approximate memory cost per mapping of both repositories.
+     */
+    @Test
+    @Tag("report")
+    void reportMemoryPerMapping() {
+        int count = 200_000;
+        IntFunction<URLMapping> mappings = i -> new URLMapping(Long.toString(100000L + i, 36),
+                "https://example.com/campaign/" + i + "?utm_source=newsletter&utm_medium=email",
+                LocalDateTime.now(), LocalDateTime.now().plusDays(30));
+
+        long before = usedHeap();
+        InMemoryURLRepository onHeap = new InMemoryURLRepository();
+        for (int i = 0; i < count; i++) {
+            onHeap.save(mappings.apply(i));
+        }
+        long onHeapBytes = usedHeap() - before;
+        assertNotNull(onHeap.findByShortCode(Long.toString(100000L, 36)));
+        onHeap = null;
+
+        before = usedHeap();
+        OffHeapURLRepository offHeap = new OffHeapURLRepository(count, 16 << 20);
+        for (int i = 0; i < count; i++) {
+            offHeap.save(mappings.apply(i));
+        }
+        long offHeapHeapBytes = usedHeap() - before;
+        assertEquals(count, offHeap.size());
+
+        LOG.info(String.format("InMemoryURLRepository: %d heap bytes/mapping", onHeapBytes / count));
+        LOG.info(String.format("OffHeapURLRepository: %d heap bytes/mapping (index %d), %d off-heap bytes/mapping",
+                offHeapHeapBytes / count, offHeap.indexBytes() / count, offHeap.offHeapBytesUsed() / count));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,267 @@
+package org.example.repository;
+
+import org.example.model.URLMapping;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedURLRepositoryTest {
+    private static final Logger LOG = Logger.getLogger(ShardedURLRepositoryTest.class.getName());
+
+    @Test
+    void shouldFindMappingsByCodeAndUrlAcrossShards() {
+        ShardedURLRepository repo = new ShardedURLRepository(8);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 1000; i++) {
+            repo.save(new URLMapping("c" + i, "https://example.com/" + i, now));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("https://example.com/" + i, repo.findByShortCode("c" + i).getLongUrl());
+            assertEquals("c" + i, repo.findByLongUrl("https://example.com/" + i).getShortCode());
+        }
+        assertNull(repo.findByShortCode("missing"));
+        assertNull(repo.findByLongUrl("https://example.com/missing"));
+    }
+
+    @Test
+    void shouldFindOrSaveLikeTheInMemoryRepository() {
+        ShardedURLRepository repo = new ShardedURLRepository(4);
+        LocalDateTime now = LocalDateTime.now();
+        URLMapping first = new URLMapping("abc", "https://example.com/a", now);
+        assertSame(first, repo.findOrSave(first));
+
+        assertSame(first, repo.findOrSave(new URLMapping("xyz", "https://example.com/a", now)),
+                "A live mapping for the URL is returned instead of saving");
+        assertNull(repo.findOrSave(new URLMapping("abc", "https://example.com/b", now)),
+                "A taken code is refused");
+        assertNull(repo.findByLongUrl("https://example.com/b"));
+
+        URLMapping expired = new URLMapping("old", "https://example.com/e", now.minusDays(2), now.minusDays(1));
+        repo.save(expired);
+        URLMapping fresh = new URLMapping("new", "https://example.com/e", now);
+        assertSame(fresh, repo.findOrSave(fresh), "An expired mapping is replaced");
+        assertSame(fresh, repo.findByLongUrl("https://example.com/e"));
+
+        assertFalse(repo.saveIfAbsent(new URLMapping("abc", "https://example.com/c", now)));
+        assertTrue(repo.saveIfAbsent(new URLMapping("def", "https://example.com/c", now)));
+    }
+
+    @Test
+    void shouldRemoveOnlyTheStoredMapping() {
+        ShardedURLRepository repo = new ShardedURLRepository(4);
+        LocalDateTime now = LocalDateTime.now();
+        URLMapping stale = new URLMapping("abc", "https://example.com/a", now);
+        URLMapping current = new URLMapping("abc", "https://example.com/a", now.plusSeconds(1));
+        repo.save(current);
+
+        assertFalse(repo.remove(stale));
+        assertSame(current, repo.findByShortCode("abc"));
+        assertTrue(repo.remove(current));
+        assertNull(repo.findByShortCode("abc"));
+        assertNull(repo.findByLongUrl("https://example.com/a"));
+    }
+
+    @Test
+    void shouldSaveBatchesInOrder() {
+        ShardedURLRepository repo = new ShardedURLRepository(16);
+        LocalDateTime now = LocalDateTime.now();
+        List<URLMapping> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(new URLMapping("c" + i, "https://example.com/" + i, now));
+        }
+        batch.add(new URLMapping("dup", "https://example.com/7", now));
+        batch.add(new URLMapping("c3", "https://example.com/other", now));
+
+        List<URLMapping> stored = repo.saveAll(batch);
+
+        for (int i = 0; i < 100; i++) {
+            assertSame(batch.get(i), stored.get(i));
+        }
+        assertSame(batch.get(7), stored.get(100), "A later candidate sees the mapping saved for an earlier one");
+        assertNull(stored.get(101));
+        assertNull(repo.findByShortCode("dup"));
+    }
+
+    @Test
+    void shouldSpreadCodesEvenlyOverShards() {
+        ShardedURLRepository repo = new ShardedURLRepository(16);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 160_000; i++) {
+            repo.save(new URLMapping("c" + i, "https://example.com/" + i, now));
+        }
+        for (int size : repo.shardSizes()) {
+            assertTrue(size > 9_000 && size < 11_000, "Shard size " + size + " is far from 10000");
+        }
+    }
+
+    @Test
+    void shouldKeepEveryMappingWhenResharding() {
+        ShardedURLRepository repo = new ShardedURLRepository(3);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 10_000; i++) {
+            repo.save(new URLMapping("c" + i, "https://example.com/" + i, now));
+        }
+
+        for (int shardCount : new int[] {7, 64, 1, 5}) {
+            repo.reshard(shardCount);
+            assertEquals(shardCount, repo.getShardCount());
+            int total = 0;
+            for (int size : repo.shardSizes()) {
+                total += size;
+            }
+            assertEquals(10_000, total);
+            for (int i = 0; i < 10_000; i++) {
+                assertNotNull(repo.findByShortCode("c" + i));
+                assertEquals("c" + i, repo.findByLongUrl("https://example.com/" + i).getShortCode());
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> repo.reshard(0));
+    }
+
+    /**
+     * Writers racing reshards must neither lose mappings nor let two codes win one URL.
+     */
+    @Test
+    void shouldNotLoseWritesDuringResharding() throws InterruptedException {
+        ShardedURLRepository repo = new ShardedURLRepository(2);
+        int threads = 8;
+        int urls = 5_000;
+        LocalDateTime now = LocalDateTime.now();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Set<String> winners = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int threadNum = t;
+            executor.submit(() -> {
+                try {
+                    // Every thread competes for the same URLs, each with its own codes.
+                    for (int i = 0; i < urls; i++) {
+                        URLMapping candidate = new URLMapping("t" + threadNum + "-" + i, "https://example.com/" + i, now);
+                        if (repo.findOrSave(candidate) == candidate && !winners.add(candidate.getLongUrl())) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        Thread resharder = new Thread(() -> {
+            int[] counts = {5, 16, 3, 32, 1, 8};
+            for (int i = 0; writing.get(); i++) {
+                repo.reshard(counts[i % counts.length]);
+            }
+        });
+        resharder.start();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        writing.set(false);
+        resharder.join();
+        executor.shutdown();
+
+        assertEquals(0, duplicates.get());
+        assertEquals(urls, winners.size());
+        for (int i = 0; i < urls; i++) {
+            URLMapping byUrl = repo.findByLongUrl("https://example.com/" + i);
+            assertNotNull(byUrl);
+            assertSame(byUrl, repo.findByShortCode(byUrl.getShortCode()));
+        }
+    }
+
+    /**
+     * Measures findOrSave plus lookups against the shard count, next to a single
+     * InMemoryURLRepository. Every thread writes its own URLs and reads a mix of all codes.
+     */
+    @Test
+    @Tag("report")
+    void reportThroughputByShardCount() throws InterruptedException {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        int writesPerThread = 100_000;
+        LOG.info(String.format("%d threads, %d processors, 1 write : 4 reads",
+                threads, Runtime.getRuntime().availableProcessors()));
+        LOG.info(String.format("in-memory: %.0f ops/s", bestOf(3, () -> run(new InMemoryURLRepository(), threads, writesPerThread))));
+        for (int shardCount : new int[] {1, 2, 4, 16, 64, 256}) {
+            double opsPerSecond = bestOf(3, () -> run(new ShardedURLRepository(shardCount), threads, writesPerThread));
+            LOG.info(String.format("shards=%d: %.0f ops/s", shardCount, opsPerSecond));
+        }
+
+        ShardedURLRepository repo = new ShardedURLRepository(8);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 1_000_000; i++) {
+            repo.save(new URLMapping("c" + i, "https://example.com/" + i, now));
+        }
+        for (int shardCount : new int[] {64, 8}) {
+            long began = System.nanoTime();
+            repo.reshard(shardCount);
+            LOG.info(String.format("reshard 1M mappings to %d shards: %d ms",
+                    shardCount, (System.nanoTime() - began) / 1_000_000));
+        }
+    }
+
+    private interface Run {
+        double opsPerSecond() throws InterruptedException;
+    }
+
+    private static double bestOf(int rounds, Run run) throws InterruptedException {
+        double best = 0;
+        for (int r = 0; r < rounds; r++) {
+            best = Math.max(best, run.opsPerSecond());
+        }
+        return best;
+    }
+
+    private static double run(URLRepository repo, int threads, int writesPerThread) throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        LongAdder found = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int threadNum = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long hits = 0;
+                for (int i = 0; i < writesPerThread; i++) {
+                    repo.findOrSave(new URLMapping("c" + threadNum + "-" + i, "https://example.com/" + threadNum + "/" + i, now));
+                    for (int r = 1; r <= 4; r++) {
+                        int reader = (threadNum + r) % threads;
+                        if (repo.findByShortCode("c" + reader + "-" + (i >> r)) != null) {
+                            hits++;
+                        }
+                    }
+                }
+                found.add(hits);
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - began;
+        assertTrue(found.sum() > 0);
+        return threads * writesPerThread * 5 * 1e9 / elapsed;
+    }
+}
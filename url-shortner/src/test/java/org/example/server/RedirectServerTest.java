@@ -0,0 +1,313 @@
+package org.example.server;
+
+import org.example.metrics.Metrics;
+import org.example.repository.InMemoryURLRepository;
+import org.example.service.SimpleShortCodeGenerator;
+import org.example.service.URLShortenerService;
+import org.example.service.URLShortenerServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedirectServerTest {
+    private static final Logger LOG = Logger.getLogger(RedirectServerTest.class.getName());
+
+    private static URLShortenerService newService() {
+        return new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator());
+    }
+
+    @Test
+    void shouldShortenAndRedirectOverHttp() throws Exception {
+        try (RedirectServer server = new RedirectServer(newService(), 0)) {
+            HttpClient client = HttpClient.newHttpClient();
+            URI base = URI.create("http://localhost:" + server.getPort());
+
+            HttpResponse<String> created = client.send(HttpRequest.newBuilder(base.resolve("/shorten"))
+                    .POST(HttpRequest.BodyPublishers.ofString("https://example.com/page?id=1")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(201, created.statusCode());
+            String code = created.body();
+
+            HttpResponse<String> redirect = client.send(HttpRequest.newBuilder(base.resolve("/" + code)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(302, redirect.statusCode());
+            assertEquals("https://example.com/page?id=1", redirect.headers().firstValue("Location").orElse(null));
+
+            assertEquals(404, client.send(HttpRequest.newBuilder(base.resolve("/missing")).build(),
+                    HttpResponse.BodyHandlers.ofString()).statusCode());
+            HttpResponse<String> rejected = client.send(HttpRequest.newBuilder(base.resolve("/shorten"))
+                    .POST(HttpRequest.BodyPublishers.ofString("ftp://example.com")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, rejected.statusCode());
+            assertFalse(rejected.body().isEmpty());
+            assertEquals(405, client.send(HttpRequest.newBuilder(base.resolve("/" + code))
+                    .DELETE().build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+    }
+
+    @Test
+    void shouldSendPermanentRedirectsWhenConfigured() throws Exception {
+        URLShortenerService service = newService();
+        String code = service.shortenUrl("https://example.com/a");
+        try (RedirectServer server = new RedirectServer(service, new RedirectServer.Options().port(0).permanentRedirects(true));
+             Socket socket = new Socket("localhost", server.getPort())) {
+            send(socket, "GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n");
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response.startsWith("HTTP/1.1 301 "), response);
+            assertTrue(response.contains("Location: https://example.com/a\r\n"), response);
+        }
+    }
+
+    @Test
+    void shouldServeMetricsInPrometheusFormatWhenConfigured() throws Exception {
+        Metrics metrics = new Metrics();
+        URLShortenerService service = new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator(),
+                null, metrics);
+        String code = service.shortenUrl("https://example.com/a");
+        service.getOriginalUrl("missing");
+        try (RedirectServer server = new RedirectServer(service, new RedirectServer.Options().port(0).metrics(metrics))) {
+            HttpClient client = HttpClient.newHttpClient();
+            URI base = URI.create("http://localhost:" + server.getPort());
+            assertEquals(302, client.send(HttpRequest.newBuilder(base.resolve("/" + code)).build(),
+                    HttpResponse.BodyHandlers.ofString()).statusCode());
+
+            HttpResponse<String> scraped = client.send(HttpRequest.newBuilder(base.resolve("/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, scraped.statusCode());
+            assertTrue(scraped.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+            assertTrue(scraped.body().contains("# TYPE urlshortener_resolve_seconds summary\n"), scraped.body());
+            assertTrue(scraped.body().contains("urlshortener_resolve_seconds_count 2\n"), scraped.body());
+            assertTrue(scraped.body().contains("urlshortener_unknown_codes_total 1\n"), scraped.body());
+        }
+        try (RedirectServer server = new RedirectServer(service, 0)) {
+            assertEquals(404, HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + server.getPort() + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString()).statusCode(), "Without a registry /metrics is a short code");
+        }
+    }
+
+    @Test
+    void shouldNotSplitTheResponseOnAStoredUrlWithLineBreaks() throws Exception {
+        URLShortenerService service = newService();
+        // Like java.net.URL, the validator does not check the path, so the header encoding is the guard.
+        String code = service.shortenUrl("https://a.com/x\r\nSet-Cookie: evil=1\u00e9");
+        try (RedirectServer server = new RedirectServer(service, 0);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            send(socket, "GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n");
+            String response = readResponse(socket.getInputStream());
+            assertTrue(response.contains("Location: https://a.com/x%0D%0ASet-Cookie:%20evil=1%C3%A9\r\n"), response);
+            assertFalse(response.contains("\nSet-Cookie"), response);
+        }
+    }
+
+    @Test
+    void shouldAnswerPipelinedRequestsOnOneConnection() throws Exception {
+        URLShortenerService service = newService();
+        String a = service.shortenUrl("https://example.com/a");
+        String b = service.shortenUrl("https://example.com/b");
+        try (RedirectServer server = new RedirectServer(service, 0);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            send(socket, "GET /" + a + " HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "POST /shorten HTTP/1.1\r\nHost: x\r\nContent-Length: 21\r\n\r\nhttps://example.com/c"
+                    + "GET /" + b + "?utm=1 HTTP/1.1\r\nHost: x\r\n\r\n");
+            InputStream in = socket.getInputStream();
+            assertTrue(readResponse(in).contains("Location: https://example.com/a\r\n"));
+            assertTrue(readResponse(in).startsWith("HTTP/1.1 201 "));
+            assertTrue(readResponse(in).contains("Location: https://example.com/b\r\n"));
+
+            send(socket, "GET /" + a + " HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n");
+            assertTrue(readResponse(in).startsWith("HTTP/1.1 302 "));
+            assertEquals(-1, in.read(), "Server should close after Connection: close");
+            assertEquals(4, server.getRequestCount());
+        }
+    }
+
+    @Test
+    void shouldCloseOnAnyFormOfConnectionClose() throws Exception {
+        URLShortenerService service = newService();
+        String code = service.shortenUrl("https://example.com/a");
+        try (RedirectServer server = new RedirectServer(service, 0)) {
+            for (String header : List.of("Connection:close", "Connection: keep-alive, close", "connection:\tCLOSE ",
+                    "Connection: keep-alive\r\nConnection: close")) {
+                try (Socket socket = new Socket("localhost", server.getPort())) {
+                    socket.setSoTimeout(5000);
+                    send(socket, "GET /" + code + " HTTP/1.1\r\nHost: x\r\n" + header + "\r\n\r\n");
+                    InputStream in = socket.getInputStream();
+                    assertTrue(readResponse(in).startsWith("HTTP/1.1 302 "), header);
+                    assertEquals(-1, in.read(), header);
+                }
+            }
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(5000);
+                send(socket, "GET /" + code + " HTTP/1.1\r\nHost: x\r\nConnection: keep-alive, closed\r\nX-Connection: close\r\n\r\n"
+                        + "GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n");
+                InputStream in = socket.getInputStream();
+                assertTrue(readResponse(in).startsWith("HTTP/1.1 302 "));
+                assertTrue(readResponse(in).startsWith("HTTP/1.1 302 "), "Neither header asks to close");
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectChunkedBodiesAndClose() throws Exception {
+        InMemoryURLRepository repository = new InMemoryURLRepository();
+        URLShortenerService service = new URLShortenerServiceImpl(repository, new SimpleShortCodeGenerator());
+        String code = service.shortenUrl("https://example.com/a");
+        try (RedirectServer server = new RedirectServer(service, 0);
+             Socket socket = new Socket("localhost", server.getPort())) {
+            socket.setSoTimeout(5000);
+            send(socket, "POST /shorten HTTP/1.1\r\nHost: x\r\nTransfer-Encoding: chunked\r\n\r\n"
+                    + "15\r\nhttps://example.com/b\r\n0\r\n\r\n"
+                    + "GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n");
+            InputStream in = socket.getInputStream();
+            assertTrue(readResponse(in).startsWith("HTTP/1.1 501 "));
+            assertEquals(-1, in.read(), "The chunks must not be read as the next request");
+            assertNull(repository.findByLongUrl("https://example.com/b"));
+        }
+    }
+
+    @Test
+    void shouldServeNewClientsWhileManyKeepAliveConnectionsIdle() throws Exception {
+        URLShortenerService service = newService();
+        String code = service.shortenUrl("https://example.com/a");
+        List<Socket> idle = new ArrayList<>();
+        try (RedirectServer server = new RedirectServer(service, 0)) {
+            for (int i = 0; i < 300; i++) {
+                Socket socket = new Socket("localhost", server.getPort());
+                idle.add(socket);
+                socket.setSoTimeout(5000);
+                send(socket, "GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n");
+                readResponse(socket.getInputStream());
+            }
+            try (Socket socket = new Socket("localhost", server.getPort())) {
+                socket.setSoTimeout(5000);
+                send(socket, "GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n");
+                assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 302 "));
+            }
+        } finally {
+            for (Socket socket : idle) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectOversizedRequests() throws Exception {
+        try (RedirectServer server = new RedirectServer(newService(), new RedirectServer.Options().port(0).bufferSize(256));
+             Socket socket = new Socket("localhost", server.getPort())) {
+            send(socket, "GET /" + "x".repeat(300) + " HTTP/1.1\r\n\r\n");
+            assertTrue(readResponse(socket.getInputStream()).startsWith("HTTP/1.1 413 "));
+        }
+    }
+
+    /**
+     * Drives redirects at fixed target rates over keep-alive connections and logs p50/p99
+     * latency, measured from each request's scheduled send time so a stalled server is not
+     * hidden by the client slowing down.
+     */
+    @Test
+    @Tag("report")
+    void reportRedirectLatencyAt50kRequestsPerSecond() throws Exception {
+        URLShortenerService service = newService();
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            codes.add(service.shortenUrl("https://example.com/landing/" + i + "?utm_source=load"));
+        }
+        try (RedirectServer server = new RedirectServer(service, new RedirectServer.Options().port(0))) {
+            for (int targetRate : new int[] {20_000, 50_000}) {
+                runAtRate(server, codes, targetRate, 16, TimeUnit.SECONDS.toNanos(2));
+            }
+        }
+    }
+
+    private static void runAtRate(RedirectServer server, List<String> codes, int targetRate, int connections,
+                                  long durationNanos) throws InterruptedException {
+        int perConnection = (int) ((long) targetRate * durationNanos / 1_000_000_000L / connections);
+        long intervalNanos = 1_000_000_000L * connections / targetRate;
+        long[][] latencies = new long[connections][perConnection];
+        long requestsBefore = server.getRequestCount();
+        CountDownLatch done = new CountDownLatch(connections);
+        long begin = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            Thread client = new Thread(() -> {
+                try (Socket socket = new Socket("localhost", server.getPort())) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    byte[] buffer = new byte[4096];
+                    for (int i = 0; i < perConnection; i++) {
+                        long scheduled = begin + connection * intervalNanos / connections + i * intervalNanos;
+                        long wait = scheduled - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        String code = codes.get((connection * perConnection + i) % codes.size());
+                        out.write(("GET /" + code + " HTTP/1.1\r\nHost: x\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                        readHeaderBlock(in, buffer);
+                        latencies[connection][i] = System.nanoTime() - scheduled;
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+            client.start();
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - begin;
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        LOG.info(String.format("redirects: target %d req/s, achieved %.0f req/s over %d connections, p50 %d us, p99 %d us, p99.9 %d us",
+                targetRate, all.length * 1e9 / elapsed, connections,
+                all[all.length / 2] / 1000, all[(int) (all.length * 0.99)] / 1000, all[(int) (all.length * 0.999)] / 1000));
+        assertEquals((long) connections * perConnection, server.getRequestCount() - requestsBefore);
+    }
+
+    private static void send(Socket socket, String request) throws IOException {
+        socket.getOutputStream().write(request.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads one response: its header block and a body of Content-Length bytes.
+     */
+    private static String readResponse(InputStream in) throws IOException {
+        String head = new String(readHeaderBlock(in, new byte[8192]), StandardCharsets.US_ASCII);
+        int at = head.toLowerCase().indexOf("content-length: ");
+        int length = Integer.parseInt(head.substring(at + 16, head.indexOf('\r', at)));
+        return head + new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readHeaderBlock(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < 4 || buffer[length - 1] != '\n' || buffer[length - 2] != '\r'
+                || buffer[length - 3] != '\n' || buffer[length - 4] != '\r') {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed mid-response");
+            }
+            buffer[length++] = (byte) b;
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.service;
+
+import org.example.model.URLMapping;
+import org.example.repository.InMemoryURLRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncURLShortenerServiceTest {
+    private static final Logger LOG = Logger.getLogger(AsyncURLShortenerServiceTest.class.getName());
+
+    /**
+     * Adds a fixed delay to every lookup round trip, like a store that is not in-process.
+     */
+    private static class RemoteLikeRepository extends InMemoryURLRepository {
+        private final long delayMicros;
+
+        RemoteLikeRepository(long delayMicros) {
+            this.delayMicros = delayMicros;
+        }
+
+        @Override
+        public URLMapping findByShortCode(String shortCode) {
+            roundTrip();
+            return super.findByShortCode(shortCode);
+        }
+
+        @Override
+        public Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+            roundTrip();
+            Map<String, URLMapping> found = new HashMap<>();
+            for (String shortCode : shortCodes) {
+                URLMapping mapping = super.findByShortCode(shortCode);
+                if (mapping != null) {
+                    found.put(shortCode, mapping);
+                }
+            }
+            return found;
+        }
+
+        private void roundTrip() {
+            LockSupport.parkNanos(delayMicros * 1000);
+        }
+    }
+
+    @Test
+    void shouldShortenAndResolveThroughFutures() throws Exception {
+        URLShortenerService sync = new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator());
+        try (AsyncURLShortenerService async = new AsyncURLShortenerService(sync, 64)) {
+            String code = async.shortenUrl("https://example.com/a").get(5, TimeUnit.SECONDS);
+            assertEquals("https://example.com/a", async.getOriginalUrl(code).get(5, TimeUnit.SECONDS));
+            assertNull(async.getOriginalUrl("missing").get(5, TimeUnit.SECONDS));
+
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> async.shortenUrl("not a url").get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+            assertEquals(64, async.getAvailablePermits());
+        }
+    }
+
+    @Test
+    void shouldRejectCallsBeyondMaxInFlightWithoutBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        URLShortenerService blocking = new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator()) {
+            @Override
+            public String getOriginalUrl(String shortCode) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+        try (AsyncURLShortenerService async = new AsyncURLShortenerService(blocking, 2)) {
+            CompletableFuture<String> first = async.getOriginalUrl("a");
+            async.getOriginalUrl("b");
+            CompletableFuture<String> third = async.getOriginalUrl("c");
+            assertTrue(third.isCompletedExceptionally(), "Third call should fail at once, not wait for a permit");
+            ExecutionException e = assertThrows(ExecutionException.class, third::get);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            assertFalse(first.isDone());
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (async.getAvailablePermits() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertNull(async.getOriginalUrl("d").get(5, TimeUnit.SECONDS), "Finished calls should free their permits");
+        }
+    }
+
+    @Test
+    void shouldRouteLookupsThroughResolver() throws Exception {
+        InMemoryURLRepository repository = new InMemoryURLRepository();
+        URLShortenerService sync = new URLShortenerServiceImpl(repository, new SimpleShortCodeGenerator());
+        String code = sync.shortenUrl("https://example.com/a");
+        try (BatchingURLResolver resolver = new BatchingURLResolver(repository);
+             AsyncURLShortenerService async = new AsyncURLShortenerService(sync, resolver, 16)) {
+            assertEquals("https://example.com/a", async.getOriginalUrl(code).get(5, TimeUnit.SECONDS));
+            assertEquals(1, resolver.getLookupCount());
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidSettings() {
+        URLShortenerService sync = new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator());
+        assertThrows(IllegalArgumentException.class, () -> new AsyncURLShortenerService(sync, 0));
+    }
+
+    /**
+     * Logs redirect throughput and mean latency against a store with a 200 us round trip:
+     * the sync loop, async calls, and async calls with batched lookups.
+     */
+    @Test
+    @Tag("report")
+    void reportSyncVersusAsyncLookups() throws Exception {
+        int codes = 1000;
+        int lookups = 20_000;
+        RemoteLikeRepository repository = new RemoteLikeRepository(200);
+        URLShortenerService sync = new URLShortenerServiceImpl(repository, new SimpleShortCodeGenerator());
+        List<String> shortCodes = new ArrayList<>(codes);
+        for (int i = 0; i < codes; i++) {
+            shortCodes.add(sync.shortenUrl("https://example.com/" + i));
+        }
+
+        long started = System.nanoTime();
+        for (int i = 0; i < lookups / 10; i++) {
+            assertNotNull(sync.getOriginalUrl(shortCodes.get(i % codes)));
+        }
+        long syncNanos = (System.nanoTime() - started) * 10;
+        LOG.info(String.format("sync:           %.0f lookups/s, mean %d us",
+                lookups * 1e9 / syncNanos, syncNanos / lookups / 1000));
+
+        try (AsyncURLShortenerService async = new AsyncURLShortenerService(sync, 256)) {
+            report("async:         ", async, shortCodes, lookups);
+        }
+        try (BatchingURLResolver resolver = new BatchingURLResolver(repository, 2, 256, 4096);
+             AsyncURLShortenerService async = new AsyncURLShortenerService(sync, resolver, 256)) {
+            report("async batched: ", async, shortCodes, lookups);
+            LOG.info(String.format("mean batch size %.1f", (double) resolver.getLookupCount() / resolver.getBatchCount()));
+        }
+    }
+
+    /**
+     * Issues lookups as fast as the service accepts them, retrying a call it rejects as too many in flight.
+     */
+    private static void report(String label, AsyncURLShortenerService async, List<String> shortCodes, int lookups)
+            throws Exception {
+        long[] latencies = new long[lookups];
+        List<CompletableFuture<String>> results = new ArrayList<>(lookups);
+        long started = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            int index = i;
+            String shortCode = shortCodes.get(i % shortCodes.size());
+            long issued = System.nanoTime();
+            CompletableFuture<String> result = async.getOriginalUrl(shortCode);
+            while (result.isCompletedExceptionally()) {
+                Thread.yield();
+                result = async.getOriginalUrl(shortCode);
+            }
+            results.add(result.whenComplete((url, e) -> latencies[index] = System.nanoTime() - issued));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(60, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - started;
+        long total = 0;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        LOG.info(String.format("%s %.0f lookups/s, mean %d us", label, lookups * 1e9 / elapsed, total / lookups / 1000));
+    }
+}
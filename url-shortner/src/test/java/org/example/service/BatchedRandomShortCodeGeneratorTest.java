@@ -0,0 +1,146 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchedRandomShortCodeGeneratorTest {
+    private static final Logger LOG = Logger.getLogger(BatchedRandomShortCodeGeneratorTest.class.getName());
+
+    @Test
+    void generatesCodesOfCorrectLengthAndUniqueness() {
+        int codeLength = 7;
+        try (BatchedRandomShortCodeGenerator generator = new BatchedRandomShortCodeGenerator(codeLength, 64, 2)) {
+            Set<String> codes = new HashSet<>();
+            for (int i = 0; i < 10000; i++) {
+                String code = generator.generateShortCode("https://example.com/" + i);
+                assertEquals(codeLength, code.length());
+                assertTrue(codes.add(code), "Duplicate code generated: " + code);
+            }
+        }
+    }
+
+    @Test
+    void shouldSpreadCharactersUniformly() {
+        int[] counts = new int[128];
+        int samples = 0;
+        try (BatchedRandomShortCodeGenerator generator = new BatchedRandomShortCodeGenerator(10)) {
+            for (int i = 0; i < 62_000; i++) {
+                for (char c : generator.generateShortCode("u").toCharArray()) {
+                    counts[c]++;
+                    samples++;
+                }
+            }
+        }
+        double expected = samples / 62.0;
+        double chiSquare = 0;
+        for (char c : RandomShortCodeGenerator.BASE62.toCharArray()) {
+            chiSquare += Math.pow(counts[c] - expected, 2) / expected;
+        }
+        // 61 degrees of freedom: the 99.99th percentile is about 113
+        assertTrue(chiSquare < 113, "Character distribution is biased, chi-square = " + chiSquare);
+    }
+
+    @Test
+    void shouldGenerateUniqueCodesAcrossThreads() throws InterruptedException {
+        BatchedRandomShortCodeGenerator generator = new BatchedRandomShortCodeGenerator(10, 128, 2);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        int threads = 16;
+        int perThread = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    codes.add(generator.generateShortCode("u"));
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        generator.close();
+        assertEquals(threads * perThread, codes.size());
+    }
+
+    @Test
+    void shouldGenerateUniqueCodesWithAVirtualThreadPerCode() {
+        int tasks = 20_000;
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        try (BatchedRandomShortCodeGenerator generator = new BatchedRandomShortCodeGenerator(10, 128, 2);
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < tasks; i++) {
+                executor.submit(() -> codes.add(generator.generateShortCode("u")));
+            }
+        }
+        assertEquals(tasks, codes.size());
+    }
+
+    @Test
+    void shouldStopTheRefillThreadOnCloseAndKeepGenerating() throws InterruptedException {
+        BatchedRandomShortCodeGenerator generator = new BatchedRandomShortCodeGenerator(7, 64, 2);
+        generator.close();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!generator.isRefillerTerminated() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(generator.isRefillerTerminated());
+
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            codes.add(generator.generateShortCode("u"));
+        }
+        assertEquals(1000, codes.size());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenSettingsAreInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchedRandomShortCodeGenerator(3));
+        assertThrows(IllegalArgumentException.class, () -> new BatchedRandomShortCodeGenerator(13));
+        assertThrows(IllegalArgumentException.class, () -> new BatchedRandomShortCodeGenerator(7, 16, 2));
+    }
+
+    /**
+     * Logs throughput of the per-character SecureRandom generator against the batched one.
+     */
+    @Test
+    @Tag("report")
+    void reportThroughputAgainstRandomShortCodeGenerator() throws InterruptedException {
+        for (int threads = 1; threads <= 16; threads *= 4) {
+            double current = throughput(new RandomShortCodeGenerator(7), threads, 100_000 / threads);
+            double batched;
+            try (BatchedRandomShortCodeGenerator generator = new BatchedRandomShortCodeGenerator(7)) {
+                batched = throughput(generator, threads, 100_000 / threads);
+            }
+            LOG.info(String.format("threads=%d random=%.0f codes/s batched=%.0f codes/s", threads, current, batched));
+        }
+    }
+
+    private static double throughput(ShortCodeGenerator generator, int threads, int perThread) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        long started = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    generator.generateShortCode("u");
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+        return (double) threads * perThread * 1e9 / elapsed;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.service;
+
+import org.example.model.URLMapping;
+import org.example.repository.InMemoryURLRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingURLResolverTest {
+
+    /**
+     * Holds the first multi-get until released, so later lookups pile up behind it.
+     */
+    private static class GatedRepository extends InMemoryURLRepository {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+            if (calls.getAndIncrement() == 0) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.findAllByShortCode(shortCodes);
+        }
+    }
+
+    @Test
+    void shouldCoalesceConcurrentLookups() throws Exception {
+        GatedRepository repository = new GatedRepository();
+        for (int i = 0; i < 100; i++) {
+            repository.save(new URLMapping("c" + i, "https://example.com/" + i, LocalDateTime.now()));
+        }
+        try (BatchingURLResolver resolver = new BatchingURLResolver(repository, 1, 256, 1024)) {
+            CompletableFuture<String> first = resolver.getOriginalUrl("c0");
+            assertTrue(repository.entered.await(5, TimeUnit.SECONDS));
+            List<CompletableFuture<String>> rest = new ArrayList<>();
+            for (int i = 1; i < 100; i++) {
+                rest.add(resolver.getOriginalUrl("c" + i));
+            }
+            rest.add(resolver.getOriginalUrl("missing"));
+            repository.release.countDown();
+
+            assertEquals("https://example.com/0", first.get(5, TimeUnit.SECONDS));
+            for (int i = 1; i < 100; i++) {
+                assertEquals("https://example.com/" + i, rest.get(i - 1).get(5, TimeUnit.SECONDS));
+            }
+            assertNull(rest.get(99).get(5, TimeUnit.SECONDS));
+            assertEquals(2, repository.calls.get());
+            assertEquals(101, resolver.getLookupCount());
+        }
+    }
+
+    @Test
+    void shouldNotResolveExpiredMappings() throws Exception {
+        InMemoryURLRepository repository = new InMemoryURLRepository();
+        repository.save(new URLMapping("old", "https://example.com/old",
+                LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1)));
+        try (BatchingURLResolver resolver = new BatchingURLResolver(repository)) {
+            assertNull(resolver.getOriginalUrl("old").get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void shouldFailWholeBatchWhenRepositoryFails() {
+        InMemoryURLRepository repository = new InMemoryURLRepository() {
+            @Override
+            public Map<String, URLMapping> findAllByShortCode(Collection<String> shortCodes) {
+                throw new IllegalStateException("store down");
+            }
+        };
+        try (BatchingURLResolver resolver = new BatchingURLResolver(repository)) {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> resolver.getOriginalUrl("abc").get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+    }
+
+    @Test
+    void shouldFailLookupsAfterClose() {
+        BatchingURLResolver resolver = new BatchingURLResolver(new InMemoryURLRepository());
+        resolver.close();
+        assertThrows(ExecutionException.class, () -> resolver.getOriginalUrl("abc").get(5, TimeUnit.SECONDS));
+    }
+}
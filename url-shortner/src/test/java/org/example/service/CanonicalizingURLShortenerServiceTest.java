@@ -0,0 +1,38 @@
+package org.example.service;
+
+import org.example.repository.InMemoryURLRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CanonicalizingURLShortenerServiceTest {
+
+    private final URLShortenerService service = new CanonicalizingURLShortenerService(
+            new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator()));
+
+    @Test
+    void shouldGiveEquivalentUrlsOneCode() {
+        String code = service.shortenUrl("https://Example.com:443/page?b=2&a=1");
+        assertEquals(code, service.shortenUrl("https://example.com/page?a=1&b=2"));
+        assertEquals("https://example.com/page?a=1&b=2", service.getOriginalUrl(code));
+        assertNotEquals(code, service.shortenUrl("https://example.com/Page?a=1&b=2"));
+    }
+
+    @Test
+    void shouldKeyBulkResultsByGivenUrls() {
+        Map<String, String> codes = service.shortenUrls(
+                List.of("http://EXAMPLE.com/x", "http://example.com:80/x", "http://example.com/y"), null);
+        assertEquals(3, codes.size());
+        assertEquals(codes.get("http://EXAMPLE.com/x"), codes.get("http://example.com:80/x"));
+        assertNotEquals(codes.get("http://example.com/x"), codes.get("http://example.com/y"));
+    }
+
+    @Test
+    void shouldStillRejectInvalidUrls() {
+        assertThrows(IllegalArgumentException.class, () -> service.shortenUrl("ftp://example.com"));
+        assertThrows(IllegalArgumentException.class, () -> service.shortenUrl(null));
+    }
+}
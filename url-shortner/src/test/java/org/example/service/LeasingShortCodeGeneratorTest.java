@@ -0,0 +1,138 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeasingShortCodeGeneratorTest {
+    private static final Logger LOG = Logger.getLogger(LeasingShortCodeGeneratorTest.class.getName());
+
+    @Test
+    void shouldEncodeSameCodesAsSimpleGeneratorOnOneThread() {
+        ShortCodeGenerator simple = new SimpleShortCodeGenerator();
+        ShortCodeGenerator leasing = new LeasingShortCodeGenerator(100000, 16);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(simple.generateShortCode("u"), leasing.generateShortCode("u"));
+        }
+    }
+
+    @Test
+    void shouldGenerateUniqueDenseCodesAcross64Threads() throws InterruptedException {
+        int threads = 64;
+        int perThread = 5000;
+        int blockSize = 256;
+        LeasingShortCodeGenerator generator = new LeasingShortCodeGenerator(100000, blockSize);
+        List<List<String>> results = generate(generator, threads, perThread);
+
+        Set<String> codes = new HashSet<>();
+        for (List<String> result : results) {
+            for (String code : result) {
+                assertTrue(codes.add(code), "Duplicate code generated: " + code);
+            }
+        }
+        assertEquals(threads * perThread, codes.size());
+        // Every leased block but the last per thread is used up, so codes stay as short as the counter allows
+        int longest = codes.stream().mapToInt(String::length).max().orElse(0);
+        char[] buffer = new char[SimpleShortCodeGenerator.MAX_ENCODED_LENGTH];
+        long highestPossible = 100000L + (long) threads * perThread + (long) threads * blockSize;
+        assertTrue(longest <= buffer.length - SimpleShortCodeGenerator.encodeBase62(highestPossible, buffer));
+    }
+
+    @Test
+    void shouldKeepCodesDenseWithAVirtualThreadPerCode() throws Exception {
+        int tasks = 10_000;
+        int blockSize = 1024;
+        LeasingShortCodeGenerator generator = new LeasingShortCodeGenerator(100000, blockSize);
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < tasks; i++) {
+                executor.submit(() -> codes.add(generator.generateShortCode("u")));
+            }
+        }
+        assertEquals(tasks, codes.size());
+        // Leases belong to stripes, not threads, so each task does not lease a block of its own.
+        Set<String> dense = new HashSet<>(SimpleShortCodeGenerator.encodeRange(100000, tasks + 64 * blockSize));
+        assertTrue(dense.containsAll(codes), "Codes went past the IDs the stripes can hold back");
+    }
+
+    @Test
+    void shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new LeasingShortCodeGenerator(0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new LeasingShortCodeGenerator(1, 0));
+    }
+
+    /**
+     * Logs generation throughput of the shared counter and the leasing generator.
+     */
+    @Test
+    @Tag("report")
+    void reportScalabilityUpTo64Threads() throws InterruptedException {
+        int perThread = 200_000;
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            double simple = throughput(new SimpleShortCodeGenerator(), threads, perThread);
+            double leasing = throughput(new LeasingShortCodeGenerator(), threads, perThread);
+            LOG.info(String.format("threads=%d simple=%.0f codes/s leasing=%.0f codes/s", threads, simple, leasing));
+        }
+    }
+
+    private static double throughput(ShortCodeGenerator generator, int threads, int perThread) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    int sink = 0;
+                    for (int i = 0; i < perThread; i++) {
+                        sink += generator.generateShortCode("u").length();
+                    }
+                    assertTrue(sink > 0);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long began = System.nanoTime();
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - began;
+        executor.shutdown();
+        return (double) threads * perThread * 1e9 / elapsed;
+    }
+
+    private static List<List<String>> generate(ShortCodeGenerator generator, int threads, int perThread)
+            throws InterruptedException {
+        List<List<String>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            List<String> result = new ArrayList<>(perThread);
+            results.add(result);
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    result.add(generator.generateShortCode("u"));
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        return results;
+    }
+}
@@ -5,6 +5,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.HashSet;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -26,4 +29,18 @@ class SimpleShortCodeGeneratorTest {
         assertNotNull(shortCode, "Short code should not be null");
         assertFalse(shortCode.isEmpty(), "Short code should not be empty");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldGenerateDistinctCodesForBatch(){
+        String first = generator.generateShortCode("https://example.com/a");
+
+        List<String> batch = generator.generateShortCodes(List.of("https://example.com/b", "https://example.com/c", "https://example.com/d"));
+        String next = generator.generateShortCode("https://example.com/e");
+
+        assertEquals(3, batch.size());
+        HashSet<String> all = new HashSet<>(batch);
+        all.add(first);
+        all.add(next);
+        assertEquals(5, all.size(), "Batch codes should not overlap single codes");
+    }
+}
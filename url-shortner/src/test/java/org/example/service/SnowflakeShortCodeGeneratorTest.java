@@ -0,0 +1,121 @@
+package org.example.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeShortCodeGeneratorTest {
+    private static final Logger LOG = Logger.getLogger(SnowflakeShortCodeGeneratorTest.class.getName());
+
+    @Test
+    void shouldNotCollideAcrossNodesInOneJvm() throws InterruptedException {
+        int nodes = 8;
+        int threadsPerNode = 4;
+        int perThread = 50_000;
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        List<String> duplicates = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(nodes * threadsPerNode);
+        CountDownLatch done = new CountDownLatch(nodes * threadsPerNode);
+        for (int n = 0; n < nodes; n++) {
+            ShortCodeGenerator node = new SnowflakeShortCodeGenerator(n);
+            for (int t = 0; t < threadsPerNode; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        String code = node.generateShortCode("https://example.com");
+                        if (code.length() != SnowflakeShortCodeGenerator.CODE_LENGTH || !codes.add(code)) {
+                            synchronized (duplicates) {
+                                duplicates.add(code);
+                            }
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(List.of(), duplicates);
+        assertEquals(nodes * threadsPerNode * perThread, codes.size());
+    }
+
+    /**
+     * Logs single-node generation throughput.
+     */
+    @Test
+    @Tag("report")
+    void reportSingleNodeThroughput() {
+        ShortCodeGenerator generator = new SnowflakeShortCodeGenerator(7);
+        int count = 5_000_000;
+        int sink = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            sink += generator.generateShortCode("u").charAt(10);
+        }
+        long elapsed = System.nanoTime() - started;
+        assertTrue(sink > 0);
+        LOG.info(String.format("one node: %.0f codes/s", count * 1e9 / elapsed));
+    }
+
+    @Test
+    void shouldStayUniqueWhenClockMovesBackwards() {
+        AtomicLong now = new AtomicLong(SnowflakeShortCodeGenerator.EPOCH_MILLIS + 1_000_000);
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(3, now::get, 100);
+        long previous = generator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 1000 == 0) {
+                now.addAndGet(i % 5000 == 0 ? -30 : 10);
+            }
+            long id = generator.nextId();
+            assertTrue(id > previous, "IDs must keep increasing");
+            previous = id;
+        }
+    }
+
+    @Test
+    void shouldBorrowFutureMillisecondsWhenSequenceRunsOut() {
+        AtomicLong now = new AtomicLong(SnowflakeShortCodeGenerator.EPOCH_MILLIS + 5);
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(1, now::get, 10);
+        long last = 0;
+        for (int i = 0; i < 4096 * 3; i++) {
+            last = generator.nextId();
+        }
+        long timestamp = last >>> (SnowflakeShortCodeGenerator.NODE_BITS + SnowflakeShortCodeGenerator.SEQUENCE_BITS);
+        assertEquals(7, timestamp);
+    }
+
+    @Test
+    void shouldWaitForClockOnceBorrowWindowIsUsedUp() throws InterruptedException {
+        AtomicLong now = new AtomicLong(SnowflakeShortCodeGenerator.EPOCH_MILLIS + 5);
+        SnowflakeShortCodeGenerator generator = new SnowflakeShortCodeGenerator(1, now::get, 0);
+        for (int i = 0; i < 4096; i++) {
+            generator.nextId();
+        }
+        Thread waiter = new Thread(generator::nextId);
+        waiter.start();
+        waiter.join(100);
+        assertTrue(waiter.isAlive(), "Generator should wait while the millisecond is exhausted");
+        now.incrementAndGet();
+        waiter.join(5000);
+        assertFalse(waiter.isAlive());
+    }
+
+    @Test
+    void shouldRejectInvalidNodeIds() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeShortCodeGenerator(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeShortCodeGenerator(SnowflakeShortCodeGenerator.MAX_NODE_ID + 1));
+    }
+}
@@ -1,16 +1,30 @@
 package org.example.service;
 
+import org.example.repository.FileURLRepository;
+import org.example.repository.InMemoryURLRepository;
 import org.example.repository.URLRepository;
 import org.example.model.URLMapping;
 import org.example.util.UrlValidator;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +36,8 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class URLShortenerServiceTest {
+    private static final Logger LOG = Logger.getLogger(URLShortenerServiceTest.class.getName());
+
     @Mock
     private URLRepository repository;
 
@@ -39,12 +55,13 @@ class URLShortenerServiceTest {
         String longUrl = "https://example.com/abc"; // Use a valid URL for positive test
         String shortCode = "xyz123";
         when(generator.generateShortCode(longUrl)).thenReturn(shortCode);
-        when(repository.findByLongUrl(longUrl)).thenReturn(null);
+        when(repository.findOrSave(any(URLMapping.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
 
         String result = service.shortenUrl(longUrl);
         assertEquals(shortCode, result);
-        verify(repository).save(any(URLMapping.class));
+        verify(repository).findOrSave(any(URLMapping.class));
+        verify(repository, never()).findByShortCode(anyString());
     }
 
     @Test
@@ -77,13 +94,13 @@ class URLShortenerServiceTest {
         String uniqueCode = "uniq456";
         // First generated code collides, second is unique
         when(generator.generateShortCode(longUrl)).thenReturn(duplicateCode, uniqueCode);
-        when(repository.findByLongUrl(longUrl)).thenReturn(null);
-        when(repository.findByShortCode(duplicateCode)).thenReturn(new URLMapping(duplicateCode, "other", LocalDateTime.now()));
-        when(repository.findByShortCode(uniqueCode)).thenReturn(null);
+        when(repository.findOrSave(argThat(m -> m != null && duplicateCode.equals(m.getShortCode())))).thenReturn(null);
+        when(repository.findOrSave(argThat(m -> m != null && uniqueCode.equals(m.getShortCode()))))
+                .thenAnswer(invocation -> invocation.getArgument(0));
 
         String result = service.shortenUrl(longUrl);
         assertEquals(uniqueCode, result);
-        verify(repository).save(any(URLMapping.class));
+        verify(repository, times(2)).findOrSave(any(URLMapping.class));
         verify(generator, times(2)).generateShortCode(longUrl);
     }
 
@@ -92,7 +109,7 @@ class URLShortenerServiceTest {
         String existingUrl = "https://example.com/existing";
         String existingCode = "existing123";
 
-        when(repository.findByLongUrl(existingUrl)).thenReturn(
+        when(repository.findOrSave(any(URLMapping.class))).thenReturn(
                 new URLMapping(existingCode, existingUrl, LocalDateTime.now()));
 
         String shortened = service.shortenUrl(existingUrl);
@@ -101,12 +118,23 @@ class URLShortenerServiceTest {
         assertEquals(existingCode, shortened);
     }
 
+    @Test
+    void shouldReuseLiveMappingWithoutGeneratingACode() {
+        String existingUrl = "https://example.com/existing";
+        when(repository.findByLongUrl(existingUrl)).thenReturn(
+                new URLMapping("existing123", existingUrl, LocalDateTime.now()));
+
+        assertEquals("existing123", service.shortenUrl(existingUrl));
+        verify(generator, never()).generateShortCode(anyString());
+        verify(repository, never()).findOrSave(any(URLMapping.class));
+    }
+
     @Test
     void shouldNotGiveExistingCodeIfNotShortened(){
         String existingUrl = "https://example.com/existing";
         String existingCode = "existing123";
 
-        when(repository.findByLongUrl(existingUrl)).thenReturn(
+        when(repository.findOrSave(any(URLMapping.class))).thenReturn(
                 new URLMapping("newCode", existingUrl, LocalDateTime.now()));
 
         String shortened = service.shortenUrl(existingUrl);
@@ -120,16 +148,13 @@ class URLShortenerServiceTest {
     void shouldThrowExceptionWhenMaxAttemptsReached(){
         String longUrl = "https://example.com/maxattempts";
 
-        when(repository.findByLongUrl(longUrl)).thenReturn(null);
-
-        String generatedShortCode = generator.generateShortCode(longUrl);
-
-        when(repository.findByShortCode(generatedShortCode)).thenReturn(
-                new URLMapping("existingCode", longUrl, LocalDateTime.now()));
+        when(generator.generateShortCode(longUrl)).thenReturn("taken");
+        when(repository.findOrSave(any(URLMapping.class))).thenReturn(null);
 
         assertThrows(IllegalStateException.class, () ->{
             service.shortenUrl(longUrl);
         });
+        verify(repository, times(10)).findOrSave(any(URLMapping.class));
     }
 
     @Test
@@ -148,15 +173,14 @@ class URLShortenerServiceTest {
         String longUrl = "https://example.com/expired";
         String expiredCode = "expired";
         String newCode = "newCode";
-        LocalDateTime expiredAt = LocalDateTime.now().minusMinutes(10);
-        when(repository.findByLongUrl(longUrl)).thenReturn(
-                new URLMapping(
+        InMemoryURLRepository realRepository = new InMemoryURLRepository();
+        realRepository.save(new URLMapping(
                             expiredCode,
                             longUrl,
                             LocalDateTime.now(),
-                            expiredAt)); // Set expiresAt in the past
+                            LocalDateTime.now().minusMinutes(10))); // Set expiresAt in the past
         when(generator.generateShortCode(longUrl)).thenReturn(newCode);
-        when(repository.findByShortCode(newCode)).thenReturn(null);
+        service = new URLShortenerServiceImpl(realRepository, generator);
 
         String shortedUrl = service.shortenUrl(longUrl);
         assertNotNull(shortedUrl);
@@ -187,14 +211,145 @@ class URLShortenerServiceTest {
         String invalidUrl = "htt://example.com/abc";
         String shortCode = "xyz123";
         when(generator.generateShortCode(invalidUrl)).thenReturn(shortCode);
-        when(repository.findByLongUrl(invalidUrl)).thenReturn(null);
+        when(repository.findOrSave(any(URLMapping.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Use Mockito's MockedStatic to skip validation (doNothing equivalent)
         try (org.mockito.MockedStatic<UrlValidator> mocked = org.mockito.Mockito.mockStatic(UrlValidator.class)) {
             mocked.when(() -> UrlValidator.validate(anyString())).thenAnswer(invocation -> null); // doNothing for any input
             String result = service.shortenUrl(invalidUrl);
             assertEquals(shortCode, result);
-            verify(repository).save(any(URLMapping.class));
+            verify(repository).findOrSave(any(URLMapping.class));
+        }
+    }
+
+    /**
+     * Concurrent shortens of the same URL must agree on one code and never overwrite each other.
+     */
+    @Test
+    void shouldReturnSameCodeForConcurrentShortensOfSameUrl() throws Exception {
+        URLShortenerService realService =
+                new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator());
+        String longUrl = "https://example.com/race";
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> realService.shortenUrl(longUrl)));
+        }
+        Set<String> codes = new HashSet<>();
+        for (Future<String> result : results) {
+            codes.add(result.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, codes.size());
+        assertEquals(longUrl, realService.getOriginalUrl(codes.iterator().next()));
+    }
+
+    /**
+     * Codes the repository reports as probably taken are skipped without a write.
+     */
+    @Test
+    void shouldSkipCodesReportedProbablyTaken() {
+        String longUrl = "https://example.com/abc";
+        when(generator.generateShortCode(longUrl)).thenReturn("taken", "free");
+        when(repository.isShortCodeProbablyTaken("taken")).thenReturn(true);
+        when(repository.isShortCodeProbablyTaken("free")).thenReturn(false);
+        when(repository.findOrSave(any(URLMapping.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertEquals("free", service.shortenUrl(longUrl));
+        verify(repository, times(1)).findOrSave(any(URLMapping.class));
+    }
+
+    /**
+     * Bulk shortening dedupes the batch, reuses existing mappings and keeps input order.
+     */
+    @Test
+    void shouldShortenBatchWithDedupe() {
+        URLShortenerService realService =
+                new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator());
+        String existing = realService.shortenUrl("https://example.com/old");
+
+        Map<String, String> codes = realService.shortenUrls(List.of(
+                "https://example.com/b", "https://example.com/old", "https://example.com/a", "https://example.com/b"), null);
+
+        assertEquals(List.of("https://example.com/b", "https://example.com/old", "https://example.com/a"), new ArrayList<>(codes.keySet()));
+        assertEquals(existing, codes.get("https://example.com/old"));
+        assertEquals(3, new HashSet<>(codes.values()).size());
+        codes.forEach((url, code) -> assertEquals(url, realService.getOriginalUrl(code)));
+    }
+
+    /**
+     * URLs whose codes collided are retried together with fresh codes.
+     */
+    @Test
+    void shouldRetryCollidingCodesInBatch() {
+        List<String> urls = List.of("https://example.com/a", "https://example.com/b");
+        when(generator.generateShortCodes(urls)).thenReturn(List.of("dup", "ok1"));
+        when(generator.generateShortCodes(List.of("https://example.com/a"))).thenReturn(List.of("ok2"));
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<URLMapping> candidates = invocation.getArgument(0);
+            List<URLMapping> stored = new ArrayList<>();
+            for (URLMapping candidate : candidates) {
+                stored.add("dup".equals(candidate.getShortCode()) ? null : candidate);
+            }
+            return stored;
+        });
+
+        Map<String, String> codes = service.shortenUrls(urls, null);
+
+        assertEquals(Map.of("https://example.com/a", "ok2", "https://example.com/b", "ok1"), codes);
+        verify(repository, times(2)).saveAll(anyList());
+    }
+
+    /**
+     * One invalid URL fails the batch before anything is written.
+     */
+    @Test
+    void shouldRejectBatchWithInvalidUrlBeforeWriting() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.shortenUrls(List.of("https://example.com/a", "not a url"), null));
+        verify(repository, never()).saveAll(anyList());
+    }
+
+    /**
+     * Logs shorten throughput for the per-call loop and the bulk call, in memory and on a durable log.
+     */
+    @Test
+    @Tag("report")
+    void reportBulkShortenThroughput(@TempDir Path dir) {
+        int count = 100_000;
+        List<String> urls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            urls.add("https://example.com/campaign/" + i + "?utm_source=mail");
+        }
+        long loopNanos = timeLoop(new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator()), urls);
+        long bulkNanos = timeBulk(new URLShortenerServiceImpl(new InMemoryURLRepository(), new SimpleShortCodeGenerator()), urls);
+        LOG.info(String.format("in-memory shorten of %d URLs: loop %d ms, bulk %d ms",
+                count, loopNanos / 1_000_000, bulkNanos / 1_000_000));
+
+        List<String> durableUrls = urls.subList(0, 2_000);
+        FileURLRepository.Options options = new FileURLRepository.Options().snapshotIntervalMillis(0);
+        try (FileURLRepository loopRepo = FileURLRepository.open(dir.resolve("loop"), options);
+             FileURLRepository bulkRepo = FileURLRepository.open(dir.resolve("bulk"), options)) {
+            loopNanos = timeLoop(new URLShortenerServiceImpl(loopRepo, new SimpleShortCodeGenerator()), durableUrls);
+            bulkNanos = timeBulk(new URLShortenerServiceImpl(bulkRepo, new SimpleShortCodeGenerator()), durableUrls);
         }
+        LOG.info(String.format("durable (wait for sync) shorten of %d URLs: loop %d ms, bulk %d ms",
+                durableUrls.size(), loopNanos / 1_000_000, bulkNanos / 1_000_000));
+    }
+
+    private static long timeLoop(URLShortenerService service, List<String> urls) {
+        long started = System.nanoTime();
+        for (String url : urls) {
+            service.shortenUrl(url, null);
+        }
+        return System.nanoTime() - started;
+    }
+
+    private static long timeBulk(URLShortenerService service, List<String> urls) {
+        long started = System.nanoTime();
+        assertEquals(urls.size(), service.shortenUrls(urls, null).size());
+        return System.nanoTime() - started;
     }
 }
@@ -0,0 +1,225 @@
+package org.example.transfer;
+
+import org.example.model.URLMapping;
+import org.example.repository.InMemoryURLRepository;
+import org.example.repository.ShardedURLRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingTransferTest {
+    private static final Logger LOG = Logger.getLogger(MappingTransferTest.class.getName());
+
+    @TempDir
+    Path dir;
+
+    private static InMemoryURLRepository sampleStore() {
+        LocalDateTime now = LocalDateTime.now();
+        InMemoryURLRepository store = new InMemoryURLRepository();
+        store.save(new URLMapping("plain", "https://example.com/a", now));
+        store.save(new URLMapping("expiring", "https://example.com/b", now, now.plusDays(1)));
+        store.save(new URLMapping("q\"uo\\te", "https://example.com/c?q=\"x\"&tab=\t", now));
+        store.save(new URLMapping("h\u00e9llo", "https://example.com/\u00fcber/\u65e5\u672c", now));
+        store.save(new URLMapping("gone", "https://example.com/d", now.minusDays(2), now.minusDays(1)));
+        return store;
+    }
+
+    @Test
+    void shouldRoundTripLiveMappingsInBothFormats() throws Exception {
+        InMemoryURLRepository source = sampleStore();
+        for (TransferFormat format : TransferFormat.values()) {
+            Path file = dir.resolve("export." + format);
+            TransferSummary exported = MappingExporter.export(source::forEach, file, format);
+            assertEquals(4, exported.getRecords(), "Expired mappings are not exported");
+            assertEquals(Files.size(file), exported.getBytes());
+
+            TransferSummary verified = MappingImporter.verify(file);
+            assertEquals(format, verified.getFormat(), "The format is detected from the file");
+            assertEquals(exported.getChecksum(), verified.getChecksum());
+
+            InMemoryURLRepository target = new InMemoryURLRepository();
+            ImportResult result = new MappingImporter(new MappingImporter.Options().threads(3).batchSize(2))
+                    .importFrom(file, target);
+            assertEquals(4, result.getImported());
+            assertEquals(0, result.getSkipped() + result.getConflicts() + result.getExpired());
+            for (String code : List.of("plain", "expiring", "q\"uo\\te", "h\u00e9llo")) {
+                assertEquals(source.findByShortCode(code), target.findByShortCode(code), format + " " + code);
+            }
+            assertNull(target.findByShortCode("gone"));
+        }
+    }
+
+    @Test
+    void shouldWriteReadableNdjson() throws IOException {
+        InMemoryURLRepository source = new InMemoryURLRepository();
+        LocalDateTime createdAt = LocalDateTime.of(2030, 1, 1, 0, 0);
+        source.save(new URLMapping("abc", "https://example.com/a", createdAt, createdAt.plusHours(1)));
+        Path file = dir.resolve("one.ndjson");
+        TransferSummary summary = MappingExporter.export(source::forEach, file, TransferFormat.NDJSON);
+
+        List<String> lines = Files.readAllLines(file);
+        long millis = URLMapping.toEpochMillis(createdAt);
+        assertEquals("{\"code\":\"abc\",\"url\":\"https://example.com/a\",\"createdAt\":" + millis
+                + ",\"expiresAt\":" + (millis + 3_600_000) + "}", lines.get(0));
+        assertEquals(String.format("{\"records\":1,\"crc32c\":\"%08x\"}", summary.getChecksum()), lines.get(1));
+    }
+
+    @Test
+    void shouldCountMappingsTheTargetRejects() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        Path file = dir.resolve("import.ndjson");
+        long created = URLMapping.toEpochMillis(now);
+        writeNdjsonWithTrailer(file,
+                "{\"code\":\"new\",\"url\":\"https://example.com/new\",\"createdAt\":" + created + "}",
+                "{\"code\":\"other\",\"url\":\"https://example.com/taken-url\",\"createdAt\":" + created + "}",
+                "{\"code\":\"taken\",\"url\":\"https://example.com/elsewhere\",\"createdAt\":" + created + "}",
+                "{ \"url\" : \"https://example.com/old\", \"extra\": [1], \"code\": \"old\", \"createdAt\": 0, \"expiresAt\": 1 }");
+        InMemoryURLRepository target = new InMemoryURLRepository();
+        target.save(new URLMapping("taken", "https://example.com/taken-url", now));
+
+        ImportResult result = new MappingImporter().importFrom(file, target);
+        assertEquals(4, result.getSummary().getRecords());
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getSkipped(), "The URL already has a live mapping");
+        assertEquals(1, result.getConflicts(), "The code is taken by another URL");
+        assertEquals(1, result.getExpired());
+        assertEquals("https://example.com/new", target.findByShortCode("new").getLongUrl());
+        assertEquals("taken", target.findByLongUrl("https://example.com/taken-url").getShortCode());
+
+        ImportResult again = new MappingImporter().importFrom(file, target);
+        assertEquals(1, again.getImported(), "Importing the same file twice changes nothing");
+    }
+
+    @Test
+    void shouldImportTheFirstCodeOfAUrlWhateverTheThreadCount() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        int urls = 200;
+        Path file = dir.resolve("codes.bin");
+        MappingExporter.export(visitor -> {
+            for (int i = 0; i < urls; i++) {
+                visitor.accept(new URLMapping("first" + i, "https://example.com/" + i, now));
+                visitor.accept(new URLMapping("second" + i, "https://example.com/" + i, now));
+            }
+        }, file, TransferFormat.BINARY);
+
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            InMemoryURLRepository target = new InMemoryURLRepository();
+            ImportResult result = new MappingImporter(new MappingImporter.Options().threads(threads).batchSize(7))
+                    .importFrom(file, target);
+            assertEquals(urls, result.getImported());
+            assertEquals(urls, result.getSkipped());
+            for (int i = 0; i < urls; i++) {
+                assertEquals("first" + i, target.findByLongUrl("https://example.com/" + i).getShortCode());
+                assertNull(target.findByShortCode("second" + i));
+            }
+        }
+    }
+
+    @Test
+    void shouldRejectDamagedFiles() throws Exception {
+        InMemoryURLRepository source = sampleStore();
+        Path binary = dir.resolve("export.bin");
+        MappingExporter.export(source::forEach, binary, TransferFormat.BINARY);
+        byte[] bytes = Files.readAllBytes(binary);
+
+        byte[] flipped = bytes.clone();
+        flipped[30] ^= 1;
+        Files.write(dir.resolve("flipped.bin"), flipped);
+        assertThrows(IllegalStateException.class, () -> MappingImporter.verify(dir.resolve("flipped.bin")));
+
+        Files.write(dir.resolve("truncated.bin"), Arrays.copyOf(bytes, bytes.length - 20));
+        assertThrows(IllegalStateException.class, () -> MappingImporter.verify(dir.resolve("truncated.bin")));
+
+        Path json = dir.resolve("export.ndjson");
+        MappingExporter.export(source::forEach, json, TransferFormat.NDJSON);
+        List<String> lines = Files.readAllLines(json, StandardCharsets.UTF_8);
+        Path edited = dir.resolve("edited.ndjson");
+        writeNdjson(edited, lines.stream().map(line -> line.replace("example.com/a", "example.com/z")).toArray(String[]::new));
+        IllegalStateException mismatch = assertThrows(IllegalStateException.class, () -> MappingImporter.verify(edited));
+        assertTrue(mismatch.getMessage().contains("checksum"), mismatch.getMessage());
+
+        Path dropped = dir.resolve("dropped.ndjson");
+        writeNdjson(dropped, lines.subList(1, lines.size()).toArray(new String[0]));
+        assertThrows(IllegalStateException.class, () -> MappingImporter.verify(dropped));
+
+        Path noTrailer = dir.resolve("no-trailer.ndjson");
+        writeNdjson(noTrailer, lines.subList(0, lines.size() - 1).toArray(new String[0]));
+        assertThrows(IllegalStateException.class, () -> new MappingImporter().importFrom(noTrailer, new InMemoryURLRepository()));
+    }
+
+    @Test
+    void shouldStreamThroughASmallBuffer() throws Exception {
+        InMemoryURLRepository source = new InMemoryURLRepository();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 20_000; i++) {
+            source.save(new URLMapping("c" + i, "https://example.com/some/path/" + i, now));
+        }
+        for (TransferFormat format : TransferFormat.values()) {
+            Path file = dir.resolve("many." + format);
+            MappingExporter.export(source::forEach, file, format);
+            ShardedURLRepository target = new ShardedURLRepository(4);
+            ImportResult result = new MappingImporter(new MappingImporter.Options().threads(4).bufferBytes(4096))
+                    .importFrom(file, target);
+            assertEquals(20_000, result.getImported(), format.toString());
+            assertEquals("https://example.com/some/path/12345", target.findByShortCode("c12345").getLongUrl());
+        }
+    }
+
+    /**
+     * Exports, verifies and imports a store in both formats and logs the throughput.
+     * Set -Dmappings=100000000 (with a large enough heap) for the full-size run.
+     */
+    @Test
+    @Tag("report")
+    void reportRoundTripThroughput() throws Exception {
+        int count = Integer.getInteger("mappings", 1_000_000);
+        ShardedURLRepository source = new ShardedURLRepository();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            source.save(new URLMapping(Integer.toString(i, 36), "https://example.com/articles/" + i + "?ref=newsletter",
+                    now, i % 10 == 0 ? now.plusDays(30) : null));
+        }
+        for (TransferFormat format : TransferFormat.values()) {
+            Path file = dir.resolve("bulk." + format);
+            long started = System.nanoTime();
+            TransferSummary exported = MappingExporter.export(source::forEach, file, format);
+            double exportSeconds = (System.nanoTime() - started) / 1e9;
+            started = System.nanoTime();
+            MappingImporter.verify(file);
+            double verifySeconds = (System.nanoTime() - started) / 1e9;
+            ShardedURLRepository target = new ShardedURLRepository();
+            ImportResult imported = new MappingImporter().importFrom(file, target);
+            assertEquals(count, imported.getImported());
+            LOG.info(String.format("%s: %d mappings, %.1f MB; export %.0f/s, verify %.0f/s, import %.0f/s",
+                    format, count, exported.getBytes() / 1e6, count / exportSeconds, count / verifySeconds,
+                    count * 1000.0 / Math.max(1, imported.getMillis())));
+            Files.delete(file);
+        }
+    }
+
+    private static void writeNdjson(Path file, String... lines) throws IOException {
+        Files.write(file, (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeNdjsonWithTrailer(Path file, String... lines) throws IOException {
+        CRC32C checksum = new CRC32C();
+        for (String line : lines) {
+            checksum.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        String trailer = String.format("{\"records\":%d,\"crc32c\":\"%08x\"}", lines.length, (int) checksum.getValue());
+        writeNdjson(file, Stream.concat(Stream.of(lines), Stream.of(trailer)).toArray(String[]::new));
+    }
+}
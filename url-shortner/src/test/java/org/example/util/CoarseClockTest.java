@@ -0,0 +1,60 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoarseClockTest {
+
+    @Test
+    void shouldFollowTheLocalWallClock() throws InterruptedException {
+        LocalDateTime before = LocalDateTime.now().minusNanos(1_000_000);
+        Thread.sleep(20);
+        LocalDateTime cached = CoarseClock.now();
+        long millis = CoarseClock.currentTimeMillis();
+        LocalDateTime after = LocalDateTime.now();
+
+        assertFalse(cached.isBefore(before), cached + " is before " + before);
+        assertFalse(cached.isAfter(after), cached + " is after " + after);
+        assertTrue(Duration.between(cached, after).toMillis() < 1000);
+        long cachedMillis = cached.toInstant(ZoneOffset.UTC).toEpochMilli();
+        assertTrue(millis >= cachedMillis && millis - cachedMillis < 1000);
+    }
+
+    @Test
+    void shouldBuildOneDateTimePerTick() throws InterruptedException {
+        long millis;
+        LocalDateTime first;
+        LocalDateTime second;
+        do {
+            millis = CoarseClock.currentTimeMillis();
+            first = CoarseClock.now();
+            second = CoarseClock.now();
+        } while (CoarseClock.currentTimeMillis() != millis);
+        assertSame(first, second);
+        assertEquals(millis, first.toInstant(ZoneOffset.UTC).toEpochMilli());
+
+        Thread.sleep(20);
+        assertTrue(CoarseClock.now().isAfter(first));
+    }
+
+    @Test
+    void shouldStopTickingWhenIdleAndRestartOnRead() throws InterruptedException {
+        CoarseClock.currentTimeMillis();
+        assertTrue(CoarseClock.isTicking());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (CoarseClock.isTicking() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertFalse(CoarseClock.isTicking());
+
+        LocalDateTime before = LocalDateTime.now().minusNanos(1_000_000);
+        LocalDateTime cached = CoarseClock.now();
+        assertTrue(CoarseClock.isTicking());
+        assertFalse(cached.isBefore(before), cached + " is before " + before);
+    }
+}
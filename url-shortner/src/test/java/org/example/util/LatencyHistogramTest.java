@@ -0,0 +1,117 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void shouldCountSmallValuesExactly() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 200; i++) {
+            histogram.record(i);
+        }
+        assertEquals(200, histogram.getCount());
+        assertEquals(100, histogram.getValueAtPercentile(50));
+        assertEquals(198, histogram.getValueAtPercentile(99));
+        assertEquals(200, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+        assertEquals(100.5, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    void shouldStayWithinRelativePrecisionAcrossTheRange() {
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-uniform from nanoseconds to hours.
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(1e13));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {1, 10, 50, 90, 99, 99.9, 99.99}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(reported >= exact, "p" + percentile + " must not be under-reported");
+            assertTrue(reported - exact <= exact / 128 + 1, "p" + percentile + ": " + reported + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    void shouldHandleExtremeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        assertThrows(IllegalArgumentException.class, () -> histogram.getValueAtPercentile(101));
+    }
+
+    @Test
+    void shouldAddAndReset() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 0; i < 1000; i++) {
+            first.record(1_000);
+            second.record(1_000_000);
+        }
+        first.add(second);
+        assertEquals(2000, first.getCount());
+        assertEquals(1_000_000, first.getMax());
+        assertEquals(500_500, first.getMean(), 1e-9);
+        assertTrue(first.getValueAtPercentile(50) < 1_010);
+        assertTrue(first.getValueAtPercentile(51) > 990_000);
+        assertEquals(1000, second.getCount(), "The added histogram is unchanged");
+
+        first.reset();
+        assertEquals(0, first.getCount());
+        assertEquals(0, first.getValueAtPercentile(99));
+        assertEquals(0, first.getMax());
+    }
+
+    @Test
+    void shouldRecordConcurrentlyLikeThePlainHistogram() throws InterruptedException {
+        ConcurrentLatencyHistogram concurrent = new ConcurrentLatencyHistogram();
+        LatencyHistogram expected = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50_000; i++) {
+                    concurrent.record(random.nextInt(10_000_000));
+                }
+            });
+            Random random = new Random(seed);
+            for (int i = 0; i < 50_000; i++) {
+                expected.record(random.nextInt(10_000_000));
+            }
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram copy = new LatencyHistogram();
+        concurrent.copyInto(copy);
+        assertEquals(expected.getCount(), copy.getCount());
+        assertEquals(expected.getMax(), copy.getMax());
+        assertEquals(expected.getMean(), copy.getMean(), 1e-9);
+        for (double percentile : new double[] {1, 50, 90, 99, 99.9, 100}) {
+            assertEquals(expected.getValueAtPercentile(percentile), copy.getValueAtPercentile(percentile));
+        }
+
+        concurrent.reset();
+        LatencyHistogram empty = new LatencyHistogram();
+        concurrent.copyInto(empty);
+        assertEquals(0, empty.getCount());
+        assertEquals(0, empty.getMax());
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void shouldCountExactlyWhileUnderCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(10);
+        sketch.add("a", 5);
+        sketch.add("b", 2);
+        sketch.add("a", 1);
+        sketch.add("c", 3);
+
+        assertEquals(List.of("a", "c", "b"), List.copyOf(sketch.top(10).keySet()));
+        assertEquals(6, sketch.estimate("a"));
+        assertEquals(0, sketch.estimate("d"));
+        assertEquals(Map.of("a", 6L), sketch.top(1));
+    }
+
+    @Test
+    void shouldFindHeavyHittersWithoutUndercounting() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(50);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            // Ten heavy codes take half the traffic; the rest is spread over 100k codes.
+            String item = random.nextBoolean() ? "hot" + random.nextInt(10) : "cold" + random.nextInt(100_000);
+            sketch.add(item, 1);
+            exact.merge(item, 1L, Long::sum);
+        }
+        Map<String, Long> top = sketch.top(10);
+        for (int i = 0; i < 10; i++) {
+            String hot = "hot" + i;
+            assertTrue(top.containsKey(hot), hot + " missing from " + top);
+            assertTrue(top.get(hot) >= exact.get(hot));
+        }
+        assertEquals(50, sketch.size());
+    }
+
+    @Test
+    void shouldHalveCounts() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        sketch.add("a", 9);
+        sketch.add("b", 4);
+        sketch.halve();
+        assertEquals(4, sketch.estimate("a"));
+        assertEquals(2, sketch.estimate("b"));
+        sketch.add("b", 3);
+        assertEquals(List.of("b", "a"), List.copyOf(sketch.top(2).keySet()));
+    }
+}
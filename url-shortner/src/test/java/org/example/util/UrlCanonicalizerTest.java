@@ -0,0 +1,39 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlCanonicalizerTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "HTTP://Example.COM/Path, http://example.com/Path",
+            "https://example.com:443/a, https://example.com/a",
+            "http://example.com:80/a, http://example.com/a",
+            "http://example.com:8080/a, http://example.com:8080/a",
+            "https://example.com, https://example.com/",
+            "https://example.com?b=2&a=1, https://example.com/?a=1&b=2",
+            "https://example.com/p?utm_source=x&id=7&utm_medium=y#Top, https://example.com/p?id=7&utm_medium=y&utm_source=x#Top",
+            "https://example.com/p?b=1&a=2&b=0, https://example.com/p?a=2&b=1&b=0",
+            "https://User@Example.com:443/, https://User@example.com/",
+            "http://[2001:DB8::1]:80/x, http://[2001:db8::1]/x"
+    })
+    void shouldCanonicalizeEquivalentForms(String url, String expected) {
+        assertEquals(expected, UrlCanonicalizer.canonicalize(url));
+    }
+
+    @Test
+    void shouldReturnSameInstanceWhenAlreadyCanonical() {
+        String url = "https://example.com/a?x=1&y=2";
+        assertSame(url, UrlCanonicalizer.canonicalize(url));
+    }
+
+    @Test
+    void shouldLeaveNonAbsoluteInputUnchanged() {
+        assertEquals("not a url", UrlCanonicalizer.canonicalize("not a url"));
+        assertEquals("mailto:user@example.com", UrlCanonicalizer.canonicalize("mailto:user@example.com"));
+    }
+}
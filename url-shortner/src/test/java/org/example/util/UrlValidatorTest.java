@@ -1,13 +1,34 @@
 package org.example.util;
 
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.NullSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.lang.management.ManagementFactory;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Random;
+import java.util.logging.Logger;
+
 
 import static org.junit.jupiter.api.Assertions.*;
 class UrlValidatorTest {
+    private static final Logger LOG = Logger.getLogger(UrlValidatorTest.class.getName());
+
+    /**
+     * Fragments that exercise every branch of the URL grammar, including java.net.URL's quirks.
+     */
+    private static final String[] PREFIXES = {"", "http://", "https://", "HTTP://", "http:", "url:https://", " http://"};
+    private static final String[] FRAGMENTS = {
+            "http", "https", "HTTP", "hTTps", "ftp", "mailto", "htp", "url:", "\u017f", "1a", "a+b",
+            ":", "//", "/", "?", "#", "@", ":80", ":-1", ":-2", ":+8", ":\u0663", ":99999999999",
+            "[", "]", "[::1]", "[::ffff:1.2.3.4]", "[fe80::1%eth0]", "[1:2:3:4:5:6:7:8]", "[::", "%",
+            "::", "ffff", "1.2.3.4", "256", ".", "example.com", "a", " ", "\t", "user", "-", "+", "0",
+            "\u0001", "\u007f", "\u2047", "\uff0f", "\u00e9"
+    };
 
     @ParameterizedTest
     @CsvSource({
@@ -45,4 +66,112 @@ class UrlValidatorTest {
     void shouldThrowForNullOrEmptyUrls(String url) {
         assertThrows(IllegalArgumentException.class, () -> UrlValidator.validate(url));
     }
-}
\ No newline at end of file
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "HTTP://EXAMPLE.COM", " https://example.com ", "url:http://example.com",
+            "http://example.com:8080", "http://example.com:", "http://user:pw@example.com",
+            "http://[::1]/", "http://[fe80::1%25eth0]:8080/", "http://[::ffff:192.168.0.1]",
+            "http://example.com?q", "http://example.com/a b", "http://example.com:-1", "http://u v@example.com"
+    })
+    void shouldAcceptWhatUrlParserAccepts(String url) {
+        assertDoesNotThrow(() -> UrlValidator.validate(url));
+        assertTrue(UrlValidator.isValid(url));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "http:example.com", "http:/example.com", "http:///example.com", "http:////example.com",
+            "http://a@b@example.com", "http://example.com:80a", "http://example.com:-2",
+            "http://example.com:2147483648", "http://[::1", "http://[]", "http://[::1]x",
+            "http://[1:2:3:4:5:6:7:8:9]", "http://[::1.2.3]", "http:// /", "//example.com", "#http://x",
+            "http://exa\tmple.com", "http://example\uff0ecom\uff0f", "http://a b", "http://a<b>",
+            "http://u[@example.com", "http://[fe80::1%e\\th0]/"
+    })
+    void shouldRejectWhatUrlParserRejects(String url) {
+        assertThrows(IllegalArgumentException.class, () -> UrlValidator.validate(url));
+        assertFalse(UrlValidator.isValid(url));
+    }
+
+    @Test
+    void shouldGiveTheSameVerdictsAsJavaNetUrl() {
+        Random random = new Random(7);
+        StringBuilder url = new StringBuilder();
+        int accepted = 0;
+        for (int i = 0; i < 300_000; i++) {
+            url.setLength(0);
+            url.append(PREFIXES[random.nextInt(PREFIXES.length)]);
+            int parts = 1 + random.nextInt(8);
+            for (int p = 0; p < parts; p++) {
+                url.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String candidate = url.toString();
+            boolean expected = acceptedByUrlParser(candidate);
+            assertEquals(expected, UrlValidator.isValid(candidate), candidate);
+            accepted += expected ? 1 : 0;
+        }
+        assertTrue(accepted > 10_000, "The generator should produce plenty of valid URLs, got " + accepted);
+    }
+
+    /**
+     * Logs the cost per call of this validator and of the java.net.URL based check it replaced,
+     * on valid and malformed input.
+     */
+    @Test
+    @Tag("report")
+    void reportValidationCost() {
+        String[] valid = {
+                "https://example.com/campaign/spring?utm_source=newsletter&utm_medium=email&utm_campaign=launch",
+                "http://www.example.org/a/b/c", "https://user@example.net:8443/x?y=z#frag"
+        };
+        String[] malformed = {"ftp://example.com/file", "http://", "not a url at all", "http://[::1/x"};
+        for (String[] inputs : new String[][] {valid, malformed}) {
+            String kind = inputs == valid ? "valid" : "malformed";
+            for (int round = 0; round < 2; round++) {
+                Cost scanner = measure(inputs, UrlValidator::isValid);
+                Cost parser = measure(inputs, UrlValidatorTest::acceptedByUrlParser);
+                if (round == 1) {
+                    LOG.info(String.format("%s: scanner %.0f ns/op %d B/op, java.net.URL %.0f ns/op %d B/op",
+                            kind, scanner.nanos, scanner.bytes, parser.nanos, parser.bytes));
+                }
+            }
+        }
+    }
+
+    private record Cost(double nanos, long bytes) {
+    }
+
+    private static Cost measure(String[] inputs, java.util.function.Predicate<String> check) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int iterations = 1_000_000;
+        int accepted = 0;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (check.test(inputs[i % inputs.length])) {
+                accepted++;
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        assertTrue(accepted >= 0);
+        return new Cost((double) elapsed / iterations, allocated / iterations);
+    }
+
+    /**
+     * The validation this class used before: parse with java.net.URL, then check scheme and host.
+     */
+    @SuppressWarnings("deprecation")
+    private static boolean acceptedByUrlParser(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            return false;
+        }
+        try {
+            URL parsed = new URL(url);
+            String protocol = parsed.getProtocol();
+            return (protocol.equals("http") || protocol.equals("https")) && !parsed.getHost().trim().isEmpty();
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+}